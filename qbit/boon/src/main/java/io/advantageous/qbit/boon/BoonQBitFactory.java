@@ -86,6 +86,7 @@ public class BoonQBitFactory implements Factory {
         protected List<ProtocolParser> initialValue() {
             ArrayList<ProtocolParser> list = new ArrayList<>();
             list.add(createProtocolParser());
+            list.add(createBinaryProtocolParser());
             return list;
         }
     };
@@ -202,7 +203,9 @@ public class BoonQBitFactory implements Factory {
                     serviceInterface,
                     serviceName,
                     host, port, connected,
-                returnAddressArg, new SenderEndPoint(this.createEncoder(), address, sender, beforeMethodCall,
+                returnAddressArg, new SenderEndPoint(sender.binary() ? this.createBinaryEncoder()
+                        : sender.compressGroups() ? this.createCompressedGroupEncoder() : this.createEncoder(),
+                        address, sender, beforeMethodCall,
                         requestBatchSize));
     }
 
@@ -264,11 +267,28 @@ public class BoonQBitFactory implements Factory {
         return FactorySPI.getClientFactory().create(uri, httpClient, requestBatchSize);
     }
 
+    @Override
+    public Client createClient(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol) {
+        return FactorySPI.getClientFactory().create(uri, httpClient, requestBatchSize, binaryProtocol);
+    }
+
+    @Override
+    public Client createClient(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol,
+                               boolean compressGroups) {
+        return FactorySPI.getClientFactory().create(uri, httpClient, requestBatchSize, binaryProtocol,
+                compressGroups);
+    }
+
     @Override
     public ProtocolParser createProtocolParser() {
         return new BoonProtocolParser();
     }
 
+    @Override
+    public ProtocolParser createBinaryProtocolParser() {
+        return new BinaryProtocolParser();
+    }
+
 
     @Override
     public MethodCall<Object> createMethodCallToBeParsedFromBody(String address, String returnAddress, String objectName, String methodName, Object body, MultiMap<String, String> params) {
@@ -362,12 +382,28 @@ public class BoonQBitFactory implements Factory {
         return new BoonServiceMethodCallHandler(invokeDynamic);
     }
 
+    @Override
+    public ServiceMethodHandler createServiceMethodHandler(boolean invokeDynamic, boolean generatedInvoker) {
+
+        return new BoonServiceMethodCallHandler(invokeDynamic, generatedInvoker);
+    }
+
 
     @Override
     public ProtocolEncoder createEncoder() {
         return new BoonProtocolEncoder();
     }
 
+    @Override
+    public ProtocolEncoder createBinaryEncoder() {
+        return new BinaryProtocolEncoder();
+    }
+
+    @Override
+    public ProtocolEncoder createCompressedGroupEncoder() {
+        return new BoonProtocolEncoder(true);
+    }
+
 
     public EventBusProxyCreator eventBusProxyCreator() {
 
@@ -19,12 +19,13 @@
 package io.advantageous.qbit.boon;
 
 import io.advantageous.boon.core.Str;
-import io.advantageous.boon.primitive.CharBuf;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.ProxyMethodTable;
 import io.advantageous.qbit.client.RemoteTCPClientProxy;
 import io.advantageous.qbit.client.ServiceProxyFactory;
 import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.service.EndPoint;
 import io.advantageous.qbit.util.Timer;
 
@@ -70,12 +71,10 @@ public class BoonServiceProxyFactory implements ServiceProxyFactory {
 
         final String returnAddress = returnAddressArg;
 
-        final ThreadLocal<CharBuf> addressCreatorBufRef = new ThreadLocal<CharBuf>() {
-            @Override
-            protected CharBuf initialValue() {
-                return CharBuf.createCharBuf(255);
-            }
-        };
+        final Class<?> proxyInterface = port == 0 ? ClientProxy.class : RemoteTCPClientProxy.class;
+
+        final ProxyMethodTable proxyMethods = new ProxyMethodTable(Str.add(objectAddress, "/"),
+                serviceInterface, proxyInterface);
 
 
         InvocationHandler invocationHandler = new InvocationHandler() {
@@ -89,35 +88,37 @@ public class BoonServiceProxyFactory implements ServiceProxyFactory {
 
 
 
-                switch (method.getName()) {
-                    case "port":
+                final ProxyMethodTable.ProxyMethod proxyMethod = proxyMethods.method(method);
+
+                switch (proxyMethod.kind()) {
+                    case PORT:
                         return port;
-                    case "host":
+                    case HOST:
                         return host;
-                    case "silentClose":
+                    case SILENT_CLOSE:
                         try {
                             endPoint.stop();
                         } catch (Exception ex) {
                             //silentClose
                         }
-                    case "flush":
-                    case "clientProxyFlush":
+                    case FLUSH:
+                    case CLIENT_PROXY_FLUSH:
                         endPoint.flush();
                         return null;
-                    case "toString":
+                    case TO_STRING:
                         return port == 0 ? sputs("{Local Proxy", serviceName, "}") :
                                 sputs("{Remote Proxy", serviceName, host, port, "}");
-                    case "equals":
+                    case EQUALS:
                         return proxy == args[0];
-                    case "hashCode":
-                        return proxy.hashCode();
-                    case "connected":
+                    case HASH_CODE:
+                        return System.identityHashCode(proxy);
+                    case CONNECTED:
                         return connected.get();
 
                 }
 
 
-                long messageId = generatedMessageId++;
+                long messageId = ++generatedMessageId;
 
                 times--;
                 if ( times == 0 ) {
@@ -128,18 +129,8 @@ public class BoonServiceProxyFactory implements ServiceProxyFactory {
                 }
 
 
-                final CharBuf addressBuf = addressCreatorBufRef.get();
-
-                addressBuf.recycle();
-
-                addressBuf.add(objectAddress).add("/").add(method.getName());
-
-                final String address = addressBuf.toString();
-
-
-                final MethodCall<Object> call =
-                        factory.createMethodCallToBeEncodedAndSent(messageId, address,
-                                returnAddress, serviceName, method.getName(), timestamp, args, null);
+                final MethodCall<Object> call = new MethodCallImpl(timestamp, messageId, proxyMethod.name(),
+                        proxyMethod.address(), null, null, args, serviceName, returnAddress, null);
 
                 endPoint.call(call);
                 return null;
@@ -148,13 +139,8 @@ public class BoonServiceProxyFactory implements ServiceProxyFactory {
 
 
 
-        if (port == 0) {
-            return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(),
-                    new Class[]{serviceInterface, ClientProxy.class}, invocationHandler);
-        } else {
-            return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(),
-                    new Class[]{serviceInterface, RemoteTCPClientProxy.class}, invocationHandler);
-        }
+        return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(),
+                new Class[]{serviceInterface, proxyInterface}, invocationHandler);
 
 
     }
@@ -35,18 +35,20 @@ import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.reactive.CallbackRegistry;
 import io.advantageous.qbit.sender.Sender;
 import io.advantageous.qbit.service.BeforeMethodCall;
+import io.advantageous.qbit.service.Protocol;
+import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -72,6 +74,14 @@ public class BoonClient implements Client {
      * Request batch size for queuing.
      */
     private final int requestBatchSize;
+    /**
+     * Send WebSocket binary frames using the binary protocol.
+     */
+    private final boolean binaryProtocol;
+    /**
+     * Send text groups as compressed groups.
+     */
+    private final boolean compressGroups;
     private final boolean debug = GlobalConstants.DEBUG;
     /**
      * Holds on to Boon cache so we don't have to recreate reflected gak.
@@ -80,7 +90,7 @@ public class BoonClient implements Client {
     /**
      * Map of handlers so we can do the whole async call back thing.
      */
-    private Map<HandlerKey, Callback<Object>> handlers = new ConcurrentHashMap<>();
+    private final CallbackRegistry handlers = new CallbackRegistry();
     /**
      * Logger.
      */
@@ -102,9 +112,41 @@ public class BoonClient implements Client {
                       final HttpClient httpClient,
                       final int requestBatchSize) {
 
+        this(uri, httpClient, requestBatchSize, false);
+    }
+
+    /**
+     * @param httpClient       httpClient
+     * @param uri              uri
+     * @param requestBatchSize request batch size
+     * @param binaryProtocol   send binary frames using the binary protocol
+     */
+    public BoonClient(final String uri,
+                      final HttpClient httpClient,
+                      final int requestBatchSize,
+                      final boolean binaryProtocol) {
+
+        this(uri, httpClient, requestBatchSize, binaryProtocol, false);
+    }
+
+    /**
+     * @param httpClient       httpClient
+     * @param uri              uri
+     * @param requestBatchSize request batch size
+     * @param binaryProtocol   send binary frames using the binary protocol
+     * @param compressGroups   send text groups as compressed groups
+     */
+    public BoonClient(final String uri,
+                      final HttpClient httpClient,
+                      final int requestBatchSize,
+                      final boolean binaryProtocol,
+                      final boolean compressGroups) {
+
         this.httpServerProxy = httpClient;
         this.uri = uri;
         this.requestBatchSize = requestBatchSize;
+        this.binaryProtocol = binaryProtocol;
+        this.compressGroups = compressGroups;
     }
 
 
@@ -139,19 +181,36 @@ public class BoonClient implements Client {
     private void handleWebSocketReplyMessage(final String webSocketText) {
 
 
-        final List<Message<Object>> messages = QBit.factory().createProtocolParser().parse("", webSocketText);
+        handleWebSocketReplyMessages(QBit.factory().createProtocolParser().parse("", webSocketText));
+    }
+
+    /**
+     * Handles binary WebSocket messages. Binary protocol frames are parsed with the binary parser,
+     * anything else is text sent in a binary frame.
+     *
+     * @param webSocketBytes websocket binary message
+     */
+    private void handleWebSocketReplyMessage(final byte[] webSocketBytes) {
+
+        if (Protocol.isBinaryProtocol(webSocketBytes)) {
+            handleWebSocketReplyMessages(QBit.factory().createBinaryProtocolParser().parse("", webSocketBytes));
+        } else {
+            handleWebSocketReplyMessage(new String(webSocketBytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleWebSocketReplyMessages(final List<Message<Object>> messages) {
 
 
         for (Message<Object> message : messages) {
             if (message instanceof Response) {
                 final Response<Object> response = ((Response) message);
                 final String[] split = StringScanner.split(response.returnAddress(), (char) PROTOCOL_ARG_SEPARATOR);
-                final HandlerKey key = split.length == 2 ? new HandlerKey(split[1], response.id()) : new HandlerKey(split[0], response.id());
-                final Callback<Object> handler = handlers.get(key);
+                final String returnAddress = split.length == 2 ? split[1] : split[0];
+                final Callback<Object> handler = handlers.remove(returnAddress, response.id());
 
                 if (handler != null) {
                     handleAsyncCallback(response, handler);
-                    handlers.remove(key);
                 } // else there was no handler, it was a one way method.
             }
         }
@@ -172,6 +231,7 @@ public class BoonClient implements Client {
      * Flush the calls and flush the proxy.
      */
     public void flush() {
+        handlers.expire(Timer.timer().now());
         for (ClientProxy clientProxy : clientProxies) {
             clientProxy.clientProxyFlush();
         }
@@ -186,6 +246,31 @@ public class BoonClient implements Client {
      */
     private void send(final String serviceName, final String message) {
 
+        if (open(serviceName, message)) {
+            webSocket.sendText(message);
+        }
+    }
+
+    /**
+     * Sends a binary message over websocket.
+     *
+     * @param serviceName service name
+     * @param message     binary protocol frame
+     */
+    private void sendBytes(final String serviceName, final byte[] message) {
+
+        if (open(serviceName, "binary message")) {
+            webSocket.sendBinary(message);
+        }
+    }
+
+    /**
+     * Opens the WebSocket if needed.
+     *
+     * @return true if the WebSocket is open
+     */
+    private boolean open(final String serviceName, final String message) {
+
         if (webSocket == null) {
 
             String webSocketURI;
@@ -221,9 +306,10 @@ public class BoonClient implements Client {
 
         if (!webSocket.isClosed()) {
         /* By this point we should be open. */
-            webSocket.sendText(message);
+            return true;
         } else {
             connected.set(false);
+            return false;
         }
     }
 
@@ -234,6 +320,7 @@ public class BoonClient implements Client {
                         "::Exception calling WebSocket from client proxy", "\nService Name", serviceName, "\nMessage", message), error));
 
         this.webSocket.setTextMessageConsumer(messageFromServer -> handleWebSocketReplyMessage(messageFromServer));
+        this.webSocket.setBinaryMessageConsumer(messageFromServer -> handleWebSocketReplyMessage(messageFromServer));
     }
 
     /**
@@ -276,7 +363,9 @@ public class BoonClient implements Client {
                     if (list.length > 0) {
                         final Object o = list[0];
                         if (o instanceof Callback) {
-                            handlers.put(new HandlerKey(call.returnAddress(), call.id()), createHandler(serviceInterface, call, (Callback) o));
+                            handlers.register(call.returnAddress(), call.id(),
+                                    call.timestamp() == 0L ? Timer.timer().now() : call.timestamp(),
+                                    createHandler(serviceInterface, call, (Callback) o));
 
                             if (list.length - 1 == 0) {
                                 list = new Object[0];
@@ -305,6 +394,21 @@ public class BoonClient implements Client {
                 BoonClient.this.send(serviceName, buffer);
             }
 
+            @Override
+            public boolean binary() {
+                return binaryProtocol;
+            }
+
+            @Override
+            public void sendBytes(String returnAddress, byte[] buffer) {
+                BoonClient.this.sendBytes(serviceName, buffer);
+            }
+
+            @Override
+            public boolean compressGroups() {
+                return compressGroups;
+            }
+
             @Override
             public void stop() {
                 BoonClient.this.stop();
@@ -396,6 +500,11 @@ public class BoonClient implements Client {
                 }
 
             }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
         };
     }
 
@@ -419,38 +528,4 @@ public class BoonClient implements Client {
         connected.set(true);
 
     }
-
-    /**
-     * Key to store callbackWithTimeout in call back map.
-     */
-    private class HandlerKey {
-        /**
-         * Return address
-         */
-        final String returnAddress;
-        /**
-         * Message id
-         */
-        final long messageId;
-
-        private HandlerKey(String returnAddress, long messageId) {
-            this.returnAddress = returnAddress;
-            this.messageId = messageId;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            HandlerKey that = (HandlerKey) o;
-            return messageId == that.messageId && !(returnAddress != null ? !returnAddress.equals(that.returnAddress) : that.returnAddress != null);
-        }
-
-        @Override
-        public int hashCode() {
-            int result = returnAddress != null ? returnAddress.hashCode() : 0;
-            result = 31 * result + (int) (messageId ^ (messageId >>> 32));
-            return result;
-        }
-    }
 }
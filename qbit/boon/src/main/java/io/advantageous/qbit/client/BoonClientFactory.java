@@ -28,4 +28,15 @@ public class BoonClientFactory implements ClientFactory {
     public Client create(String uri, HttpClient httpClient, int requestBatchSize) {
         return new BoonClient(uri, httpClient, requestBatchSize);
     }
+
+    @Override
+    public Client create(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol) {
+        return new BoonClient(uri, httpClient, requestBatchSize, binaryProtocol);
+    }
+
+    @Override
+    public Client create(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol,
+                         boolean compressGroups) {
+        return new BoonClient(uri, httpClient, requestBatchSize, binaryProtocol, compressGroups);
+    }
 }
@@ -2,9 +2,11 @@ package io.advantageous.qbit.server;
 
 import io.advantageous.boon.core.Str;
 import io.advantageous.qbit.GlobalConstants;
+import io.advantageous.qbit.QBit;
 import io.advantageous.qbit.annotation.RequestMethod;
 import io.advantageous.qbit.http.request.HttpRequest;
 import io.advantageous.qbit.http.request.HttpResponseReceiver;
+import io.advantageous.qbit.json.JsonCodec;
 import io.advantageous.qbit.json.JsonMapper;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Request;
@@ -45,6 +47,7 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
     private final SendQueue<MethodCall<Object>> methodCallSendQueue;
     private final int flushInterval;
     private final JsonMapper jsonMapper;
+    private final JsonCodec jsonCodec = QBit.factory().createJsonCodec();
     private ContextMetaBuilder contextMetaBuilder = ContextMetaBuilder.contextMetaBuilder();
     private StandardRequestTransformer standardRequestTransformer;
     private Map<RequestMethod, StandardMetaDataProvider> metaDataProviderMap = new ConcurrentHashMap<>();
@@ -89,6 +92,9 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
         this.methodCallSendQueue = serviceBundle.methodSendQueue();
         this.flushInterval = flushInterval;
 
+        /* Calls the service bundle queue drops or rejects never run, so answer their requests now. */
+        this.methodCallSendQueue.addOverflowListener(this::handleDroppedCalls);
+
         contextMetaBuilder = ContextMetaBuilder.contextMetaBuilder();
     }
 
@@ -105,7 +111,9 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
         metaDataProviderMap.put(RequestMethod.TRACE, new StandardMetaDataProvider(contextMetaBuilder.build(), RequestMethod.TRACE));
         metaDataProviderMap.put(RequestMethod.CONNECT, new StandardMetaDataProvider(contextMetaBuilder.build(), RequestMethod.CONNECT));
 
-        standardRequestTransformer = new StandardRequestTransformer(metaDataProviderMap);
+        /* Calls still waiting in a service queue when their request times out are dropped. */
+        standardRequestTransformer = new StandardRequestTransformer(metaDataProviderMap,
+                timeoutInSeconds * 1000L);
     }
 
     @Override
@@ -115,11 +123,15 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
         final MethodCall<Object> methodCall = standardRequestTransformer.transform(request, errorList);
 
         if (methodCall!=null && errorList.size()==0) {
-            if (!addRequestToCheckForTimeouts(request)) {
+            if (!addRequestToCheckForTimeouts(request) || methodCallSendQueue.isOverHighWatermark()) {
+                handleOverflow(request);
+                return;
+            }
+            if (!sendMethodToServiceBundle(methodCall)) {
+                /* Usually already answered by handleDroppedCalls, handleOverflow only answers once. */
                 handleOverflow(request);
                 return;
             }
-            sendMethodToServiceBundle(methodCall);
         } else {
             handleErrorConverting(request, errorList, methodCall);
             return;
@@ -129,7 +141,7 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
                 .get(RequestMethod.valueOf(request.getMethod())).get(request.address());
 
         if (requestMetaData.getMethod().getMethodAccess().returnType() == void.class
-                && !requestMetaData.getMethod().hasCallBack() ) {
+                && !requestMetaData.getMethod().hasCallBack() && removeOutstandingRequest(request)) {
 
             request.handled();
             writeResponse(request.getReceiver(), 200,
@@ -140,16 +152,40 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
 
     }
 
+    /**
+     * Answers 429 unless the request was already answered.
+     */
     private void handleOverflow(HttpRequest request) {
+        if (!removeOutstandingRequest(request)) {
+            return;
+        }
+        request.handled();
         writeResponse(request.getReceiver(), 429, "application/json",
                 "\"too many outstanding requests\"", request.getHeaders());
     }
 
-    private void sendMethodToServiceBundle(MethodCall<Object> methodCall) {
+    private void handleDroppedCalls(final String queueName, final Object[] items) {
+        for (Object item : items) {
+            if (item instanceof MethodCall) {
+                final Request<Object> originatingRequest = ((MethodCall<Object>) item).originatingRequest();
+                if (originatingRequest instanceof HttpRequest) {
+                    handleOverflow((HttpRequest) originatingRequest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the call to the service bundle.
+     *
+     * @param methodCall method call
+     * @return false if the service bundle queue was full and the call was dropped or rejected
+     */
+    private boolean sendMethodToServiceBundle(MethodCall<Object> methodCall) {
 
         try {
             lock.lock();
-            methodCallSendQueue.send(methodCall);
+            return !methodCallSendQueue.trySend(methodCall).failed();
         } finally {
             lock.unlock();
         }
@@ -215,7 +251,7 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
 
             duration = now - request.timestamp();
 
-            if (duration > timeoutInMS) {
+            if (duration > timeoutInMS && outstandingRequestMap.remove(key) != null) {
                 final HttpResponseReceiver httpResponse = ((HttpRequest) request).getReceiver();
                 try {
                     httpResponse.response(408, "application/json", "\"timed out\"");
@@ -232,8 +268,10 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
     @Override
     public void handleResponseFromServiceToHttpResponse(final Response<Object> response, final HttpRequest originatingRequest) {
 
-        String key = Str.add("" + originatingRequest.id(), "|", originatingRequest.returnAddress());
-        this.outstandingRequestMap.remove(key);
+        if (!removeOutstandingRequest(originatingRequest)) {
+            /* Already answered, it timed out or was dropped. */
+            return;
+        }
 
         final HttpRequest httpRequest = originatingRequest;
 
@@ -249,7 +287,7 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
 
             }
         } else {
-            writeResponse(httpRequest.getReceiver(), 200, "application/json", jsonMapper.toJson(response.body()), httpRequest.getHeaders());
+            writeResponse(httpRequest.getReceiver(), 200, "application/json", jsonCodec.toJson(response.body()), httpRequest.getHeaders());
         }
 
 
@@ -277,9 +315,19 @@ public class HttpRequestServiceServerHandlerUsingMetaImpl implements HttpRequest
      */
     private boolean addRequestToCheckForTimeouts(final Request<Object> request) {
 
-        String key = Str.add("" + request.id(), "|", request.returnAddress());
-        this.outstandingRequestMap.put(key, request);
+        this.outstandingRequestMap.put(requestKey(request), request);
 
         return outstandingRequestMap.size() < numberOfOutstandingRequests;
     }
+
+    /**
+     * @return true if this thread took the request out of the outstanding requests, and so owns its response
+     */
+    private boolean removeOutstandingRequest(final Request<Object> request) {
+        return outstandingRequestMap.remove(requestKey(request)) != null;
+    }
+
+    private static String requestKey(final Request<Object> request) {
+        return Str.add("" + request.id(), "|", request.returnAddress());
+    }
 }
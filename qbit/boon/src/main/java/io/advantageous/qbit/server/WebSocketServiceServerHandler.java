@@ -28,7 +28,9 @@ import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.network.BufferPool;
 import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.service.ServiceBundle;
 import io.advantageous.qbit.spi.ProtocolEncoder;
 import io.advantageous.qbit.spi.ProtocolParser;
@@ -36,9 +38,14 @@ import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static io.advantageous.qbit.service.Protocol.*;
 
 
 /**
@@ -54,6 +61,12 @@ public class WebSocketServiceServerHandler {
             return QBit.factory().createEncoder();
         }
     };
+    protected final ThreadLocal<ProtocolEncoder> compressedGroupEncoderRef = new ThreadLocal<ProtocolEncoder>(){
+        @Override
+        protected ProtocolEncoder initialValue() {
+            return QBit.factory().createCompressedGroupEncoder();
+        }
+    };
     protected final ThreadLocal<ProtocolParser> parserRef = new ThreadLocal<ProtocolParser>() {
         @Override
         protected ProtocolParser initialValue() {
@@ -61,12 +74,28 @@ public class WebSocketServiceServerHandler {
             return QBit.factory().createProtocolParser();
         }
     };
+    protected final ThreadLocal<ProtocolEncoder> binaryEncoderRef = new ThreadLocal<ProtocolEncoder>(){
+        @Override
+        protected ProtocolEncoder initialValue() {
+            return QBit.factory().createBinaryEncoder();
+        }
+    };
+    protected final ThreadLocal<ProtocolParser> binaryParserRef = new ThreadLocal<ProtocolParser>() {
+        @Override
+        protected ProtocolParser initialValue() {
+
+            return QBit.factory().createBinaryProtocolParser();
+        }
+    };
 
 
+    protected final BufferPool bufferPool = BufferPool.bufferPool();
+
     protected final long flushResponseInterval = 200;
     private final Logger logger = LoggerFactory.getLogger(WebSocketServiceServerHandler.class);
     private final boolean debug = GlobalConstants.DEBUG || logger.isDebugEnabled();
-    private final SendQueue<MethodCall<Object>> methodCallSendQueue;
+    /* Send queues are not thread safe, each parser thread gets its own. */
+    private final ThreadLocal<SendQueue<MethodCall<Object>>> methodCallSendQueueRef;
     private final Map<String, WebSocketDelegate> webSocketDelegateMap = new ConcurrentHashMap<>(100);
     protected volatile long flushResponseLastTimestamp = 0;
 
@@ -82,7 +111,12 @@ public class WebSocketServiceServerHandler {
             final int encodeWorkersCount) {
         this.batchSize = batchSize;
 
-        this.methodCallSendQueue = serviceBundle.methodSendQueue();
+        this.methodCallSendQueueRef = new ThreadLocal<SendQueue<MethodCall<Object>>>() {
+            @Override
+            protected SendQueue<MethodCall<Object>> initialValue() {
+                return serviceBundle.methodSendQueue();
+            }
+        };
 
         final AtomicInteger threadId = new AtomicInteger();
         protocolParserThreadPool = Executors.newFixedThreadPool(parseWorkersCount, new ThreadFactory() {
@@ -114,7 +148,7 @@ public class WebSocketServiceServerHandler {
     }
 
     public void webSocketQueueIdle(Void v) {
-        methodCallSendQueue.flushSends();
+        /* The parser threads flush their send queues at the end of every message. */
     }
 
     /**
@@ -134,16 +168,23 @@ public class WebSocketServiceServerHandler {
             webSocketDelegateMap.put(webSocketMessage.getRemoteAddress(), webSocketDelegate);
         }
 
+        /* A client that sends binary protocol frames gets binary protocol frames back. */
+        if ( isBinaryProtocol(webSocketMessage.getMessage()) ) {
+            webSocketDelegate.binary = true;
+        }
+
+        /* Same for compressed groups, so clients that do not know them never get one. */
+        if ( isCompressedGroup(webSocketMessage.getMessage()) ) {
+            webSocketDelegate.compressGroups = true;
+        }
+
 
 
         protocolParserThreadPool.execute(() -> {
 
             try {
-                final List<MethodCall<Object>> methodCallListToBeParsedFromBody =
-                        createMethodCallListToBeParsedFromBody(webSocketMessage.getRemoteAddress(),
-                                webSocketMessage.getMessage(), webSocketMessage);
-
-                methodCallSendQueue.sendBatch(methodCallListToBeParsedFromBody);
+                parseAndSendMethodCalls(webSocketMessage.getRemoteAddress(),
+                        webSocketMessage.getMessage(), webSocketMessage);
             }catch (Exception ex) {
                 logger.error("", ex);
             }
@@ -164,11 +205,15 @@ public class WebSocketServiceServerHandler {
             if ( webSocketDelegate == null ) {
 
 
+                if ( isBinaryProtocol(webSocketMessage.getMessage()) ) {
+                    webSocketMessage.getSender().sendBytes(binaryEncoderRef.get().encodeAsBytes(response));
+                } else {
 
-                String responseAsText = encoderRef.get().encodeAsString(response);
+                    String responseAsText = encoderRef.get().encodeAsString(response);
 
 
-                webSocketMessage.getSender().sendText(responseAsText);
+                    webSocketMessage.getSender().sendText(responseAsText);
+                }
             } else {
                 webSocketDelegate.send(response);
             }
@@ -185,7 +230,17 @@ public class WebSocketServiceServerHandler {
 
                 List<MethodCall<Object>> methodCalls;
 
-                if ( body != null ) {
+                if ( isBinaryProtocol(body) ) {
+
+                    methodCalls = binaryParserRef.get().parseMethodCallListUsingAddressPrefix(addressPrefix, body);
+
+                } else if ( body instanceof byte[] ) {
+
+                    /* Text protocol sent as a binary frame. */
+                    methodCalls = parserRef.get().parseMethodCallListUsingAddressPrefix(addressPrefix,
+                            new String(( byte[] ) body, StandardCharsets.UTF_8));
+
+                } else if ( body != null ) {
 
 
 
@@ -199,13 +254,7 @@ public class WebSocketServiceServerHandler {
                 if ( methodCalls == null || methodCalls.size() == 0 ) {
 
                     if ( originatingRequest instanceof WebSocketMessage ) {
-                        WebSocketMessage webSocketMessage = ( ( WebSocketMessage ) originatingRequest );
-
-                        final Response<Object> response = ResponseImpl.response(-1, Timer.timer().now(), "SYSTEM", "ERROR",
-                                "CAN'T HANDLE CALL", originatingRequest, true);
-                        final WebSocketSender sender = webSocketMessage.getSender();
-                        sender.sendText(encoderRef.get().encodeAsString(response));
-
+                        sendCantHandleCall(body, ( WebSocketMessage ) originatingRequest);
                     }
 
                     return Collections.emptyList();
@@ -227,6 +276,69 @@ public class WebSocketServiceServerHandler {
 
 
 
+    }
+
+    /**
+     * Parses the message and sends each method call to the service bundle as soon as it is parsed,
+     * so the services start on the first calls of a big group while the rest is still being parsed.
+     */
+    private void parseAndSendMethodCalls(
+            final String addressPrefix,
+            final Object body,
+            final WebSocketMessage webSocketMessage) {
+
+        final SendQueue<MethodCall<Object>> sendQueue = methodCallSendQueueRef.get();
+        final MethodCallForwarder forwarder = new MethodCallForwarder(sendQueue, webSocketMessage);
+
+        final int count;
+        try {
+            if ( body == null ) {
+                count = 0;
+            } else if ( isBinaryProtocol(body) ) {
+                count = binaryParserRef.get().parseMethodCallsUsingAddressPrefix(addressPrefix, body, forwarder);
+            } else if ( body instanceof byte[] ) {
+                count = parserRef.get().parseMethodCallsUsingAddressPrefix(addressPrefix,
+                        new String(( byte[] ) body, StandardCharsets.UTF_8), forwarder);
+            } else {
+                count = parserRef.get().parseMethodCallsUsingAddressPrefix(addressPrefix, body, forwarder);
+            }
+        } finally {
+            /* Calls parsed before a bad frame are already forwarded, do not leave them for the next message. */
+            sendQueue.flushSends();
+        }
+
+        if ( count == 0 ) {
+            sendCantHandleCall(body, webSocketMessage);
+        }
+    }
+
+    private void sendCantHandleCall(final Object body, final WebSocketMessage webSocketMessage) {
+
+        final Response<Object> response = ResponseImpl.response(-1, Timer.timer().now(), "SYSTEM", "ERROR",
+                "CAN'T HANDLE CALL", webSocketMessage, true);
+        final WebSocketSender sender = webSocketMessage.getSender();
+        if ( isBinaryProtocol(body) ) {
+            sender.sendBytes(binaryEncoderRef.get().encodeAsBytes(response));
+        } else {
+            sender.sendText(encoderRef.get().encodeAsString(response));
+        }
+    }
+
+    private static boolean isCompressedGroup(final Object message) {
+        if ( message instanceof String ) {
+            final String text = ( String ) message;
+            return text.length() > 2 && text.charAt(PROTOCOL_MARKER_POSITION) == PROTOCOL_MARKER
+                    && text.charAt(VERSION_MARKER_POSITION) == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP;
+        } else if ( message instanceof byte[] ) {
+            final byte[] bytes = ( byte[] ) message;
+            return bytes.length > 2 && bytes[PROTOCOL_MARKER_POSITION] == PROTOCOL_MARKER
+                    && bytes[VERSION_MARKER_POSITION] == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP;
+        }
+        return false;
+    }
+
+    private static boolean isBinaryProtocol(final Object message) {
+        return message instanceof byte[] && Protocol.isBinaryProtocol(( byte[] ) message);
     }
 
     public void checkResponseBatchSend() {
@@ -254,6 +366,37 @@ public class WebSocketServiceServerHandler {
 
     }
 
+    /**
+     * Sends parsed method calls on. The first one is flushed right away, the rest are batched by the send queue.
+     */
+    private static final class MethodCallForwarder implements Consumer<MethodCall<Object>> {
+
+        private final SendQueue<MethodCall<Object>> sendQueue;
+        private final WebSocketMessage originatingRequest;
+        private boolean first = true;
+
+        private MethodCallForwarder(final SendQueue<MethodCall<Object>> sendQueue,
+                                    final WebSocketMessage originatingRequest) {
+            this.sendQueue = sendQueue;
+            this.originatingRequest = originatingRequest;
+        }
+
+        @Override
+        public void accept(final MethodCall<Object> methodCall) {
+
+            if ( methodCall instanceof MethodCallImpl ) {
+                ( ( MethodCallImpl ) methodCall ).originatingRequest(originatingRequest);
+            }
+
+            if ( first ) {
+                first = false;
+                sendQueue.sendAndFlush(methodCall);
+            } else {
+                sendQueue.send(methodCall);
+            }
+        }
+    }
+
     class WebSocketDelegate {
         final int requestBatchSize;
 
@@ -263,6 +406,10 @@ public class WebSocketServiceServerHandler {
 
         volatile long lastSend;
 
+        volatile boolean binary;
+
+        volatile boolean compressGroups;
+
         private WebSocketDelegate(int requestBatchSize, WebSocketMessage serverWebSocket) {
             this.requestBatchSize = requestBatchSize;
             outputMessages = new ArrayBlockingQueue<>(requestBatchSize);
@@ -299,10 +446,30 @@ public class WebSocketServiceServerHandler {
             }
 
 
-            protocolEncoderThreadPool.execute(() -> {
-                final String textMessage = encoderRef.get().encodeAsString((Collection<Message<Object>>) (Object) messages);
-                serverWebSocket.getSender().sendText(textMessage);
-            });
+            final boolean binary = this.binary;
+            final boolean compressGroups = this.compressGroups;
+            final WebSocketSender sender = serverWebSocket.getSender();
+
+            if ( sender.acceptsBuffers(!binary) ) {
+                /* Encoded straight into a pooled buffer that the transport writes and then releases. */
+                protocolEncoderThreadPool.execute(() -> {
+                    final ProtocolEncoder encoder = binary ? binaryEncoderRef.get()
+                            : compressGroups ? compressedGroupEncoderRef.get() : encoderRef.get();
+                    final ByteBuffer buffer = encoder.encodeToBuffer((Collection<Message<Object>>) (Object) messages, bufferPool);
+                    sender.sendBuffer(buffer, !binary, () -> bufferPool.release(buffer));
+                });
+            } else if ( binary ) {
+                protocolEncoderThreadPool.execute(() -> {
+                    final byte[] binaryMessage = binaryEncoderRef.get().encodeAsBytes((Collection<Message<Object>>) (Object) messages);
+                    sender.sendBytes(binaryMessage);
+                });
+            } else {
+                protocolEncoderThreadPool.execute(() -> {
+                    final ProtocolEncoder encoder = compressGroups ? compressedGroupEncoderRef.get() : encoderRef.get();
+                    final String textMessage = encoder.encodeAsString((Collection<Message<Object>>) (Object) messages);
+                    sender.sendText(textMessage);
+                });
+            }
 
 
             lastSend = now;
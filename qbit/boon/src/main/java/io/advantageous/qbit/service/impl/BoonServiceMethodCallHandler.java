@@ -39,6 +39,7 @@ import io.advantageous.qbit.queue.QueueCallBackHandler;
 import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.reactive.Callback;
 import io.advantageous.qbit.service.ServiceMethodHandler;
+import io.advantageous.qbit.util.Timer;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
@@ -56,11 +57,15 @@ import static io.advantageous.qbit.annotation.AnnotationUtils.*;
  */
 public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
+    private static final Object[] NO_ARGS = new Object[0];
 
     private final boolean invokeDynamic;
+    private final boolean generatedInvoker;
+    private GeneratedServiceInvoker serviceInvoker;
     private ClassMeta<Class<?>> classMeta;
     private Object service;
     private QueueCallBackHandler queueCallBackHandler;
+    private boolean queueCallbacks;
     private String address = "";
 
     private String name = "";
@@ -71,13 +76,48 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
     private SendQueue<Response<Object>> responseSendQueue;
     private Map<String, MethodAccess> eventMap = new ConcurrentHashMap<>();
 
+    /**
+     * Bulk methods marked with <code>@BatchOf</code>, keyed on the name of the method they batch.
+     */
+    private Map<String, MethodAccess> batchMethods = Collections.emptyMap();
+    private String batchName;
+    private final List<MethodCall<Object>> batchCalls = new ArrayList<>();
+    private final List<Object> batchItems = new ArrayList<>();
+
+    /**
+     * Result caches of the methods marked with <code>@Cacheable</code>, keyed on method name.
+     */
+    private Map<String, MethodResultCache> resultCaches = Collections.emptyMap();
+    private MethodResultCache.InFlight inFlight;
+
     public BoonServiceMethodCallHandler(final boolean invokeDynamic) {
+        this(invokeDynamic, false);
+    }
+
+    public BoonServiceMethodCallHandler(final boolean invokeDynamic, final boolean generatedInvoker) {
         this.invokeDynamic = invokeDynamic;
+        this.generatedInvoker = generatedInvoker;
     }
 
     @Override
     public Response<Object> receiveMethodCall(MethodCall<Object> methodCall) {
 
+        if (!batchMethods.isEmpty() && batch(methodCall)) {
+            return ServiceConstants.VOID;
+        }
+
+        if (!resultCaches.isEmpty() && methodCall.name() != null) {
+            final MethodResultCache cache = resultCaches.get(methodCall.name());
+            if (cache != null) {
+                return cachedMethodCall(cache, methodCall);
+            }
+        }
+
+        return doReceiveMethodCall(methodCall);
+    }
+
+    private Response<Object> doReceiveMethodCall(MethodCall<Object> methodCall) {
+
         try {
             if (methodCall.name() != null && !methodCall.name().isEmpty()) {
                 return invokeByName(methodCall);
@@ -95,6 +135,54 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
         }
     }
 
+    /**
+     * Answers a call to a <code>@Cacheable</code> method from the cache, or joins it to an identical call that is
+     * still running, or calls the method and caches its result.
+     */
+    private Response<Object> cachedMethodCall(final MethodResultCache cache, final MethodCall<Object> methodCall) {
+
+        final long now = Timer.timer().now();
+        cache.applyCompleted(now);
+
+        final List<Object> key = MethodResultCache.key(methodCall.body());
+        final Object result = cache.get(key, now);
+
+        if (result != MethodResultCache.NOT_CACHED) {
+            return ResponseImpl.response(methodCall.id(), methodCall.timestamp(), methodCall.name(),
+                    methodCall.returnAddress(), result, methodCall);
+        }
+
+        if (!cache.takesCallback()) {
+            final Response<Object> response = doReceiveMethodCall(methodCall);
+            if (response != ServiceConstants.VOID && !response.wasErrors()) {
+                cache.put(key, response.body(), now);
+            }
+            return response;
+        }
+
+        if (cache.join(key, methodCall)) {
+            return ServiceConstants.VOID;
+        }
+
+        final MethodResultCache.InFlight flight = cache.start(key, methodCall, responseSendQueue, now);
+        final Response<Object> response;
+
+        /* createCallBackHandler hands the flight to the method as its callback. */
+        inFlight = flight;
+        try {
+            response = doReceiveMethodCall(methodCall);
+        } finally {
+            inFlight = null;
+        }
+
+        if (response != ServiceConstants.VOID && response.wasErrors()) {
+            final Object error = response.body();
+            flight.onError(error instanceof Throwable ? (Throwable) error : new Exception(String.valueOf(error)));
+            return ServiceConstants.VOID;
+        }
+        return response;
+    }
+
     private Response<Object> invokeByAddress(MethodCall<Object> methodCall) {
         String address = methodCall.address();
 
@@ -231,10 +319,21 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     private Response<Object> mapArgsAsyncHandlersAndInvoke(MethodCall<Object> methodCall, MethodAccess method) {
 
+        if (serviceInvoker != null && methodCall.body() instanceof Object[]) {
+            final Object[] args = (Object[]) methodCall.body();
+            final int index = serviceInvoker.index(method);
+
+            /* Arguments already have the parameter types and there are no callbacks to wire, call it directly. */
+            if (index != GeneratedServiceInvoker.NO_METHOD && !serviceInvoker.takesCallback(index)
+                    && serviceInvoker.matches(index, args)) {
+                return response(method, methodCall, serviceInvoker.invoke(index, args));
+            }
+        }
 
         if (method.parameterTypes().length == 0) {
 
-            Object returnValue = method.invokeDynamicObject(service, null);
+            Object returnValue = serviceInvoker != null ? invoke(method, NO_ARGS)
+                    : method.invokeDynamicObject(service, null);
             return response(method, methodCall, returnValue);
 
         }
@@ -278,7 +377,9 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
             }
 
 
-            if (invokeDynamic) {
+            if (serviceInvoker != null) {
+                returnValue = invoke(method, argsList.toArray(new Object[argsList.size()]));
+            } else if (invokeDynamic) {
                 returnValue = method.invokeDynamicObject(service, argsList);
             } else {
                 returnValue = method.invoke(service, argsList.toArray(new Object[argsList.size()]));
@@ -286,7 +387,17 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
         } else {
 
-            if (invokeDynamic) {
+            if (serviceInvoker != null) {
+
+                if (methodCall.body() instanceof List) {
+                    final List argsList = (List) methodCall.body();
+                    returnValue = invoke(method, argsList.toArray(new Object[argsList.size()]));
+                } else if (methodCall.body() instanceof Object[]) {
+                    returnValue = invoke(method, (Object[]) methodCall.body());
+                } else {
+                    returnValue = invoke(method, new Object[]{methodCall.body()});
+                }
+            } else if (invokeDynamic) {
 
                 if (methodCall.body() instanceof List) {
                     final List argsList = (List) methodCall.body();
@@ -315,6 +426,18 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
     }
 
 
+    /**
+     * Calls through the generated invoker when the arguments fit the parameters as is.
+     * Otherwise falls back to <code>MethodAccess</code> which coerces them.
+     */
+    private Object invoke(final MethodAccess method, final Object[] args) {
+        final int index = serviceInvoker.index(method);
+        if (index != GeneratedServiceInvoker.NO_METHOD && serviceInvoker.matches(index, args)) {
+            return serviceInvoker.invoke(index, args);
+        }
+        return invokeDynamic ? method.invokeDynamic(service, args) : method.invoke(service, args);
+    }
+
     private boolean hasHandlers(MethodAccess method) {
 
         for (Class<?> paramType : method.parameterTypes()) {
@@ -539,6 +662,12 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     private Callback<Object> createCallBackHandler(final MethodCall<Object> methodCall) {
 
+        if (inFlight != null) {
+            final Callback<Object> callback = inFlight;
+            inFlight = null;
+            return callback;
+        }
+
         return new BoonCallBackWrapper(responseSendQueue, methodCall);
 
     }
@@ -667,12 +796,157 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
         readMethodMetaData();
         initQueueHandlerMethods();
+        readBatchMethods();
+        readCacheableMethods();
+
+        if (generatedInvoker) {
+            serviceInvoker = GeneratedServiceInvoker.generatedServiceInvoker(service, classMeta.methods());
+        }
 
     }
 
+    private void readBatchMethods() {
+
+        final Map<String, MethodAccess> batchMethods = new HashMap<>();
+
+        for (MethodAccess methodAccess : classMeta.methods()) {
+            final AnnotationData batchOf = methodAccess.annotation("BatchOf");
+            if (batchOf == null) {
+                continue;
+            }
+            if (methodAccess.parameterTypes().length != 1
+                    || !methodAccess.parameterTypes()[0].isAssignableFrom(List.class)) {
+                die("@BatchOf method must take one List argument", methodAccess.name());
+            }
+            batchMethods.put(batchOf.getValues().get("value").toString(), methodAccess);
+        }
+
+        this.batchMethods = batchMethods;
+    }
+
+    private void readCacheableMethods() {
+
+        final Map<String, MethodResultCache> resultCaches = new HashMap<>();
+
+        for (MethodAccess methodAccess : classMeta.methods()) {
+            final AnnotationData cacheable = methodAccess.annotation("Cacheable");
+            if (cacheable == null) {
+                continue;
+            }
+            final Map<String, Object> values = cacheable.getValues();
+            final long ttlMillis = values.get("ttlMs") == null ? 1_000 : ((Number) values.get("ttlMs")).longValue();
+            final int maxEntries = values.get("maxEntries") == null ? 1_000
+                    : ((Number) values.get("maxEntries")).intValue();
+            resultCaches.put(methodAccess.name(), new MethodResultCache(methodAccess.name(), ttlMillis, maxEntries,
+                    hasHandlers(methodAccess)));
+        }
+
+        this.resultCaches = resultCaches;
+    }
+
+    /**
+     * @return result caches of the <code>@Cacheable</code> methods, for stats
+     */
+    public Collection<MethodResultCache> resultCaches() {
+        return resultCaches.values();
+    }
+
+    /**
+     * Holds on to calls of a method that has a <code>@BatchOf</code> bulk method.
+     *
+     * @param methodCall method call
+     * @return true if the call was added to the batch
+     */
+    private boolean batch(final MethodCall<Object> methodCall) {
+        final String name = methodCall.name();
+        final MethodAccess bulkMethod = name == null ? null : batchMethods.get(name);
+
+        if (bulkMethod == null) {
+            flushBatch();
+            return false;
+        }
+
+        final Object item = batchItem(methodCall.body());
+        if (item == NO_ARGS) {
+            flushBatch();
+            return false;
+        }
+
+        if (!name.equals(batchName)) {
+            flushBatch();
+            batchName = name;
+        }
+        batchCalls.add(methodCall);
+        batchItems.add(item);
+        return true;
+    }
+
+    /**
+     * @return the one argument of the call that is not a callback, or <code>NO_ARGS</code> if there is not exactly one
+     */
+    private static Object batchItem(final Object body) {
+        if (!(body instanceof Object[]) && !(body instanceof List)) {
+            return body;
+        }
+        final Collection<?> args = body instanceof List ? (List<?>) body : Arrays.asList((Object[]) body);
+        Object item = NO_ARGS;
+        for (Object arg : args) {
+            if (arg instanceof Callback) {
+                continue;
+            }
+            if (item != NO_ARGS) {
+                return NO_ARGS;
+            }
+            item = arg;
+        }
+        return item;
+    }
+
+    /**
+     * Calls the bulk method with the items of the batch, and sends each call its response.
+     */
+    private void flushBatch() {
+        if (batchCalls.isEmpty()) {
+            return;
+        }
+
+        final MethodAccess bulkMethod = batchMethods.get(batchName);
+        final List<MethodCall<Object>> calls = new ArrayList<>(batchCalls);
+        final List<Object> items = new ArrayList<>(batchItems);
+        batchCalls.clear();
+        batchItems.clear();
+        batchName = null;
+
+        final Object returnValue;
+        try {
+            returnValue = bulkMethod.invoke(service, items);
+        } catch (Exception ex) {
+            final Throwable error = ex.getCause() instanceof InvocationTargetException
+                    ? ((InvocationTargetException) ex.getCause()).getTargetException() : ex;
+            for (MethodCall<Object> methodCall : calls) {
+                responseSendQueue.send(new ResponseImpl<>(methodCall, error));
+            }
+            return;
+        }
+
+        if (bulkMethod.returnType() == void.class || bulkMethod.returnType() == Void.class) {
+            return;
+        }
+
+        final boolean oneEach = returnValue instanceof List && ((List) returnValue).size() == calls.size();
+        for (int index = 0; index < calls.size(); index++) {
+            final MethodCall<Object> methodCall = calls.get(index);
+            final Object result = oneEach ? ((List) returnValue).get(index) : returnValue;
+            responseSendQueue.send(ResponseImpl.response(methodCall.id(), methodCall.timestamp(), methodCall.name(),
+                    methodCall.returnAddress(), result, methodCall));
+        }
+    }
+
     private void initQueueHandlerMethods() {
 
         this.queueCallBackHandler = QueueCallbackHandlerFactory.createQueueCallbackHandler(service);
+        this.queueCallbacks = service instanceof QueueCallBackHandler
+                || QueueCallbackHandlerFactory.hasQueueCallbackAnnotations(service);
 
     }
 
@@ -680,6 +954,11 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
         queueCallBackHandler.queueStartBatch();
     }
 
+    @Override
+    public boolean hasQueueThreadState() {
+        return queueCallbacks || !eventMap.isEmpty() || !batchMethods.isEmpty() || !resultCaches.isEmpty();
+    }
+
     private void readMethodMetaData() {
 
 
@@ -784,7 +1063,18 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
         MethodAccess methodAccess = eventMap.get(event.channel());
 
 
-        if (invokeDynamic) {
+        if (serviceInvoker != null) {
+            final Object body = event.body();
+
+            if (body instanceof List) {
+                List list = ((List) body);
+                invoke(methodAccess, list.toArray(new Object[list.size()]));
+            } else if (body instanceof Object[]) {
+                invoke(methodAccess, (Object[]) body);
+            } else {
+                invoke(methodAccess, new Object[]{body});
+            }
+        } else if (invokeDynamic) {
             final Object body = event.body();
 
             if (body instanceof List) {
@@ -919,25 +1209,44 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     @Override
     public void empty() {
-
+        flushBatch();
+        expireInFlightCalls();
         queueCallBackHandler.queueEmpty();
     }
 
     @Override
     public void limit() {
+        flushBatch();
         queueCallBackHandler.queueLimit();
     }
 
     @Override
     public void shutdown() {
+        flushBatch();
         queueCallBackHandler.queueShutdown();
     }
 
     @Override
     public void idle() {
+        flushBatch();
+        expireInFlightCalls();
         queueCallBackHandler.queueIdle();
     }
 
+    /**
+     * Fails <code>@Cacheable</code> calls whose callback did not fire before their deadline.
+     */
+    private void expireInFlightCalls() {
+        if (resultCaches.isEmpty()) {
+            return;
+        }
+        final long now = Timer.timer().now();
+        for (MethodResultCache cache : resultCaches.values()) {
+            cache.applyCompleted(now);
+            cache.expireInFlight(now);
+        }
+    }
+
     public Map<String, Map<String, Pair<MethodBinding, MethodAccess>>> methodMap() {
         return methodMap;
     }
@@ -954,7 +1263,8 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
         @Override
         public void accept(Object result) {
-            /* This wants to be periodic flush or flush based on size but this is a stop gap make something work for now.
+            /* A service queue hands in a staging send queue that it drains in batches, so the flush here only
+            matters when the handler is used with a plain send queue.
              */
             responseSendQueue.sendAndFlush(ResponseImpl.response(methodCall, result));
         }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Exceptions;
+import io.advantageous.boon.core.reflection.MethodAccess;
+import io.advantageous.qbit.reactive.Callback;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invoker that is generated for one service object when the service queue is built.
+ * <p>
+ * Every public method of the service gets an index and a <code>MethodHandle</code> that is bound to the service
+ * object and spreads an <code>Object[]</code> into the parameters. A call is an array lookup on the pre-assigned
+ * index and one <code>invokeExact</code>, so there is no reflective <code>Method.invoke</code>, no per call
+ * argument checks in Boon and no coercion.
+ * <p>
+ * Arguments that still need coercion (JSON maps, numbers sent as strings, etc.) do not match the parameter
+ * types. <code>BoonServiceMethodCallHandler</code> checks with <code>matches</code> first and falls back to
+ * <code>MethodAccess</code> for those calls.
+ * <p>
+ * Select with <code>ServiceBuilder.setGeneratedInvoker(true)</code>.
+ *
+ * @author rhightower
+ */
+public class GeneratedServiceInvoker {
+
+    public static final int NO_METHOD = -1;
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final Map<Method, Integer> methodIndexes;
+    private final MethodHandle[] methodHandles;
+    private final String[] methodNames;
+    private final Class<?>[][] parameterTypes;
+    private final boolean[][] primitiveParameters;
+    private final boolean[] callbackParameters;
+
+    private GeneratedServiceInvoker(final Map<Method, Integer> methodIndexes,
+                                    final List<MethodHandle> methodHandles,
+                                    final List<Method> methods) {
+        this.methodIndexes = methodIndexes;
+        this.methodHandles = methodHandles.toArray(new MethodHandle[methodHandles.size()]);
+        this.methodNames = new String[methods.size()];
+        this.parameterTypes = new Class<?>[methods.size()][];
+        this.primitiveParameters = new boolean[methods.size()][];
+        this.callbackParameters = new boolean[methods.size()];
+
+        for (int index = 0; index < methods.size(); index++) {
+            final Class<?>[] types = methods.get(index).getParameterTypes();
+            methodNames[index] = methods.get(index).getName();
+            parameterTypes[index] = new Class<?>[types.length];
+            primitiveParameters[index] = new boolean[types.length];
+            for (int param = 0; param < types.length; param++) {
+                primitiveParameters[index][param] = types[param].isPrimitive();
+                parameterTypes[index][param] = MethodType.methodType(types[param]).wrap().returnType();
+                callbackParameters[index] |= types[param].isAssignableFrom(Callback.class);
+            }
+        }
+    }
+
+    /**
+     * Generates the invoker for a service.
+     * Methods that can not be turned into a method handle (security manager, etc.) are left out and
+     * <code>index</code> returns <code>NO_METHOD</code> for them.
+     *
+     * @param service service object
+     * @param methods methods of the service class
+     * @return invoker
+     */
+    public static GeneratedServiceInvoker generatedServiceInvoker(final Object service,
+                                                                  final Iterable<MethodAccess> methods) {
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final Map<Method, Integer> methodIndexes = new HashMap<>();
+        final List<MethodHandle> methodHandles = new ArrayList<>();
+        final List<Method> reflectMethods = new ArrayList<>();
+
+        for (MethodAccess methodAccess : methods) {
+
+            if (!methodAccess.isPublic()) {
+                continue;
+            }
+
+            final Method method = methodAccess.method();
+
+            try {
+                method.setAccessible(true);
+                MethodHandle methodHandle = lookup.unreflect(method);
+                if (!Modifier.isStatic(method.getModifiers())) {
+                    methodHandle = methodHandle.bindTo(service);
+                }
+                methodHandle = methodHandle.asSpreader(Object[].class, method.getParameterCount())
+                        .asType(INVOKER_TYPE);
+
+                methodIndexes.put(method, methodHandles.size());
+                methodHandles.add(methodHandle);
+                reflectMethods.add(method);
+            } catch (IllegalAccessException | SecurityException ex) {
+                /* MethodAccess still handles this one. */
+            }
+        }
+
+        return new GeneratedServiceInvoker(methodIndexes, methodHandles, reflectMethods);
+    }
+
+    /**
+     * @param methodAccess method from the service class meta data
+     * @return pre-assigned index or <code>NO_METHOD</code>
+     */
+    public int index(final MethodAccess methodAccess) {
+        final Integer index = methodIndexes.get(methodAccess.method());
+        return index == null ? NO_METHOD : index;
+    }
+
+    /**
+     * If no parameter can hold a <code>Callback</code> and the arguments match, then none of the arguments is a
+     * callback and the handler does not have to look for them.
+     *
+     * @param index method index
+     * @return true if a parameter can hold a callback
+     */
+    public boolean takesCallback(final int index) {
+        return callbackParameters[index];
+    }
+
+    /**
+     * Checks that the arguments can be passed as is, i.e., no coercion is needed.
+     *
+     * @param index method index
+     * @param args  arguments
+     * @return true if <code>invoke</code> can be used with these arguments
+     */
+    public boolean matches(final int index, final Object[] args) {
+        final Class<?>[] types = parameterTypes[index];
+        if (args.length != types.length) {
+            return false;
+        }
+
+        final boolean[] primitives = primitiveParameters[index];
+        for (int param = 0; param < types.length; param++) {
+            final Object arg = args[param];
+            if (arg == null) {
+                if (primitives[param]) {
+                    return false;
+                }
+            } else if (!types[param].isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invokes the method. Exceptions thrown by the service method are wrapped in an
+     * <code>InvocationTargetException</code> the same way <code>MethodAccess</code> does it.
+     *
+     * @param index method index
+     * @param args  arguments which <code>matches</code>
+     * @return return value or null for void methods
+     */
+    public Object invoke(final int index, final Object[] args) {
+        try {
+            return (Object) methodHandles[index].invokeExact(args);
+        } catch (Throwable throwable) {
+            return Exceptions.handle(Object.class, new InvocationTargetException(throwable),
+                    "Unable to invoke method", methodNames[index]);
+        }
+    }
+
+    public int size() {
+        return methodHandles.length;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.reactive.Callback;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result cache of one <code>@Cacheable</code> service method.
+ * <p>
+ * Only the service thread uses the cache, so the LRU map and the in flight calls are plain maps without locks.
+ * Callbacks of in flight calls may complete on other threads. They answer their waiting calls through the
+ * (thread safe) response send queue and hand the result back through a concurrent queue, and the service thread
+ * moves it into the cache the next time it uses the cache.
+ * <p>
+ * An in flight call is good until the deadline of its method call, or for the ttl if the call has no deadline.
+ * The service thread fails flights whose callback did not fire by then when the queue is empty or idle, so a
+ * lost callback does not keep the arguments from being looked up again. At most <code>maxEntries</code> calls
+ * are tracked in flight, calls past that run without being joined.
+ * <p>
+ * The counters are only written by the service thread, other threads can read them for stats.
+ *
+ * @author rhightower
+ */
+public class MethodResultCache {
+
+    static final Object NOT_CACHED = new Object();
+
+    private final String methodName;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final boolean takesCallback;
+
+    private final LinkedHashMap<List<Object>, Result> results;
+    private final Map<List<Object>, InFlight> inFlight = new HashMap<>();
+    private final ConcurrentLinkedQueue<InFlight> completed = new ConcurrentLinkedQueue<>();
+
+    private volatile long hits;
+    private volatile long misses;
+    private volatile long coalesced;
+    private volatile long evictions;
+    private volatile long expirations;
+    private volatile long timeouts;
+
+    MethodResultCache(final String methodName, final long ttlMillis, final int maxEntries,
+                      final boolean takesCallback) {
+        this.methodName = methodName;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.takesCallback = takesCallback;
+        this.results = new LinkedHashMap<List<Object>, Result>(Math.min(maxEntries, 1024) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<List<Object>, Result> eldest) {
+                if (size() > MethodResultCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param body body of the method call
+     * @return the arguments of the call without its callbacks
+     */
+    static List<Object> key(final Object body) {
+        if (body instanceof Object[] || body instanceof List) {
+            final Collection<?> args = body instanceof List ? (List<?>) body : Arrays.asList((Object[]) body);
+            final List<Object> key = new ArrayList<>(args.size());
+            for (Object arg : args) {
+                if (!(arg instanceof Callback)) {
+                    key.add(arg);
+                }
+            }
+            return key;
+        }
+        return Collections.singletonList(body);
+    }
+
+    boolean takesCallback() {
+        return takesCallback;
+    }
+
+    /**
+     * @return cached result, or <code>NOT_CACHED</code>
+     */
+    Object get(final List<Object> key, final long now) {
+        final Result result = results.get(key);
+        if (result == null) {
+            misses++;
+            return NOT_CACHED;
+        }
+        if (result.expiresAt <= now) {
+            results.remove(key);
+            expirations++;
+            misses++;
+            return NOT_CACHED;
+        }
+        hits++;
+        return result.value;
+    }
+
+    void put(final List<Object> key, final Object value, final long now) {
+        results.put(key, new Result(value, now + ttlMillis));
+    }
+
+    /**
+     * Adds a call to the call with the same arguments that is still running.
+     *
+     * @return true if the call waits for the running call
+     */
+    boolean join(final List<Object> key, final MethodCall<Object> methodCall) {
+        final InFlight flight = inFlight.get(key);
+        if (flight != null && flight.join(methodCall)) {
+            coalesced++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts a call that answers every call that joins it.
+     *
+     * @return callback to hand to the service method
+     */
+    InFlight start(final List<Object> key, final MethodCall<Object> methodCall,
+                   final SendQueue<Response<Object>> responseSendQueue, final long now) {
+        final long expiresAt = methodCall.deadline() != 0L ? methodCall.deadline() : now + ttlMillis;
+        final InFlight flight = new InFlight(key, methodCall, responseSendQueue, completed, expiresAt);
+        if (inFlight.size() < maxEntries) {
+            inFlight.put(key, flight);
+        }
+        return flight;
+    }
+
+    /**
+     * Fails the in flight calls that are past their deadline, and every call that waits for them.
+     */
+    void expireInFlight(final long now) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        final Iterator<InFlight> flights = inFlight.values().iterator();
+        while (flights.hasNext()) {
+            final InFlight flight = flights.next();
+            if (flight.expiresAt <= now) {
+                flights.remove();
+                timeouts++;
+                flight.onError(new TimeoutException("Call to " + methodName + " did not complete in time"));
+            }
+        }
+    }
+
+    /**
+     * Moves the results of calls that completed on other threads into the cache.
+     */
+    void applyCompleted(final long now) {
+        InFlight flight = completed.poll();
+        while (flight != null) {
+            if (inFlight.get(flight.key) == flight) {
+                inFlight.remove(flight.key);
+            }
+            if (flight.error == null) {
+                put(flight.key, flight.result, now);
+            }
+            flight = completed.poll();
+        }
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public int getSize() {
+        return results.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return calls that waited for an identical call that was already running
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return in flight calls failed because their callback did not fire before their deadline
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return calls that are running and can be joined
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public double getHitRate() {
+        final long hits = this.hits;
+        final long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodResultCache{" +
+                "method=" + methodName +
+                ", size=" + results.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", coalesced=" + coalesced +
+                ", evictions=" + evictions +
+                ", expirations=" + expirations +
+                ", timeouts=" + timeouts +
+                '}';
+    }
+
+    private static final class Result {
+        private final Object value;
+        private final long expiresAt;
+
+        private Result(final Object value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A call that is running, with the identical calls that wait for it. Completes once.
+     */
+    static final class InFlight implements Callback<Object> {
+
+        private final List<Object> key;
+        private final SendQueue<Response<Object>> responseSendQueue;
+        private final ConcurrentLinkedQueue<InFlight> completed;
+        private final long expiresAt;
+        private List<MethodCall<Object>> waiting = new ArrayList<>();
+        private volatile Object result;
+        private volatile Throwable error;
+
+        private InFlight(final List<Object> key, final MethodCall<Object> methodCall,
+                         final SendQueue<Response<Object>> responseSendQueue,
+                         final ConcurrentLinkedQueue<InFlight> completed, final long expiresAt) {
+            this.key = key;
+            this.responseSendQueue = responseSendQueue;
+            this.completed = completed;
+            this.expiresAt = expiresAt;
+            waiting.add(methodCall);
+        }
+
+        private synchronized boolean join(final MethodCall<Object> methodCall) {
+            if (waiting == null) {
+                return false;
+            }
+            waiting.add(methodCall);
+            return true;
+        }
+
+        private synchronized List<MethodCall<Object>> complete(final Object result, final Throwable error) {
+            final List<MethodCall<Object>> waiting = this.waiting;
+            this.waiting = null;
+            this.result = result;
+            this.error = error;
+            return waiting;
+        }
+
+        @Override
+        public void accept(final Object result) {
+            final List<MethodCall<Object>> waiting = complete(result, null);
+            if (waiting == null) {
+                return;
+            }
+            for (MethodCall<Object> methodCall : waiting) {
+                responseSendQueue.send(ResponseImpl.response(methodCall.id(), methodCall.timestamp(),
+                        methodCall.name(), methodCall.returnAddress(), result, methodCall));
+            }
+            completed.offer(this);
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            final List<MethodCall<Object>> waiting = complete(null, error);
+            if (waiting == null) {
+                return;
+            }
+            for (MethodCall<Object> methodCall : waiting) {
+                responseSendQueue.send(new ResponseImpl<>(methodCall, error));
+            }
+            completed.offer(this);
+        }
+    }
+}
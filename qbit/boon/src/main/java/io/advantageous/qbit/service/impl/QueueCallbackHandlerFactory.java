@@ -58,7 +58,7 @@ public class QueueCallbackHandlerFactory {
 
     }
 
-    private static boolean hasQueueCallbackAnnotations(Object service) {
+    static boolean hasQueueCallbackAnnotations(Object service) {
         ClassMeta<Class<?>> classMeta = (ClassMeta<Class<?>>) ClassMeta.classMeta(service.getClass());
         final Iterable<MethodAccess> methods = classMeta.methods();
 
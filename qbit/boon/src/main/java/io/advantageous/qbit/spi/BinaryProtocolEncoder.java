@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.spi;
+
+import io.advantageous.qbit.message.Message;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.network.BufferPool;
+import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.Timer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.advantageous.qbit.service.Protocol.*;
+
+/**
+ * Binary protocol encoder. Messages are sent as WebSocket binary frames instead of text.
+ * <p>
+ * A frame is the marker, <code>'b'</code>, the protocol version and the number of messages. Each message is its
+ * type (<code>'m'</code> or <code>'r'</code>), its length as a four byte int and its fields. Ids, timestamps and
+ * counts are varints. Strings (addresses, names, header keys and values) are interned per frame: the first time a
+ * string is written it is sent as UTF-8, after that it is sent as its index in the frame's string table. Bodies
+ * are length prefixed and written by a pluggable {@link BodyCodec}.
+ *
+ * @author rhightower
+ */
+public class BinaryProtocolEncoder implements ProtocolEncoder {
+
+    /* String references. Anything above LITERAL is an index into the string table plus FIRST_INDEX. */
+    static final int NULL_STRING = 0;
+    static final int LITERAL_STRING = 1;
+    static final int FIRST_INDEX = 2;
+
+    private final BodyCodec bodyCodec;
+
+    private final ThreadLocal<Output> outputRef = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output(1000);
+        }
+    };
+
+    public BinaryProtocolEncoder(final BodyCodec bodyCodec) {
+        this.bodyCodec = bodyCodec;
+    }
+
+    public BinaryProtocolEncoder() {
+        this(new BoonBodyCodec());
+    }
+
+    @Override
+    public String encodeAsString(Response<Object> response) {
+        throw new UnsupportedOperationException("Binary protocol, use encodeAsBytes");
+    }
+
+    @Override
+    public String encodeAsString(MethodCall<Object> methodCall) {
+        throw new UnsupportedOperationException("Binary protocol, use encodeAsBytes");
+    }
+
+    @Override
+    public String encodeAsString(Collection<Message<Object>> messages) {
+        throw new UnsupportedOperationException("Binary protocol, use encodeAsBytes");
+    }
+
+    @Override
+    public byte[] encodeAsBytes(final Response<Object> response) {
+        return encodeAsBytes(Collections.singletonList((Message<Object>) response));
+    }
+
+    @Override
+    public byte[] encodeAsBytes(final Collection<Message<Object>> messages) {
+        return encode(messages).toByteArray();
+    }
+
+    @Override
+    public ByteBuffer encodeToBuffer(final Collection<Message<Object>> messages, final BufferPool bufferPool) {
+        final Output output = encode(messages);
+        final ByteBuffer buffer = bufferPool.acquire(output.length);
+        buffer.put(output.buffer, 0, output.length);
+        buffer.flip();
+        return buffer;
+    }
+
+    private Output encode(final Collection<Message<Object>> messages) {
+        final Output output = outputRef.get();
+        output.recycle();
+
+        output.writeByte(PROTOCOL_MARKER);
+        output.writeByte(PROTOCOL_MESSAGE_TYPE_BINARY);
+        output.writeByte(PROTOCOL_BINARY_VERSION);
+        output.writeVarLong(messages.size());
+
+        for (Message<Object> message : messages) {
+            if (message instanceof MethodCall) {
+                encodeMethodCall(output, (MethodCall<Object>) message);
+            } else if (message instanceof Response) {
+                encodeResponse(output, (Response<Object>) message);
+            }
+        }
+
+        return output;
+    }
+
+    private void encodeMethodCall(final Output output, final MethodCall<Object> methodCall) {
+        output.writeByte(PROTOCOL_MESSAGE_TYPE_METHOD);
+        final int lengthPosition = output.reserveInt();
+
+        output.writeZigZag(methodCall.id());
+        output.writeString(methodCall.address());
+        output.writeString(methodCall.returnAddress());
+        output.writeMultiMap(methodCall.headers());
+        output.writeMultiMap(methodCall.params());
+        output.writeString(methodCall.objectName());
+        output.writeString(methodCall.name());
+        output.writeZigZag(methodCall.timestamp());
+
+        /* Relative like the text protocol, 0 is no deadline. */
+        final long deadline = methodCall.deadline();
+        output.writeVarLong(deadline == 0L ? 0L : Math.max(deadline - Timer.timer().now(), 0L) + 1);
+
+        final Object body = methodCall.body();
+        if (body instanceof Object[]) {
+            final Object[] args = (Object[]) body;
+            output.writeVarLong(args.length);
+            for (Object arg : args) {
+                writeBody(output, arg);
+            }
+        } else if (body instanceof Collection) {
+            final Collection<?> args = (Collection<?>) body;
+            output.writeVarLong(args.size());
+            for (Object arg : args) {
+                writeBody(output, arg);
+            }
+        } else if (body != null) {
+            output.writeVarLong(1);
+            writeBody(output, body);
+        } else {
+            output.writeVarLong(0);
+        }
+
+        output.patchInt(lengthPosition);
+    }
+
+    private void encodeResponse(final Output output, final Response<Object> response) {
+        output.writeByte(PROTOCOL_MESSAGE_TYPE_RESPONSE);
+        final int lengthPosition = output.reserveInt();
+
+        output.writeZigZag(response.id());
+        output.writeString(response.address());
+        output.writeString(response.returnAddress());
+        output.writeZigZag(response.timestamp());
+        output.writeByte(response.wasErrors() ? 1 : 0);
+        writeBody(output, response.body());
+
+        output.patchInt(lengthPosition);
+    }
+
+    /**
+     * A body is its length and the codec's bytes. A length of 0 is a null body.
+     */
+    private void writeBody(final Output output, final Object body) {
+        if (body == null) {
+            output.writeVarLong(0);
+            return;
+        }
+        final byte[] bytes = bodyCodec.encode(body);
+        output.writeVarLong(bytes.length);
+        output.writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Growable byte buffer that is recycled per frame, along with the frame's string table.
+     */
+    static final class Output {
+
+        private final Map<String, Integer> strings = new HashMap<>();
+        private byte[] buffer;
+        private int length;
+
+        Output(final int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void recycle() {
+            length = 0;
+            strings.clear();
+        }
+
+        private void ensure(final int more) {
+            if (length + more > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + more));
+            }
+        }
+
+        void writeByte(final int value) {
+            ensure(1);
+            buffer[length++] = (byte) value;
+        }
+
+        void writeBytes(final byte[] bytes, final int offset, final int count) {
+            ensure(count);
+            System.arraycopy(bytes, offset, buffer, length, count);
+            length += count;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        void writeZigZag(final long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        int reserveInt() {
+            ensure(4);
+            final int position = length;
+            length += 4;
+            return position;
+        }
+
+        /**
+         * Writes the length of everything after the reserved int into it.
+         */
+        void patchInt(final int position) {
+            final int value = length - position - 4;
+            buffer[position] = (byte) (value >>> 24);
+            buffer[position + 1] = (byte) (value >>> 16);
+            buffer[position + 2] = (byte) (value >>> 8);
+            buffer[position + 3] = (byte) value;
+        }
+
+        void writeString(final String value) {
+            if (value == null) {
+                writeVarLong(NULL_STRING);
+                return;
+            }
+            final Integer index = strings.get(value);
+            if (index != null) {
+                writeVarLong(index + FIRST_INDEX);
+                return;
+            }
+            strings.put(value, strings.size());
+            writeVarLong(LITERAL_STRING);
+            writeUtf8(value);
+        }
+
+        private void writeUtf8(final String value) {
+            final int size = value.length();
+            for (int index = 0; index < size; index++) {
+                if (value.charAt(index) >= 0x80) {
+                    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(bytes.length);
+                    writeBytes(bytes, 0, bytes.length);
+                    return;
+                }
+            }
+            /* ASCII, which is most addresses and names. */
+            writeVarLong(size);
+            ensure(size);
+            for (int index = 0; index < size; index++) {
+                buffer[length++] = (byte) value.charAt(index);
+            }
+        }
+
+        void writeMultiMap(final MultiMap<String, String> multiMap) {
+            if (multiMap == null || multiMap.size() == 0) {
+                writeVarLong(0);
+                return;
+            }
+
+            final Map<? extends String, ? extends Collection<String>> map = multiMap.baseMap();
+            int entries = 0;
+            for (Collection<String> values : map.values()) {
+                if (values.size() > 0) {
+                    entries++;
+                }
+            }
+            writeVarLong(entries);
+            for (Map.Entry<? extends String, ? extends Collection<String>> entry : map.entrySet()) {
+                final Collection<String> values = entry.getValue();
+                if (values.size() == 0) {
+                    continue;
+                }
+                writeString(entry.getKey());
+                writeVarLong(values.size());
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+}
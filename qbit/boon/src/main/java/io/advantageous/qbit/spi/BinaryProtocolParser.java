@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.spi;
+
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.message.Message;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.service.Protocol;
+import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.MultiMapImpl;
+import io.advantageous.qbit.util.Timer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.qbit.service.Protocol.*;
+import static io.advantageous.qbit.spi.BinaryProtocolEncoder.FIRST_INDEX;
+import static io.advantageous.qbit.spi.BinaryProtocolEncoder.LITERAL_STRING;
+import static io.advantageous.qbit.spi.BinaryProtocolEncoder.NULL_STRING;
+
+/**
+ * Parses the frames written by {@link BinaryProtocolEncoder}.
+ * Messages of a type it does not know are skipped using their length.
+ * Every count and length is checked against the bytes left in the frame (or message) before it is used, so a
+ * truncated or corrupt frame fails with a protocol error instead of a huge allocation or an index error.
+ *
+ * @author rhightower
+ */
+public class BinaryProtocolParser implements ProtocolParser {
+
+    private final BodyCodec bodyCodec;
+
+    public BinaryProtocolParser(final BodyCodec bodyCodec) {
+        this.bodyCodec = bodyCodec;
+    }
+
+    public BinaryProtocolParser() {
+        this(new BoonBodyCodec());
+    }
+
+    @Override
+    public boolean supports(Object object, MultiMap<String, String> params) {
+        return object instanceof byte[] && Protocol.isBinaryProtocol((byte[]) object);
+    }
+
+    @Override
+    public MethodCall<Object> parseMethodCall(Object body) {
+        return parseMethodCallUsingAddressPrefix("", body);
+    }
+
+    @Override
+    public MethodCall<Object> parseMethodCallUsingAddressPrefix(String addressPrefix, Object body) {
+        final List<Message<Object>> messages = parse(addressPrefix, body);
+        if (messages != null && messages.size() > 0 && messages.get(0) instanceof MethodCall) {
+            return (MethodCall<Object>) messages.get(0);
+        }
+        return null;
+    }
+
+    @Override
+    public List<Message<Object>> parse(String address, Object body) {
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        if (parse(address, body, messages::add) == -1) {
+            return null;
+        }
+        return messages;
+    }
+
+    @Override
+    public int parseMethodCallsUsingAddressPrefix(String addressPrefix, Object body,
+                                                  Consumer<MethodCall<Object>> consumer) {
+        final int[] count = new int[1];
+        parse("", body, message -> {
+            if (message instanceof MethodCall) {
+                count[0]++;
+                consumer.accept((MethodCall<Object>) message);
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Hands each message to the consumer as soon as it is parsed.
+     *
+     * @return number of messages in the frame, -1 if it is not a binary protocol frame
+     */
+    private int parse(final String address, final Object body, final Consumer<Message<Object>> consumer) {
+
+        if (!(body instanceof byte[])) {
+            die("Body must be a byte[] at this point");
+            return -1;
+        }
+
+        final byte[] bytes = (byte[]) body;
+        if (!Protocol.isBinaryProtocol(bytes)) {
+            return -1;
+        }
+
+        final Input input = new Input(bytes, VERSION_MARKER_POSITION + 1);
+        final int version = input.readByte();
+        if (version != PROTOCOL_BINARY_VERSION) {
+            die("Unsupported binary protocol version", version);
+            return -1;
+        }
+
+        final int count = input.readCount("message count");
+
+        for (int index = 0; index < count; index++) {
+            final int type = input.readByte();
+            final int length = input.readInt();
+            if (length < 0 || length > input.remaining()) {
+                die("Binary protocol message length past the end of the frame", length, input.remaining());
+            }
+            final int end = input.position + length;
+
+            /* The message can not read past its own length. */
+            input.limit = end;
+            if (type == PROTOCOL_MESSAGE_TYPE_METHOD) {
+                consumer.accept((Message<Object>) (Object) parseMethodCall(address, input));
+            } else if (type == PROTOCOL_MESSAGE_TYPE_RESPONSE) {
+                consumer.accept(parseResponse(input));
+            }
+            input.limit = bytes.length;
+            input.position = end;
+        }
+        return count;
+    }
+
+    @Override
+    public List<MethodCall<Object>> parseMethods(Object body) {
+        return (List<MethodCall<Object>>) (Object) parse("", body);
+    }
+
+    @Override
+    public List<MethodCall<Object>> parseMethodCallListUsingAddressPrefix(String addressPrefix, Object body) {
+        return (List<MethodCall<Object>>) (Object) parse("", body);
+    }
+
+    @Override
+    public Response<Object> parseResponse(Object body) {
+        if (!supports(body, null)) {
+            return null;
+        }
+        final List<Message<Object>> messages = parse("", body);
+        if (messages != null && messages.size() > 0 && messages.get(0) instanceof Response) {
+            return (Response<Object>) messages.get(0);
+        }
+        return null;
+    }
+
+    private MethodCall<Object> parseMethodCall(final String addressPrefix, final Input input) {
+
+        final long id = input.readZigZag();
+        final String address = input.readString();
+        String returnAddress = input.readString();
+
+        if (!Str.isEmpty(addressPrefix)) {
+            returnAddress = Str.add(addressPrefix, "" + ((char) PROTOCOL_ARG_SEPARATOR), returnAddress);
+        }
+
+        final MultiMap<String, String> headers = input.readMultiMap();
+        final MultiMap<String, String> params = input.readMultiMap();
+        final String objectName = input.readString();
+        final String methodName = input.readString();
+        final long timestamp = input.readZigZag();
+
+        final long remainingMillis = input.readVarLong();
+        final long deadline = remainingMillis == 0L ? 0L : Timer.timer().now() + remainingMillis - 1;
+
+        final Object[] args = new Object[input.readCount("argument count")];
+        for (int index = 0; index < args.length; index++) {
+            args[index] = readBody(input);
+        }
+
+        return new MethodCallBuilder().setId(id).setAddress(address).setReturnAddress(returnAddress)
+                .setHeaders(headers).setParams(params).setObjectName(objectName).setName(methodName)
+                .setTimestamp(timestamp).setBody(args).setDeadline(deadline).build();
+    }
+
+    private Response<Object> parseResponse(final Input input) {
+
+        final long id = input.readZigZag();
+        final String address = input.readString();
+        final String returnAddress = input.readString();
+        final long timestamp = input.readZigZag();
+        final boolean wasErrors = input.readByte() == 1;
+        final Object body = readBody(input);
+
+        return new ResponseImpl<>(id, timestamp, address, returnAddress, null, body, null, wasErrors);
+    }
+
+    private Object readBody(final Input input) {
+        final int length = input.readLength("body length");
+        if (length == 0) {
+            return null;
+        }
+        final Object body = bodyCodec.decode(input.bytes, input.position, length);
+        input.position += length;
+        return body;
+    }
+
+    /**
+     * Reads a frame along with its string table.
+     */
+    private static final class Input {
+
+        private final byte[] bytes;
+        private final List<String> strings = new ArrayList<>();
+        private int position;
+        private int limit;
+
+        private Input(final byte[] bytes, final int position) {
+            this.bytes = bytes;
+            this.position = position;
+            this.limit = bytes.length;
+        }
+
+        int remaining() {
+            return limit - position;
+        }
+
+        int readByte() {
+            if (position >= limit) {
+                die("Truncated binary protocol frame", position, limit);
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    die("Malformed varint in binary protocol frame");
+                }
+            }
+        }
+
+        /**
+         * Reads a byte length, which has to fit in what is left of the frame.
+         */
+        int readLength(final String what) {
+            final long length = readVarLong();
+            if (length < 0 || length > remaining()) {
+                die("Binary protocol " + what + " past the end of the frame", length, remaining());
+            }
+            return (int) length;
+        }
+
+        /**
+         * Reads an item count. Every item takes at least a byte, so it can not be more than what is left.
+         */
+        int readCount(final String what) {
+            return readLength(what);
+        }
+
+        long readZigZag() {
+            final long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            final long reference = readVarLong();
+            if (reference == NULL_STRING) {
+                return null;
+            }
+            if (reference != LITERAL_STRING) {
+                if (reference < FIRST_INDEX || reference - FIRST_INDEX >= strings.size()) {
+                    die("Unknown string reference in binary protocol frame", reference);
+                }
+                return strings.get((int) (reference - FIRST_INDEX));
+            }
+            final int length = readLength("string length");
+            final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            strings.add(value);
+            return value;
+        }
+
+        MultiMap<String, String> readMultiMap() {
+            final int entries = readCount("map entry count");
+            if (entries == 0) {
+                return null;
+            }
+            final MultiMap<String, String> multiMap = new MultiMapImpl<>();
+            for (int entry = 0; entry < entries; entry++) {
+                final String key = readString();
+                final int values = readCount("map value count");
+                for (int index = 0; index < values; index++) {
+                    multiMap.add(key, readString());
+                }
+            }
+            return multiMap;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.spi;
+
+import io.advantageous.boon.core.reflection.FastStringUtils;
+import io.advantageous.boon.core.reflection.fields.FieldAccess;
+import io.advantageous.boon.json.JsonParserAndMapper;
+import io.advantageous.boon.json.JsonParserFactory;
+import io.advantageous.boon.json.JsonSerializer;
+import io.advantageous.boon.json.JsonSerializerFactory;
+import io.advantageous.boon.json.serializers.FieldFilter;
+import io.advantageous.boon.primitive.CharBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Body codec that writes the bodies as UTF-8 JSON, like the text protocol does.
+ *
+ * @author rhightower
+ */
+public class BoonBodyCodec implements BodyCodec {
+
+    private final ThreadLocal<JsonSerializer> jsonSerializer = new ThreadLocal<JsonSerializer>() {
+        @Override
+        protected JsonSerializer initialValue() {
+            return new JsonSerializerFactory().addFilter(new FieldFilter() {
+                @Override
+                public boolean include(Object parent, FieldAccess fieldAccess) {
+                    return !fieldAccess.name().equals("metaClass");
+                }
+            }).create();
+        }
+    };
+
+    private final ThreadLocal<CharBuf> bufRef = new ThreadLocal<CharBuf>() {
+        @Override
+        protected CharBuf initialValue() {
+            return CharBuf.createCharBuf(1000);
+        }
+    };
+
+    private final ThreadLocal<JsonParserAndMapper> jsonParser = new ThreadLocal<JsonParserAndMapper>() {
+        @Override
+        protected JsonParserAndMapper initialValue() {
+            return new JsonParserFactory().create();
+        }
+    };
+
+    @Override
+    public byte[] encode(final Object value) {
+        final CharBuf buf = bufRef.get();
+        buf.recycle();
+        jsonSerializer.get().serialize(buf, value);
+        final int length = buf.len();
+        return utf8(buf.readForRecycle(), length);
+    }
+
+    @Override
+    public Object decode(final byte[] buffer, final int offset, final int length) {
+        return jsonParser.get().parse(chars(buffer, offset, length));
+    }
+
+    /**
+     * Decodes ASCII straight into chars, anything else goes through the UTF-8 decoder.
+     */
+    static char[] chars(final byte[] buffer, final int offset, final int length) {
+        final char[] chars = new char[length];
+        for (int index = 0; index < length; index++) {
+            final byte b = buffer[offset + index];
+            if (b < 0) {
+                return FastStringUtils.toCharArray(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+            chars[index] = (char) b;
+        }
+        return chars;
+    }
+
+    /**
+     * @return number of bytes the chars take as UTF-8
+     */
+    static int utf8Length(final char[] chars, final int length) {
+        int size = 0;
+        for (int index = 0; index < length; index++) {
+            final char c = chars[index];
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && index + 1 < length
+                    && Character.isLowSurrogate(chars[index + 1])) {
+                size += 4;
+                index++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Encodes the chars straight from the buffer. JSON is mostly ASCII so this sizes the array in one pass.
+     */
+    static byte[] utf8(final char[] chars, final int length) {
+
+        final byte[] bytes = new byte[utf8Length(chars, length)];
+        int pos = 0;
+        for (int index = 0; index < length; index++) {
+            final char c = chars[index];
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && index + 1 < length
+                    && Character.isLowSurrogate(chars[index + 1])) {
+                final int codePoint = Character.toCodePoint(c, chars[++index]);
+                bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                /* Lone surrogates are encoded as is, the JSON parser only sees them inside strings. */
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return bytes;
+    }
+}
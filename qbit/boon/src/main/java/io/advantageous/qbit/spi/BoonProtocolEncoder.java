@@ -26,10 +26,18 @@ import io.advantageous.boon.primitive.CharBuf;
 import io.advantageous.qbit.message.Message;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.network.BufferPool;
 import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.Timer;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,6 +50,18 @@ import static io.advantageous.qbit.service.Protocol.*;
  */
 public class BoonProtocolEncoder implements ProtocolEncoder {
 
+    /**
+     * Encode groups as compressed groups, sending repeated addresses, names and header/param keys only once.
+     */
+    private final boolean compressGroups;
+
+    private ThreadLocal<Map<String, Integer>> dictionaryRef = new ThreadLocal<Map<String, Integer>>() {
+        @Override
+        protected Map<String, Integer> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
     private ThreadLocal<JsonSerializer> jsonSerializer = new ThreadLocal<JsonSerializer>() {
         @Override
         protected JsonSerializer initialValue() {
@@ -62,17 +82,34 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
         }
     };
 
+    private ThreadLocal<CharsetEncoder> utf8EncoderRef = new ThreadLocal<CharsetEncoder>() {
+        @Override
+        protected CharsetEncoder initialValue() {
+            return StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
+
+    public BoonProtocolEncoder() {
+        this(false);
+    }
+
+    public BoonProtocolEncoder(final boolean compressGroups) {
+        this.compressGroups = compressGroups;
+    }
+
     @Override
     public String encodeAsString(Response<Object> response) {
         CharBuf buf = CharBuf.createCharBuf();
-        encodeAsString(buf, response, true);
+        encodeAsString(buf, response, null);
         return buf.toString();
     }
 
     @Override
     public String encodeAsString(MethodCall<Object> methodCall) {
         CharBuf buf = CharBuf.createCharBuf();
-        encodeAsString(buf, methodCall, true);
+        encodeAsString(buf, methodCall, null);
         return buf.toString();
     }
 
@@ -80,56 +117,98 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
     public String encodeAsString(Collection<Message<Object>> messages) {
         CharBuf buf = bufRef.get();
         buf.recycle();
+        encodeAsString(buf, messages);
+        return buf.toString();
+
+    }
+
+    /**
+     * Writes the UTF-8 straight from the encode buffer into the pooled buffer, without building a String.
+     */
+    @Override
+    public ByteBuffer encodeToBuffer(Collection<Message<Object>> messages, BufferPool bufferPool) {
+        CharBuf buf = bufRef.get();
+        buf.recycle();
+        encodeAsString(buf, messages);
+
+        final int length = buf.len();
+        final char[] chars = buf.readForRecycle();
+        final ByteBuffer buffer = bufferPool.acquire(BoonBodyCodec.utf8Length(chars, length));
+
+        final CharsetEncoder encoder = utf8EncoderRef.get();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(chars, 0, length), buffer, true);
+        encoder.flush(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void encodeAsString(CharBuf buf, Collection<Message<Object>> messages) {
 
         buf.addChar(PROTOCOL_MARKER);
-        buf.addChar(PROTOCOL_MESSAGE_TYPE_GROUP);
-        int index = 0;
 
-        for ( Message<Object> message : messages ) {
+        final Map<String, Integer> dictionary;
+        if ( compressGroups ) {
+            buf.addChar(PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP);
+            dictionary = dictionaryRef.get();
+            dictionary.clear();
+        } else {
+            buf.addChar(PROTOCOL_MESSAGE_TYPE_GROUP);
+            dictionary = null;
+        }
 
-            boolean encodeAddress = index == 0;
+        for ( Message<Object> message : messages ) {
 
             if ( message instanceof MethodCall ) {
-                encodeAsString(buf, ( MethodCall<Object> ) message, encodeAddress);
+                encodeAsString(buf, ( MethodCall<Object> ) message, dictionary);
             } else if ( message instanceof Response ) {
-                encodeAsString(buf, ( Response<Object> ) message, encodeAddress);
+                encodeAsString(buf, ( Response<Object> ) message, dictionary);
             }
             buf.addChar(PROTOCOL_MESSAGE_SEPARATOR);
-
-            index++;
         }
+    }
 
-        return buf.toString();
+    /**
+     * Adds a string that repeats across the messages of a group. In a compressed group it is only written the
+     * first time, after that it is a reference to the index it got in the dictionary of the group.
+     * The parser adds the non empty strings to its dictionary in the same order.
+     */
+    private void addDictionaryString(CharBuf buf, String value, Map<String, Integer> dictionary) {
 
+        if ( dictionary == null || value == null || value.isEmpty() ) {
+            buf.add(value);
+            return;
+        }
+
+        final Integer index = dictionary.get(value);
+        if ( index != null ) {
+            buf.addChar(PROTOCOL_DICTIONARY_REF);
+            buf.add(index.intValue());
+        } else {
+            dictionary.put(value, dictionary.size());
+            buf.add(value);
+        }
     }
 
 
-    private void encodeAsString(CharBuf buf, MethodCall<Object> methodCall, boolean encodeAddress) {
+    private void encodeAsString(CharBuf buf, MethodCall<Object> methodCall, Map<String, Integer> dictionary) {
         buf.addChar(PROTOCOL_MARKER);
         buf.addChar(PROTOCOL_MESSAGE_TYPE_METHOD);
         buf.addChar(PROTOCOL_SEPARATOR);
         buf.add(methodCall.id());
         buf.addChar(PROTOCOL_SEPARATOR);
-        buf.add(methodCall.address());
+        addDictionaryString(buf, methodCall.address(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-
-        buf.add(methodCall.returnAddress());
-
-//        if (encodeAddress) {
-//            buf.add(methodCall.returnAddress());
-//
-//        } else {
-//            buf.add("same");
-//        }
-
+        addDictionaryString(buf, methodCall.returnAddress(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-        encodeHeadersAndParams(buf, methodCall.headers());
+        encodeHeadersAndParams(buf, methodCall.headers(), dictionary);
+        encodeDeadline(buf, methodCall.deadline(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-        encodeHeadersAndParams(buf, methodCall.params());
+        encodeHeadersAndParams(buf, methodCall.params(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-        buf.add(methodCall.objectName());
+        addDictionaryString(buf, methodCall.objectName(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-        buf.add(methodCall.name());
+        addDictionaryString(buf, methodCall.name(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
         buf.add(methodCall.timestamp());
         buf.addChar(PROTOCOL_SEPARATOR);
@@ -156,16 +235,15 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
     }
 
 
-    private void encodeAsString(CharBuf buf, Response<Object> response, boolean encodeAddress) {
+    private void encodeAsString(CharBuf buf, Response<Object> response, Map<String, Integer> dictionary) {
         buf.addChar(PROTOCOL_MARKER);
         buf.addChar(PROTOCOL_MESSAGE_TYPE_RESPONSE);
         buf.addChar(PROTOCOL_SEPARATOR);
         buf.add(response.id());
         buf.addChar(PROTOCOL_SEPARATOR);
-        buf.add(response.address());
+        addDictionaryString(buf, response.address(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
-
-        buf.add(response.returnAddress());
+        addDictionaryString(buf, response.returnAddress(), dictionary);
         buf.addChar(PROTOCOL_SEPARATOR);
         buf.addChar(PROTOCOL_SEPARATOR); //reserved for header
         buf.addChar(PROTOCOL_SEPARATOR); //reserved for params
@@ -186,7 +264,24 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
         }
     }
 
-    private void encodeHeadersAndParams(CharBuf buf, MultiMap<String, String> headerOrParams) {
+    /**
+     * Encodes the deadline as one more header entry, so peers that do not know about deadlines ignore it.
+     */
+    private void encodeDeadline(CharBuf buf, long deadline, Map<String, Integer> dictionary) {
+
+        if ( deadline == 0L ) {
+            return;
+        }
+
+        addDictionaryString(buf, Protocol.REMAINING_MILLIS_KEY, dictionary);
+        buf.addChar(Protocol.PROTOCOL_KEY_HEADER_DELIM);
+        buf.add(Math.max(deadline - Timer.timer().now(), 0L));
+        buf.addChar(Protocol.PROTOCOL_VALUE_HEADER_DELIM);
+        buf.addChar(Protocol.PROTOCOL_ENTRY_HEADER_DELIM);
+    }
+
+    private void encodeHeadersAndParams(CharBuf buf, MultiMap<String, String> headerOrParams,
+                                        Map<String, Integer> dictionary) {
 
         if ( headerOrParams == null ) {
             return;
@@ -198,11 +293,11 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
 
             final Collection<String> values = entry.getValue();
 
-            if ( values.size() == 0 ) {
+            if ( values.size() == 0 || Protocol.REMAINING_MILLIS_KEY.equals(entry.getKey()) ) {
                 continue;
             }
 
-            buf.add(entry.getKey());
+            addDictionaryString(buf, entry.getKey(), dictionary);
             buf.addChar(Protocol.PROTOCOL_KEY_HEADER_DELIM);
 
             for ( String value : values ) {
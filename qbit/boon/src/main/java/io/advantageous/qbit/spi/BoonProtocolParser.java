@@ -33,9 +33,12 @@ import io.advantageous.qbit.message.impl.ResponseImpl;
 import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.util.MultiMap;
 import io.advantageous.qbit.util.MultiMapImpl;
+import io.advantageous.qbit.util.Timer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.qbit.service.Protocol.*;
@@ -47,8 +50,14 @@ import static io.advantageous.qbit.service.Protocol.*;
  */
 public class BoonProtocolParser implements ProtocolParser {
 
+    private static final int STRING_CACHE_SIZE = 256;
+
     private JsonParserAndMapper jsonParser = new JsonParserFactory().create();
 
+    /* Strings read from compressed groups, so the same addresses and keys arriving in every group are
+    not allocated again. A slot only holds the last string that hashed to it. */
+    private final String[] stringCache = new String[STRING_CACHE_SIZE];
+
 
     private Message<Object> parseMessageFromString(String addressPrefix, String args) {
 
@@ -57,7 +66,7 @@ public class BoonProtocolParser implements ProtocolParser {
         }
         final char[] chars = FastStringUtils.toCharArray(args);
 
-        return parseMessageFromChars(addressPrefix, chars, null);
+        return parseMessageFromChars(addressPrefix, chars, null, null);
     }
 
 
@@ -73,7 +82,8 @@ public class BoonProtocolParser implements ProtocolParser {
         if (stringArgs.length() > 2 &&
                 stringArgs.charAt(0) == PROTOCOL_MARKER &&
                 (stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_METHOD ||
-                        stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_GROUP || stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_RESPONSE)) {
+                        stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_GROUP || stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_RESPONSE ||
+                        stringArgs.charAt(1) == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP)) {
             return true;
 
         }
@@ -124,46 +134,92 @@ public class BoonProtocolParser implements ProtocolParser {
             final char versionMarker = chars[VERSION_MARKER_POSITION];
 
             if (versionMarker == PROTOCOL_MESSAGE_TYPE_METHOD) {
-                return Lists.list((Message<Object>) handleFastBodySubmissionVersion1Chars("", chars, null));
+                return Lists.list((Message<Object>) handleFastBodySubmissionVersion1Chars("", chars, null, null));
             } else if (versionMarker == PROTOCOL_MESSAGE_TYPE_RESPONSE) {
-                return Lists.list((Message<Object>) parseResponseFromChars("", chars, null));
-            } else if (versionMarker == PROTOCOL_MESSAGE_TYPE_GROUP) {
+                return Lists.list((Message<Object>) parseResponseFromChars("", chars, null, null));
+            } else if (versionMarker == PROTOCOL_MESSAGE_TYPE_GROUP || versionMarker == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP) {
 
-                String returnAddress = null;
+                List<Message<Object>> messages = new ArrayList<>();
+                parseGroup(address, chars, messages::add);
+                return messages;
 
-                final char[][] messageBuffers = CharScanner.splitFrom(chars, (char) PROTOCOL_MESSAGE_SEPARATOR, 2);
 
-                List<Message<Object>> messages = new ArrayList<>(messageBuffers.length);
+            } else {
+                die("Unsupported method call", args);
+                return null;
 
-                int index = 0;
+            }
+        }
+        return null;
 
-                for (char[] methodCall : messageBuffers) {
-                    final Message<Object> m = parseMessageFromChars(address, methodCall, returnAddress);
+    }
 
-                    if (index == 0) {
-                        if (m instanceof MethodCall) {
-                            final MethodCall call = (MethodCall) m;
-                            returnAddress = call.returnAddress();
-                        } else if (m instanceof Response) {
-                            final Response response = (Response) m;
-                            returnAddress = response.returnAddress();
-                        }
-                    }
-                    messages.add(m);
-                    index++;
+    @Override
+    public int parseMethodCallsUsingAddressPrefix(String addressPrefix, Object body,
+                                                  Consumer<MethodCall<Object>> consumer) {
+
+        if (!(body instanceof String)) {
+
+            die("Body must be a string at this point");
+            return 0;
+
+        }
+
+        final char[] chars = FastStringUtils.toCharArray((String) body);
+        if (chars.length > 2 && chars[PROTOCOL_MARKER_POSITION] == PROTOCOL_MARKER
+                && (chars[VERSION_MARKER_POSITION] == PROTOCOL_MESSAGE_TYPE_GROUP
+                || chars[VERSION_MARKER_POSITION] == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP)) {
+
+            final int[] count = new int[1];
+            parseGroup("", chars, message -> {
+                if (message instanceof MethodCall) {
+                    count[0]++;
+                    consumer.accept((MethodCall<Object>) message);
                 }
+            });
+            return count[0];
+        }
 
-                return messages;
+        return ProtocolParser.super.parseMethodCallsUsingAddressPrefix(addressPrefix, body, consumer);
+    }
 
+    /**
+     * Walks the group once, handing each message to the consumer as soon as its separator is found.
+     * Only the chars of the message being parsed are copied.
+     */
+    private void parseGroup(String address, char[] chars, Consumer<Message<Object>> consumer) {
 
-            } else {
-                die("Unsupported method call", args);
-                return null;
+        String returnAddress = null;
+
+        final List<String> dictionary = chars[VERSION_MARKER_POSITION] == PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP
+                ? new ArrayList<>() : null;
 
+        int start = 2;
+
+        while (start < chars.length) {
+
+            int end = start;
+            while (end < chars.length && chars[end] != PROTOCOL_MESSAGE_SEPARATOR) {
+                end++;
             }
-        }
-        return null;
 
+            if (end > start) {
+                final Message<Object> m = parseMessageFromChars(address, Arrays.copyOfRange(chars, start, end),
+                        returnAddress, dictionary);
+
+                if (returnAddress == null) {
+                    if (m instanceof MethodCall) {
+                        returnAddress = ((MethodCall) m).returnAddress();
+                    } else if (m instanceof Response) {
+                        returnAddress = ((Response) m).returnAddress();
+                    }
+                }
+                if (m != null) {
+                    consumer.accept(m);
+                }
+            }
+            start = end + 1;
+        }
     }
 
     @Override
@@ -188,7 +244,7 @@ public class BoonProtocolParser implements ProtocolParser {
                 if (versionMarker == PROTOCOL_MESSAGE_TYPE_RESPONSE) {
 
 
-                    return parseResponseFromChars("", args, null);
+                    return parseResponseFromChars("", args, null, null);
                 } else {
                     return null;
                 }
@@ -199,7 +255,8 @@ public class BoonProtocolParser implements ProtocolParser {
         return null;
     }
 
-    private Response<Object> parseResponseFromChars(String addressPrefix, char[] args, String parentReturnAddress) {
+    private Response<Object> parseResponseFromChars(String addressPrefix, char[] args, String parentReturnAddress,
+                                                    List<String> dictionary) {
         final char[][] chars = CharScanner.splitFromStartWithLimit(args, (char) PROTOCOL_SEPARATOR, 0, RESPONSE_RETURN);
 
 
@@ -210,10 +267,10 @@ public class BoonProtocolParser implements ProtocolParser {
             id = Long.parseLong(messageId);
         }
 
-        String address = FastStringUtils.noCopyStringFromChars(chars[ADDRESS_POS]);
+        String address = dictionaryString(chars[ADDRESS_POS], dictionary);
 
 
-        String returnAddress = FastStringUtils.noCopyStringFromChars(chars[RETURN_ADDRESS_POS]);
+        String returnAddress = dictionaryString(chars[RETURN_ADDRESS_POS], dictionary);
 
 
         String stime = FastStringUtils.noCopyStringFromChars(chars[TIMESTAMP_POS]);
@@ -245,7 +302,8 @@ public class BoonProtocolParser implements ProtocolParser {
     }
 
 
-    private Message<Object> parseMessageFromChars(String addressPrefix, char[] chars, String returnAddress) {
+    private Message<Object> parseMessageFromChars(String addressPrefix, char[] chars, String returnAddress,
+                                                  List<String> dictionary) {
 
 
         if (chars.length > 2 && chars[PROTOCOL_MARKER_POSITION] == PROTOCOL_MARKER) {
@@ -253,9 +311,9 @@ public class BoonProtocolParser implements ProtocolParser {
             final char versionMarker = chars[VERSION_MARKER_POSITION];
 
             if (versionMarker == PROTOCOL_MESSAGE_TYPE_METHOD) {
-                return handleFastBodySubmissionVersion1Chars(addressPrefix, chars, returnAddress);
+                return handleFastBodySubmissionVersion1Chars(addressPrefix, chars, returnAddress, dictionary);
             } else if (versionMarker == PROTOCOL_MESSAGE_TYPE_RESPONSE) {
-                return parseResponseFromChars(addressPrefix, chars, returnAddress);
+                return parseResponseFromChars(addressPrefix, chars, returnAddress, dictionary);
             } else {
                 die("Unsupported method call", new String(chars));
                 return null;
@@ -265,7 +323,8 @@ public class BoonProtocolParser implements ProtocolParser {
     }
 
 
-    private MethodCall<Object> handleFastBodySubmissionVersion1Chars(String addressPrefix, char[] args, String parentReturnAddress) {
+    private MethodCall<Object> handleFastBodySubmissionVersion1Chars(String addressPrefix, char[] args, String parentReturnAddress,
+                                                                     List<String> dictionary) {
 
         final char[][] chars = CharScanner.splitFromStartWithLimit(args, (char) PROTOCOL_SEPARATOR, 0, METHOD_NAME_POS + 2);
 
@@ -275,32 +334,41 @@ public class BoonProtocolParser implements ProtocolParser {
             id = CharScanner.parseLong(chars[MESSAGE_ID_POS]);
         }
 
-        String address = FastStringUtils.noCopyStringFromChars(chars[ADDRESS_POS]);
+        String address = dictionaryString(chars[ADDRESS_POS], dictionary);
 
 
         String returnAddress = null;
 
-        returnAddress = FastStringUtils.noCopyStringFromChars(chars[RETURN_ADDRESS_POS]);
+        returnAddress = dictionaryString(chars[RETURN_ADDRESS_POS], dictionary);
 
         if (!Str.isEmpty(addressPrefix)) {
             returnAddress = Str.add(addressPrefix, "" + ((char) PROTOCOL_ARG_SEPARATOR), returnAddress);
         }
 
 
-        String headerBlock = FastStringUtils.noCopyStringFromChars(chars[HEADER_POS]);
-
-        MultiMap<String, String> headers = parseHeaders(headerBlock);
-
+        MultiMap<String, String> headers = parseHeaders(chars[HEADER_POS], dictionary);
 
-        String paramBlock = FastStringUtils.noCopyStringFromChars(chars[PARAMS_POS]);
+        long deadline = 0L;
+        if (headers != null) {
+            final String remainingMillis = headers.get(REMAINING_MILLIS_KEY);
+            if (!Str.isEmpty(remainingMillis)) {
+                deadline = Timer.timer().now() + Long.parseLong(remainingMillis);
+                /* The deadline is carried by the call, the header is only how it travels. */
+                headers.removeMulti(REMAINING_MILLIS_KEY);
+                if (headers.isEmpty()) {
+                    headers = null;
+                }
+            }
+        }
 
 
-        MultiMap<String, String> params = parseHeaders(paramBlock);
+        MultiMap<String, String> params = parseHeaders(chars[PARAMS_POS], dictionary);
 
-        String methodName = FastStringUtils.noCopyStringFromChars(chars[METHOD_NAME_POS]);
+        /* Read in the order they were written, compressed groups number their strings in that order. */
+        String objectName = dictionaryString(chars[OBJECT_NAME_POS], dictionary);
 
 
-        String objectName = FastStringUtils.noCopyStringFromChars(chars[OBJECT_NAME_POS]);
+        String methodName = dictionaryString(chars[METHOD_NAME_POS], dictionary);
 
 
         long timestamp = 0L;
@@ -327,7 +395,7 @@ public class BoonProtocolParser implements ProtocolParser {
             argList[index] = arg;
         }
 
-        return new MethodCallBuilder().setId(id).setAddress(address).setReturnAddress(returnAddress).setHeaders(headers).setObjectName(objectName).setName(methodName).setTimestamp(timestamp).setBody(argList).setParams(params).build();
+        return new MethodCallBuilder().setId(id).setAddress(address).setReturnAddress(returnAddress).setHeaders(headers).setObjectName(objectName).setName(methodName).setTimestamp(timestamp).setBody(argList).setParams(params).setDeadline(deadline).build();
 
     }
 
@@ -337,9 +405,18 @@ public class BoonProtocolParser implements ProtocolParser {
             return null;
         }
 
+        return parseHeaders(FastStringUtils.toCharArray(header), null);
+    }
+
+    private MultiMap<String, String> parseHeaders(char[] header, List<String> dictionary) {
+
+        if (Chr.isEmpty(header)) {
+            return null;
+        }
+
         MultiMap<String, String> params = new MultiMapImpl<>();
 
-        final char[][] split = CharScanner.split(FastStringUtils.toCharArray(header), (char) Protocol.PROTOCOL_ENTRY_HEADER_DELIM);
+        final char[][] split = CharScanner.split(header, (char) Protocol.PROTOCOL_ENTRY_HEADER_DELIM);
 
         for (char[] entry : split) {
 
@@ -348,7 +425,7 @@ public class BoonProtocolParser implements ProtocolParser {
                 char[] ckey = kvSplit[0];
                 char[] valuesAsOne = kvSplit[1];
                 final char[][] values = CharScanner.split(valuesAsOne, (char) PROTOCOL_VALUE_HEADER_DELIM);
-                String key = new String(ckey);
+                String key = dictionary == null ? new String(ckey) : dictionaryString(ckey, dictionary);
                 for (char[] value : values) {
 
                     params.add(key, new String(value));
@@ -363,5 +440,68 @@ public class BoonProtocolParser implements ProtocolParser {
 
     }
 
+    /**
+     * Reads a string that can be a reference into the dictionary of a compressed group.
+     * Other non empty strings of a compressed group are added to its dictionary.
+     */
+    private String dictionaryString(char[] chars, List<String> dictionary) {
+
+        if (dictionary == null) {
+            return FastStringUtils.noCopyStringFromChars(chars);
+        }
+
+        if (chars.length == 0) {
+            return "";
+        }
+
+        if (chars[0] == PROTOCOL_DICTIONARY_REF) {
+            final int index = CharScanner.parseInt(chars, 1, chars.length);
+            if (index < 0 || index >= dictionary.size()) {
+                die("Unknown dictionary reference", index);
+            }
+            return dictionary.get(index);
+        }
+
+        final String value = cachedString(chars);
+        dictionary.add(value);
+        return value;
+    }
+
+    private String cachedString(char[] chars) {
+
+        int hash = 0;
+        for (char c : chars) {
+            hash = 31 * hash + c;
+        }
+
+        /* Two slots per string so that two strings that keep hashing to the same slot do not evict each other. */
+        final int slot = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+        final int nextSlot = (slot + 1) & (STRING_CACHE_SIZE - 1);
+
+        if (sameChars(stringCache[slot], hash, chars)) {
+            return stringCache[slot];
+        }
+        if (sameChars(stringCache[nextSlot], hash, chars)) {
+            return stringCache[nextSlot];
+        }
+
+        final String value = new String(chars);
+        stringCache[nextSlot] = stringCache[slot];
+        stringCache[slot] = value;
+        return value;
+    }
+
+    private static boolean sameChars(String cached, int hash, char[] chars) {
+
+        if (cached == null || cached.hashCode() != hash || cached.length() != chars.length) {
+            return false;
+        }
+        for (int index = 0; index < chars.length; index++) {
+            if (cached.charAt(index) != chars[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.boon;
+
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.RemoteTCPClientProxy;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.service.EndPoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class BoonServiceProxyFactoryTest {
+
+    boolean ok;
+
+    List<MethodCall<Object>> calls;
+    int flushes;
+    EndPoint endPoint;
+
+    @Before
+    public void setup() {
+        calls = new ArrayList<>();
+        flushes = 0;
+        endPoint = new EndPoint() {
+            @Override
+            public String address() {
+                return "/services";
+            }
+
+            @Override
+            public void call(MethodCall<Object> methodCall) {
+                calls.add(methodCall);
+            }
+
+            @Override
+            public void call(List<MethodCall<Object>> methodCalls) {
+                calls.addAll(methodCalls);
+            }
+
+            @Override
+            public void flush() {
+                flushes++;
+            }
+        };
+    }
+
+    @Test
+    public void testLocalProxy() {
+
+        final TodoService todoService = new BoonServiceProxyFactory(QBit.factory())
+                .createProxy(TodoService.class, "todo", endPoint);
+
+        todoService.add("item", 5);
+        todoService.list();
+
+        ok = calls.size() == 2 || die(calls.size());
+
+        final MethodCall<Object> call = calls.get(0);
+        ok = call.address().equals("/services/todo/add") || die(call.address());
+        ok = call.name().equals("add") || die(call.name());
+        ok = call.objectName().equals("todo") || die(call.objectName());
+        ok = ((Object[]) call.body()).length == 2 || die();
+        ok = ((Object[]) call.body())[0].equals("item") || die();
+        ok = call.id() != calls.get(1).id() || die("ids should be unique");
+        ok = calls.get(1).address().equals("/services/todo/list") || die(calls.get(1).address());
+
+        ((ClientProxy) todoService).clientProxyFlush();
+        ok = flushes == 1 || die(flushes);
+
+        ok = todoService.toString().contains("Local Proxy") || die(todoService.toString());
+        ok = todoService.equals(todoService) || die();
+        ok = todoService.hashCode() == System.identityHashCode(todoService) || die();
+        ok = calls.size() == 2 || die("object methods should not be sent", calls.size());
+    }
+
+    @Test
+    public void testRemoteProxy() {
+
+        final TodoService todoService = new BoonServiceProxyFactory(QBit.factory())
+                .createProxyWithReturnAddress(TodoService.class, "todo", "somehost", 9090,
+                        new AtomicBoolean(true), "", endPoint);
+
+        final RemoteTCPClientProxy remote = (RemoteTCPClientProxy) todoService;
+        ok = remote.port() == 9090 || die(remote.port());
+        ok = remote.host().equals("somehost") || die(remote.host());
+        ok = remote.connected() || die();
+
+        todoService.add("item", 1);
+        ok = calls.size() == 1 || die(calls.size());
+        ok = calls.get(0).address().equals("/services/todo/add") || die(calls.get(0).address());
+    }
+
+    public interface TodoService {
+        void add(String item, int priority);
+
+        void list();
+    }
+}
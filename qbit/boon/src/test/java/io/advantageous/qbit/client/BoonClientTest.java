@@ -25,9 +25,15 @@ import io.advantageous.qbit.http.request.HttpRequest;
 import io.advantageous.qbit.http.websocket.WebSocket;
 import io.advantageous.qbit.http.websocket.WebSocketBuilder;
 import io.advantageous.qbit.http.websocket.WebSocketSender;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
 import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.spi.BinaryProtocolEncoder;
+import io.advantageous.qbit.spi.BinaryProtocolParser;
 import io.advantageous.qbit.spi.FactorySPI;
 import io.advantageous.qbit.spi.HttpClientFactory;
+import io.advantageous.qbit.util.Timer;
 
 import org.junit.After;
 import org.junit.Before;
@@ -45,6 +51,7 @@ public class BoonClientTest {
     boolean httpStopCalled;
     boolean httpStartCalled;
     boolean httpSendWebSocketCalled;
+    boolean httpSendBytesCalled;
     boolean httpFlushCalled;
     boolean httpPeriodicFlushCallbackCalled;
     boolean ok;
@@ -167,6 +174,25 @@ public class BoonClientTest {
 
     }
 
+    @Test
+    public void testBinaryProtocol() throws Exception {
+        client = new BoonClientFactory().create("/uri", new HttpClientMock(), 10, true);
+        client.start();
+        Sys.sleep(100);
+
+        final ServiceMock mockService = client.createProxy(ServiceMock.class, "mockService");
+
+        mockService.sum(integer -> sum = integer);
+
+        ( ( ClientProxy ) mockService ).clientProxyFlush();
+
+        Sys.sleep(100);
+
+        ok = httpSendBytesCalled || die();
+        ok = !httpSendWebSocketCalled || die();
+        ok = sum == 3 || die(sum);
+    }
+
     @Test
     public void testStart() throws Exception {
 
@@ -213,6 +239,19 @@ public class BoonClientTest {
                     Sys.sleep(100);
 
                 }
+
+                @Override
+                public void sendBytes(final byte[] body) {
+
+                    httpSendBytesCalled = true;
+
+                    /* Answer every call with 3 using the binary protocol. */
+                    for (MethodCall<Object> call : new BinaryProtocolParser().parseMethods(body)) {
+                        final Response<Object> response = new ResponseImpl<>(call.id(), Timer.timer().now(),
+                                call.address(), call.returnAddress(), null, 3, null, false);
+                        webSocket.onBinaryMessage(new BinaryProtocolEncoder().encodeAsBytes(response));
+                    }
+                }
             };
 
             BeanUtils.idx(webSocket, "networkSender", webSocketSender);
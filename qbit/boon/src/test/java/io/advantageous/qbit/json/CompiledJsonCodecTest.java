@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import io.advantageous.qbit.BoonJsonMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+
+public class CompiledJsonCodecTest {
+
+    JsonCodec boonCodec;
+    CompiledJsonCodec compiledCodec;
+    boolean ok;
+
+    @Before
+    public void setup() {
+        boonCodec = new JsonMapperCodec(BoonJsonMapper::new);
+        compiledCodec = new CompiledJsonCodec(boonCodec);
+    }
+
+    @Test
+    public void testRoundTrip() {
+
+        final Employee employee = employee();
+
+        final String json = compiledCodec.toJson(employee);
+        puts(json);
+
+        final Employee compiled = (Employee) compiledCodec.typeMapper(Employee.class).fromJson(json);
+        final Employee boon = (Employee) boonCodec.typeMapper(Employee.class).fromJson(json);
+
+        ok = compiled.equals(employee) || die(compiled);
+        ok = boon.equals(employee) || die(boon);
+        ok = compiled.phones.get(1).number.equals("555\t\"1\" é中") || die(compiled.phones);
+        ok = compiled.manager == null || die();
+        ok = !json.contains("manager") || die(json);
+        ok = !json.contains("password") || die(json);
+    }
+
+    @Test
+    public void testReadsBoonJson() {
+
+        final String json = boonCodec.toJson(employee());
+        puts(json);
+
+        final byte[] bytes = ("  " + json + "  ").getBytes(StandardCharsets.UTF_8);
+        final Employee employee = (Employee) compiledCodec.typeMapper(Employee.class).fromJson(bytes);
+
+        ok = employee.equals(employee()) || die(employee);
+    }
+
+    @Test
+    public void testUnknownPropertiesAreSkipped() {
+
+        final Employee employee = (Employee) compiledCodec.typeMapper(Employee.class)
+                .fromJson("{\"extra\":{\"a\":[1,\"}\"]},\"name\":\"Rick\",\"age\":44,\"more\":null}");
+
+        ok = employee.name.equals("Rick") || die(employee);
+        ok = employee.age == 44 || die(employee);
+    }
+
+    @Test
+    public void testArrayElement() {
+
+        final byte[] json = "[\"Rick\", {\"name\":\"Geoff\",\"age\":40}, 7]".getBytes(StandardCharsets.UTF_8);
+
+        final JsonTypeMapper<Object> employeeMapper = compiledCodec.typeMapper(Employee.class);
+        final JsonTypeMapper<Object> intMapper = compiledCodec.typeMapper(int.class);
+
+        final Employee employee = (Employee) employeeMapper.fromJsonArrayElement(json, 1);
+        ok = employee.name.equals("Geoff") || die(employee);
+        ok = employee.age == 40 || die(employee);
+
+        ok = intMapper.fromJsonArrayElement(json, 2).equals(7) || die();
+        ok = compiledCodec.typeMapper(String.class).fromJsonArrayElement(json, 0).equals("Rick") || die();
+
+        final Employee boon = (Employee) boonCodec.typeMapper(Employee.class).fromJsonArrayElement(json, 1);
+        ok = boon.name.equals("Geoff") || die(boon);
+    }
+
+    @Test
+    public void testGenericTypes() throws Exception {
+
+        final java.lang.reflect.Type type = CompiledJsonCodecTest.class
+                .getDeclaredMethod("employees", List.class, Map.class).getGenericParameterTypes()[0];
+        final java.lang.reflect.Type mapType = CompiledJsonCodecTest.class
+                .getDeclaredMethod("employees", List.class, Map.class).getGenericParameterTypes()[1];
+
+        final List<Employee> employees = Arrays.asList(employee(), employee());
+        final String json = compiledCodec.toJson(employees);
+
+        final List<?> list = (List<?>) compiledCodec.typeMapper(type).fromJson(json);
+        ok = list.size() == 2 || die(list);
+        ok = list.get(1).equals(employee()) || die(list);
+
+        final Map<String, Employee> byName = new LinkedHashMap<>();
+        byName.put("rick", employee());
+        final Map<?, ?> map = (Map<?, ?>) compiledCodec.typeMapper(mapType).fromJson(compiledCodec.toJson(byName));
+        ok = map.get("rick").equals(employee()) || die(map);
+
+        ok = compiledCodec.typeMapper(type) == compiledCodec.typeMapper(type) || die();
+    }
+
+    @Test
+    public void testFallback() {
+
+        final Point point = (Point) compiledCodec.typeMapper(Point.class).fromJson("{\"x\":1,\"y\":2}");
+        ok = point.x == 1 && point.y == 2 || die(point);
+
+        final String json = compiledCodec.toJson(new Point(3, 4));
+        ok = json.contains("\"x\":3") || die(json);
+    }
+
+    @SuppressWarnings("unused")
+    private void employees(final List<Employee> employees, final Map<String, Employee> byName) {
+    }
+
+    private static Employee employee() {
+        final Employee employee = new Employee();
+        employee.name = "Rick";
+        employee.age = 44;
+        employee.salary = 1234.5;
+        employee.active = true;
+        employee.role = Role.DEVELOPER;
+        employee.tags = new ArrayList<>(Arrays.asList("java", "json"));
+        employee.scores = new int[]{1, 2, 3};
+        employee.phones = new ArrayList<>();
+        employee.phones.add(new Phone("home", "555-1234"));
+        employee.phones.add(new Phone("work", "555\t\"1\" é中"));
+        employee.password = "secret";
+        return employee;
+    }
+
+    public enum Role {
+        DEVELOPER, MANAGER
+    }
+
+    public static class Phone {
+        String kind;
+        String number;
+
+        public Phone() {
+        }
+
+        Phone(String kind, String number) {
+            this.kind = kind;
+            this.number = number;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Phone)) return false;
+            Phone phone = (Phone) o;
+            return Objects.equals(kind, phone.kind) && Objects.equals(number, phone.number);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, number);
+        }
+    }
+
+    public static class Employee {
+        String name;
+        int age;
+        double salary;
+        boolean active;
+        Role role;
+        List<String> tags;
+        int[] scores;
+        List<Phone> phones;
+        Employee manager;
+
+        @io.advantageous.qbit.annotation.JsonIgnore
+        String password;
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Employee)) return false;
+            Employee employee = (Employee) o;
+            return age == employee.age && Double.compare(employee.salary, salary) == 0
+                    && active == employee.active && Objects.equals(name, employee.name)
+                    && role == employee.role && Objects.equals(tags, employee.tags)
+                    && Arrays.equals(scores, employee.scores) && Objects.equals(phones, employee.phones)
+                    && Objects.equals(manager, employee.manager);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, age);
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + age + " " + role + " " + tags + " " + phones;
+        }
+    }
+
+    public static class Point {
+        final int x;
+        final int y;
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public String toString() {
+            return x + "," + y;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.qbit.BoonJsonMapper;
+import io.advantageous.qbit.json.CompiledJsonCodec;
+import io.advantageous.qbit.json.JsonCodec;
+import io.advantageous.qbit.json.JsonMapperCodec;
+import io.advantageous.qbit.json.JsonTypeMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Compares the Boon backed <code>JsonMapperCodec</code> with the <code>CompiledJsonCodec</code>,
+ * reading request bodies from bytes and writing response bodies, the way the REST handler uses them.
+ *
+ * @author rhightower
+ */
+public class JsonCodecPerfMain {
+
+    private static final int CALLS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String... args) {
+
+        final JsonCodec boonCodec = new JsonMapperCodec(BoonJsonMapper::new);
+        final JsonCodec compiledCodec = new CompiledJsonCodec(boonCodec);
+
+        final Order order = order();
+        final byte[] json = boonCodec.toJson(order).getBytes(StandardCharsets.UTF_8);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            read("boon read", boonCodec.typeMapper(Order.class), json);
+            read("compiled read", compiledCodec.typeMapper(Order.class), json);
+            write("boon write", boonCodec, order);
+            write("compiled write", compiledCodec, order);
+        }
+    }
+
+    private static void read(final String name, final JsonTypeMapper<Object> typeMapper, final byte[] json) {
+
+        long count = 0;
+        final long startTime = System.nanoTime();
+
+        for (int index = 0; index < CALLS; index++) {
+            final Order order = (Order) typeMapper.fromJson(json);
+            count += order.lines.size();
+        }
+
+        final long duration = System.nanoTime() - startTime;
+
+        puts(name, "calls", CALLS, "time ms", duration / 1_000_000, "ns/call", (double) duration / CALLS,
+                "lines", count);
+    }
+
+    private static void write(final String name, final JsonCodec codec, final Order order) {
+
+        long length = 0;
+        final long startTime = System.nanoTime();
+
+        for (int index = 0; index < CALLS; index++) {
+            length += codec.toJson(order).length();
+        }
+
+        final long duration = System.nanoTime() - startTime;
+
+        puts(name, "calls", CALLS, "time ms", duration / 1_000_000, "ns/call", (double) duration / CALLS,
+                "chars", length);
+    }
+
+    private static Order order() {
+        final Order order = new Order();
+        order.id = 1234567L;
+        order.customer = "Rick Hightower";
+        order.paid = true;
+        order.lines = new ArrayList<>();
+        for (int index = 0; index < 5; index++) {
+            final Line line = new Line();
+            line.sku = "SKU-" + index;
+            line.quantity = index + 1;
+            line.price = 9.99 * (index + 1);
+            order.lines.add(line);
+        }
+        return order;
+    }
+
+    public static class Order {
+        long id;
+        String customer;
+        boolean paid;
+        List<Line> lines;
+    }
+
+    public static class Line {
+        String sku;
+        int quantity;
+        double price;
+    }
+}
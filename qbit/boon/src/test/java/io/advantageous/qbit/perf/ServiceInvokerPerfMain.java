@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.service.impl.BoonServiceMethodCallHandler;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Compares the reflective <code>MethodAccess</code> dispatch with the generated service invoker.
+ * Calls go straight into <code>BoonServiceMethodCallHandler</code> so queue hand off does not hide the difference.
+ *
+ * @author rhightower
+ */
+public class ServiceInvokerPerfMain {
+
+    private static final int CALLS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String... args) {
+
+        final MethodCall<Object> methodCall = QBit.factory().createMethodCallByNames("add", "",
+                "returnAddress", new Object[]{"name", 1}, null);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            run("invokeDynamic", new BoonServiceMethodCallHandler(true), methodCall);
+            run("invoke", new BoonServiceMethodCallHandler(false), methodCall);
+            run("generated", new BoonServiceMethodCallHandler(true, true), methodCall);
+        }
+    }
+
+    private static void run(final String name, final BoonServiceMethodCallHandler handler,
+                            final MethodCall<Object> methodCall) {
+
+        final AdderService adderService = new AdderService();
+        handler.init(adderService, "", "", null);
+
+        final long startTime = System.nanoTime();
+
+        for (int index = 0; index < CALLS; index++) {
+            handler.receiveMethodCall(methodCall);
+        }
+
+        final long duration = System.nanoTime() - startTime;
+
+        puts(name, "calls", CALLS, "time ms", duration / 1_000_000, "ns/call", (double) duration / CALLS,
+                "sum", adderService.sum());
+    }
+}
@@ -19,12 +19,21 @@
 package io.advantageous.qbit.queue;
 
 import io.advantageous.boon.core.Lists;
+import io.advantageous.qbit.concurrent.PinnedThreadGroup;
+import io.advantageous.qbit.queue.impl.AdaptiveBatchSizer;
+import io.advantageous.qbit.queue.impl.BasicQueue;
+import io.advantageous.qbit.queue.impl.BasicSendQueue;
+import io.advantageous.qbit.queue.impl.BatchArrayPool;
+import io.advantageous.qbit.queue.impl.QueueEventLoopGroup;
+import io.advantageous.qbit.util.Histogram;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.boon.core.IO.puts;
@@ -361,4 +370,492 @@ public class BasicQueueTest {
     }
 
 
+    @Test
+    public void testRecycleBatchArrays() throws Exception {
+
+        final QueueBuilder builder = new QueueBuilder().setName("recycle").setPollWait(1000)
+                .setBatchSize(10).setRecycleBatchArrays();
+        final Queue<Integer> queue = builder.build();
+
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger count = new AtomicInteger();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        Thread writerThread = new Thread(() -> {
+            for (int index = 0; index < 10_005; index++) {
+                sendQueue.send(index);
+                if (index % 1000 == 0) {
+                    sendQueue.flushSends(); //partial batches
+                }
+            }
+            sendQueue.flushSends();
+        });
+
+        Thread readerThread = new Thread(() -> {
+            Integer item = receiveQueue.pollWait();
+            while (item != null) {
+                sum.addAndGet(item);
+                count.incrementAndGet();
+                item = receiveQueue.pollWait();
+            }
+        });
+
+        writerThread.start();
+        readerThread.start();
+        writerThread.join();
+        readerThread.join();
+
+        final BatchArrayPool pool = ((BasicQueue<Integer>) queue).getBatchArrayPool();
+        puts(count, pool);
+
+        ok = count.get() == 10_005 || die("count should be 10_005", count.get());
+        ok = sum.get() == 50_045_010L || die("sum is wrong", sum.get());
+        ok = pool.getHits() > 0 || die("pool should have hits", pool);
+        ok = pool.getHitRate() > 0.0 || die("hit rate should be over 0", pool);
+    }
+
+
+    @Test
+    public void testRecycleBatchArraysWithNullItem() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("recycleNull").setPollWait(100)
+                .setBatchSize(10).setRecycleBatchArrays().build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        sendQueue.send(1);
+        sendQueue.send(null);
+        sendQueue.send(3);
+        sendQueue.flushSends();
+
+        ok = receiveQueue.poll() == 1 || die("first item should be 1");
+        ok = receiveQueue.poll() == null || die("second item should be null");
+        final Integer third = receiveQueue.poll();
+        ok = third != null && third == 3 || die("item after the null should not be dropped", third);
+        ok = receiveQueue.poll() == null || die("queue should be empty");
+    }
+
+
+    @Test
+    public void testAdaptiveBatching() throws Exception {
+
+        final QueueBuilder builder = new QueueBuilder().setName("adaptive").setPollWait(1000)
+                .setBatchSize(64).setAdaptiveBatching(true);
+        final Queue<Integer> queue = builder.build();
+
+        final BasicSendQueue<Integer> sendQueue = (BasicSendQueue<Integer>) queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        ok = sendQueue.getCurrentBatchSize() == 1 || die("should start with a batch of 1");
+
+        /* Nobody is reading, so the backlog builds and the batch should grow to the max. */
+        for (int index = 0; index < 1_000; index++) {
+            sendQueue.send(index);
+        }
+
+        puts("burst", sendQueue.getCurrentBatchSize());
+        ok = sendQueue.getCurrentBatchSize() == 64 || die("batch should grow to 64", sendQueue.getCurrentBatchSize());
+
+        sendQueue.flushSends();
+        int count = 0;
+        while (receiveQueue.poll() != null) {
+            count++;
+        }
+        ok = count == 1_000 || die("count should be 1_000", count);
+
+        /* The reader keeps up now, so the batch should shrink back to 1. */
+        for (int index = 0; index < 20; index++) {
+            sendQueue.sendAndFlush(index);
+            ok = receiveQueue.poll() != null || die("item should be there");
+        }
+
+        puts("trickle", sendQueue.getCurrentBatchSize());
+        ok = sendQueue.getCurrentBatchSize() == 1 || die("batch should shrink to 1", sendQueue.getCurrentBatchSize());
+    }
+
+
+    @Test
+    public void testAdaptiveBatchingLatencyIsPerBatch() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("adaptiveLatency").setPollWait(100)
+                .setBatchSize(64).setAdaptiveBatching(true).setAdaptiveBatchTargetLatency(1000).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+        final AdaptiveBatchSizer sizer = ((BasicQueue<Integer>) queue).getAdaptiveBatchSizer();
+
+        sendQueue.sendAndFlush(1);
+        sleep(50);
+        sendQueue.sendAndFlush(2);
+
+        /* The first batch waited about 50ms, even though the last flush was just now. */
+        ok = receiveQueue.poll() == 1 || die();
+        ok = receiveQueue.poll() == 2 || die();
+
+        puts(sizer.getReceiveLatencyNanos());
+        ok = sizer.getReceiveLatencyNanos() > 2_000_000 || die("latency should come from the batch's own flush",
+                sizer.getReceiveLatencyNanos());
+        ok = sizer.getBacklog() == 0 || die("backlog should be 0", sizer.getBacklog());
+    }
+
+
+    @Test
+    public void testAdaptiveBatchingDropOldest() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("adaptiveDropOldest").setPollWait(100)
+                .setBatchSize(1).setSize(2).setAdaptiveBatching(true)
+                .setOverflowPolicy(OverflowPolicy.DROP_OLDEST).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final AdaptiveBatchSizer sizer = ((BasicQueue<Integer>) queue).getAdaptiveBatchSizer();
+
+        for (int index = 0; index < 10; index++) {
+            sendQueue.sendAndFlush(index);
+        }
+
+        ok = ((BasicQueue<Integer>) queue).getFlowControl().getDropped() == 8 || die("should drop 8");
+        ok = sizer.getBacklog() == 2 || die("dropped batches should leave the backlog", sizer.getBacklog());
+    }
+
+
+    @Test
+    public void testWakeupMarkerIsNotAnItem() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("wakeupDropOldest").setPollWait(100)
+                .setBatchSize(1).setSize(2).setAdaptiveBatching(true).setInstrumented(true)
+                .setOverflowPolicy(OverflowPolicy.DROP_OLDEST).build();
+
+        final BasicQueue<Integer> basicQueue = (BasicQueue<Integer>) queue;
+        final List<Object> overflowed = new ArrayList<>();
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        sendQueue.addOverflowListener((name, items) -> overflowed.addAll(Lists.list(items)));
+
+        queue.wakeup();
+        ok = basicQueue.getQueueStats().getDepth() == 0 || die("marker is not counted",
+                basicQueue.getQueueStats().getDepth());
+
+        sendQueue.sendAndFlush(1);
+        sendQueue.sendAndFlush(2);
+        sendQueue.sendAndFlush(3);
+
+        ok = basicQueue.getFlowControl().getDropped() == 1 || die("only batches are dropped",
+                basicQueue.getFlowControl().getDropped());
+        ok = overflowed.equals(Lists.list(1)) || die("listeners only get items", overflowed);
+        ok = basicQueue.getAdaptiveBatchSizer().getBacklog() == 2 || die("markers are not batches",
+                basicQueue.getAdaptiveBatchSizer().getBacklog());
+        ok = basicQueue.getQueueStats().getDepth() == 2 || die(basicQueue.getQueueStats().getDepth());
+        queue.stop();
+    }
+
+
+    @Test
+    public void testTrySendFlushesToWaitingConsumer() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("trySendBusy").setPollWait(5_000)
+                .setBatchSize(100).setLinkTransferQueue().setCheckIfBusy(true).setCheckEvery(0).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        queue.startListener(item -> count.incrementAndGet());
+        sleep(100);
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final SendStatus status = sendQueue.trySend(1);
+        for (int index = 0; index < 100 && count.get() == 0; index++) {
+            sleep(10);
+        }
+        queue.stop();
+
+        ok = status == SendStatus.SENT || die("an idle consumer should get the batch right away", status);
+        ok = count.get() == 1 || die("count should be 1", count.get());
+    }
+
+
+    @Test
+    public void testDropNewestOverflow() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("dropNewest").setPollWait(100)
+                .setBatchSize(1).setSize(4).setOverflowPolicy(OverflowPolicy.DROP_NEWEST).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        int dropped = 0;
+        for (int index = 0; index < 10; index++) {
+            if (sendQueue.trySendAndFlush(index) == SendStatus.DROPPED) {
+                dropped++;
+            }
+        }
+
+        ok = dropped == 6 || die("should drop 6", dropped);
+        ok = ((BasicQueue<Integer>) queue).getFlowControl().getDropped() == 6 || die("flow control should count 6");
+
+        int count = 0;
+        while (receiveQueue.poll() != null) {
+            count++;
+        }
+        ok = count == 4 || die("count should be 4", count);
+    }
+
+
+    @Test
+    public void testFailFastOverflow() throws Exception {
+
+        final AtomicInteger rejected = new AtomicInteger();
+
+        final Queue<Integer> queue = new QueueBuilder().setName("failFast").setPollWait(100)
+                .setBatchSize(5).setSize(2)
+                .setOverflowHandler((name, batch) -> rejected.incrementAndGet()).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+
+        for (int index = 0; index < 30; index++) {
+            sendQueue.send(index);
+        }
+
+        ok = rejected.get() == 3 || die("should reject 3 batches", rejected.get());
+        ok = sendQueue.trySendAndFlush(99) == SendStatus.REJECTED || die("queue should still be full");
+    }
+
+
+    @Test
+    public void testWatermarks() throws Exception {
+
+        final AtomicInteger high = new AtomicInteger();
+        final AtomicInteger low = new AtomicInteger();
+
+        final Queue<Integer> queue = new QueueBuilder().setName("watermarks").setPollWait(100)
+                .setBatchSize(1).setSize(10).setWatermarks(8, 2)
+                .setWatermarkListener(new QueueWatermarkListener() {
+                    @Override
+                    public void highWatermark(String queueName, int depth) {
+                        high.incrementAndGet();
+                    }
+
+                    @Override
+                    public void lowWatermark(String queueName, int depth) {
+                        low.incrementAndGet();
+                    }
+                }).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        for (int index = 0; index < 9; index++) {
+            sendQueue.sendAndFlush(index);
+        }
+
+        ok = sendQueue.isOverHighWatermark() || die("should be over the high watermark");
+        ok = high.get() == 1 || die("high watermark should fire once", high.get());
+
+        for (int index = 0; index < 7; index++) {
+            receiveQueue.poll();
+        }
+
+        ok = !sendQueue.isOverHighWatermark() || die("should be back under the low watermark");
+        ok = low.get() == 1 || die("low watermark should fire once", low.get());
+    }
+
+
+    @Test
+    public void testInstrumentation() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("instrumented").setPollWait(100)
+                .setBatchSize(10).setInstrumented(true).setInstrumentationSampleEvery(1).build();
+
+        final QueueStats queueStats = ((BasicQueue<Integer>) queue).getQueueStats();
+        ok = QueueStatsRegistry.queueStats(queueStats.getName()) == queueStats || die("should be registered");
+
+        final AtomicInteger count = new AtomicInteger();
+        queue.startListener(item -> count.incrementAndGet());
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 1_000; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && queueStats.getProcessedItems() < 1_000; index++) {
+            sleep(10);
+        }
+
+        puts(queueStats);
+
+        ok = queueStats.getEnqueuedItems() == 1_000 || die("enqueued", queueStats.getEnqueuedItems());
+        ok = queueStats.getEnqueuedBatches() == 100 || die("batches", queueStats.getEnqueuedBatches());
+        ok = queueStats.getProcessedItems() == 1_000 || die("processed", queueStats.getProcessedItems());
+        ok = queueStats.getBatchSizes().getValueAtPercentile(50) == 10 || die("batch size", queueStats.getBatchSizes());
+        ok = queueStats.getTimeInQueue().getCount() > 0 || die("time in queue should be sampled");
+
+        queue.stop();
+        ok = QueueStatsRegistry.queueStats(queueStats.getName()) == null || die("should be unregistered");
+    }
+
+
+    @Test
+    public void testEventLoopListenerParity() throws Exception {
+
+        final QueueEventLoopGroup eventLoopGroup = new QueueEventLoopGroup("parity", 1, true);
+        try {
+            final List<String> ownThread = listenerCalls(new QueueBuilder().setName("parityOwnThread"));
+            final List<String> eventLoop = listenerCalls(new QueueBuilder().setName("parityEventLoop")
+                    .setEventLoopGroup(eventLoopGroup));
+
+            puts(ownThread);
+            puts(eventLoop);
+            ok = ownThread.equals(eventLoop) || die("listener calls should match", ownThread, eventLoop);
+            ok = eventLoop.get(eventLoop.size() - 1).equals("empty") || die("last batch should end with empty");
+        } finally {
+            eventLoopGroup.shutdown();
+        }
+    }
+
+    /**
+     * Queues items before the listener starts, so batching does not depend on timing.
+     */
+    private List<String> listenerCalls(final QueueBuilder queueBuilder) throws Exception {
+
+        final Queue<Integer> queue = queueBuilder.setPollWait(10).setBatchSize(4).build();
+        final List<String> calls = new ArrayList<>();
+        final AtomicInteger received = new AtomicInteger();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 10; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        queue.startListener(new ReceiveQueueListener<Integer>() {
+            @Override
+            public void receive(Integer item) {
+                synchronized (calls) {
+                    calls.add("receive " + item);
+                }
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void startBatch() {
+                synchronized (calls) {
+                    calls.add("startBatch");
+                }
+            }
+
+            @Override
+            public void limit() {
+                synchronized (calls) {
+                    calls.add("limit");
+                }
+            }
+
+            @Override
+            public void empty() {
+                synchronized (calls) {
+                    if (received.get() < 10 || !calls.get(calls.size() - 1).equals("empty")) {
+                        calls.add("empty");
+                    }
+                }
+            }
+        });
+
+        for (int index = 0; index < 100 && received.get() < 10; index++) {
+            sleep(10);
+        }
+        sleep(50);
+        queue.stop();
+
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+
+    @Test
+    public void testHistogram() throws Exception {
+
+        final Histogram histogram = new Histogram();
+        for (int index = 1; index <= 1_000; index++) {
+            histogram.record(index);
+        }
+
+        puts(histogram);
+
+        ok = histogram.getCount() == 1_000 || die();
+        ok = histogram.getMax() == 1_000 || die();
+        ok = Math.abs(histogram.getValueAtPercentile(50) - 500) <= 500 / 16 || die(histogram.getValueAtPercentile(50));
+        ok = Math.abs(histogram.getValueAtPercentile(99) - 990) <= 990 / 16 || die(histogram.getValueAtPercentile(99));
+        ok = histogram.getValueAtPercentile(100) == 1_000 || die();
+    }
+
+
+    @Test
+    public void testDedicatedListenerThread() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("dedicated").setPollWait(100)
+                .setBatchSize(10).setDedicatedListenerThread(true).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        queue.startListener(item -> {
+            threadName.set(Thread.currentThread().getName());
+            count.incrementAndGet();
+        });
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 100; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && count.get() < 100; index++) {
+            sleep(10);
+        }
+
+        final long startupLatency = ((BasicQueue<Integer>) queue).getListenerStartupLatencyNanos();
+        puts("startup micros", TimeUnit.NANOSECONDS.toMicros(startupLatency), threadName.get());
+
+        ok = count.get() == 100 || die("count should be 100", count.get());
+        ok = "QueueListener dedicated".equals(threadName.get()) || die(threadName.get());
+        ok = startupLatency >= 0 || die("startup latency should be recorded", startupLatency);
+
+        queue.stop();
+    }
+
+
+    @Test
+    public void testListenerThreadGroup() throws Exception {
+
+        final PinnedThreadGroup group = new PinnedThreadGroup("listeners", 0, 2, null, true);
+        final List<Queue<Integer>> queues = new ArrayList<>();
+        final AtomicInteger count = new AtomicInteger();
+
+        for (int index = 0; index < 4; index++) {
+            final Queue<Integer> queue = new QueueBuilder().setName("grouped" + index).setPollWait(100)
+                    .setListenerThreadGroup(group).build();
+            queue.startListener(item -> count.incrementAndGet());
+            queues.add(queue);
+        }
+
+        for (Queue<Integer> queue : queues) {
+            queue.sendQueue().sendAndFlush(1);
+        }
+
+        for (int index = 0; index < 100 && count.get() < 4; index++) {
+            sleep(10);
+        }
+
+        ok = count.get() == 4 || die("count should be 4", count.get());
+        ok = group.getThreadCount() == 4 || die("thread count should be 4", group.getThreadCount());
+
+        queues.forEach(Queue::stop);
+
+        for (int index = 0; index < 100 && group.getThreadCount() > 0; index++) {
+            sleep(10);
+        }
+        ok = group.getThreadCount() == 0 || die("threads should be gone", group.getThreadCount());
+    }
+
+
 }
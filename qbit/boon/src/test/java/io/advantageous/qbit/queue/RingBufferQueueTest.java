@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+import io.advantageous.qbit.queue.impl.MultiProducerRingBuffer;
+import io.advantageous.qbit.queue.impl.SingleProducerRingBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+public class RingBufferQueueTest {
+
+    boolean ok;
+
+    @Test
+    public void testCapacityIsPowerOfTwo() throws Exception {
+
+        final SingleProducerRingBuffer<Object> ringBuffer = new SingleProducerRingBuffer<>(6);
+
+        ok = ringBuffer.capacity() == 8 || die("capacity should be 8", ringBuffer.capacity());
+
+        for (int index = 0; index < 8; index++) {
+            ok = ringBuffer.offer(index) || die("offer should work", index);
+        }
+
+        ok = !ringBuffer.offer(9) || die("ring buffer should be full");
+        ok = ringBuffer.size() == 8 || die("size should be 8", ringBuffer.size());
+        ok = ringBuffer.poll().equals(0) || die("first item should be 0");
+        ok = ringBuffer.offer(9) || die("offer should work after poll");
+        ok = ringBuffer.poll(10, TimeUnit.MILLISECONDS).equals(1) || die("second item should be 1");
+    }
+
+
+    @Test
+    public void testIterator() throws Exception {
+
+        final SingleProducerRingBuffer<Object> ringBuffer = new SingleProducerRingBuffer<>(4);
+        final MultiProducerRingBuffer<Object> multiRingBuffer = new MultiProducerRingBuffer<>(4);
+
+        for (int index = 0; index < 4; index++) {
+            ringBuffer.offer(index);
+            multiRingBuffer.offer(index);
+        }
+        ringBuffer.poll();
+        multiRingBuffer.poll();
+        ringBuffer.offer(4);
+        multiRingBuffer.offer(4);
+
+        final List<Object> items = new ArrayList<>();
+        ringBuffer.forEach(items::add);
+        ok = items.toString().equals("[1, 2, 3, 4]") || die(items);
+
+        items.clear();
+        multiRingBuffer.forEach(items::add);
+        ok = items.toString().equals("[1, 2, 3, 4]") || die(items);
+
+        ok = ringBuffer.contains(3) || die();
+        ok = ringBuffer.size() == 4 || die("iterating should not consume", ringBuffer.size());
+    }
+
+
+    @Test
+    public void testPollWaitSingleProducer() throws Exception {
+
+        final Queue<String> queue = new QueueBuilder().setName("ringBuffer").setPollWait(1000)
+                .setBatchSize(10).setSize(16).setSingleProducerRingBuffer().build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        final Thread writerThread = new Thread(() -> {
+            for (int index = 0; index < 10_000; index++) {
+                sendQueue.send("item" + index);
+            }
+            sendQueue.flushSends();
+        });
+
+        final Thread readerThread = new Thread(() -> {
+            String item = receiveQueue.pollWait();
+            while (item != null) {
+                count.incrementAndGet();
+                item = receiveQueue.pollWait();
+            }
+        });
+
+        writerThread.start();
+        readerThread.start();
+        writerThread.join();
+        readerThread.join();
+
+        puts(count);
+
+        ok = count.get() == 10_000 || die("count should be 10_000", count.get());
+    }
+
+
+    @Test
+    public void testMultiProducer() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("mpscRingBuffer").setPollWait(1000)
+                .setBatchSize(10).setSize(16).setMultiProducerRingBuffer().build();
+
+        final int numWriters = 4;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger count = new AtomicInteger();
+        final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+
+        final List<Thread> writers = new ArrayList<>();
+        for (int writer = 0; writer < numWriters; writer++) {
+            writers.add(new Thread(() -> {
+                final SendQueue<Integer> sendQueue = queue.sendQueue();
+                for (int index = 0; index < 10_000; index++) {
+                    sendQueue.send(index);
+                }
+                sendQueue.flushSends();
+            }));
+        }
+
+        final Thread readerThread = new Thread(() -> {
+            Integer item = receiveQueue.pollWait();
+            while (item != null) {
+                sum.addAndGet(item);
+                count.incrementAndGet();
+                item = receiveQueue.pollWait();
+            }
+        });
+
+        writers.forEach(Thread::start);
+        readerThread.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        readerThread.join();
+
+        puts(count, sum);
+
+        ok = count.get() == 40_000 || die("count should be 40_000", count.get());
+        ok = sum.get() == 4L * 49_995_000 || die("sum is wrong", sum.get());
+    }
+
+
+    @Test
+    public void testListenerSingleProducer() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("ringBufferListener").setPollWait(100)
+                .setBatchSize(100).setSingleProducerRingBuffer().build();
+
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger count = new AtomicInteger();
+
+        queue.startListener(item -> {
+            sum.addAndGet(item);
+            count.incrementAndGet();
+        });
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 1_000; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && count.get() < 1_000; index++) {
+            sleep(10);
+        }
+
+        queue.stop();
+
+        ok = count.get() == 1_000 || die("count should be 1_000", count.get());
+        ok = sum.get() == 499_500 || die("sum should be 499_500", sum.get());
+    }
+
+
+    @Test
+    public void testWakeupDoesNotWriteToSingleProducerRing() throws Exception {
+
+        final Queue<Integer> queue = new QueueBuilder().setName("ringBufferWakeup").setPollWait(100)
+                .setBatchSize(1).setSize(1024).setSingleProducerRingBuffer().build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger idle = new AtomicInteger();
+        queue.startListener(new ReceiveQueueListener<Integer>() {
+            @Override
+            public void receive(Integer item) {
+                count.incrementAndGet();
+            }
+
+            @Override
+            public void idle() {
+                idle.incrementAndGet();
+            }
+        });
+
+        /* A second thread wakes the listener while the only producer sends. */
+        final Thread waker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                queue.wakeup();
+            }
+        });
+        waker.start();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 200_000; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 500 && count.get() < 200_000; index++) {
+            sleep(10);
+        }
+        waker.interrupt();
+        waker.join();
+        queue.stop();
+
+        puts(count, "idle", idle);
+        ok = count.get() == 200_000 || die("every item should arrive", count.get());
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+import io.advantageous.qbit.queue.impl.BlockingWaitStrategy;
+import io.advantageous.qbit.queue.impl.BusySpinWaitStrategy;
+import io.advantageous.qbit.queue.impl.ParkingWaitStrategy;
+import io.advantageous.qbit.queue.impl.QueueEventLoopGroup;
+import io.advantageous.qbit.queue.impl.YieldingWaitStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+public class WaitStrategyTest {
+
+    boolean ok;
+
+    @Test
+    public void testBlocking() {
+        runWith(new BlockingWaitStrategy());
+    }
+
+    @Test
+    public void testBusySpin() {
+        runWith(new BusySpinWaitStrategy());
+    }
+
+    @Test
+    public void testYielding() {
+        runWith(new YieldingWaitStrategy());
+    }
+
+    @Test
+    public void testParking() {
+        runWith(new ParkingWaitStrategy());
+    }
+
+    @Test
+    public void testWakeup() {
+        for (WaitStrategy waitStrategy : new WaitStrategy[]{new BlockingWaitStrategy(), new BusySpinWaitStrategy(),
+                new YieldingWaitStrategy(), new ParkingWaitStrategy()}) {
+            wakeupWith(new QueueBuilder().setName("wakeup").setPollWait(5_000).setWaitStrategy(waitStrategy),
+                    waitStrategy.getClass().getSimpleName());
+        }
+
+        final QueueEventLoopGroup eventLoopGroup = new QueueEventLoopGroup("wakeup", 1, true);
+        wakeupWith(new QueueBuilder().setName("wakeup").setPollWait(5_000).setEventLoopGroup(eventLoopGroup),
+                "event loop");
+        eventLoopGroup.shutdown();
+    }
+
+    /**
+     * A listener that waits with a long poll wait goes idle right after a wakeup, and still gets its items.
+     */
+    private void wakeupWith(final QueueBuilder queueBuilder, final String name) {
+
+        final Queue<String> queue = queueBuilder.build();
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger idle = new AtomicInteger();
+
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void idle() {
+                idle.incrementAndGet();
+            }
+        });
+        sleep(100);
+
+        final int idleBefore = idle.get();
+        final long start = System.currentTimeMillis();
+        queue.wakeup();
+        for (int index = 0; index < 200 && idle.get() == idleBefore; index++) {
+            sleep(5);
+        }
+        final long duration = System.currentTimeMillis() - start;
+        puts(name, "idle after wakeup in", duration, "ms");
+        ok = idle.get() > idleBefore || die(name, "wakeup should make the listener go idle");
+        ok = duration < 1_000 || die(name, "wakeup should not wait for the poll wait", duration);
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        queue.wakeup();
+        sendQueue.sendAndFlush("item");
+        for (int index = 0; index < 200 && received.get() == 0; index++) {
+            sleep(5);
+        }
+        ok = received.get() == 1 || die(name, "items should get through after a wakeup", received.get());
+
+        queue.stop();
+    }
+
+    private void runWith(final WaitStrategy waitStrategy) {
+
+        final Queue<String> queue = new QueueBuilder().setName("waitStrategy").setPollWait(10)
+                .setBatchSize(10).setWaitStrategy(waitStrategy).build();
+
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger idle = new AtomicInteger();
+        final AtomicInteger empty = new AtomicInteger();
+
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void empty() {
+                empty.incrementAndGet();
+            }
+
+            @Override
+            public void idle() {
+                idle.incrementAndGet();
+            }
+        });
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 100; index++) {
+            sendQueue.send("item" + index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && received.get() < 100; index++) {
+            sleep(10);
+        }
+        sleep(200);
+
+        queue.stop();
+
+        puts(waitStrategy.getClass().getSimpleName(), received, empty, idle);
+
+        ok = received.get() == 100 || die("received should be 100", received.get());
+        ok = empty.get() > 0 || die("empty should have been called");
+        ok = idle.get() > 0 || die("idle should have been called");
+    }
+}
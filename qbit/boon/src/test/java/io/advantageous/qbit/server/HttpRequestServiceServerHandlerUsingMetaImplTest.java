@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.server;
+
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.RequestMapping;
+import io.advantageous.qbit.http.request.HttpRequest;
+import io.advantageous.qbit.http.request.HttpRequestBuilder;
+import io.advantageous.qbit.http.request.HttpTextReceiver;
+import io.advantageous.qbit.queue.OverflowPolicy;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.ServiceBundleBuilder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+
+public class HttpRequestServiceServerHandlerUsingMetaImplTest {
+
+    boolean ok;
+
+    @Test
+    public void testDropNewestAnswersEveryDroppedRequestOnce() {
+
+        /* Two batches of three fit, the bundle is not started so nothing is taken out. */
+        final List<CountingReceiver> receivers = sendRequests(new QueueBuilder().setBatchSize(3).setSize(2)
+                .setOverflowPolicy(OverflowPolicy.DROP_NEWEST), 12);
+
+        for (int index = 0; index < receivers.size(); index++) {
+            final CountingReceiver receiver = receivers.get(index);
+            if (index < 6) {
+                ok = receiver.responses == 0 || die("queued request should not be answered yet", index, receiver);
+            } else {
+                ok = receiver.responses == 1 || die("dropped request should be answered once", index, receiver);
+                ok = receiver.code == 429 || die("dropped request should get a 429", index, receiver);
+            }
+        }
+    }
+
+    @Test
+    public void testDropOldestAnswersEveryVictimOnce() {
+
+        final List<CountingReceiver> receivers = sendRequests(new QueueBuilder().setBatchSize(1).setSize(2)
+                .setOverflowPolicy(OverflowPolicy.DROP_OLDEST), 5);
+
+        for (int index = 0; index < receivers.size(); index++) {
+            final CountingReceiver receiver = receivers.get(index);
+            if (index < 3) {
+                ok = receiver.responses == 1 || die("dropped request should be answered once", index, receiver);
+                ok = receiver.code == 429 || die("dropped request should get a 429", index, receiver);
+            } else {
+                ok = receiver.responses == 0 || die("queued request should not be answered yet", index, receiver);
+            }
+        }
+    }
+
+    private List<CountingReceiver> sendRequests(final QueueBuilder requestQueueBuilder, final int count) {
+
+        final ServiceBundle serviceBundle = new ServiceBundleBuilder().setAddress("/services")
+                .setRequestQueueBuilder(requestQueueBuilder).build();
+
+        final HttpRequestServiceServerHandlerUsingMetaImpl handler = new HttpRequestServiceServerHandlerUsingMetaImpl(
+                30, serviceBundle, QBit.factory().createJsonMapper(), 1000, 50);
+        handler.addRestSupportFor(SlowService.class, "/services");
+        handler.start();
+
+        final List<CountingReceiver> receivers = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            final CountingReceiver receiver = new CountingReceiver();
+            receivers.add(receiver);
+            final HttpRequest request = new HttpRequestBuilder().setUri("/services/slow/call")
+                    .setTextReceiver(receiver).setBody("").build();
+            handler.handleRestCall(request);
+        }
+        puts(receivers);
+        return receivers;
+    }
+
+    @RequestMapping("/slow")
+    public static class SlowService {
+
+        @RequestMapping("/call")
+        public String call() {
+            return "done";
+        }
+    }
+
+    static class CountingReceiver implements HttpTextReceiver {
+
+        int responses;
+        int code;
+
+        @Override
+        public void response(int code, String mimeType, String body) {
+            this.responses++;
+            this.code = code;
+        }
+
+        @Override
+        public String toString() {
+            return responses + ":" + code;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service;
+
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.service.dispatchers.ConsistentHashDispatcher;
+import io.advantageous.qbit.service.dispatchers.ConsistentHashDispatcher.Shard;
+import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import io.advantageous.qbit.test.TimedTesting;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.qbit.service.ServiceBuilder.serviceBuilder;
+import static io.advantageous.qbit.service.ServiceBundleBuilder.serviceBundleBuilder;
+import static io.advantageous.qbit.service.dispatchers.ServiceWorkers.consistentHashOnFirstArgumentWorkers;
+
+public class ConsistentHashDispatcherTest extends TimedTesting {
+
+    ServiceBundle bundle;
+    ConsistentHashDispatcher dispatcher;
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        super.setupLatch();
+        CountingService.totalCount.set(0);
+
+        dispatcher = consistentHashOnFirstArgumentWorkers();
+        for (int index = 0; index < 10; index++) {
+            dispatcher.addServices(newWorker());
+        }
+        dispatcher.start();
+
+        bundle = serviceBundleBuilder().setAddress("/root").build();
+        bundle.addServiceConsumer("/workers", dispatcher);
+        bundle.start();
+    }
+
+    private ServiceQueue newWorker() {
+        return serviceBuilder().setServiceObject(new CountingService()).build();
+    }
+
+    @After
+    public void tearDown() {
+        bundle.stop();
+        dispatcher.stop();
+    }
+
+    @Test
+    public void testDistribution() {
+
+        final CountingClient client = bundle.createLocalProxy(CountingClient.class, "/workers");
+
+        /* Sequential integers are a poor hash code for hashCode() % numWorkers style sharding. */
+        for (int index = 0; index < 20_000; index++) {
+            client.count(index * 16);
+        }
+        client.count(Integer.MIN_VALUE);
+        client.clientProxyFlush();
+
+        super.waitForTrigger(5, o -> CountingService.totalCount.get() >= 20_001);
+        ok = CountingService.totalCount.get() == 20_001 || die(CountingService.totalCount);
+
+        long calls = 0;
+        for (Shard shard : dispatcher.shards()) {
+            puts(shard);
+            calls += shard.calls();
+            ok = shard.calls() > 1_000 && shard.calls() < 3_000 || die("uneven shard", shard);
+            ok = shard.ringShare() > 0.05 && shard.ringShare() < 0.15 || die("uneven ring", shard);
+        }
+        ok = calls == 20_001 || die(calls);
+    }
+
+    @Test
+    public void testResharding() {
+
+        final List<Shard> before = shardsOf();
+
+        final ServiceQueue added = newWorker();
+        dispatcher.addWorker(added);
+        ok = dispatcher.shards().size() == 11 || die();
+
+        final List<Shard> after = shardsOf();
+        int moved = 0;
+        for (int index = 0; index < before.size(); index++) {
+            if (before.get(index) != after.get(index)) {
+                moved++;
+                ok = after.get(index).serviceQueue() == added || die("keys should only move to the new worker");
+            }
+        }
+        puts("moved", moved, "of", before.size());
+        ok = moved > before.size() / 11 / 2 && moved < before.size() / 11 * 2 || die("about 1/N should move", moved);
+
+        ok = dispatcher.removeWorker(added) || die();
+        ok = !dispatcher.removeWorker(added) || die("removed twice");
+        ok = shardsOf().equals(before) || die("keys should go back to their old workers");
+        added.stop();
+
+        final CountingClient client = bundle.createLocalProxy(CountingClient.class, "/workers");
+        for (int index = 0; index < 1_000; index++) {
+            client.count(index);
+        }
+        client.clientProxyFlush();
+        super.waitForTrigger(5, o -> CountingService.totalCount.get() >= 1_000);
+        ok = CountingService.totalCount.get() == 1_000 || die(CountingService.totalCount);
+    }
+
+    @Test
+    public void testAddRemoveWhileDispatching() throws Exception {
+
+        /* No flush interval, so the workers get plain send queues that only the dispatching thread may use. */
+        final ConsistentHashDispatcher plain = ServiceWorkers.consistentHashWorkers(0, TimeUnit.MILLISECONDS,
+                (methodName, methodArgs) -> methodArgs[0], 16);
+        for (int index = 0; index < 4; index++) {
+            plain.addServices(newWorker());
+        }
+        plain.start();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread dispatching = new Thread(() -> {
+            try {
+                for (int index = 0; index < 50_000; index++) {
+                    plain.accept(new MethodCallBuilder().setName("count").setBody(new Object[]{index}).build());
+                }
+                plain.flush();
+            } catch (Throwable ex) {
+                failure.set(ex);
+            }
+        });
+        dispatching.start();
+
+        final List<ServiceQueue> removed = new ArrayList<>();
+        while (dispatching.isAlive()) {
+            final ServiceQueue worker = newWorker();
+            plain.addWorker(worker);
+            Thread.sleep(1);
+            ok = plain.removeWorker(worker) || die();
+            removed.add(worker);
+        }
+        dispatching.join();
+
+        super.waitForTrigger(10, o -> CountingService.totalCount.get() >= 50_000);
+        puts("workers added and removed", removed.size(), "count", CountingService.totalCount.get());
+
+        ok = failure.get() == null || die(failure.get());
+        ok = CountingService.totalCount.get() == 50_000 || die("every call should be handled", CountingService.totalCount);
+
+        plain.stop();
+        removed.forEach(ServiceQueue::stop);
+    }
+
+    @Test
+    public void testShard() {
+        ok = ServiceWorkers.shard(Integer.MIN_VALUE, 10) >= 0 || die();
+        ok = ServiceWorkers.shard(-1, 7) < 7 || die();
+        ok = ServiceWorkers.shard(null, 7) >= 0 || die();
+    }
+
+    private List<Shard> shardsOf() {
+        final List<Shard> shards = new ArrayList<>();
+        for (int index = 0; index < 10_000; index++) {
+            shards.add(dispatcher.shardOf("user" + index));
+        }
+        return shards;
+    }
+
+    public interface CountingClient extends ClientProxy {
+        void count(int key);
+    }
+
+    public static class CountingService {
+
+        static AtomicInteger totalCount = new AtomicInteger();
+
+        void count(int key) {
+            totalCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service;
+
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.service.dispatchers.LeastLoadedServiceDispatcher;
+import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import io.advantageous.qbit.test.TimedTesting;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+import static io.advantageous.qbit.service.ServiceBuilder.serviceBuilder;
+import static io.advantageous.qbit.service.ServiceBundleBuilder.serviceBundleBuilder;
+
+public class LeastLoadedServiceDispatcherTest extends TimedTesting {
+
+    ServiceBundle bundle;
+    LeastLoadedServiceDispatcher dispatcher;
+    List<ServiceQueue> workerQueues;
+    boolean ok = true;
+
+    private MixedCostClient setup(final LeastLoadedServiceDispatcher dispatcher, final int workerCount) {
+        super.setupLatch();
+        MixedCostService.fastCalls.set(0);
+        MixedCostService.slowCalls.set(0);
+
+        this.dispatcher = dispatcher;
+        workerQueues = new ArrayList<>();
+        for (int index = 0; index < workerCount; index++) {
+            workerQueues.add(serviceBuilder().setServiceObject(new MixedCostService()).build());
+        }
+        dispatcher.addServices(workerQueues.toArray(new ServiceQueue[workerCount]));
+        dispatcher.start();
+
+        bundle = serviceBundleBuilder().setAddress("/root").build();
+        bundle.addServiceConsumer("/workers", dispatcher);
+        bundle.start();
+        return bundle.createLocalProxy(MixedCostClient.class, "/workers");
+    }
+
+    @After
+    public void tearDown() {
+        if (bundle != null) {
+            bundle.stop();
+        }
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    public void testSlowCallDoesNotStallOthers() {
+
+        final MixedCostClient client = setup(ServiceWorkers.leastLoadedWorkers(), 4);
+
+        client.slow(500);
+        client.clientProxyFlush();
+        sleep(50);
+
+        /* Calls arrive over time, a burst that comes in faster than any worker runs is spread evenly. */
+        for (int index = 0; index < 100; index++) {
+            client.fast();
+            client.clientProxyFlush();
+            sleep(1);
+        }
+
+        for (int index = 0; index < 40 && MixedCostService.fastCalls.get() < 99; index++) {
+            sleep(5);
+        }
+        final int slowCalls = MixedCostService.slowCalls.get();
+        puts("fast calls done while the slow call runs", MixedCostService.fastCalls.get());
+
+        ok = slowCalls == 0 || die("the slow call should still be running");
+        ok = MixedCostService.fastCalls.get() >= 99 || die("at most one call waits behind the slow call",
+                MixedCostService.fastCalls.get());
+
+        super.waitForTrigger(5, o -> MixedCostService.fastCalls.get() == 100);
+        ok = MixedCostService.fastCalls.get() == 100 || die(MixedCostService.fastCalls.get());
+        ok = Arrays.stream(dispatcher.stolenCalls()).sum() == 0 || die("work stealing is off");
+
+        for (int index = 0; index < 100 && MixedCostService.slowCalls.get() == 0; index++) {
+            sleep(10);
+        }
+        ok = MixedCostService.slowCalls.get() == 1 || die(MixedCostService.slowCalls.get());
+    }
+
+    @Test
+    public void testWorkStealing() {
+
+        final MixedCostClient client = setup(ServiceWorkers.workStealingWorkers(), 2);
+
+        for (int index = 0; index < 10; index++) {
+            client.slow(50);
+            for (int fast = 0; fast < 20; fast++) {
+                client.fast();
+            }
+        }
+        client.clientProxyFlush();
+
+        super.waitForTrigger(10, o -> MixedCostService.fastCalls.get() == 200
+                && MixedCostService.slowCalls.get() == 10);
+
+        puts("outstanding", Arrays.toString(dispatcher.outstandingCalls()),
+                "stolen", Arrays.toString(dispatcher.stolenCalls()));
+
+        ok = MixedCostService.fastCalls.get() == 200 || die(MixedCostService.fastCalls.get());
+        ok = MixedCostService.slowCalls.get() == 10 || die(MixedCostService.slowCalls.get());
+        ok = Arrays.stream(dispatcher.outstandingCalls()).sum() == 0 || die(dispatcher.outstandingCalls());
+    }
+
+    @Test
+    public void testCallsNotFromTheDispatcherDoNotFreeRoom() {
+
+        final MixedCostClient client = setup(new LeastLoadedServiceDispatcher(2, false), 1);
+        final MixedCostClient direct = workerQueues.get(0).createProxy(MixedCostClient.class);
+
+        client.slow(300);
+        client.clientProxyFlush();
+        sleep(50);
+
+        /* Queued ahead of the dispatcher calls, it does not take one of their slots when it starts. */
+        direct.slow(300);
+        direct.clientProxyFlush();
+        sleep(20);
+
+        client.fast();
+        client.fast();
+        client.fast();
+        client.clientProxyFlush();
+
+        /* Half way through the direct call: two calls in the request queue, one waiting, one running. */
+        sleep(380);
+        puts("outstanding", Arrays.toString(dispatcher.outstandingCalls()));
+        ok = dispatcher.outstandingCalls()[0] == 4 || die(dispatcher.outstandingCalls());
+
+        super.waitForTrigger(5, o -> MixedCostService.fastCalls.get() == 3);
+        ok = MixedCostService.fastCalls.get() == 3 || die(MixedCostService.fastCalls.get());
+    }
+
+    @Test
+    public void testStopHandsWaitingCallsToWorkers() {
+
+        final MixedCostClient client = setup(ServiceWorkers.leastLoadedWorkers(), 1);
+
+        client.slow(200);
+        for (int index = 0; index < 5; index++) {
+            client.fast();
+        }
+        client.clientProxyFlush();
+        sleep(50);
+
+        ok = dispatcher.outstandingCalls()[0] == 6 || die(dispatcher.outstandingCalls());
+        dispatcher.stop();
+
+        super.waitForTrigger(5, o -> MixedCostService.fastCalls.get() == 5);
+        ok = MixedCostService.fastCalls.get() == 5 || die(MixedCostService.fastCalls.get());
+    }
+
+    @Test
+    public void testSingleProducerWorkersRejected() {
+
+        final LeastLoadedServiceDispatcher dispatcher = ServiceWorkers.leastLoadedWorkers();
+        dispatcher.addServices(serviceBuilder().setServiceObject(new MixedCostService())
+                .setRequestQueueBuilder(new QueueBuilder().setSingleProducerRingBuffer()).build());
+
+        try {
+            dispatcher.start();
+            die("the dispatcher and the worker thread both send to a worker");
+        } catch (IllegalStateException ex) {
+            puts(ex.getMessage());
+        }
+    }
+
+    public interface MixedCostClient extends ClientProxy {
+        void slow(int millis);
+
+        void fast();
+    }
+
+    public static class MixedCostService {
+
+        static AtomicInteger fastCalls = new AtomicInteger();
+        static AtomicInteger slowCalls = new AtomicInteger();
+
+        void slow(int millis) {
+            sleep(millis);
+            slowCalls.incrementAndGet();
+        }
+
+        void fast() {
+            fastCalls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.BatchOf;
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class BatchOfTest {
+
+    ServiceQueue serviceQueue;
+    boolean ok;
+
+    @Test
+    public void testBatchedCalls() {
+
+        final EmployeeRepo repo = new EmployeeRepo();
+        serviceQueue = new ServiceBuilder().setServiceObject(repo).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final EmployeeRepoClient client = serviceQueue.createProxy(EmployeeRepoClient.class);
+        final AtomicInteger results = new AtomicInteger();
+        final AtomicInteger wrong = new AtomicInteger();
+
+        for (int index = 0; index < 500; index++) {
+            final String name = "employee" + index;
+            client.save(id -> {
+                if (id != name.length()) {
+                    wrong.incrementAndGet();
+                }
+                results.incrementAndGet();
+            }, name);
+        }
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 200 && results.get() < 500; index++) {
+            sleep(10);
+        }
+
+        puts("bulk calls", repo.bulkCalls.get(), "saved", repo.saved.size());
+
+        ok = results.get() == 500 || die("every call should get its response", results.get());
+        ok = wrong.get() == 0 || die("responses should go to the right callbacks", wrong.get());
+        ok = repo.saved.size() == 500 || die(repo.saved.size());
+        ok = repo.bulkCalls.get() < 500 || die("calls should be batched", repo.bulkCalls.get());
+    }
+
+    @Test
+    public void testOtherCallsEndTheBatch() {
+
+        final EmployeeRepo repo = new EmployeeRepo();
+        serviceQueue = new ServiceBuilder().setServiceObject(repo).build().startServiceQueue();
+
+        final EmployeeRepoClient client = serviceQueue.createProxy(EmployeeRepoClient.class);
+
+        client.save(id -> {}, "a");
+        client.save(id -> {}, "b");
+        client.mark("mark");
+        client.save(id -> {}, "c");
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 200 && repo.saved.size() < 4; index++) {
+            sleep(10);
+        }
+
+        ok = repo.saved.toString().equals("[a, b, mark, c]") || die("calls should keep their order", repo.saved);
+        ok = repo.bulkCalls.get() == 2 || die(repo.bulkCalls.get());
+    }
+
+    @Test
+    public void testBatchedCallsOnOrderedExecutor() {
+
+        final EmployeeRepo repo = new EmployeeRepo();
+        serviceQueue = new ServiceBuilder().setServiceObject(repo).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final EmployeeRepoClient client = serviceQueue.createProxy(EmployeeRepoClient.class);
+        final AtomicInteger results = new AtomicInteger();
+        final AtomicInteger wrong = new AtomicInteger();
+
+        for (int index = 0; index < 500; index++) {
+            final String name = "employee" + index;
+            client.save(id -> {
+                if (id != name.length()) {
+                    wrong.incrementAndGet();
+                }
+                results.incrementAndGet();
+            }, name);
+        }
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 200 && results.get() < 500; index++) {
+            sleep(10);
+        }
+
+        ok = results.get() == 500 || die("every call should get its response", results.get());
+        ok = wrong.get() == 0 || die("responses should go to the right callbacks", wrong.get());
+        ok = repo.saved.size() == 500 || die(repo.saved.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedExecutorRejected() {
+
+        new ServiceBuilder().setServiceObject(new EmployeeRepo()).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().setOrderedMethodCalls(false).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+    }
+
+    interface EmployeeRepoClient extends ClientProxy {
+        void save(Callback<Integer> callback, String name);
+
+        void mark(String marker);
+    }
+
+    public static class EmployeeRepo {
+
+        final List<String> saved = new CopyOnWriteArrayList<>();
+        final AtomicInteger bulkCalls = new AtomicInteger();
+
+        public int save(String name) {
+            saved.add(name);
+            return name.length();
+        }
+
+        @BatchOf("save")
+        public List<Integer> saveAll(List<String> names) {
+            bulkCalls.incrementAndGet();
+            final List<Integer> ids = new ArrayList<>(names.size());
+            for (String name : names) {
+                ids.add(save(name));
+            }
+            return ids;
+        }
+
+        public void mark(String marker) {
+            saved.add(marker);
+        }
+    }
+}
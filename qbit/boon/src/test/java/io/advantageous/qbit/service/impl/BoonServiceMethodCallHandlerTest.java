@@ -21,6 +21,7 @@ package io.advantageous.qbit.service.impl;
 import io.advantageous.boon.core.Lists;
 import io.advantageous.boon.core.Pair;
 import io.advantageous.boon.core.Str;
+import io.advantageous.boon.core.reflection.ClassMeta;
 import io.advantageous.boon.core.reflection.MethodAccess;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.QBit;
@@ -236,9 +237,83 @@ public class BoonServiceMethodCallHandlerTest {
 
     }
 
+    @Test
+    public void testGeneratedInvoker() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true, true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        methodCalled = false;
+        impl.receiveMethodCall(factory.createMethodCallByAddress("/boo/baz/baaah/pluck", null, null, null));
+        ok = methodCalled || die();
+
+        methodCalled = false;
+        impl.receiveMethodCall(factory.createMethodCallByAddress("/boo/baz/geoff/chandles/", null, Lists.list("1", 2), null));
+        ok = methodCalled || die();
+
+        final Response<Object> response = impl.receiveMethodCall(factory.createMethodCallByNames("add", "",
+                "returnAddress", new Object[]{1, 2}, null));
+        ok = response.body().equals(3) || die(response.body());
+    }
+
+    @Test
+    public void testGeneratedInvokerCoercesArgs() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true, true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        /* String for the int, goes through MethodAccess. */
+        final Response<Object> response = impl.receiveMethodCall(factory.createMethodCallByNames("add", "",
+                "returnAddress", Lists.list(1, "2"), null));
+        ok = response.body().equals(3) || die(response.body());
+    }
+
+    @Test
+    public void testGeneratedInvokerException() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true, true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        final Response<Object> response = impl.receiveMethodCall(factory.createMethodCallByNames("fail", "",
+                "returnAddress", new Object[]{"boom"}, null));
+        ok = response.wasErrors() || die();
+        ok = response.body() instanceof IllegalStateException || die(response.body());
+        ok = ((Exception) response.body()).getMessage().equals("boom") || die(response.body());
+    }
+
+    @Test
+    public void testGeneratedServiceInvoker() {
+
+        final GeneratedServiceInvoker invoker = GeneratedServiceInvoker.generatedServiceInvoker(new Foo(),
+                ClassMeta.classMeta(Foo.class).methods());
+
+        final int index = invoker.index(ClassMeta.classMeta(Foo.class).method("add"));
+
+        ok = index != GeneratedServiceInvoker.NO_METHOD || die();
+        ok = invoker.matches(index, new Object[]{1, 2}) || die();
+        ok = !invoker.matches(index, new Object[]{1, null}) || die("null for a primitive");
+        ok = !invoker.matches(index, new Object[]{1, "2"}) || die("needs coercion");
+        ok = !invoker.matches(index, new Object[]{1}) || die("wrong arity");
+        ok = invoker.invoke(index, new Object[]{5, 6}).equals(11) || die();
+    }
+
     @RequestMapping("/boo/baz")
     class Foo {
 
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
         @RequestMapping("/baaah/pluck")
         public void foo() {
 
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.Factory;
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.Cacheable;
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class CacheableTest {
+
+    ServiceQueue serviceQueue;
+    ExecutorService executorService;
+    boolean ok;
+
+    @Test
+    public void testCachedResults() {
+
+        final UserService service = new UserService(null);
+        serviceQueue = new ServiceBuilder().setServiceObject(service).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final UserServiceClient client = serviceQueue.createProxy(UserServiceClient.class);
+        final AtomicInteger results = new AtomicInteger();
+
+        for (int index = 0; index < 100; index++) {
+            client.lookup(value -> results.incrementAndGet(), "rick");
+            client.lookup(value -> results.incrementAndGet(), "geoff");
+        }
+        client.clientProxyFlush();
+        waitFor(results, 200);
+
+        ok = results.get() == 200 || die(results.get());
+        ok = service.lookups.get() == 2 || die("one call per argument", service.lookups.get());
+
+        /* The ttl is 100 ms. */
+        sleep(300);
+        client.lookup(value -> results.incrementAndGet(), "rick");
+        client.clientProxyFlush();
+        waitFor(results, 201);
+        ok = service.lookups.get() == 3 || die("expired results are looked up again", service.lookups.get());
+    }
+
+    @Test
+    public void testInFlightCallsAreCoalesced() {
+
+        executorService = Executors.newSingleThreadExecutor();
+        final UserService service = new UserService(executorService);
+        serviceQueue = new ServiceBuilder().setServiceObject(service).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final UserServiceClient client = serviceQueue.createProxy(UserServiceClient.class);
+        final AtomicInteger results = new AtomicInteger();
+        final AtomicInteger wrong = new AtomicInteger();
+
+        for (int index = 0; index < 100; index++) {
+            client.fetch(value -> {
+                if (!value.equals("user rick")) {
+                    wrong.incrementAndGet();
+                }
+                results.incrementAndGet();
+            }, "rick");
+            client.clientProxyFlush();
+        }
+        waitFor(results, 100);
+
+        ok = results.get() == 100 || die(results.get());
+        ok = wrong.get() == 0 || die(wrong.get());
+        ok = service.fetches.get() < 10 || die("identical calls should share a fetch", service.fetches.get());
+
+        client.fetch(value -> results.incrementAndGet(), "rick");
+        client.clientProxyFlush();
+        waitFor(results, 101);
+        ok = results.get() == 101 || die(results.get());
+    }
+
+    @Test
+    public void testLostCallbackTimesOut() {
+
+        final UserService service = new UserService(null);
+        serviceQueue = new ServiceBuilder().setServiceObject(service).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final UserServiceClient client = serviceQueue.createProxy(UserServiceClient.class);
+        final AtomicInteger results = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final Callback<String> callback = new Callback<String>() {
+            @Override
+            public void accept(String value) {
+                results.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                errors.incrementAndGet();
+            }
+        };
+
+        client.lose(callback, "rick");
+        client.lose(callback, "rick");
+        client.clientProxyFlush();
+        waitFor(errors, 2);
+
+        ok = errors.get() == 2 || die("the call and the call that joined it should fail", errors.get());
+        ok = results.get() == 0 || die(results.get());
+        ok = service.losses.get() == 1 || die("second call should have joined", service.losses.get());
+
+        client.lose(callback, "rick");
+        client.clientProxyFlush();
+        waitFor(errors, 3);
+
+        ok = errors.get() == 3 || die(errors.get());
+        ok = service.losses.get() == 2 || die("key should not stay in flight", service.losses.get());
+    }
+
+    @Test
+    public void testEviction() {
+
+        final UserService service = new UserService(null);
+        final BoonServiceMethodCallHandler handler = new BoonServiceMethodCallHandler(false);
+        handler.init(service, "", "", null);
+
+        final Factory factory = QBit.factory();
+        for (String name : new String[]{"a", "b", "c", "a", "c"}) {
+            handler.receiveMethodCall(factory.createMethodCallByNames("lookup", null, null,
+                    new Object[]{name}, null));
+        }
+
+        final MethodResultCache cache = handler.resultCaches().stream()
+                .filter(resultCache -> resultCache.getMethodName().equals("lookup")).findFirst().get();
+        puts(cache);
+        ok = cache.getEvictions() == 2 || die(cache);
+        ok = cache.getHits() == 1 || die(cache);
+        ok = cache.getSize() == 2 || die(cache);
+        ok = service.lookups.get() == 4 || die(service.lookups.get());
+    }
+
+    private static void waitFor(final AtomicInteger results, final int count) {
+        for (int index = 0; index < 200 && results.get() < count; index++) {
+            sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    interface UserServiceClient extends ClientProxy {
+        void lookup(Callback<Integer> callback, String name);
+
+        void fetch(Callback<String> callback, String name);
+
+        void lose(Callback<String> callback, String name);
+    }
+
+    public static class UserService {
+
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicInteger fetches = new AtomicInteger();
+        final AtomicInteger losses = new AtomicInteger();
+        final ExecutorService executorService;
+
+        public UserService(ExecutorService executorService) {
+            this.executorService = executorService;
+        }
+
+        @Cacheable(ttlMs = 100, maxEntries = 2)
+        public int lookup(String name) {
+            lookups.incrementAndGet();
+            return name.length();
+        }
+
+        @Cacheable(ttlMs = 10_000)
+        public void fetch(Callback<String> callback, String name) {
+            fetches.incrementAndGet();
+            executorService.execute(() -> {
+                sleep(200);
+                callback.accept("user " + name);
+            });
+        }
+
+        @Cacheable(ttlMs = 100)
+        public void lose(Callback<String> callback, String name) {
+            losses.incrementAndGet();
+        }
+    }
+}
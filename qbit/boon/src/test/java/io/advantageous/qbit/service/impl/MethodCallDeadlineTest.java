@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class MethodCallDeadlineTest {
+
+    BaseServiceQueueImpl serviceQueue;
+    boolean ok;
+
+    @Test
+    public void testExpiredCallsAreDropped() {
+
+        final SlowService service = new SlowService();
+        serviceQueue = (BaseServiceQueueImpl) new ServiceBuilder().setServiceObject(service).build();
+        serviceQueue.startServiceQueue();
+
+        final SendQueue<MethodCall<Object>> requests = serviceQueue.requests();
+
+        requests.send(new MethodCallBuilder().setName("slow").setBody(new Object[]{200}).build());
+        for (int index = 0; index < 5; index++) {
+            requests.send(new MethodCallBuilder().setName("fast").setTimeout(50, TimeUnit.MILLISECONDS).build());
+        }
+        requests.send(new MethodCallBuilder().setName("fast").setTimeout(10, TimeUnit.SECONDS).build());
+        requests.send(new MethodCallBuilder().setName("fast").build());
+        requests.flushSends();
+
+        for (int index = 0; index < 100 && service.fastCalls.get() + serviceQueue.expiredCallCount() < 7; index++) {
+            sleep(10);
+        }
+
+        ok = serviceQueue.expiredCallCount() == 5 || die(serviceQueue.expiredCallCount());
+        ok = service.fastCalls.get() == 2 || die(service.fastCalls.get());
+    }
+
+    @Test
+    public void testDeadlineSurvivesTransform() {
+
+        final MethodCall<Object> methodCall = new MethodCallBuilder().setName("fast")
+                .setTimeout(1, TimeUnit.SECONDS).build();
+        final MethodCall<Object> transformed = MethodCallBuilder.transformed(methodCall, new Object[0]);
+
+        ok = methodCall.deadline() == methodCall.timestamp() + 1_000 || die(methodCall);
+        ok = transformed.deadline() == methodCall.deadline() || die(transformed);
+        ok = !methodCall.isExpired(methodCall.timestamp() + 999) || die();
+        ok = methodCall.isExpired(methodCall.timestamp() + 1_000) || die();
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+    }
+
+    public static class SlowService {
+
+        final AtomicInteger fastCalls = new AtomicInteger();
+
+        public void slow(int millis) {
+            sleep(millis);
+        }
+
+        public void fast() {
+            fastCalls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.Lane;
+import io.advantageous.qbit.annotation.RequestLane;
+import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.queue.*;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class RequestLaneTest {
+
+    ServiceQueue serviceQueue;
+    boolean ok;
+
+    @Test
+    public void testHighLaneGetsThroughWhenSaturated() {
+
+        final WorkService service = new WorkService();
+        serviceQueue = new ServiceBuilder().setServiceObject(service).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final WorkServiceClient client = serviceQueue.createProxy(WorkServiceClient.class);
+
+        /* About a second of work. */
+        for (int index = 0; index < 200; index++) {
+            client.work(5);
+        }
+        client.clientProxyFlush();
+        sleep(50);
+
+        final AtomicLong answeredAfterWork = new AtomicLong(-1);
+        client.ok(result -> answeredAfterWork.set(service.workDone.get()));
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 200 && answeredAfterWork.get() == -1; index++) {
+            sleep(10);
+        }
+
+        puts("ok answered after", answeredAfterWork.get(), "work calls");
+        ok = answeredAfterWork.get() != -1 || die("ok was not answered");
+        ok = answeredAfterWork.get() < 100 || die("ok waited behind the work calls", answeredAfterWork.get());
+    }
+
+    @Test
+    public void testHighLaneOvertakesWithinOneCall() {
+
+        final WorkService service = new WorkService();
+        serviceQueue = new ServiceBuilder().setServiceObject(service).build().startServiceQueue();
+
+        final WorkServiceClient client = serviceQueue.createProxy(WorkServiceClient.class);
+
+        for (int index = 0; index < 200; index++) {
+            client.work(5);
+        }
+        client.clientProxyFlush();
+        sleep(50);
+
+        for (int round = 0; round < 5; round++) {
+            final int workDoneAtSend = service.workDone.get();
+            client.ok(result -> {
+            });
+            client.clientProxyFlush();
+
+            for (int index = 0; index < 100 && service.okCalls.get() == round; index++) {
+                sleep(1);
+            }
+            final int behind = service.okAfterWork.get() - workDoneAtSend;
+            puts("ok ran after", behind, "more work calls");
+            ok = service.okCalls.get() == round + 1 || die("ok was not called");
+            ok = behind <= 2 || die("ok waited behind the normal backlog", behind);
+            sleep(20);
+        }
+        ok = service.workDone.get() < 200 || die("the backlog should still be running", service.workDone.get());
+    }
+
+    @Test
+    public void testHighCallBeforeEveryNormalCall() {
+
+        final Queue<MethodCall<Object>> requestQueue = QueueBuilder.queueBuilder().setName("lanes").build();
+        final List<ReceiveQueueListener<MethodCall<Object>>> laneListeners = new ArrayList<>();
+
+        /* Captures the lane listener so the test decides when startBatch is called. */
+        final Queue<MethodCall<Object>> capturingQueue = new Queue<MethodCall<Object>>() {
+            @Override
+            public ReceiveQueue<MethodCall<Object>> receiveQueue() {
+                return requestQueue.receiveQueue();
+            }
+
+            @Override
+            public SendQueue<MethodCall<Object>> sendQueue() {
+                return requestQueue.sendQueue();
+            }
+
+            @Override
+            public void startListener(ReceiveQueueListener<MethodCall<Object>> listener) {
+                laneListeners.add(listener);
+            }
+
+            @Override
+            public void stop() {
+                requestQueue.stop();
+            }
+        };
+
+        final RequestLaneQueue laneQueue = new RequestLaneQueue(capturingQueue, QueueBuilder.queueBuilder(), "lanes");
+        laneQueue.lane("ok", RequestLane.HIGH);
+
+        final List<String> received = new ArrayList<>();
+        laneQueue.startListener(methodCall -> received.add(methodCall.name()));
+        final SendQueue<MethodCall<Object>> sendQueue = laneQueue.sendQueue();
+        final ReceiveQueueListener<MethodCall<Object>> laneListener = laneListeners.get(0);
+        final MethodCall<Object> work = new MethodCallBuilder().setName("work").build();
+
+        /* One startBatch for the whole backlog. */
+        laneListener.startBatch();
+        laneListener.receive(work);
+        laneListener.receive(work);
+        sendQueue.sendAndFlush(new MethodCallBuilder().setName("ok").build());
+        laneListener.receive(work);
+        laneListener.receive(work);
+
+        ok = received.toString().equals("[work, work, ok, work, work]")
+                || die("ok should run before the next normal call", received);
+        laneQueue.stop();
+    }
+
+    @Test
+    public void testBulkLaneIsMixedIn() {
+
+        final WorkService service = new WorkService();
+        serviceQueue = new ServiceBuilder().setServiceObject(service)
+                .addRequestLane("index", RequestLane.BULK).setBulkLaneEvery(4)
+                .build().startServiceQueue();
+
+        final WorkServiceClient client = serviceQueue.createProxy(WorkServiceClient.class);
+
+        for (int index = 0; index < 20; index++) {
+            client.index("doc" + index);
+        }
+        for (int index = 0; index < 40; index++) {
+            client.work(0);
+        }
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 200 && service.calls.size() < 60; index++) {
+            sleep(10);
+        }
+
+        ok = service.calls.size() == 60 || die(service.calls.size());
+        ok = service.calls.indexOf("doc0") > 0 || die("bulk calls should wait for normal calls", service.calls);
+        ok = service.calls.indexOf("doc0") <= 4 || die("one bulk call every 4 normal calls", service.calls);
+        ok = service.calls.indexOf("doc9") < 55 || die("bulk calls should not wait for all normal calls",
+                service.calls);
+        ok = service.calls.indexOf("doc5") < service.calls.indexOf("doc6") || die("bulk calls keep their order");
+    }
+
+    @Test
+    public void testLanes() {
+
+        serviceQueue = new ServiceBuilder().setServiceObject(new WorkService())
+                .addRequestLane("work", RequestLane.BULK).build();
+
+        final BaseServiceQueueImpl baseServiceQueue = (BaseServiceQueueImpl) serviceQueue;
+        ok = baseServiceQueue.requestLanes().get("ok") == RequestLane.HIGH || die(baseServiceQueue.requestLanes());
+        ok = baseServiceQueue.requestLanes().get("work") == RequestLane.BULK || die(baseServiceQueue.requestLanes());
+        ok = !baseServiceQueue.requestLanes().containsKey("index") || die(baseServiceQueue.requestLanes());
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+    }
+
+    interface WorkServiceClient extends ClientProxy {
+        void work(int millis);
+
+        void index(String doc);
+
+        void ok(Callback<Boolean> callback);
+    }
+
+    public static class WorkService {
+
+        final AtomicInteger workDone = new AtomicInteger();
+        final AtomicInteger okCalls = new AtomicInteger();
+        final AtomicInteger okAfterWork = new AtomicInteger();
+        final List<String> calls = new CopyOnWriteArrayList<>();
+
+        public void work(int millis) {
+            if (millis > 0) {
+                sleep(millis);
+            }
+            workDone.incrementAndGet();
+            calls.add("work");
+        }
+
+        public void index(String doc) {
+            calls.add(doc);
+        }
+
+        @Lane(RequestLane.HIGH)
+        public boolean ok() {
+            okAfterWork.set(workDone.get());
+            okCalls.incrementAndGet();
+            return true;
+        }
+    }
+}
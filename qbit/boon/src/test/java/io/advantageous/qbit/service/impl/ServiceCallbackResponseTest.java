@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.queue.impl.StagingSendQueue;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class ServiceCallbackResponseTest {
+
+    ServiceQueue serviceQueue;
+    ExecutorService executorService;
+    boolean ok;
+
+    @Test
+    public void testStagingSendQueue() {
+
+        final StagingSendQueue<String> staging = new StagingSendQueue<>();
+        final ListSendQueue target = new ListSendQueue();
+
+        staging.send("a");
+        staging.sendAndFlush("b");
+        staging.sendMany("c", "d");
+
+        ok = target.items.isEmpty() || die("nothing goes out before the drain");
+        ok = staging.drainTo(target) == 4 || die();
+        ok = target.items.toString().equals("[a, b, c, d]") || die(target.items);
+        ok = staging.isEmpty() || die();
+        ok = target.flushes == 0 || die("the owner flushes");
+    }
+
+    @Test
+    public void testStagingWakeup() {
+
+        final AtomicInteger wakeups = new AtomicInteger();
+        final StagingSendQueue<String> staging = new StagingSendQueue<>(wakeups::incrementAndGet);
+        final ListSendQueue target = new ListSendQueue();
+
+        staging.send("a");
+        staging.send("b");
+        ok = wakeups.get() == 1 || die("one wakeup until the owner drains", wakeups.get());
+
+        staging.drainTo(target);
+        staging.send("c");
+        ok = wakeups.get() == 2 || die(wakeups.get());
+    }
+
+    @Test
+    public void testCallbackResponseDoesNotWaitForPollWait() {
+
+        executorService = Executors.newFixedThreadPool(1);
+        serviceQueue = new ServiceBuilder().setServiceObject(new AsyncService(executorService))
+                .setRequestQueueBuilder(new QueueBuilder().setPollWait(5_000))
+                .setInvokeDynamic(false).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final AsyncServiceInterface proxy = serviceQueue.createProxy(AsyncServiceInterface.class);
+        sleep(100);
+
+        for (int round = 0; round < 3; round++) {
+            final AtomicInteger results = new AtomicInteger();
+            final long start = System.currentTimeMillis();
+            proxy.lookup(value -> results.incrementAndGet(), round);
+            proxy.clientProxyFlush();
+
+            for (int index = 0; index < 300 && results.get() == 0; index++) {
+                sleep(5);
+            }
+            final long duration = System.currentTimeMillis() - start;
+            puts("callback response in", duration, "ms");
+            ok = results.get() == 1 || die("should get the response", round);
+            ok = duration < 1_000 || die("response waited for the poll wait", duration);
+        }
+    }
+
+    @Test
+    public void testCallbacksFromOtherThreads() {
+
+        executorService = Executors.newFixedThreadPool(4);
+        serviceQueue = new ServiceBuilder().setServiceObject(new AsyncService(executorService))
+                .setInvokeDynamic(false).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final AsyncServiceInterface proxy = serviceQueue.createProxy(AsyncServiceInterface.class);
+        final AtomicInteger sum = new AtomicInteger();
+        final AtomicInteger results = new AtomicInteger();
+
+        for (int index = 0; index < 1_000; index++) {
+            proxy.lookup(value -> {
+                sum.addAndGet(value);
+                results.incrementAndGet();
+            }, index);
+        }
+        proxy.clientProxyFlush();
+
+        for (int index = 0; index < 300 && results.get() < 1_000; index++) {
+            sleep(10);
+        }
+
+        ok = results.get() == 1_000 || die("should get every response", results.get());
+        ok = sum.get() == 999 * 1_000 / 2 || die(sum.get());
+    }
+
+    @Test
+    public void testCallbacksWithSingleProducerRingBuffer() {
+
+        /* The proxy is the only producer, the callback threads must not write to the request ring. */
+        executorService = Executors.newFixedThreadPool(4);
+        serviceQueue = new ServiceBuilder().setServiceObject(new AsyncService(executorService))
+                .setRequestQueueBuilder(new QueueBuilder().setSingleProducerRingBuffer().setSize(1024)
+                        .setBatchSize(1))
+                .setInvokeDynamic(false).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final AsyncServiceInterface proxy = serviceQueue.createProxy(AsyncServiceInterface.class);
+        final AtomicInteger results = new AtomicInteger();
+
+        for (int index = 0; index < 100_000; index++) {
+            proxy.lookup(value -> results.incrementAndGet(), index);
+        }
+        proxy.clientProxyFlush();
+
+        for (int index = 0; index < 1_000 && results.get() < 100_000; index++) {
+            sleep(10);
+        }
+
+        ok = results.get() == 100_000 || die("should get every response", results.get());
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    interface AsyncServiceInterface {
+        void lookup(Callback<Integer> callback, int key);
+
+        void clientProxyFlush();
+    }
+
+    public static class AsyncService {
+
+        private final ExecutorService executorService;
+
+        public AsyncService(ExecutorService executorService) {
+            this.executorService = executorService;
+        }
+
+        public void lookup(final Callback<Integer> callback, final int key) {
+            executorService.execute(() -> callback.accept(key));
+        }
+    }
+
+    static class ListSendQueue implements SendQueue<String> {
+
+        final List<String> items = new ArrayList<>();
+        int flushes;
+
+        @Override
+        public void send(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void sendAndFlush(String item) {
+            items.add(item);
+            flushes++;
+        }
+
+        @Override
+        public void sendMany(String... items) {
+            for (String item : items) {
+                this.items.add(item);
+            }
+        }
+
+        @Override
+        public void sendBatch(Collection<String> items) {
+            this.items.addAll(items);
+        }
+
+        @Override
+        public void sendBatch(Iterable<String> items) {
+            for (String item : items) {
+                this.items.add(item);
+            }
+        }
+
+        @Override
+        public boolean shouldBatch() {
+            return false;
+        }
+
+        @Override
+        public void flushSends() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.queue.impl.QueueEventLoopGroup;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class ServiceEventLoopTest {
+
+    QueueEventLoopGroup eventLoopGroup;
+    List<ServiceQueue> serviceQueues;
+    List<CountingService> services;
+    boolean ok;
+
+    @Before
+    public void setup() {
+        eventLoopGroup = new QueueEventLoopGroup("test loop", 2, true);
+        serviceQueues = new ArrayList<>();
+        services = new ArrayList<>();
+
+        for (int index = 0; index < 50; index++) {
+            final CountingService service = new CountingService();
+            services.add(service);
+            serviceQueues.add(new ServiceBuilder().setServiceObject(service).setInvokeDynamic(false)
+                    .setEventLoopGroup(eventLoopGroup).build().startServiceQueue());
+        }
+    }
+
+    @Test
+    public void testManyServicesOnTwoThreads() {
+
+        ok = eventLoopGroup.getRegisteredCount() == 50 || die(eventLoopGroup.getRegisteredCount());
+
+        final List<CountingServiceInterface> proxies = new ArrayList<>();
+        for (ServiceQueue serviceQueue : serviceQueues) {
+            proxies.add(serviceQueue.createProxy(CountingServiceInterface.class));
+        }
+
+        for (int call = 0; call < 100; call++) {
+            for (CountingServiceInterface proxy : proxies) {
+                proxy.count();
+            }
+        }
+        proxies.forEach(CountingServiceInterface::clientProxyFlush);
+
+        for (int index = 0; index < 100 && totalCount() < 5_000; index++) {
+            sleep(10);
+        }
+
+        puts("total", totalCount());
+        ok = totalCount() == 5_000 || die("total should be 5_000", totalCount());
+
+        final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        for (CountingService service : services) {
+            ok = service.count.get() == 100 || die("each service should get 100", service.count.get());
+            ok = service.threads.size() == 1 || die("each service should stay on one thread", service.threads);
+            threadNames.addAll(service.threads);
+        }
+        ok = threadNames.size() <= 2 || die("only two loop threads", threadNames);
+    }
+
+    @Test
+    public void testCallback() {
+
+        final ServiceQueue serviceQueue = serviceQueues.get(0);
+        serviceQueue.startCallBackHandler();
+
+        final CountingServiceInterface proxy = serviceQueue.createProxy(CountingServiceInterface.class);
+        final AtomicInteger returnValue = new AtomicInteger();
+        proxy.countAndReturn(returnValue::set);
+        proxy.clientProxyFlush();
+
+        for (int index = 0; index < 100 && returnValue.get() == 0; index++) {
+            sleep(10);
+        }
+
+        ok = returnValue.get() == 1 || die(returnValue.get());
+    }
+
+    @After
+    public void tearDown() {
+        serviceQueues.forEach(ServiceQueue::stop);
+
+        for (int index = 0; index < 100 && eventLoopGroup.getRegisteredCount() > 0; index++) {
+            sleep(10);
+        }
+        ok = eventLoopGroup.getRegisteredCount() == 0 || die(eventLoopGroup.getRegisteredCount());
+        eventLoopGroup.shutdown();
+    }
+
+    int totalCount() {
+        int total = 0;
+        for (CountingService service : services) {
+            total += service.count.get();
+        }
+        return total;
+    }
+
+    interface CountingServiceInterface {
+        void count();
+
+        void countAndReturn(Callback<Integer> callback);
+
+        void clientProxyFlush();
+    }
+
+    public static class CountingService {
+
+        final AtomicInteger count = new AtomicInteger();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        public void count() {
+            threads.add(Thread.currentThread().getName());
+            count.incrementAndGet();
+        }
+
+        public int countAndReturn() {
+            threads.add(Thread.currentThread().getName());
+            return count.incrementAndGet();
+        }
+    }
+}
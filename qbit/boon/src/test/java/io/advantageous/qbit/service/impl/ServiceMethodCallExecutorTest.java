@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.Listen;
+import io.advantageous.qbit.concurrent.BlockingCallExecutors;
+import io.advantageous.qbit.events.spi.EventTransferObject;
+import io.advantageous.qbit.message.Event;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+
+public class ServiceMethodCallExecutorTest {
+
+    ServiceQueue serviceQueue;
+    boolean ok;
+
+    @Test
+    public void testUnorderedBlockingCalls() {
+
+        serviceQueue = new ServiceBuilder().setServiceObject(new BlockingService()).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().setOrderedMethodCalls(false).build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final BlockingServiceInterface proxy = serviceQueue.createProxy(BlockingServiceInterface.class);
+        final AtomicInteger results = new AtomicInteger();
+
+        final long start = System.currentTimeMillis();
+        for (int index = 0; index < 20; index++) {
+            proxy.lookup(value -> results.incrementAndGet(), index);
+        }
+        proxy.clientProxyFlush();
+
+        for (int index = 0; index < 200 && results.get() < 20; index++) {
+            sleep(10);
+        }
+        final long duration = System.currentTimeMillis() - start;
+
+        puts("virtual threads", BlockingCallExecutors.virtualThreadsAvailable(), "duration", duration);
+
+        ok = results.get() == 20 || die("should get 20 results", results.get());
+        ok = duration < 20 * 100 / 2 || die("blocking calls should overlap", duration);
+    }
+
+    @Test
+    public void testOrderedBlockingCalls() {
+
+        final BlockingService service = new BlockingService();
+        serviceQueue = new ServiceBuilder().setServiceObject(service).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final BlockingServiceInterface proxy = serviceQueue.createProxy(BlockingServiceInterface.class);
+        final List<Integer> results = new CopyOnWriteArrayList<>();
+
+        for (int index = 0; index < 5; index++) {
+            proxy.lookup(results::add, index);
+        }
+        proxy.clientProxyFlush();
+
+        for (int index = 0; index < 200 && results.size() < 5; index++) {
+            sleep(10);
+        }
+
+        ok = results.size() == 5 || die("should get 5 results", results);
+        ok = service.order.toString().equals("[0, 1, 2, 3, 4]") || die("calls should run in order", service.order);
+        ok = service.maxConcurrent.get() == 1 || die("calls should not overlap", service.maxConcurrent.get());
+    }
+
+    @Test
+    public void testEventsAndCallsDoNotOverlap() throws Exception {
+
+        final ListeningService service = new ListeningService();
+        serviceQueue = new ServiceBuilder().setServiceObject(service).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().build().startServiceQueue();
+        serviceQueue.startCallBackHandler();
+
+        final BlockingServiceInterface proxy = serviceQueue.createProxy(BlockingServiceInterface.class);
+        final AtomicInteger results = new AtomicInteger();
+
+        final Thread eventSender = new Thread(() -> {
+            final SendQueue<Event<Object>> events = serviceQueue.events();
+            for (int index = 0; index < 10; index++) {
+                events.sendAndFlush(new EventTransferObject<>(index, index, "work"));
+                sleep(5);
+            }
+        });
+        eventSender.start();
+
+        for (int index = 0; index < 10; index++) {
+            proxy.lookup(value -> results.incrementAndGet(), index);
+            proxy.clientProxyFlush();
+            sleep(5);
+        }
+        eventSender.join();
+
+        for (int index = 0; index < 300 && (results.get() < 10 || service.events.get() < 10); index++) {
+            sleep(10);
+        }
+
+        puts("results", results.get(), "events", service.events.get(), "max", service.maxConcurrent.get());
+        ok = results.get() == 10 || die("should get 10 results", results.get());
+        ok = service.events.get() == 10 || die("should get 10 events", service.events.get());
+        ok = service.maxConcurrent.get() == 1 || die("events and calls should not overlap", service.maxConcurrent.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedCallsRejectedWithListeners() {
+
+        new ServiceBuilder().setServiceObject(new ListeningService()).setInvokeDynamic(false)
+                .setVirtualThreadMethodCalls().setOrderedMethodCalls(false).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+    }
+
+    interface BlockingServiceInterface {
+        void lookup(Callback<Integer> callback, int key);
+
+        void clientProxyFlush();
+    }
+
+    public static class BlockingService {
+
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        public int lookup(int key) {
+            final int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            order.add(key);
+            sleep(100);
+            concurrent.decrementAndGet();
+            return key;
+        }
+    }
+
+    public static class ListeningService {
+
+        final AtomicInteger events = new AtomicInteger();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        public int lookup(int key) {
+            work();
+            return key;
+        }
+
+        @Listen("work")
+        public void event(int value) {
+            work();
+            events.incrementAndGet();
+        }
+
+        private void work() {
+            final int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            sleep(10);
+            concurrent.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.spi;
+
+import io.advantageous.boon.core.Exceptions;
+import io.advantageous.boon.core.Lists;
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.message.Message;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.network.BufferPool;
+import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.MultiMapImpl;
+import io.advantageous.qbit.util.Timer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+
+
+public class BinaryProtocolTest {
+
+    boolean ok;
+
+    @Test
+    public void testEncodeParseGroup() {
+
+        final MultiMap<String, String> headers = new MultiMapImpl<>();
+        headers.add("user", "rick");
+        headers.add("role", "admin");
+        headers.add("role", "user");
+
+        final MultiMap<String, String> params = new MultiMapImpl<>();
+        params.add("lang", "\u65e5\u672c\u8a9e");
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            messages.add(new MethodCallBuilder().setId(index).setAddress("/services/todo-service/add")
+                    .setReturnAddress("/services-todo-service-1c6b1f7e-6a7e-4f0b-8b52-3e6b2f1c9a3d")
+                    .setObjectName("todo-service").setName("add").setTimestamp(Timer.timer().now())
+                    .setHeaders(headers).setParams(params).setTimeout(10, TimeUnit.SECONDS)
+                    .setBody(new Object[]{"todo " + index, index, Lists.list(1, 2, 3)}).build());
+        }
+        messages.add(new ResponseImpl<>(-1L, 2L, "addr", "Raddr", null, "error \u00e9", null, true));
+
+        final byte[] bytes = new BinaryProtocolEncoder().encodeAsBytes(messages);
+        final BinaryProtocolParser parser = new BinaryProtocolParser();
+        ok = parser.supports(bytes, null) || die();
+        ok = !new BoonProtocolParser().supports(bytes, null) || die();
+
+        final List<Message<Object>> parsed = parser.parse("", bytes);
+        ok = parsed.size() == 11 || die(parsed.size());
+
+        for (int index = 0; index < 10; index++) {
+            final MethodCall<Object> expected = (MethodCall<Object>) messages.get(index);
+            final MethodCall<Object> methodCall = (MethodCall<Object>) parsed.get(index);
+
+            ok = methodCall.id() == expected.id() || die(methodCall);
+            Str.equalsOrDie(expected.address(), methodCall.address());
+            Str.equalsOrDie(expected.returnAddress(), methodCall.returnAddress());
+            Str.equalsOrDie("todo-service", methodCall.objectName());
+            Str.equalsOrDie("add", methodCall.name());
+            ok = methodCall.timestamp() == expected.timestamp() || die(methodCall);
+            ok = Lists.list(methodCall.headers().getAll("role")).size() == 2 || die(methodCall.headers());
+            Str.equalsOrDie("rick", methodCall.headers().get("user"));
+            Str.equalsOrDie("\u65e5\u672c\u8a9e", methodCall.params().get("lang"));
+
+            final long remaining = methodCall.deadline() - Timer.timer().now();
+            ok = remaining > 9_000 && remaining <= 10_000 || die(remaining);
+
+            final Object[] args = (Object[]) methodCall.body();
+            ok = args.length == 3 || die(args.length);
+            Str.equalsOrDie("todo " + index, args[0].toString());
+            ok = ((Number) args[1]).intValue() == index || die(args[1]);
+            ok = ((List) args[2]).size() == 3 || die(args[2]);
+        }
+
+        final Response<Object> response = (Response<Object>) parsed.get(10);
+        ok = response.id() == -1L || die(response.id());
+        ok = response.timestamp() == 2L || die(response.timestamp());
+        ok = response.wasErrors() || die();
+        Str.equalsOrDie("Raddr", response.returnAddress());
+        Str.equalsOrDie("error \u00e9", response.body().toString());
+
+        final int textSize = new BoonProtocolEncoder().encodeAsString(messages).getBytes(StandardCharsets.UTF_8).length;
+        puts("binary", bytes.length, "text", textSize);
+        ok = bytes.length * 2 < textSize || die("binary should be much smaller", bytes.length, textSize);
+    }
+
+    @Test
+    public void testEncodeParseSingle() {
+
+        final ResponseImpl<Object> response = new ResponseImpl<>(1L, 2L, "addr", "Raddr", null,
+                Lists.list("a", "b"), null, false);
+        final BinaryProtocolParser parser = new BinaryProtocolParser();
+        final Response<Object> parsedResponse = parser.parseResponse(new BinaryProtocolEncoder().encodeAsBytes(response));
+        ok = parsedResponse.id() == 1L || die();
+        ok = !parsedResponse.wasErrors() || die();
+        ok = ((List) parsedResponse.body()).size() == 2 || die(parsedResponse.body());
+
+        final MethodCall<Object> methodCall = new MethodCallBuilder().setId(99L).setName("mname_")
+                .setBody(null).build();
+        final MethodCall<Object> parsed = parser.parseMethodCall(
+                new BinaryProtocolEncoder().encodeAsBytes(Lists.list((Message<Object>) methodCall)));
+        ok = parsed.id() == 99L || die(parsed);
+        Str.equalsOrDie(methodCall.address(), parsed.address());
+        ok = parsed.deadline() == 0L || die(parsed.deadline());
+        ok = ((Object[]) parsed.body()).length == 0 || die();
+        Str.equalsOrDie("mname_", parsed.name());
+
+        final MethodCall<Object> nullArg = parser.parseMethodCall(new BinaryProtocolEncoder().encodeAsBytes(
+                Lists.list((Message<Object>) new MethodCallBuilder().setName("m")
+                        .setBody(new Object[]{null, "x"}).build())));
+        final Object[] args = (Object[]) nullArg.body();
+        ok = args[0] == null || die(args[0]);
+        Str.equalsOrDie("x", args[1].toString());
+    }
+
+    @Test
+    public void testStreamGroup() {
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            messages.add(new MethodCallBuilder().setId(index + 1).setName("add").setBody(new Object[]{index}).build());
+        }
+        messages.add(new ResponseImpl<>(1L, 2L, "addr", "Raddr", null, "not a call", null, false));
+
+        final List<MethodCall<Object>> streamed = new ArrayList<>();
+        final int count = new BinaryProtocolParser().parseMethodCallsUsingAddressPrefix("",
+                new BinaryProtocolEncoder().encodeAsBytes(messages), streamed::add);
+        ok = count == 10 || die(count);
+        ok = streamed.get(9).id() == 10 || die(streamed.get(9));
+    }
+
+    @Test
+    public void testEncodeToBuffer() {
+
+        final List<Message<Object>> messages = Lists.list(
+                new ResponseImpl<>(1L, 2L, "addr", "Raddr", null, Lists.list("a", "b"), null, false));
+        final BinaryProtocolEncoder encoder = new BinaryProtocolEncoder();
+        final ByteBuffer buffer = encoder.encodeToBuffer(messages, BufferPool.bufferPool());
+
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        BufferPool.bufferPool().release(buffer);
+
+        ok = Arrays.equals(bytes, encoder.encodeAsBytes(messages)) || die();
+        ok = new BinaryProtocolParser().parseResponse(bytes).id() == 1L || die();
+    }
+
+    @Test
+    public void testTruncatedFrames() {
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            messages.add(new MethodCallBuilder().setId(index).setAddress("/services/todo-service/add")
+                    .setReturnAddress("todo-client").setName("add").setHeaders(new MultiMapImpl<>())
+                    .setBody(new Object[]{"todo " + index, index}).build());
+        }
+        final byte[] bytes = new BinaryProtocolEncoder().encodeAsBytes(messages);
+        final BinaryProtocolParser parser = new BinaryProtocolParser();
+
+        for (int length = 4; length < bytes.length; length++) {
+            ok = rejected(parser, Arrays.copyOf(bytes, length)) || die("truncated frame should be rejected", length);
+        }
+        ok = parser.parse("", bytes).size() == 3 || die();
+    }
+
+    @Test
+    public void testHugeCountsAndLengths() {
+
+        final byte[] bytes = new BinaryProtocolEncoder().encodeAsBytes(Lists.list(
+                (Message<Object>) new MethodCallBuilder().setName("add").setBody(new Object[]{"todo"}).build()));
+        final BinaryProtocolParser parser = new BinaryProtocolParser();
+
+        /* Message count of Integer.MAX_VALUE. */
+        final byte[] hugeCount = Arrays.copyOf(bytes, 8);
+        hugeCount[3] = (byte) 0xFF;
+        hugeCount[4] = (byte) 0xFF;
+        hugeCount[5] = (byte) 0xFF;
+        hugeCount[6] = (byte) 0xFF;
+        hugeCount[7] = (byte) 0x07;
+        ok = rejected(parser, hugeCount) || die("huge message count should be rejected");
+
+        /* Message length past the end of the frame, and a negative one. */
+        final byte[] longMessage = bytes.clone();
+        longMessage[5] = 0x7F;
+        ok = rejected(parser, longMessage) || die("message length should be checked");
+        final byte[] negativeMessage = bytes.clone();
+        negativeMessage[5] = (byte) 0x80;
+        ok = rejected(parser, negativeMessage) || die("negative message length should be rejected");
+
+        /* Every corrupt byte fails with a protocol error or parses, never an index error or a huge allocation. */
+        for (int index = 3; index < bytes.length; index++) {
+            for (int value : new int[]{0x00, 0x7F, 0xFF}) {
+                final byte[] corrupt = bytes.clone();
+                corrupt[index] = (byte) value;
+                try {
+                    parser.parse("", corrupt);
+                } catch (Exceptions.SoftenedException ex) {
+                    /* Protocol error or a body the codec could not read. */
+                } catch (IndexOutOfBoundsException | NegativeArraySizeException | OutOfMemoryError ex) {
+                    die("corrupt byte", index, value, ex);
+                } catch (RuntimeException ex) {
+                    /* Body codec errors. */
+                }
+            }
+        }
+    }
+
+    private static boolean rejected(final BinaryProtocolParser parser, final byte[] bytes) {
+        try {
+            parser.parse("", bytes);
+            return false;
+        } catch (Exceptions.SoftenedException ex) {
+            return true;
+        }
+    }
+
+    @Test
+    public void testBodyCodec() {
+
+        final BoonBodyCodec codec = new BoonBodyCodec();
+        final byte[] bytes = codec.encode(Lists.list("\ud83d\ude00 smile", "caf\u00e9"));
+        final byte[] padded = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, padded, 2, bytes.length);
+
+        final List list = (List) codec.decode(padded, 2, bytes.length);
+        Str.equalsOrDie("\ud83d\ude00 smile", list.get(0).toString());
+        Str.equalsOrDie("caf\u00e9", list.get(1).toString());
+
+        final Map map = (Map) codec.decode(codec.encode(new Todo("write tests", 3)), 0,
+                codec.encode(new Todo("write tests", 3)).length);
+        Str.equalsOrDie("write tests", map.get("name").toString());
+    }
+
+    public static class Todo {
+        final String name;
+        final int priority;
+
+        public Todo(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+    }
+}
@@ -25,14 +25,20 @@ import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.MethodCallBuilder;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.network.BufferPool;
+import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.util.MultiMap;
 import io.advantageous.qbit.util.MultiMapImpl;
+import io.advantageous.qbit.util.Timer;
 import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.boon.core.IO.puts;
@@ -231,4 +237,195 @@ public class ProtocolParserVersion1Test {
     }
 
 
+    @Test
+    public void testEncodeDecodeDeadline() {
+
+        final MultiMap<String, String> headers = new MultiMapImpl(ArrayList.class);
+        headers.put("user", "rick");
+
+        final MethodCall<Object> call = new MethodCallBuilder().setName("mname_").setAddress("addr_")
+                .setHeaders(headers).setTimeout(10, TimeUnit.SECONDS).setBody("args_").build();
+
+        final String s = new BoonProtocolEncoder().encodeAsString(call);
+        final MethodCall<Object> parsed = new BoonProtocolParser().parseMethodCall(s);
+
+        final long remaining = parsed.deadline() - Timer.timer().now();
+        puts("remaining", remaining);
+
+        ok = remaining > 9_000 && remaining <= 10_000 || die(remaining);
+        ok = !parsed.isExpired(Timer.timer().now()) || die();
+        Str.equalsOrDie("rick", parsed.headers().get("user"));
+
+        final MethodCall<Object> noDeadline = new BoonProtocolParser().parseMethodCall(
+                new BoonProtocolEncoder().encodeAsString(methodCall));
+        ok = noDeadline.deadline() == 0L || die(noDeadline.deadline());
+    }
+
+    @Test
+    public void testDeadlineTwoHops() {
+
+        final MultiMap<String, String> headers = new MultiMapImpl(ArrayList.class);
+        headers.put("user", "rick");
+
+        final MethodCall<Object> call = new MethodCallBuilder().setName("mname_").setAddress("addr_")
+                .setHeaders(headers).setTimeout(10, TimeUnit.SECONDS).setBody("args_").build();
+
+        final MethodCall<Object> firstHop = new BoonProtocolParser().parseMethodCall(
+                new BoonProtocolEncoder().encodeAsString(call));
+        ok = firstHop.headers().get(Protocol.REMAINING_MILLIS_KEY) == null || die(firstHop.headers());
+
+        /* A header that still has the key, like one copied from another call, is not sent twice. */
+        firstHop.headers().put(Protocol.REMAINING_MILLIS_KEY, "1");
+        final String encoded = new BoonProtocolEncoder().encodeAsString(firstHop);
+        ok = encoded.indexOf(Protocol.REMAINING_MILLIS_KEY) == encoded.lastIndexOf(Protocol.REMAINING_MILLIS_KEY)
+                || die("deadline should be sent once", encoded);
+
+        final MethodCall<Object> secondHop = new BoonProtocolParser().parseMethodCall(encoded);
+        final long remaining = secondHop.deadline() - Timer.timer().now();
+        ok = remaining > 9_000 && remaining <= 10_000 || die(remaining);
+        ok = secondHop.headers().get(Protocol.REMAINING_MILLIS_KEY) == null || die(secondHop.headers());
+        Str.equalsOrDie("rick", secondHop.headers().get("user"));
+
+        final MethodCall<Object> noHeaders = new BoonProtocolParser().parseMethodCall(new BoonProtocolEncoder()
+                .encodeAsString(new MethodCallBuilder().setName("m").setTimeout(10, TimeUnit.SECONDS).build()));
+        ok = noHeaders.headers() == null || noHeaders.headers().isEmpty() || die(noHeaders.headers());
+    }
+
+    @Test
+    public void testEncodeToBuffer() {
+
+        final BufferPool bufferPool = new BufferPool(1024, 2);
+        final List<Message<Object>> messages = Lists.list(methodCall,
+                new ResponseImpl<>(1L, 2L, "addr", "Raddr", null, "caf\u00e9 \ud83d\ude00", null, false));
+
+        final BoonProtocolEncoder encoder = new BoonProtocolEncoder();
+        final ByteBuffer buffer = encoder.encodeToBuffer(messages, bufferPool);
+        ok = buffer.isDirect() || die();
+
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        Str.equalsOrDie(encoder.encodeAsString(messages), new String(bytes, StandardCharsets.UTF_8));
+
+        bufferPool.release(buffer);
+        ok = bufferPool.pooled() == 1 || die(bufferPool.pooled());
+        ok = bufferPool.acquire(10) == buffer || die("buffers are reused");
+        ok = bufferPool.pooled() == 0 || die(bufferPool.pooled());
+
+        final ByteBuffer big = bufferPool.acquire(2048);
+        bufferPool.release(big);
+        ok = bufferPool.pooled() == 0 || die("bigger buffers are not pooled");
+    }
+
+    @Test
+    public void testBufferPoolSizeClasses() {
+
+        final BufferPool bufferPool = new BufferPool(1024, 2, 3);
+        ok = bufferPool.maxBufferSize() == 4096 || die(bufferPool.maxBufferSize());
+
+        final ByteBuffer medium = bufferPool.acquire(1500);
+        ok = medium.isDirect() || die();
+        ok = medium.capacity() == 2048 || die(medium.capacity());
+
+        final ByteBuffer large = bufferPool.acquire(4096);
+        ok = large.capacity() == 4096 || die(large.capacity());
+
+        bufferPool.release(medium);
+        bufferPool.release(large);
+        ok = bufferPool.pooled() == 2 || die(bufferPool.pooled());
+        ok = bufferPool.acquire(2000) == medium || die("size class buffers are reused");
+        ok = bufferPool.acquire(3000) == large || die("size class buffers are reused");
+
+        final ByteBuffer huge = bufferPool.acquire(5000);
+        ok = !huge.isDirect() || die("buffers above the largest class are on the heap");
+        bufferPool.release(huge);
+        ok = bufferPool.pooled() == 0 || die(bufferPool.pooled());
+    }
+
+
+
+    @Test
+    public void testStreamGroup() {
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        for (int index = 0; index < 100; index++) {
+            messages.add(new MethodCallBuilder().setId(index + 1).setName("add").setAddress("/todo/add")
+                    .setReturnAddress("Raddr").setBody(new Object[]{"todo " + index, index}).build());
+        }
+        final String group = new BoonProtocolEncoder().encodeAsString(messages);
+
+        final BoonProtocolParser parser = new BoonProtocolParser();
+        final List<MethodCall<Object>> streamed = new ArrayList<>();
+        final int count = parser.parseMethodCallsUsingAddressPrefix("", group, streamed::add);
+        ok = count == 100 || die(count);
+        ok = streamed.size() == 100 || die(streamed.size());
+
+        final List<MethodCall<Object>> parsed = parser.parseMethodCallListUsingAddressPrefix("", group);
+        ok = parsed.size() == 100 || die(parsed.size());
+
+        for (int index = 0; index < 100; index++) {
+            ok = streamed.get(index).id() == index + 1 || die(streamed.get(index));
+            ok = parsed.get(index).id() == index + 1 || die(parsed.get(index));
+            Str.equalsOrDie("Raddr", streamed.get(index).returnAddress());
+            Str.equalsOrDie("todo " + index, ((Object[]) streamed.get(index).body())[0].toString());
+        }
+
+        final List<MethodCall<Object>> single = new ArrayList<>();
+        ok = parser.parseMethodCallsUsingAddressPrefix("", new BoonProtocolEncoder()
+                .encodeAsString(Lists.list(messages.get(0))), single::add) == 1 || die();
+        ok = single.get(0).id() == 1 || die(single.get(0));
+    }
+
+
+    @Test
+    public void testCompressedGroup() {
+
+        final MultiMap<String, String> headers = new MultiMapImpl<>();
+        headers.add("user", "rick");
+        headers.add("role", "admin");
+
+        final List<Message<Object>> messages = new ArrayList<>();
+        for (int index = 0; index < 20; index++) {
+            messages.add(new MethodCallBuilder().setId(index + 1).setName("add").setObjectName("todo-service")
+                    .setAddress("/services/todo-service/add")
+                    .setReturnAddress("/services-todo-service-1c6b1f7e-6a7e-4f0b-8b52-3e6b2f1c9a3d")
+                    .setHeaders(headers).setTimeout(10, TimeUnit.SECONDS)
+                    .setBody(new Object[]{"todo " + index}).build());
+        }
+        messages.add(new ResponseImpl<>(1L, 2L, "/services/todo-service/add",
+                "/services-todo-service-1c6b1f7e-6a7e-4f0b-8b52-3e6b2f1c9a3d", null, "done", null, false));
+
+        final String compressed = new BoonProtocolEncoder(true).encodeAsString(messages);
+        final String plain = new BoonProtocolEncoder().encodeAsString(messages);
+        puts("compressed", compressed.length(), "plain", plain.length());
+        ok = compressed.length() * 2 < plain.length() || die(compressed.length(), plain.length());
+
+        final BoonProtocolParser parser = new BoonProtocolParser();
+        ok = parser.supports(compressed, null) || die();
+
+        final List<Message<Object>> parsed = parser.parse("", compressed);
+        ok = parsed.size() == 21 || die(parsed.size());
+
+        for (int index = 0; index < 20; index++) {
+            final MethodCall<Object> methodCall = (MethodCall<Object>) parsed.get(index);
+            ok = methodCall.id() == index + 1 || die(methodCall);
+            Str.equalsOrDie("/services/todo-service/add", methodCall.address());
+            Str.equalsOrDie("/services-todo-service-1c6b1f7e-6a7e-4f0b-8b52-3e6b2f1c9a3d", methodCall.returnAddress());
+            Str.equalsOrDie("todo-service", methodCall.objectName());
+            Str.equalsOrDie("add", methodCall.name());
+            Str.equalsOrDie("rick", methodCall.headers().get("user"));
+            Str.equalsOrDie("admin", methodCall.headers().get("role"));
+            ok = methodCall.deadline() > Timer.timer().now() || die(methodCall.deadline());
+            Str.equalsOrDie("todo " + index, ((Object[]) methodCall.body())[0].toString());
+        }
+
+        final Response<Object> response = (Response<Object>) parsed.get(20);
+        Str.equalsOrDie("/services-todo-service-1c6b1f7e-6a7e-4f0b-8b52-3e6b2f1c9a3d", response.returnAddress());
+        Str.equalsOrDie("done", response.body().toString());
+
+        /* The next group gets the same String instances. */
+        final List<Message<Object>> parsedAgain = parser.parse("", compressed);
+        ok = ((MethodCall) parsedAgain.get(0)).returnAddress() == ((MethodCall) parsed.get(0)).returnAddress()
+                || die("return address should come from the cache");
+    }
+
 }
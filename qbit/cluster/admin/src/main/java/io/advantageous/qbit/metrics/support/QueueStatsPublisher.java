@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.metrics.support;
+
+import io.advantageous.qbit.metrics.StatReplicator;
+import io.advantageous.qbit.queue.QueueStats;
+import io.advantageous.qbit.queue.QueueStatsRegistry;
+import io.advantageous.qbit.util.Histogram;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes the instrumented queues in <code>QueueStatsRegistry</code> to a <code>StatReplicator</code>.
+ * <p>
+ * Each queue <code>name</code> shows up as
+ * <code>qbit.queue.name.depth</code> (level, batches),
+ * <code>qbit.queue.name.enqueued</code> and <code>qbit.queue.name.processed</code> (counts since the last publish),
+ * <code>qbit.queue.name.batchSize.mean</code> (level) and
+ * <code>qbit.queue.name.timeInQueue.p50</code> / <code>.p99</code> (timings in microseconds, of the items
+ * processed since the last publish).
+ * <p>
+ * Not thread safe, call <code>publish</code> from one thread, for example with a <code>PeriodicScheduler</code>.
+ *
+ * @author rhightower
+ */
+public class QueueStatsPublisher {
+
+    private final StatReplicator replicator;
+    private final String prefix;
+    private final Map<QueueStats, long[]> lastCounts = new IdentityHashMap<>();
+    private final Map<QueueStats, long[]> lastTimeInQueue = new IdentityHashMap<>();
+
+    public QueueStatsPublisher(final StatReplicator replicator, final String prefix) {
+        this.replicator = replicator;
+        this.prefix = prefix;
+    }
+
+    public QueueStatsPublisher(final StatReplicator replicator) {
+        this(replicator, "qbit.queue.");
+    }
+
+    static String statName(final String queueName) {
+        final StringBuilder builder = new StringBuilder(queueName.length());
+        for (int index = 0; index < queueName.length(); index++) {
+            final char c = queueName.charAt(index);
+            builder.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' ? c : '_');
+        }
+        return builder.toString();
+    }
+
+    public void publish() {
+        publish(System.currentTimeMillis());
+    }
+
+    public void publish(final long now) {
+
+        final List<QueueStats> allQueueStats = QueueStatsRegistry.allQueueStats();
+        lastCounts.keySet().retainAll(allQueueStats);
+        lastTimeInQueue.keySet().retainAll(allQueueStats);
+
+        for (QueueStats queueStats : allQueueStats) {
+            final String name = prefix + statName(queueStats.getName());
+
+            long[] last = lastCounts.get(queueStats);
+            if (last == null) {
+                last = new long[2];
+                lastCounts.put(queueStats, last);
+            }
+
+            final long enqueued = queueStats.getEnqueuedItems();
+            final long processed = queueStats.getProcessedItems();
+
+            replicator.replicateLevel(name + ".depth", queueStats.getDepth(), now);
+            replicator.replicateCount(name + ".enqueued", (int) (enqueued - last[0]), now);
+            replicator.replicateCount(name + ".processed", (int) (processed - last[1]), now);
+            last[0] = enqueued;
+            last[1] = processed;
+
+            replicator.replicateLevel(name + ".batchSize.mean", (int) queueStats.getBatchSizes().getMean(), now);
+
+            /* The histogram is cumulative, so diff it with the last publish to get this interval. */
+            final long[] timeInQueue = queueStats.getTimeInQueue().getBucketCounts();
+            final long[] lastTime = lastTimeInQueue.put(queueStats, timeInQueue);
+            if (Histogram.getCount(timeInQueue, lastTime) > 0) {
+                replicator.replicateTiming(name + ".timeInQueue.p50",
+                        (int) Histogram.getValueAtPercentile(timeInQueue, lastTime, 50), now);
+                replicator.replicateTiming(name + ".timeInQueue.p99",
+                        (int) Histogram.getValueAtPercentile(timeInQueue, lastTime, 99), now);
+            }
+        }
+    }
+}
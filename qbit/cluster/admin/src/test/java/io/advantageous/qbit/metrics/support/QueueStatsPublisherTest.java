@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.metrics.support;
+
+import io.advantageous.qbit.metrics.StatReplicator;
+import io.advantageous.qbit.queue.Queue;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.QueueStatsRegistry;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.util.Histogram;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+
+public class QueueStatsPublisherTest {
+
+    boolean ok;
+
+    @Test
+    public void testPublish() throws Exception {
+
+        final Map<String, Integer> levels = new HashMap<>();
+        final Map<String, Integer> counts = new HashMap<>();
+
+        final StatReplicator replicator = new DebugReplicator() {
+            @Override
+            public void replicateCount(String name, int count, long now) {
+                counts.put(name, count);
+            }
+
+            @Override
+            public void replicateLevel(String name, int level, long time) {
+                levels.put(name, level);
+            }
+        };
+
+        final Queue<Integer> queue = new QueueBuilder().setName("publisher test").setBatchSize(10)
+                .setInstrumented(true).build();
+
+        final SendQueue<Integer> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 100; index++) {
+            sendQueue.send(index);
+        }
+        sendQueue.flushSends();
+
+        final QueueStatsPublisher publisher = new QueueStatsPublisher(replicator);
+        publisher.publish();
+
+        ok = levels.get("qbit.queue.publisher_test.depth") == 10 || die(levels);
+        ok = counts.get("qbit.queue.publisher_test.enqueued") == 100 || die(counts);
+        ok = levels.get("qbit.queue.publisher_test.batchSize.mean") == 10 || die(levels);
+
+        /* Counts are deltas since the last publish. */
+        publisher.publish();
+        ok = counts.get("qbit.queue.publisher_test.enqueued") == 0 || die(counts);
+
+        queue.stop();
+    }
+
+
+    @Test
+    public void testTimeInQueueIsPerInterval() throws Exception {
+
+        final Map<String, Integer> timings = new HashMap<>();
+
+        final StatReplicator replicator = new DebugReplicator() {
+            @Override
+            public void replicateTiming(String name, int timed, long time) {
+                timings.put(name, timed);
+            }
+        };
+
+        final Queue<Integer> queue = new QueueBuilder().setName("interval test").setInstrumented(true).build();
+        final Histogram timeInQueue = QueueStatsRegistry.queueStats("interval test").getTimeInQueue();
+
+        final QueueStatsPublisher publisher = new QueueStatsPublisher(replicator);
+
+        for (int index = 0; index < 1_000; index++) {
+            timeInQueue.record(10_000);
+        }
+        publisher.publish();
+        ok = timings.get("qbit.queue.interval_test.timeInQueue.p99") >= 9_000 || die(timings);
+
+        /* Warm up is over, the next interval is fast and the published value has to follow it. */
+        for (int index = 0; index < 100; index++) {
+            timeInQueue.record(10);
+        }
+        publisher.publish();
+        ok = timings.get("qbit.queue.interval_test.timeInQueue.p99") == 10 || die(timings);
+        ok = timings.get("qbit.queue.interval_test.timeInQueue.p50") == 10 || die(timings);
+
+        /* Nothing was processed, so no timing is published. */
+        timings.clear();
+        publisher.publish();
+        ok = timings.isEmpty() || die(timings);
+
+        queue.stop();
+    }
+}
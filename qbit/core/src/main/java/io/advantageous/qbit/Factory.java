@@ -27,7 +27,10 @@ import io.advantageous.qbit.http.HttpTransport;
 import io.advantageous.qbit.http.client.HttpClient;
 import io.advantageous.qbit.http.config.HttpServerOptions;
 import io.advantageous.qbit.http.server.HttpServer;
+import io.advantageous.qbit.json.CompiledJsonCodec;
+import io.advantageous.qbit.json.JsonCodec;
 import io.advantageous.qbit.json.JsonMapper;
+import io.advantageous.qbit.json.JsonMapperCodec;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
@@ -136,6 +139,10 @@ public interface Factory {
         throw new UnsupportedOperationException();
     }
 
+    default ServiceMethodHandler createServiceMethodHandler(boolean invokeDynamic, boolean generatedInvoker) {
+        return createServiceMethodHandler(invokeDynamic);
+    }
+
     default ServiceQueue createService(String rootAddress, String serviceAddress,
                                   Object object,
                                   Queue<Response<Object>> responseQueue,
@@ -175,6 +182,24 @@ public interface Factory {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Create an encoder for the binary protocol, used over WebSocket binary frames.
+     *
+     * @return binary encoder.
+     */
+    default ProtocolEncoder createBinaryEncoder() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Create an encoder that sends groups as compressed groups. Falls back to the plain encoder.
+     *
+     * @return compressed group encoder.
+     */
+    default ProtocolEncoder createCompressedGroupEncoder() {
+        return createEncoder();
+    }
+
     /**
      * Creates a method call to be encoded and sent. This is usually called by a client (local or remote proxy).
      *
@@ -285,6 +310,20 @@ public interface Factory {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Creates the JSON codec for REST bodies, backed by the JSON mapper unless
+     * <code>io.advantageous.qbit.JSON_CODEC</code> is set to <code>compiled</code>.
+     *
+     * @return json codec
+     */
+    default JsonCodec createJsonCodec() {
+        final JsonCodec jsonMapperCodec = new JsonMapperCodec(this::createJsonMapper);
+        if ("compiled".equals(GlobalConstants.JSON_CODEC)) {
+            return new CompiledJsonCodec(jsonMapperCodec);
+        }
+        return jsonMapperCodec;
+    }
+
 
     default HttpClient createHttpClient(
             String host,
@@ -330,11 +369,30 @@ public interface Factory {
     }
 
 
+    default Client createClient(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol) {
+        if (binaryProtocol) {
+            throw new UnsupportedOperationException();
+        }
+        return createClient(uri, httpClient, requestBatchSize);
+    }
+
+
+    default Client createClient(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol,
+                                boolean compressGroups) {
+        return createClient(uri, httpClient, requestBatchSize, binaryProtocol);
+    }
+
+
     default ProtocolParser createProtocolParser() {
         throw new UnsupportedOperationException();
     }
 
 
+    default ProtocolParser createBinaryProtocolParser() {
+        throw new UnsupportedOperationException();
+    }
+
+
     default EventManager eventManagerProxy() {
         return null;
     }
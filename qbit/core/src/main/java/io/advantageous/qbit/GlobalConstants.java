@@ -28,4 +28,9 @@ public class GlobalConstants {
 
     public final static int NUM_BATCHES = Integer.valueOf(System.getProperty("io.advantageous.qbit.NUM_BATCHES", "100000"));
 
+    /* JSON codec for REST bodies, "boon" or "compiled" (see CompiledJsonCodec). */
+    public final static String JSON_CODEC = System.getProperty("io.advantageous.qbit.JSON_CODEC", "boon");
+
+    public final static long CALLBACK_TIMEOUT_MILLIS = Long.valueOf(System.getProperty("io.advantageous.qbit.CALLBACK_TIMEOUT_MILLIS", "30000"));
+
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a bulk method that takes the calls to another method in one go.
+ * <p>
+ * <code>@BatchOf("save") public void saveAll(List&lt;Employee&gt; employees)</code> gets the argument of every
+ * <code>save(employee)</code> call that comes in back to back in the same batch of the request queue, and is
+ * called once when the queue hits its batch limit or is empty. A call to any other method in between ends the
+ * batch first, so calls keep their order. If the bulk method returns a <code>List</code> with one item per call,
+ * each call gets its item as its response.
+ * <p>
+ * With a method call executor the pending batch lives on that executor, so it has to be an ordered one.
+ *
+ * @author rhightower
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BatchOf {
+
+    /* Name of the method whose calls are batched. */
+    String value();
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Caches the results of a service method that always gives the same result for the same arguments.
+ * <p>
+ * The service thread keeps the last results per argument list for <code>ttlMs</code> milliseconds, up to
+ * <code>maxEntries</code> of them (least recently used go first), and answers repeat calls from the cache
+ * without calling the method. For methods that answer through a <code>Callback</code>, identical calls that
+ * come in while the first one is still running wait for its result instead of calling the method again.
+ *
+ * @author rhightower
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /* How long a result is good for. */
+    long ttlMs() default 1_000;
+
+    /* How many results to keep. */
+    int maxEntries() default 1_000;
+
+}
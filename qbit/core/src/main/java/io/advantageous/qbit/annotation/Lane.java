@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Puts the calls to a service method in a request lane of the service queue.
+ * <p>
+ * Use HIGH for control calls like health checks that must be answered while the service is saturated, and BULK
+ * for background work that should not hold up the normal calls. Calls are matched by method name.
+ *
+ * @author rhightower
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lane {
+
+    RequestLane value();
+
+}
@@ -48,6 +48,8 @@ public class ClientBuilder {
     private int flushInterval;
     private String uri;
     private int timeoutSeconds = 30;
+    private boolean binaryProtocol;
+    private boolean compressGroups;
 
     public ClientBuilder(PropertyResolver propertyResolver) {
         this.autoFlush = propertyResolver.getBooleanProperty("autoFlush", true);
@@ -64,6 +66,8 @@ public class ClientBuilder {
         this.flushInterval = propertyResolver.getIntegerProperty("flushInterval", 500);
         this.uri = propertyResolver.getStringProperty("uri", "/services");
         this.timeoutSeconds = propertyResolver.getIntegerProperty("timeoutSeconds", 30);
+        this.binaryProtocol = propertyResolver.getBooleanProperty("binaryProtocol", false);
+        this.compressGroups = propertyResolver.getBooleanProperty("compressGroups", false);
     }
 
 
@@ -219,6 +223,37 @@ public class ClientBuilder {
         return this;
     }
 
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    /**
+     * Send and receive WebSocket binary frames using the binary protocol instead of the text protocol.
+     *
+     * @param binaryProtocol use the binary protocol
+     * @return this
+     */
+    public ClientBuilder setBinaryProtocol(boolean binaryProtocol) {
+        this.binaryProtocol = binaryProtocol;
+        return this;
+    }
+
+    public boolean isCompressGroups() {
+        return compressGroups;
+    }
+
+    /**
+     * Send groups of method calls as compressed groups, which send repeated addresses, names and
+     * header/param keys only once. The server answers with compressed groups as well.
+     *
+     * @param compressGroups use compressed groups
+     * @return this
+     */
+    public ClientBuilder setCompressGroups(boolean compressGroups) {
+        this.compressGroups = compressGroups;
+        return this;
+    }
+
     public Client build() {
 
         /**
@@ -239,7 +274,8 @@ public class ClientBuilder {
             protocolBatchSize = requestBatchSize;
         }
 
-        Client client = QBit.factory().createClient(uri, httpClient, protocolBatchSize);
+        Client client = QBit.factory().createClient(uri, httpClient, protocolBatchSize, binaryProtocol,
+                compressGroups);
         return client;
 
     }
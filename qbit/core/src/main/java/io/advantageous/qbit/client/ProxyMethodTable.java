@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.client;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Method table for client proxies, built once when the proxy is created.
+ * <p>
+ * The invocation handler of a proxy looks up the <code>ProxyMethod</code> for the <code>Method</code> it is
+ * handed and gets the method name, the address and the kind of method that were worked out up front.
+ * So a call no longer compares method names, and it no longer builds the address with a buffer and
+ * <code>toString()</code>.
+ * <p>
+ * The table is not modified after it is built, so it is safe to share between threads.
+ *
+ * @author rhightower
+ */
+public class ProxyMethodTable {
+
+    /**
+     * Methods that proxies may handle themselves instead of sending a method call.
+     * Which ones a proxy handles is up to the proxy, the rest are <code>CALL</code>.
+     */
+    public enum Kind {
+        CALL, TO_STRING, EQUALS, HASH_CODE, CLIENT_PROXY_FLUSH, FLUSH, STOP, SILENT_CLOSE, PORT, HOST, CONNECTED
+    }
+
+    private final Map<Method, ProxyMethod> methods = new HashMap<>();
+    private final String addressPrefix;
+
+    /**
+     * @param addressPrefix prefix of the method address, the method name is appended to it
+     * @param interfaces    interfaces the proxy implements
+     */
+    public ProxyMethodTable(final String addressPrefix, final Class<?>... interfaces) {
+        this.addressPrefix = addressPrefix;
+
+        for (Class<?> interfaceClass : interfaces) {
+            for (Method method : interfaceClass.getMethods()) {
+                methods.putIfAbsent(method, proxyMethod(method));
+            }
+        }
+
+        for (Method method : Object.class.getMethods()) {
+            methods.putIfAbsent(method, proxyMethod(method));
+        }
+    }
+
+    private ProxyMethod proxyMethod(final Method method) {
+        return new ProxyMethod(method.getName(), addressPrefix + method.getName(), kind(method.getName()));
+    }
+
+    private static Kind kind(final String name) {
+        switch (name) {
+            case "toString":
+                return Kind.TO_STRING;
+            case "equals":
+                return Kind.EQUALS;
+            case "hashCode":
+                return Kind.HASH_CODE;
+            case "clientProxyFlush":
+                return Kind.CLIENT_PROXY_FLUSH;
+            case "flush":
+                return Kind.FLUSH;
+            case "stop":
+                return Kind.STOP;
+            case "silentClose":
+                return Kind.SILENT_CLOSE;
+            case "port":
+                return Kind.PORT;
+            case "host":
+                return Kind.HOST;
+            case "connected":
+                return Kind.CONNECTED;
+            default:
+                return Kind.CALL;
+        }
+    }
+
+    /**
+     * @param method method the proxy was invoked with
+     * @return precomputed method info
+     */
+    public ProxyMethod method(final Method method) {
+        final ProxyMethod proxyMethod = methods.get(method);
+
+        /* Should not happen since the proxy only implements the interfaces of the table. */
+        return proxyMethod != null ? proxyMethod : proxyMethod(method);
+    }
+
+    public static class ProxyMethod {
+
+        private final String name;
+        private final String address;
+        private final Kind kind;
+
+        ProxyMethod(final String name, final String address, final Kind kind) {
+            this.name = name;
+            this.address = address;
+            this.kind = kind;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String address() {
+            return address;
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for service calls that block (JDBC, legacy SDKs and so on).
+ * <p>
+ * QBit targets Java 8, so virtual threads are looked up at runtime. On a JVM that has them (Java 21+)
+ * <code>virtualThreadExecutor</code> starts a virtual thread per call; on older JVMs it falls back to a cached pool
+ * of daemon platform threads, which grows with the number of calls in flight.
+ *
+ * @author rhightower
+ */
+public class BlockingCallExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingCallExecutors.class);
+
+    private static volatile ExecutorService shared;
+
+    private BlockingCallExecutors() {
+    }
+
+    /**
+     * @return true if this JVM has virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return virtualThreadFactoryMethod() != null;
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Executor that runs each call on its own virtual thread, or on a cached daemon thread pool if this JVM
+     * does not have virtual threads. Shared by all services that ask for it, never shut it down.
+     *
+     * @return executor
+     */
+    public static ExecutorService virtualThreadExecutor() {
+        ExecutorService executorService = shared;
+        if (executorService == null) {
+            synchronized (BlockingCallExecutors.class) {
+                executorService = shared;
+                if (executorService == null) {
+                    executorService = createVirtualThreadExecutor();
+                    shared = executorService;
+                }
+            }
+        }
+        return executorService;
+    }
+
+    private static ExecutorService createVirtualThreadExecutor() {
+        final Method method = virtualThreadFactoryMethod();
+        if (method != null) {
+            try {
+                return (ExecutorService) method.invoke(null);
+            } catch (Exception ex) {
+                logger.warn("Unable to create virtual thread executor, using platform threads", ex);
+            }
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "QBit Blocking Call " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+/**
+ * Builds a <code>DedicatedThreadContext</code>, the plain thread counterpart of
+ * <code>ScheduledExecutorBuilder</code>.
+ *
+ * @author rhightower
+ */
+public class DedicatedThreadBuilder {
+
+    private String threadName;
+    private Runnable runnable;
+    private int priority = Thread.NORM_PRIORITY;
+    private boolean daemon;
+    private int cpu = -1;
+    private ThreadAffinity threadAffinity = ThreadAffinity.NONE;
+    private long retryDelay = 50;
+
+    public static DedicatedThreadBuilder dedicatedThreadBuilder() {
+        return new DedicatedThreadBuilder();
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public DedicatedThreadBuilder setThreadName(String threadName) {
+        this.threadName = threadName;
+        return this;
+    }
+
+    public Runnable getRunnable() {
+        return runnable;
+    }
+
+    public DedicatedThreadBuilder setRunnable(Runnable runnable) {
+        this.runnable = runnable;
+        return this;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public DedicatedThreadBuilder setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public DedicatedThreadBuilder setDaemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public int getCpu() {
+        return cpu;
+    }
+
+    /**
+     * Cpu the thread would like to run on, passed to the <code>ThreadAffinity</code>.
+     *
+     * @param cpu cpu, -1 for no preference
+     * @return this
+     */
+    public DedicatedThreadBuilder setCpu(int cpu) {
+        this.cpu = cpu;
+        return this;
+    }
+
+    public ThreadAffinity getThreadAffinity() {
+        return threadAffinity;
+    }
+
+    public DedicatedThreadBuilder setThreadAffinity(ThreadAffinity threadAffinity) {
+        this.threadAffinity = threadAffinity;
+        return this;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Milliseconds to wait before running the runnable again if it returned or threw while not stopped.
+     *
+     * @param retryDelay retry delay in milliseconds
+     * @return this
+     */
+    public DedicatedThreadBuilder setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+        return this;
+    }
+
+    public DedicatedThreadContext build() {
+        return new DedicatedThreadContext(runnable, threadName, priority, daemon, cpu, threadAffinity, retryDelay,
+                null, null);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+import io.advantageous.qbit.GlobalConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a long lived runnable (like a queue listener) on its own plain thread.
+ * <p>
+ * Unlike <code>ScheduledThreadContext</code> there is no scheduled executor and no initial delay; the runnable
+ * starts as soon as the thread does. If the runnable returns or throws before <code>stop</code> it is run again,
+ * after the retry delay, which is what the scheduled executor did at its fixed rate.
+ *
+ * @author rhightower
+ */
+public class DedicatedThreadContext implements ExecutorContext {
+
+    private final Logger logger = LoggerFactory.getLogger(DedicatedThreadContext.class);
+    private final boolean debug = GlobalConstants.DEBUG || logger.isDebugEnabled();
+    private final Runnable runnable;
+    private final String threadName;
+    private final int priority;
+    private final boolean daemon;
+    private final int cpu;
+    private final ThreadAffinity threadAffinity;
+    private final long retryDelayMillis;
+    private final Runnable onStart;
+    private final Runnable onExit;
+    private volatile boolean stopped;
+    private volatile long startupLatencyNanos = -1;
+    private Thread thread;
+
+    public DedicatedThreadContext(final Runnable runnable,
+                                  final String threadName,
+                                  final int priority,
+                                  final boolean daemon,
+                                  final int cpu,
+                                  final ThreadAffinity threadAffinity,
+                                  final long retryDelayMillis,
+                                  final Runnable onStart,
+                                  final Runnable onExit) {
+        this.runnable = runnable;
+        this.threadName = threadName;
+        this.priority = priority;
+        this.daemon = daemon;
+        this.cpu = cpu;
+        this.threadAffinity = threadAffinity == null ? ThreadAffinity.NONE : threadAffinity;
+        this.retryDelayMillis = retryDelayMillis;
+        this.onStart = onStart;
+        this.onExit = onExit;
+    }
+
+    @Override
+    public void start() {
+
+        if (thread != null) {
+            throw new IllegalStateException(threadName + " Must be stopped before it can be started");
+        }
+
+        stopped = false;
+        final long startTime = System.nanoTime();
+
+        thread = new Thread(() -> {
+            try {
+                threadAffinity.bind(cpu);
+                startupLatencyNanos = System.nanoTime() - startTime;
+                if (debug) {
+                    logger.debug("Started: " + threadName + " cpu " + cpu + " in "
+                            + TimeUnit.NANOSECONDS.toMicros(startupLatencyNanos) + " micros");
+                }
+                if (onStart != null) {
+                    onStart.run();
+                }
+                runLoop();
+            } finally {
+                if (onExit != null) {
+                    onExit.run();
+                }
+            }
+        });
+        thread.setName(threadName);
+        thread.setPriority(priority);
+        if (daemon) thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runLoop() {
+        while (!stopped) {
+            try {
+                runnable.run();
+            } catch (Exception ex) {
+                logger.error("Problem running: " + threadName, ex);
+            }
+            if (!stopped) {
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+
+        if (debug) {
+            logger.debug("Stopped: " + threadName);
+        }
+
+        stopped = true;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Time from <code>start</code> until the runnable started on the new thread.
+     *
+     * @return startup latency in nanoseconds, -1 if it has not started yet
+     */
+    public long getStartupLatencyNanos() {
+        return startupLatencyNanos;
+    }
+
+    public int getCpu() {
+        return cpu;
+    }
+}
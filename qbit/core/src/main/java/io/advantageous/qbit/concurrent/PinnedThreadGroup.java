@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group of dedicated listener threads spread over the cpus round robin.
+ * <p>
+ * Share one group between queues (<code>QueueBuilder.setListenerThreadGroup</code>) to name their threads
+ * consistently, hand out cpu affinity hints and keep an eye on how many listener threads are running and how
+ * long they took to start.
+ *
+ * @author rhightower
+ */
+public class PinnedThreadGroup {
+
+    private final String name;
+    private final int cpus;
+    private final int firstCpu;
+    private final ThreadAffinity threadAffinity;
+    private final boolean daemon;
+    private final AtomicInteger nextCpu = new AtomicInteger();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final AtomicLong maxStartupLatencyNanos = new AtomicLong();
+
+    public PinnedThreadGroup(final String name,
+                             final int firstCpu,
+                             final int cpus,
+                             final ThreadAffinity threadAffinity,
+                             final boolean daemon) {
+        if (cpus < 1) {
+            throw new IllegalArgumentException("Thread group " + name + " needs at least one cpu " + cpus);
+        }
+        this.name = name;
+        this.firstCpu = firstCpu;
+        this.cpus = cpus;
+        this.threadAffinity = threadAffinity == null ? ThreadAffinity.NONE : threadAffinity;
+        this.daemon = daemon;
+    }
+
+    public PinnedThreadGroup(final String name) {
+        this(name, 0, Runtime.getRuntime().availableProcessors(), ThreadAffinity.NONE, false);
+    }
+
+    /**
+     * Creates a context that runs the runnable on a new thread hinted at the next cpu.
+     *
+     * @param threadName thread name, prefixed with the group name
+     * @param runnable   runnable
+     * @return context, not started
+     */
+    public DedicatedThreadContext newThreadContext(final String threadName, final Runnable runnable) {
+        final int cpu = firstCpu + Math.floorMod(nextCpu.getAndIncrement(), cpus);
+        final DedicatedThreadContext[] context = new DedicatedThreadContext[1];
+
+        context[0] = new DedicatedThreadContext(runnable, name + "-" + cpu + " " + threadName,
+                Thread.NORM_PRIORITY, daemon, cpu, threadAffinity, 50,
+                () -> {
+                    threadCount.incrementAndGet();
+                    recordStartup(context[0].getStartupLatencyNanos());
+                },
+                threadCount::decrementAndGet);
+        return context[0];
+    }
+
+    private void recordStartup(final long latency) {
+        long max = maxStartupLatencyNanos.get();
+        while (latency > max && !maxStartupLatencyNanos.compareAndSet(max, latency)) {
+            max = maxStartupLatencyNanos.get();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return listener threads in this group that are running
+     */
+    public int getThreadCount() {
+        return threadCount.get();
+    }
+
+    public long getMaxStartupLatencyNanos() {
+        return maxStartupLatencyNanos.get();
+    }
+}
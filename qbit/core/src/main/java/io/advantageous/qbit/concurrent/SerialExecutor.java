@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on another executor.
+ * Used to keep per service call ordering when service calls run on a blocking call executor.
+ *
+ * @author rhightower
+ */
+public class SerialExecutor implements Executor {
+
+    private final Logger logger = LoggerFactory.getLogger(SerialExecutor.class);
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Executor executor;
+
+    public SerialExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        tasks.add(task);
+        scheduleIfIdle();
+    }
+
+    private void scheduleIfIdle() {
+        if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task = tasks.poll();
+            while (task != null) {
+                try {
+                    task.run();
+                } catch (Exception ex) {
+                    logger.error("Problem running serial task", ex);
+                }
+                task = tasks.poll();
+            }
+        } finally {
+            running.set(false);
+            /* A task may have been added after the last poll but before running was cleared. */
+            scheduleIfIdle();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.concurrent;
+
+/**
+ * Hook to pin a listener thread to a cpu.
+ * The JDK has no affinity API, so QBit only passes the hint along; plug in a native library (for example
+ * OpenHFT Java-Thread-Affinity) to act on it.
+ *
+ * @author rhightower
+ */
+public interface ThreadAffinity {
+
+    /**
+     * Ignores the hint.
+     */
+    ThreadAffinity NONE = cpu -> {
+    };
+
+    /**
+     * Called on the new thread before it runs anything.
+     *
+     * @param cpu cpu hint, -1 means no preference
+     */
+    void bind(int cpu);
+}
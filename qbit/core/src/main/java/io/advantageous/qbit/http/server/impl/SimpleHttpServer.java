@@ -30,6 +30,7 @@ import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -202,11 +203,34 @@ public class SimpleHttpServer implements HttpServer {
                     .setUri(webSocket.uri())
                     .setRemoteAddress(webSocket.remoteAddress())
                     .setTimestamp(Timer.timer().now()).setSender(
-                            message -> {
-                                if (webSocket.isOpen()) {
-                                    webSocket.sendText(message);
+                            new WebSocketSender() {
+                                @Override
+                                public void sendText(String message) {
+                                    if (webSocket.isOpen()) {
+                                        webSocket.sendText(message);
+                                    }
+                                }
+
+                                @Override
+                                public void sendBytes(byte[] message) {
+                                    if (webSocket.isOpen()) {
+                                        webSocket.sendBinary(message);
+                                    }
+                                }
+
+                                @Override
+                                public boolean acceptsBuffers(boolean text) {
+                                    return webSocket.acceptsBuffers(text);
                                 }
 
+                                @Override
+                                public void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+                                    if (webSocket.isOpen()) {
+                                        webSocket.sendBuffer(buffer, text, release);
+                                    } else {
+                                        release.run();
+                                    }
+                                }
                             }).build();
             handleWebSocketMessage(webSocketMessage);
 
@@ -230,6 +254,17 @@ public class SimpleHttpServer implements HttpServer {
                                 public void sendBytes(byte[] message) {
                                     webSocket.sendBinary(message);
                                 }
+
+                                /* Clients that send binary frames get binary frames back, text included. */
+                                @Override
+                                public boolean acceptsBuffers(boolean text) {
+                                    return webSocket.acceptsBuffers(false);
+                                }
+
+                                @Override
+                                public void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+                                    webSocket.sendBuffer(buffer, false, release);
+                                }
                             }
 
                     ).build();
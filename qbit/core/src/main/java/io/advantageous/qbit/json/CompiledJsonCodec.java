@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import io.advantageous.qbit.annotation.JsonIgnore;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Codec that builds a mapper for each type the first time it is asked for, and then reads and writes that type
+ * with it. Reading goes straight from the UTF-8 bytes into the objects, without a Map in between, and uses the
+ * generic types, so a <code>List&lt;Employee&gt;</code> parameter gets Employees.
+ * <p>
+ * Beans are read and written field by field, like Boon does. Null fields are not written. Types it does not
+ * handle itself, like beans without a no-arg constructor, interfaces or other JDK classes, go to the fallback
+ * codec.
+ *
+ * @author rhightower
+ */
+public class CompiledJsonCodec implements JsonCodec {
+
+    private final JsonCodec fallback;
+
+    private final Map<Type, TypeMapper> typeMappers = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<StringBuilder> builderRef = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    /**
+     * @param fallback codec for the types this codec does not map itself
+     */
+    public CompiledJsonCodec(final JsonCodec fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public JsonTypeMapper<Object> typeMapper(final Type type) {
+        return mapper(type);
+    }
+
+    @Override
+    public String toJson(final Object value) {
+        if (value == null) {
+            return "null";
+        }
+        return writer(value).toJson(value);
+    }
+
+    /**
+     * @return mapper to write a value whose type is only known at runtime
+     */
+    private TypeMapper writer(final Object value) {
+        if (value instanceof Collection) {
+            return mapper(Collection.class);
+        } else if (value instanceof Map) {
+            return mapper(Map.class);
+        }
+        return mapper(value.getClass());
+    }
+
+    private TypeMapper mapper(final Type type) {
+
+        final TypeMapper typeMapper = typeMappers.get(type);
+        if (typeMapper != null) {
+            return typeMapper;
+        }
+
+        synchronized (this) {
+            /* Mappers are only published once the mappers of all their fields are built. */
+            final Map<Type, TypeMapper> created = new HashMap<>();
+            final TypeMapper newMapper = create(type, created);
+            typeMappers.putAll(created);
+            return newMapper;
+        }
+    }
+
+    private TypeMapper create(final Type type, final Map<Type, TypeMapper> created) {
+
+        TypeMapper typeMapper = typeMappers.get(type);
+        if (typeMapper == null) {
+            typeMapper = created.get(type);
+        }
+        if (typeMapper != null) {
+            return typeMapper;
+        }
+
+        final Class<?> cls = JsonMapperCodec.rawClass(type);
+
+        if (cls == String.class) {
+            typeMapper = new StringMapper();
+        } else if (cls == int.class || cls == Integer.class || cls == long.class || cls == Long.class
+                || cls == short.class || cls == Short.class || cls == byte.class || cls == Byte.class) {
+            typeMapper = new IntegralMapper(cls);
+        } else if (cls == double.class || cls == Double.class || cls == float.class || cls == Float.class) {
+            typeMapper = new DecimalMapper(cls);
+        } else if (cls == boolean.class || cls == Boolean.class) {
+            typeMapper = new BooleanMapper();
+        } else if (cls.isEnum()) {
+            typeMapper = new EnumMapper(cls);
+        } else if (cls == Object.class) {
+            typeMapper = new ValueMapper();
+        } else if (cls.isArray() || type instanceof GenericArrayType) {
+            final Type componentType = type instanceof GenericArrayType
+                    ? ((GenericArrayType) type).getGenericComponentType() : cls.getComponentType();
+            final ArrayMapper arrayMapper = new ArrayMapper(JsonMapperCodec.rawClass(componentType));
+            created.put(type, arrayMapper);
+            arrayMapper.componentMapper = create(componentType, created);
+            typeMapper = arrayMapper;
+        } else if (Collection.class.isAssignableFrom(cls) && collectionSupplier(cls) != null) {
+            final CollectionMapper collectionMapper = new CollectionMapper(collectionSupplier(cls));
+            created.put(type, collectionMapper);
+            collectionMapper.elementMapper = create(typeArgument(type, 0), created);
+            typeMapper = collectionMapper;
+        } else if (Map.class.isAssignableFrom(cls) && mapSupplier(cls) != null
+                && isStringKey(typeArgument(type, 0))) {
+            final MapMapper mapMapper = new MapMapper(mapSupplier(cls));
+            created.put(type, mapMapper);
+            mapMapper.valueMapper = create(typeArgument(type, 1), created);
+            typeMapper = mapMapper;
+        } else if (isBean(cls)) {
+            final BeanMapper beanMapper = new BeanMapper(noArgConstructor(cls));
+            created.put(type, beanMapper);
+            beanMapper.fields = beanFields(cls, created);
+            typeMapper = beanMapper;
+        } else {
+            typeMapper = new FallbackMapper(fallback.typeMapper(type));
+        }
+
+        created.put(type, typeMapper);
+        return typeMapper;
+    }
+
+    private FieldMapper[] beanFields(final Class<?> cls, final Map<Type, TypeMapper> created) {
+
+        final List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> current = cls; current != null && current != Object.class; current = current.getSuperclass()) {
+            classes.add(0, current);
+        }
+
+        final List<FieldMapper> fields = new ArrayList<>();
+        for (Class<?> current : classes) {
+            for (Field field : current.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || field.getName().equals("metaClass")) {
+                    continue;
+                }
+                field.setAccessible(true);
+                final JsonIgnore jsonIgnore = field.getAnnotation(JsonIgnore.class);
+                fields.add(new FieldMapper(field, create(field.getGenericType(), created),
+                        jsonIgnore != null && jsonIgnore.value()));
+            }
+        }
+        return fields.toArray(new FieldMapper[fields.size()]);
+    }
+
+    private static boolean isBean(final Class<?> cls) {
+        return !cls.isInterface() && !Modifier.isAbstract(cls.getModifiers()) && !cls.isPrimitive()
+                && !cls.getName().startsWith("java.") && noArgConstructor(cls) != null;
+    }
+
+    private static Constructor<?> noArgConstructor(final Class<?> cls) {
+        try {
+            final Constructor<?> constructor = cls.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    private static Supplier<Collection<Object>> collectionSupplier(final Class<?> cls) {
+        if (cls.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        } else if (cls.isAssignableFrom(LinkedHashSet.class)) {
+            return LinkedHashSet::new;
+        } else if (cls.isAssignableFrom(TreeSet.class)) {
+            return TreeSet::new;
+        }
+        return null;
+    }
+
+    private static Supplier<Map<String, Object>> mapSupplier(final Class<?> cls) {
+        if (cls.isAssignableFrom(LinkedHashMap.class)) {
+            return LinkedHashMap::new;
+        } else if (cls.isAssignableFrom(TreeMap.class)) {
+            return TreeMap::new;
+        }
+        return null;
+    }
+
+    private static boolean isStringKey(final Type keyType) {
+        return keyType == String.class || keyType == Object.class;
+    }
+
+    private static Type typeArgument(final Type type, final int index) {
+        if (type instanceof ParameterizedType) {
+            final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                final Type argument = arguments[index];
+                if (argument instanceof WildcardType) {
+                    return ((WildcardType) argument).getUpperBounds()[0];
+                }
+                return argument instanceof Class || argument instanceof ParameterizedType
+                        || argument instanceof GenericArrayType ? argument : Object.class;
+            }
+        }
+        return Object.class;
+    }
+
+    private static void writeString(final StringBuilder out, final String value) {
+        out.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16));
+                        out.append(Character.forDigit(c & 0xf, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Mapper for one type. Null values are handled here, the subclasses only see values.
+     */
+    private abstract class TypeMapper implements JsonTypeMapper<Object> {
+
+        abstract Object readValue(JsonByteReader reader);
+
+        abstract void writeValue(StringBuilder out, Object value);
+
+        final Object read(final JsonByteReader reader) {
+            if (reader.readNull()) {
+                return null;
+            }
+            return readValue(reader);
+        }
+
+        final void write(final StringBuilder out, final Object value) {
+            if (value == null) {
+                out.append("null");
+            } else {
+                writeValue(out, value);
+            }
+        }
+
+        @Override
+        public Object fromJson(final byte[] json, final int offset, final int length) {
+            final JsonByteReader reader = new JsonByteReader(json, offset, length);
+            final Object value = read(reader);
+            reader.end();
+            return value;
+        }
+
+        @Override
+        public Object fromJsonArrayElement(final byte[] json, final int position) {
+            final JsonByteReader reader = new JsonByteReader(json, 0, json.length);
+            reader.expect('[');
+            for (int index = 0; index < position; index++) {
+                reader.skipValue();
+                if (!reader.tryRead(',')) {
+                    throw new IllegalArgumentException("JSON array has no element " + position);
+                }
+            }
+            return read(reader);
+        }
+
+        @Override
+        public String toJson(final Object value) {
+            final StringBuilder out = builderRef.get();
+            out.setLength(0);
+            write(out, value);
+            return out.toString();
+        }
+    }
+
+    private final class StringMapper extends TypeMapper {
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final int c = reader.peek();
+            if (c == '"') {
+                return reader.readString();
+            }
+            return String.valueOf(reader.readValue());
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            writeString(out, value.toString());
+        }
+    }
+
+    private final class IntegralMapper extends TypeMapper {
+
+        private final Class<?> type;
+
+        private IntegralMapper(final Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final long value = reader.readLong();
+            if (type == int.class || type == Integer.class) {
+                return (int) value;
+            } else if (type == long.class || type == Long.class) {
+                return value;
+            } else if (type == short.class || type == Short.class) {
+                return (short) value;
+            }
+            return (byte) value;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append(((Number) value).longValue());
+        }
+    }
+
+    private final class DecimalMapper extends TypeMapper {
+
+        private final boolean isFloat;
+
+        private DecimalMapper(final Class<?> type) {
+            this.isFloat = type == float.class || type == Float.class;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final double value = reader.readDouble();
+            return isFloat ? (Object) (float) value : (Object) value;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append(value);
+        }
+    }
+
+    private final class BooleanMapper extends TypeMapper {
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            return reader.readBoolean();
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append(value);
+        }
+    }
+
+    private final class EnumMapper extends TypeMapper {
+
+        private final Class type;
+
+        private EnumMapper(final Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object readValue(final JsonByteReader reader) {
+            return Enum.valueOf(type, reader.readString());
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            writeString(out, ((Enum) value).name());
+        }
+    }
+
+    /**
+     * Mapper for <code>Object</code>. Reads Strings, Numbers, Booleans, Lists and Maps, writes with the mapper of
+     * the class of the value.
+     */
+    private final class ValueMapper extends TypeMapper {
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            return reader.readValue();
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            if (value.getClass() == Object.class) {
+                out.append("{}");
+            } else {
+                writer(value).writeValue(out, value);
+            }
+        }
+    }
+
+    private final class ArrayMapper extends TypeMapper {
+
+        private final Class<?> componentType;
+        private TypeMapper componentMapper;
+
+        private ArrayMapper(final Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final List<Object> list = new ArrayList<>();
+            reader.expect('[');
+            if (!reader.tryRead(']')) {
+                do {
+                    list.add(componentMapper.read(reader));
+                } while (reader.tryRead(','));
+                reader.expect(']');
+            }
+            final Object array = Array.newInstance(componentType, list.size());
+            for (int index = 0; index < list.size(); index++) {
+                final Object element = list.get(index);
+                if (element != null || !componentType.isPrimitive()) {
+                    Array.set(array, index, element);
+                }
+            }
+            return array;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append('[');
+            final int length = Array.getLength(value);
+            for (int index = 0; index < length; index++) {
+                if (index > 0) {
+                    out.append(',');
+                }
+                componentMapper.write(out, Array.get(value, index));
+            }
+            out.append(']');
+        }
+    }
+
+    private final class CollectionMapper extends TypeMapper {
+
+        private final Supplier<Collection<Object>> supplier;
+        private TypeMapper elementMapper;
+
+        private CollectionMapper(final Supplier<Collection<Object>> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final Collection<Object> collection = supplier.get();
+            reader.expect('[');
+            if (!reader.tryRead(']')) {
+                do {
+                    collection.add(elementMapper.read(reader));
+                } while (reader.tryRead(','));
+                reader.expect(']');
+            }
+            return collection;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                elementMapper.write(out, element);
+            }
+            out.append(']');
+        }
+    }
+
+    private final class MapMapper extends TypeMapper {
+
+        private final Supplier<Map<String, Object>> supplier;
+        private TypeMapper valueMapper;
+
+        private MapMapper(final Supplier<Map<String, Object>> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final Map<String, Object> map = supplier.get();
+            reader.expect('{');
+            if (!reader.tryRead('}')) {
+                do {
+                    reader.readKey();
+                    final String key = reader.key();
+                    map.put(key, valueMapper.read(reader));
+                } while (reader.tryRead(','));
+                reader.expect('}');
+            }
+            return map;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                valueMapper.write(out, entry.getValue());
+            }
+            out.append('}');
+        }
+    }
+
+    private static final class FieldMapper {
+
+        private final Field field;
+        private final byte[] name;
+        private final String jsonName;
+        private final TypeMapper mapper;
+        private final boolean primitive;
+        private final boolean ignored;
+
+        private FieldMapper(final Field field, final TypeMapper mapper, final boolean ignored) {
+            this.field = field;
+            this.name = field.getName().getBytes(StandardCharsets.UTF_8);
+            this.jsonName = "\"" + field.getName() + "\":";
+            this.mapper = mapper;
+            this.primitive = field.getType().isPrimitive();
+            this.ignored = ignored;
+        }
+    }
+
+    private final class BeanMapper extends TypeMapper {
+
+        private final Constructor<?> constructor;
+        private FieldMapper[] fields;
+
+        private BeanMapper(final Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+
+            final Object bean;
+            try {
+                bean = constructor.newInstance();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Unable to create " + constructor.getDeclaringClass().getName(), ex);
+            }
+
+            reader.expect('{');
+            if (reader.tryRead('}')) {
+                return bean;
+            }
+
+            /* Properties usually come in field order, so the next field is tried first. */
+            int next = 0;
+            do {
+                reader.readKey();
+                final int index = find(reader, next);
+                if (index == -1) {
+                    reader.skipValue();
+                    continue;
+                }
+                final FieldMapper fieldMapper = fields[index];
+                final Object value = fieldMapper.mapper.read(reader);
+                if (value != null || !fieldMapper.primitive) {
+                    try {
+                        fieldMapper.field.set(bean, value);
+                    } catch (IllegalAccessException ex) {
+                        throw new IllegalStateException("Unable to set " + fieldMapper.field, ex);
+                    }
+                }
+                next = index + 1;
+            } while (reader.tryRead(','));
+            reader.expect('}');
+            return bean;
+        }
+
+        private int find(final JsonByteReader reader, final int next) {
+            for (int count = 0; count < fields.length; count++) {
+                final int index = (next + count) % fields.length;
+                if (reader.keyEquals(fields[index].name)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append('{');
+            boolean first = true;
+            for (FieldMapper fieldMapper : fields) {
+                if (fieldMapper.ignored) {
+                    continue;
+                }
+                final Object fieldValue;
+                try {
+                    fieldValue = fieldMapper.field.get(value);
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException("Unable to get " + fieldMapper.field, ex);
+                }
+                if (fieldValue == null) {
+                    continue;
+                }
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(fieldMapper.jsonName);
+                fieldMapper.mapper.writeValue(out, fieldValue);
+            }
+            out.append('}');
+        }
+    }
+
+    /**
+     * Hands the JSON of the value to the fallback codec.
+     */
+    private final class FallbackMapper extends TypeMapper {
+
+        private final JsonTypeMapper<Object> typeMapper;
+
+        private FallbackMapper(final JsonTypeMapper<Object> typeMapper) {
+            this.typeMapper = typeMapper;
+        }
+
+        @Override
+        Object readValue(final JsonByteReader reader) {
+            final int start = reader.position();
+            reader.skipValue();
+            return typeMapper.fromJson(reader.bytes(), start, reader.position() - start);
+        }
+
+        @Override
+        void writeValue(final StringBuilder out, final Object value) {
+            out.append(typeMapper.toJson(value));
+        }
+
+        @Override
+        public Object fromJsonArrayElement(final byte[] json, final int position) {
+            return typeMapper.fromJsonArrayElement(json, position);
+        }
+    }
+}
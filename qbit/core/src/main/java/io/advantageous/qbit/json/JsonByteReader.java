@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads JSON straight out of UTF-8 bytes, one value at a time, for the mappers of <code>CompiledJsonCodec</code>.
+ * Property names are compared as bytes, so they are never turned into Strings.
+ *
+ * @author rhightower
+ */
+final class JsonByteReader {
+
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    private int keyStart;
+    private int keyEnd;
+    private boolean keyEscaped;
+
+    JsonByteReader(final byte[] bytes, final int offset, final int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * @return the next byte that is not white space, without reading it
+     */
+    int peek() {
+        skipWhiteSpace();
+        return position < limit ? bytes[position] : -1;
+    }
+
+    int position() {
+        skipWhiteSpace();
+        return position;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    void expect(final char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    boolean tryRead(final char c) {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the next value was null, which is then read
+     */
+    boolean readNull() {
+        if (peek() == 'n') {
+            readLiteral("null");
+            return true;
+        }
+        return false;
+    }
+
+    void end() {
+        if (peek() != -1) {
+            throw error("Unexpected content after the value");
+        }
+    }
+
+    boolean readBoolean() {
+        final int c = peek();
+        if (c == 't') {
+            readLiteral("true");
+            return true;
+        } else if (c == 'f') {
+            readLiteral("false");
+            return false;
+        } else if (c == '"') {
+            return Boolean.parseBoolean(readString());
+        }
+        throw error("Expected a boolean");
+    }
+
+    long readLong() {
+        if (peek() == '"') {
+            return Long.parseLong(readString().trim());
+        }
+        final int start = position;
+        boolean decimal = scanNumber();
+        if (decimal) {
+            return (long) Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.ISO_8859_1));
+        }
+        return parseLong(start, position);
+    }
+
+    double readDouble() {
+        if (peek() == '"') {
+            return Double.parseDouble(readString().trim());
+        }
+        final int start = position;
+        scanNumber();
+        return Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.ISO_8859_1));
+    }
+
+    String readString() {
+        expect('"');
+        final int start = position;
+        boolean ascii = true;
+        while (position < limit) {
+            final byte b = bytes[position];
+            if (b == '"') {
+                final String value = new String(bytes, start, position - start,
+                        ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                position++;
+                return value;
+            } else if (b == '\\') {
+                return readEscapedString(start);
+            } else if (b < 0) {
+                ascii = false;
+            }
+            position++;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Reads a property name and the colon after it. Compare it with <code>keyEquals</code>.
+     */
+    void readKey() {
+        expect('"');
+        keyStart = position;
+        keyEscaped = false;
+        while (position < limit && bytes[position] != '"') {
+            if (bytes[position] == '\\') {
+                keyEscaped = true;
+                position++;
+            }
+            position++;
+        }
+        if (position >= limit) {
+            throw error("Unterminated property name");
+        }
+        keyEnd = position;
+        position++;
+        expect(':');
+    }
+
+    boolean keyEquals(final byte[] name) {
+        final int length = keyEnd - keyStart;
+        if (keyEscaped) {
+            final JsonByteReader keyReader = new JsonByteReader(bytes, keyStart - 1, length + 2);
+            return keyReader.readString().equals(new String(name, StandardCharsets.UTF_8));
+        }
+        if (length != name.length) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (bytes[keyStart + index] != name[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String key() {
+        return new JsonByteReader(bytes, keyStart - 1, keyEnd - keyStart + 2).readString();
+    }
+
+    /**
+     * Reads any value into Strings, Numbers, Booleans, Lists and Maps.
+     */
+    Object readValue() {
+        final int c = peek();
+        switch (c) {
+            case '"':
+                return readString();
+            case '{':
+                position++;
+                final Map<String, Object> map = new LinkedHashMap<>();
+                if (!tryRead('}')) {
+                    do {
+                        readKey();
+                        map.put(key(), readValue());
+                    } while (tryRead(','));
+                    expect('}');
+                }
+                return map;
+            case '[':
+                position++;
+                final List<Object> list = new ArrayList<>();
+                if (!tryRead(']')) {
+                    do {
+                        list.add(readValue());
+                    } while (tryRead(','));
+                    expect(']');
+                }
+                return list;
+            case 't':
+            case 'f':
+                return readBoolean();
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    void skipValue() {
+        final int c = peek();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                final byte b = bytes[position];
+                if (b == '"') {
+                    skipString();
+                    continue;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0 && position < limit);
+            if (depth > 0) {
+                throw error("Unterminated value");
+            }
+        } else {
+            while (position < limit) {
+                final byte b = bytes[position];
+                if (b == ',' || b == '}' || b == ']' || b <= ' ') {
+                    break;
+                }
+                position++;
+            }
+        }
+    }
+
+    private Object readNumber() {
+        final int start = position;
+        if (scanNumber()) {
+            return Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.ISO_8859_1));
+        }
+        if (position - start > 18) {
+            return Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.ISO_8859_1));
+        }
+        final long value = parseLong(start, position);
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the number has a fraction or an exponent
+     */
+    private boolean scanNumber() {
+        final int start = position;
+        boolean decimal = false;
+        while (position < limit) {
+            final byte b = bytes[position];
+            if (b >= '0' && b <= '9' || b == '-' || b == '+') {
+                position++;
+            } else if (b == '.' || b == 'e' || b == 'E') {
+                decimal = true;
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (position == start) {
+            throw error("Expected a value");
+        }
+        return decimal;
+    }
+
+    private long parseLong(final int start, final int end) {
+        int index = start;
+        final boolean negative = bytes[index] == '-';
+        if (negative) {
+            index++;
+        }
+        long value = 0;
+        for (; index < end; index++) {
+            final int digit = bytes[index] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("Bad number");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private String readEscapedString(final int start) {
+        final StringBuilder builder = new StringBuilder(position - start + 16);
+        int segmentStart = start;
+        while (position < limit) {
+            final byte b = bytes[position];
+            if (b == '"') {
+                builder.append(new String(bytes, segmentStart, position - segmentStart, StandardCharsets.UTF_8));
+                position++;
+                return builder.toString();
+            } else if (b == '\\') {
+                builder.append(new String(bytes, segmentStart, position - segmentStart, StandardCharsets.UTF_8));
+                position++;
+                if (position >= limit) {
+                    break;
+                }
+                final byte escaped = bytes[position++];
+                switch (escaped) {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > limit) {
+                            throw error("Bad unicode escape");
+                        }
+                        builder.append((char) Integer.parseInt(
+                                new String(bytes, position, 4, StandardCharsets.ISO_8859_1), 16));
+                        position += 4;
+                        break;
+                    default:
+                        builder.append((char) escaped);
+                }
+                segmentStart = position;
+            } else {
+                position++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipString() {
+        position++;
+        while (position < limit) {
+            final byte b = bytes[position];
+            if (b == '\\') {
+                position += 2;
+                continue;
+            }
+            position++;
+            if (b == '"') {
+                return;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void readLiteral(final String literal) {
+        for (int index = 0; index < literal.length(); index++) {
+            if (position >= limit || bytes[position] != literal.charAt(index)) {
+                throw error("Expected " + literal);
+            }
+            position++;
+        }
+    }
+
+    private void skipWhiteSpace() {
+        while (position < limit) {
+            final byte b = bytes[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException(message + " at " + position + " of the JSON");
+    }
+}
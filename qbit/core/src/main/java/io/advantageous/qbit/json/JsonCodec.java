@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import java.lang.reflect.Type;
+
+/**
+ * Codec SPI for JSON bodies. Hands out a <code>JsonTypeMapper</code> per type, so the work of looking at a
+ * type is done once, when a service method's parameter and return types are first used, and not per call.
+ * <p>
+ * The default codec is backed by the Boon <code>JsonMapper</code>.
+ *
+ * @author rhightower
+ */
+public interface JsonCodec {
+
+    /**
+     * @param type class or generic type, like the generic parameter type of a service method
+     * @return mapper for the type, the same one every time
+     */
+    JsonTypeMapper<Object> typeMapper(Type type);
+
+    default String toJson(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        return typeMapper(value.getClass()).toJson(value);
+    }
+}
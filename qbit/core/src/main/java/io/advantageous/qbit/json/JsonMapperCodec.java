@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import io.advantageous.boon.core.Value;
+import io.advantageous.boon.core.reflection.MapObjectConversion;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Codec that hands everything to a <code>JsonMapper</code>, one per thread. This is the default codec,
+ * backed by the Boon mapper. Bodies are mapped by their raw class, the way the JSON mapper always did.
+ *
+ * @author rhightower
+ */
+public class JsonMapperCodec implements JsonCodec {
+
+    private final ThreadLocal<JsonMapper> jsonMapper;
+
+    private final Map<Type, JsonTypeMapper<Object>> typeMappers = new ConcurrentHashMap<>();
+
+    public JsonMapperCodec(final Supplier<JsonMapper> jsonMapperSupplier) {
+        this.jsonMapper = new ThreadLocal<JsonMapper>() {
+            @Override
+            protected JsonMapper initialValue() {
+                return jsonMapperSupplier.get();
+            }
+        };
+    }
+
+    @Override
+    public JsonTypeMapper<Object> typeMapper(final Type type) {
+        return typeMappers.computeIfAbsent(type, key -> new MapperTypeMapper(rawClass(key)));
+    }
+
+    @Override
+    public String toJson(final Object value) {
+        return jsonMapper.get().toJson(value);
+    }
+
+    static Class<?> rawClass(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Object[].class;
+        }
+        return Object.class;
+    }
+
+    private final class MapperTypeMapper implements JsonTypeMapper<Object> {
+
+        private final Class<Object> type;
+
+        @SuppressWarnings("unchecked")
+        private MapperTypeMapper(final Class<?> type) {
+            this.type = (Class<Object>) type;
+        }
+
+        @Override
+        public Object fromJson(final byte[] json, final int offset, final int length) {
+            return fromJson(new String(json, offset, length, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object fromJson(final String json) {
+            if (type == Object.class) {
+                return jsonMapper.get().fromJson(json);
+            }
+            return jsonMapper.get().fromJson(json, type);
+        }
+
+        @Override
+        public Object fromJsonArrayElement(final byte[] json, final int position) {
+            final Object value = jsonMapper.get().fromJson(new String(json, StandardCharsets.UTF_8));
+            if (!(value instanceof List)) {
+                return value;
+            }
+            Object element = ((List) value).get(position);
+            if (element instanceof Value) {
+                element = ((Value) element).toValue();
+            }
+            if (element instanceof Map && type != Object.class && !Map.class.isAssignableFrom(type)) {
+                return MapObjectConversion.fromMap((Map) element, type);
+            }
+            return element;
+        }
+
+        @Override
+        public String toJson(final Object value) {
+            return jsonMapper.get().toJson(value);
+        }
+    }
+}
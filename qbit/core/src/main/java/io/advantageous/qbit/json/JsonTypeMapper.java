@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the JSON of one type. Created once per type by a <code>JsonCodec</code> and safe to share
+ * between threads.
+ *
+ * @param <T> type
+ * @author rhightower
+ */
+public interface JsonTypeMapper<T> {
+
+    /**
+     * Reads a value from UTF-8 JSON.
+     *
+     * @param json   UTF-8 JSON
+     * @param offset start of the JSON
+     * @param length length of the JSON
+     * @return value
+     */
+    T fromJson(byte[] json, int offset, int length);
+
+    default T fromJson(byte[] json) {
+        return fromJson(json, 0, json.length);
+    }
+
+    default T fromJson(String json) {
+        return fromJson(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads one element of a JSON array, like a positional argument out of a body that holds all of them.
+     *
+     * @param json     UTF-8 JSON array
+     * @param position index of the element
+     * @return value of the element
+     */
+    T fromJsonArrayElement(byte[] json, int position);
+
+    String toJson(T value);
+}
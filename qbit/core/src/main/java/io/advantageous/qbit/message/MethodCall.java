@@ -28,7 +28,18 @@ public interface MethodCall<T> extends Request<T> {
 
     String objectName();
 
+    /**
+     * @return time in ms (same clock as <code>timestamp</code>) after which nobody waits for the result of the call
+     * any more, 0 if the call has no deadline
+     */
+    default long deadline() {
+        return 0L;
+    }
 
+    default boolean isExpired(final long now) {
+        final long deadline = deadline();
+        return deadline != 0L && now >= deadline;
+    }
 
     default Object[] args() {
         Object body = this.body();
@@ -25,6 +25,7 @@ import io.advantageous.qbit.util.Timer;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MethodCallBuilder
@@ -50,6 +51,7 @@ public class MethodCallBuilder {
     private String objectName;
     private String returnAddress;
     private Request<Object> originatingRequest;
+    private long deadline;
 
     public static MethodCall<Object> transformed(final MethodCall<Object> methodCall,
                                                  final Object arg) {
@@ -65,7 +67,8 @@ public class MethodCallBuilder {
                 .setBody(arg)
                 .setObjectName(methodCall.objectName())
                 .setReturnAddress(methodCall.returnAddress())
-                .setOriginatingRequest(methodCall.originatingRequest()).build();
+                .setOriginatingRequest(methodCall.originatingRequest())
+                .setDeadline(methodCall.deadline()).build();
 
     }
 
@@ -193,6 +196,36 @@ public class MethodCallBuilder {
         return this;
     }
 
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Service queues drop the call instead of running it if it is still waiting at its deadline.
+     *
+     * @param deadline time in ms on the <code>Timer</code> clock, 0 for no deadline
+     * @return this
+     */
+    public MethodCallBuilder setDeadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Sets the deadline to the timestamp of the call plus the timeout.
+     *
+     * @param timeout  timeout
+     * @param timeUnit unit of the timeout
+     * @return this
+     */
+    public MethodCallBuilder setTimeout(long timeout, TimeUnit timeUnit) {
+        if (timestamp == 0L) {
+            timestamp = timer.now();
+        }
+        this.deadline = timestamp + timeUnit.toMillis(timeout);
+        return this;
+    }
+
     public MethodCall<Object> build() {
 
         if (timestamp == 0L) {
@@ -217,7 +250,7 @@ public class MethodCallBuilder {
         }
 
         return new MethodCallImpl(getTimestamp(), getId(), getName(), getAddress(), getParams(), getHeaders(),
-                getBody(), getObjectName(), getReturnAddress(), getOriginatingRequest());
+                getBody(), getObjectName(), getReturnAddress(), getOriginatingRequest(), getDeadline());
 
     }
 
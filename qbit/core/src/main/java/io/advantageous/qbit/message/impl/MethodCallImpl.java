@@ -39,11 +39,16 @@ public class MethodCallImpl implements MethodCall<Object> {
     private final Object body;
     private final String objectName;
     private final String returnAddress;
+    private final long deadline;
     private Object transformedBody;
     private Request<Object> originatingRequest;
 
 
     public MethodCallImpl(long timestamp, long id, String name, String address, MultiMap<String, String> params, MultiMap<String, String> headers, Object body, String objectName, String returnAddress, Request<Object> originatingRequest) {
+        this(timestamp, id, name, address, params, headers, body, objectName, returnAddress, originatingRequest, 0L);
+    }
+
+    public MethodCallImpl(long timestamp, long id, String name, String address, MultiMap<String, String> params, MultiMap<String, String> headers, Object body, String objectName, String returnAddress, Request<Object> originatingRequest, long deadline) {
         this.timestamp = timestamp;
         this.id = id;
         this.name = name;
@@ -54,6 +59,7 @@ public class MethodCallImpl implements MethodCall<Object> {
         this.objectName = objectName;
         this.returnAddress = returnAddress;
         this.originatingRequest = originatingRequest;
+        this.deadline = deadline;
     }
 
     @Override
@@ -66,6 +72,11 @@ public class MethodCallImpl implements MethodCall<Object> {
         return timestamp;
     }
 
+    @Override
+    public long deadline() {
+        return deadline;
+    }
+
     @Override
     public boolean isHandled() {
         return false;
@@ -169,6 +180,7 @@ public class MethodCallImpl implements MethodCall<Object> {
                 ", params=" + params +
                 ", body=" + body +
                 ", timestamp=" + timestamp +
+                ", deadline=" + deadline +
                 ", id=" + id +
                 ", objectName='" + objectName + '\'' +
                 ", returnAddress='" + returnAddress + '\'' +
@@ -18,8 +18,11 @@
 package io.advantageous.qbit.meta;
 
 import io.advantageous.boon.core.TypeType;
+import io.advantageous.qbit.annotation.JsonIgnore;
 import io.advantageous.qbit.meta.params.Param;
 
+import java.lang.reflect.Type;
+
 public class ParameterMeta {
 
     public static ParameterMeta[] parameters(final ParameterMeta... parameters) {
@@ -33,6 +36,11 @@ public class ParameterMeta {
         return new ParameterMeta(classType, typeType, param);
     }
 
+    public static ParameterMeta param(Class<?> classType, final Type genericType, final TypeType typeType,
+                                      final Param param) {
+        return new ParameterMeta(classType, genericType, typeType, param);
+    }
+
     public static ParameterMeta stringParam(final Param param) {
         return new ParameterMeta(null, TypeType.STRING, param);
     }
@@ -62,13 +70,21 @@ public class ParameterMeta {
 
 
     private final Class<?> classType;
+    @JsonIgnore
+    private final Type genericType;
     private final TypeType type;
     private final Param param;
 
     public ParameterMeta(final Class<?> classType, final TypeType typeType, final Param param) {
+        this(classType, classType, typeType, param);
+    }
+
+    public ParameterMeta(final Class<?> classType, final Type genericType, final TypeType typeType,
+                         final Param param) {
         this.type = typeType;
         this.param = param;
         this.classType = classType;
+        this.genericType = genericType;
     }
 
     public TypeType getType() {
@@ -79,6 +95,14 @@ public class ParameterMeta {
         return classType;
     }
 
+    /**
+     * @return generic type of the parameter, like <code>List&lt;Employee&gt;</code>, or its class
+     */
+    @JsonIgnore
+    public Type getGenericType() {
+        return genericType;
+    }
+
     public Param getParam() {
         return param;
     }
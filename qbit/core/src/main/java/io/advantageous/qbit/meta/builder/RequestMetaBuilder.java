@@ -102,6 +102,7 @@ public class RequestMetaBuilder {
                 if (annotationDataList == null || annotationDataList.size() == 0) {
                     Param requestParam = getParam(finalPath, null, index);
                     final ParameterMeta param = ParameterMeta.param(methodAccess.method().getParameterTypes()[index],
+                            methodAccess.method().getGenericParameterTypes()[index],
                             typeTypes.get(index), requestParam);
                     params.add(param);
                     continue;
@@ -115,6 +116,7 @@ public class RequestMetaBuilder {
 
                     if (requestParam != null) {
                         final ParameterMeta param = ParameterMeta.param(methodAccess.method().getParameterTypes()[index],
+                                methodAccess.method().getGenericParameterTypes()[index],
                                 typeTypes.get(index), requestParam);
                         params.add(param);
                         break;
@@ -19,13 +19,14 @@ package io.advantageous.qbit.meta.transformer;
 
 
 import io.advantageous.boon.core.Str;
-import io.advantageous.boon.core.reflection.MapObjectConversion;
 import io.advantageous.boon.core.reflection.MapperSimple;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.QBit;
 import io.advantageous.qbit.annotation.RequestMethod;
 import io.advantageous.qbit.http.request.HttpRequest;
+import io.advantageous.qbit.json.JsonCodec;
 import io.advantageous.qbit.json.JsonMapper;
+import io.advantageous.qbit.json.JsonTypeMapper;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.MethodCallBuilder;
 import io.advantageous.qbit.message.Request;
@@ -50,6 +51,9 @@ public class StandardRequestTransformer implements RequestTransformer {
 
     private final Map<RequestMethod, StandardMetaDataProvider> metaDataProviderMap;
 
+    /* Method calls get a deadline this long after their request came in, 0 for none. */
+    private final long timeoutInMillis;
+
     private final Factory factory = QBit.factory();
 
     protected final ThreadLocal<JsonMapper> jsonMapper = new ThreadLocal<JsonMapper>() {
@@ -59,9 +63,20 @@ public class StandardRequestTransformer implements RequestTransformer {
         }
     };
 
+    private final JsonCodec jsonCodec = factory.createJsonCodec();
+
+    /* Body mappers are looked up once per parameter, from its generic type. */
+    private final Map<ParameterMeta, JsonTypeMapper<Object>> bodyMappers = new ConcurrentHashMap<>();
+
 
     public StandardRequestTransformer(final Map<RequestMethod, StandardMetaDataProvider> metaDataProviderMap) {
+        this(metaDataProviderMap, 0L);
+    }
+
+    public StandardRequestTransformer(final Map<RequestMethod, StandardMetaDataProvider> metaDataProviderMap,
+                                      final long timeoutInMillis) {
         this.metaDataProviderMap = metaDataProviderMap;
+        this.timeoutInMillis = timeoutInMillis;
     }
 
 
@@ -76,6 +91,9 @@ public class StandardRequestTransformer implements RequestTransformer {
         MethodCallBuilder methodCallBuilder = new MethodCallBuilder();
         methodCallBuilder.setAddress(request.address());
         methodCallBuilder.setOriginatingRequest(request);
+        if (timeoutInMillis > 0 && request.timestamp() > 0) {
+            methodCallBuilder.setDeadline(request.timestamp() + timeoutInMillis);
+        }
 
         if (metaData==null) {
             errorsList.add("Unable to find handler");
@@ -162,46 +180,30 @@ public class StandardRequestTransformer implements RequestTransformer {
 
                 case BODY:
                     BodyParam bodyParam = (BodyParam) parameterMeta.getParam();
-                    value = request.body();
-                    if (value instanceof byte[]) {
-                        final byte[] bytes = (byte[]) value;
-                        value = new String(bytes, StandardCharsets.UTF_8);
-                    }
+                    final byte[] body = bodyBytes(request);
 
-                    if (bodyParam.isRequired() && Str.isEmpty(value)) {
+                    if (bodyParam.isRequired() && body.length == 0) {
 
                         errorsList.add("Unable to find body");
                         return null;
 
                     }
 
-                    value = jsonMapper.get().fromJson(value.toString(), parameterMeta.getClassType());
+                    value = bodyMapper(parameterMeta).fromJson(body);
                     break;
 
                 case BODY_BY_POSITION:
                     BodyArrayParam bodyArrayParam = (BodyArrayParam) parameterMeta.getParam();
-                    value = request.body();
-                    if (value instanceof byte[]) {
-                        final byte[] bytes = (byte[]) value;
-                        value = new String(bytes, StandardCharsets.UTF_8);
-                    }
+                    final byte[] arrayBody = bodyBytes(request);
 
-                    if (bodyArrayParam.isRequired() && Str.isEmpty(value)) {
+                    if (bodyArrayParam.isRequired() && arrayBody.length == 0) {
 
                         errorsList.add("Unable to find body");
                         return null;
 
                     }
 
-                    value = jsonMapper.get().fromJson(value.toString());
-
-                    if (value instanceof List) {
-                        final List list = (List) value;
-                        final Object o = list.get(bodyArrayParam.getPosition());
-                        if (o instanceof Map) {
-                           value = MapObjectConversion.fromMap(((Map) o), parameterMeta.getClassType());
-                        }
-                    }
+                    value = bodyMapper(parameterMeta).fromJsonArrayElement(arrayBody, bodyArrayParam.getPosition());
                     break;
 
                 default:
@@ -219,4 +221,20 @@ public class StandardRequestTransformer implements RequestTransformer {
         return methodCallBuilder.build();
 
     }
+
+    private JsonTypeMapper<Object> bodyMapper(final ParameterMeta parameterMeta) {
+        return bodyMappers.computeIfAbsent(parameterMeta, key -> jsonCodec.typeMapper(
+                key.getGenericType() != null ? key.getGenericType() : key.getClassType()));
+    }
+
+    private static byte[] bodyBytes(final HttpRequest request) {
+        final Object body = request.body();
+        if (body instanceof byte[]) {
+            return (byte[]) body;
+        } else if (body == null) {
+            return new byte[0];
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers that encoders write outgoing messages into, so the transport can hand them to the
+ * socket without copying them again.
+ * <p>
+ * Buffers are pooled in size classes that double from <code>bufferSize</code>, up to <code>maxPooled</code> per
+ * class. Messages bigger than the largest class get a heap buffer of their own, allocating a direct buffer for
+ * each of them would cost more than the copy the socket makes.
+ *
+ * @author rhightower
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 64;
+    public static final int DEFAULT_SIZE_CLASSES = 4;
+
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED,
+            DEFAULT_SIZE_CLASSES);
+
+    private final SizeClass[] sizeClasses;
+
+    public BufferPool(final int bufferSize, final int maxPooled) {
+        this(bufferSize, maxPooled, 1);
+    }
+
+    /**
+     * @param bufferSize  size of the smallest class
+     * @param maxPooled   buffers kept per class
+     * @param sizeClasses number of classes, each twice the size of the one before
+     */
+    public BufferPool(final int bufferSize, final int maxPooled, final int sizeClasses) {
+        if (bufferSize <= 0 || sizeClasses <= 0) {
+            throw new IllegalArgumentException("bufferSize and sizeClasses must be positive");
+        }
+        if ((long) bufferSize << (sizeClasses - 1) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("largest size class is too big");
+        }
+        this.sizeClasses = new SizeClass[sizeClasses];
+        for (int index = 0; index < sizeClasses; index++) {
+            this.sizeClasses[index] = new SizeClass(bufferSize << index, maxPooled);
+        }
+    }
+
+    public static BufferPool bufferPool() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param capacity bytes needed
+     * @return cleared buffer with at least capacity bytes
+     */
+    public ByteBuffer acquire(final int capacity) {
+        for (SizeClass sizeClass : sizeClasses) {
+            if (capacity <= sizeClass.size) {
+                return sizeClass.acquire();
+            }
+        }
+        return ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns the buffer to the pool. The buffer must not be used after this.
+     *
+     * @param buffer buffer from acquire
+     */
+    public void release(final ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        for (SizeClass sizeClass : sizeClasses) {
+            if (buffer.capacity() == sizeClass.size) {
+                sizeClass.release(buffer);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return buffers waiting in the pool over all size classes
+     */
+    public int pooled() {
+        int pooled = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            pooled += sizeClass.pooled.get();
+        }
+        return pooled;
+    }
+
+    public int bufferSize() {
+        return sizeClasses[0].size;
+    }
+
+    /**
+     * @return size of the largest class, bigger messages are not pooled
+     */
+    public int maxBufferSize() {
+        return sizeClasses[sizeClasses.length - 1].size;
+    }
+
+    private static final class SizeClass {
+
+        private final int size;
+        private final int maxPooled;
+        private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooled = new AtomicInteger();
+
+        private SizeClass(final int size, final int maxPooled) {
+            this.size = size;
+            this.maxPooled = maxPooled;
+        }
+
+        private ByteBuffer acquire() {
+            final ByteBuffer buffer = buffers.poll();
+            if (buffer == null) {
+                return ByteBuffer.allocateDirect(size);
+            }
+            pooled.decrementAndGet();
+            return buffer;
+        }
+
+        private void release(final ByteBuffer buffer) {
+            if (pooled.incrementAndGet() > maxPooled) {
+                pooled.decrementAndGet();
+                return;
+            }
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+}
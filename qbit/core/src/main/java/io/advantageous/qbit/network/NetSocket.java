@@ -18,6 +18,8 @@
 
 package io.advantageous.qbit.network;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 /**
@@ -43,6 +45,27 @@ public interface NetSocket {
 
     void sendBinary(byte[] bytes);
 
+    /**
+     * @see NetworkSender#acceptsBuffers(boolean)
+     */
+    default boolean acceptsBuffers(boolean text) {
+        return false;
+    }
+
+    /**
+     * @see NetworkSender#sendBuffer(ByteBuffer, boolean, Runnable)
+     */
+    default void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        release.run();
+        if (text) {
+            sendText(new String(bytes, StandardCharsets.UTF_8));
+        } else {
+            sendBinary(bytes);
+        }
+    }
+
     boolean isClosed();
 
     boolean isOpen();
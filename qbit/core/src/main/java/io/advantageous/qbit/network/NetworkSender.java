@@ -18,6 +18,9 @@
 
 package io.advantageous.qbit.network;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Created by rhightower on 2/14/15.
  */
@@ -29,6 +32,33 @@ public interface NetworkSender {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * @param text text or binary frame
+     * @return true if sendBuffer writes the buffer without turning it into a String or byte array first
+     */
+    default boolean acceptsBuffers(boolean text) {
+        return false;
+    }
+
+    /**
+     * Sends an encoded message, text as UTF-8. Calls release once the buffer is no longer needed, which may be
+     * after this returns.
+     *
+     * @param buffer  buffer positioned at the message
+     * @param text    send as a text frame
+     * @param release gives the buffer back to its pool
+     */
+    default void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        release.run();
+        if (text) {
+            sendText(new String(bytes, StandardCharsets.UTF_8));
+        } else {
+            sendBytes(bytes);
+        }
+    }
+
     default void close() {
     }
 
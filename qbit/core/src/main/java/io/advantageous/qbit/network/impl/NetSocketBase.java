@@ -23,6 +23,7 @@ import io.advantageous.qbit.network.NetSocket;
 import io.advantageous.qbit.network.NetworkSender;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -117,6 +118,21 @@ public class NetSocketBase implements NetSocket {
         }
     }
 
+    @Override
+    public boolean acceptsBuffers(boolean text) {
+        return networkSender.acceptsBuffers(text);
+    }
+
+    @Override
+    public void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+        try {
+            networkSender.sendBuffer(buffer, text, release);
+        } catch (Exception ex) {
+            /* Not released, the sender may still hold it. The pool allocates a new one. */
+            onError(ex);
+        }
+    }
+
     @Override
     public boolean isClosed() {
         return !open.get();
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * What a send queue does with a batch when the underlying queue is full.
+ *
+ * @author rhightower
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Wait until there is room. This is the default and the only behavior before overflow policies.
+     */
+    BLOCK,
+
+    /**
+     * Drop the batch that is being sent.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest batch in the queue to make room. Not supported by the ring buffers
+     * since only the consumer thread may take from them.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Reject the batch and call the <code>QueueOverflowHandler</code>.
+     */
+    FAIL_FAST
+}
@@ -76,6 +76,21 @@ public interface Queue<T> {
      */
     void startListener(ReceiveQueueListener<T> listener);
 
+    /**
+     * Wakes the listener up without an item, so it runs its empty/idle handling now instead of after the poll wait.
+     * For work that reaches the listener some other way, like responses staged by other threads.
+     */
+    default void wakeup() {
+    }
+
+    /**
+     * @return true if only one thread may send to the queue,
+     * see <code>QueueBuilder.setSingleProducerRingBuffer</code>
+     */
+    default boolean singleProducer() {
+        return false;
+    }
+
     /**
      * Stop the listener.
      */
@@ -19,8 +19,9 @@
 package io.advantageous.qbit.queue;
 
 import io.advantageous.qbit.GlobalConstants;
+import io.advantageous.qbit.concurrent.PinnedThreadGroup;
 import io.advantageous.qbit.config.PropertyResolver;
-import io.advantageous.qbit.queue.impl.BasicQueue;
+import io.advantageous.qbit.queue.impl.*;
 
 import java.util.Properties;
 import java.util.concurrent.*;
@@ -42,6 +43,20 @@ public class QueueBuilder implements Cloneable {
     private String name;
     private Class<? extends BlockingQueue> queueClass = ArrayBlockingQueue.class;
     private boolean checkIfBusy = false;
+    private WaitStrategy waitStrategy = new BlockingWaitStrategy();
+    private int batchArrayPoolSize = 0;
+    private boolean adaptiveBatching = false;
+    private int adaptiveBatchTargetLatency = 1;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private QueueOverflowHandler overflowHandler;
+    private int highWatermark = -1;
+    private int lowWatermark = -1;
+    private QueueWatermarkListener watermarkListener;
+    private boolean instrumented = false;
+    private int instrumentationSampleEvery = 16;
+    private boolean dedicatedListenerThread = false;
+    private PinnedThreadGroup listenerThreadGroup;
+    private QueueEventLoopGroup eventLoopGroup;
 
 
     public QueueBuilder(PropertyResolver propertyResolver) {
@@ -61,6 +76,30 @@ public class QueueBuilder implements Cloneable {
         this.queueClass =  propertyResolver
                 .getGenericPropertyWithDefault("queueClass", ArrayBlockingQueue.class);
 
+        this.waitStrategy = waitStrategy(propertyResolver
+                .getStringProperty("waitStrategy", "blocking"));
+        this.batchArrayPoolSize = propertyResolver
+                .getIntegerProperty("batchArrayPoolSize", 0);
+        this.adaptiveBatching = propertyResolver
+                .getBooleanProperty("adaptiveBatching", false);
+        this.adaptiveBatchTargetLatency = propertyResolver
+                .getIntegerProperty("adaptiveBatchTargetLatency", 1);
+        this.overflowPolicy = OverflowPolicy.valueOf(propertyResolver
+                .getStringProperty("overflowPolicy", OverflowPolicy.BLOCK.name()));
+        this.highWatermark = propertyResolver
+                .getIntegerProperty("highWatermark", -1);
+        this.lowWatermark = propertyResolver
+                .getIntegerProperty("lowWatermark", -1);
+        this.instrumented = propertyResolver
+                .getBooleanProperty("instrumented", false);
+        this.instrumentationSampleEvery = propertyResolver
+                .getIntegerProperty("instrumentationSampleEvery", 16);
+        this.dedicatedListenerThread = propertyResolver
+                .getBooleanProperty("dedicatedListenerThread", false);
+        if (propertyResolver.getBooleanProperty("sharedEventLoop", false)) {
+            this.eventLoopGroup = QueueEventLoopGroup.sharedEventLoopGroup();
+        }
+
     }
 
 
@@ -79,6 +118,22 @@ public class QueueBuilder implements Cloneable {
         return new QueueBuilder();
     }
 
+    private static WaitStrategy waitStrategy(final String name) {
+        switch (name) {
+            case "blocking":
+                return new BlockingWaitStrategy();
+            case "busySpin":
+                return new BusySpinWaitStrategy();
+            case "yielding":
+                return new YieldingWaitStrategy();
+            case "parking":
+                return new ParkingWaitStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy " + name
+                        + ", expected blocking, busySpin, yielding or parking");
+        }
+    }
+
     @Override
     protected Object clone() throws CloneNotSupportedException {
         return super.clone();
@@ -132,6 +187,284 @@ public class QueueBuilder implements Cloneable {
         return this;
     }
 
+    /**
+     * Use the lock free single producer / single consumer ring buffer.
+     * Only use this if exactly one thread sends to the queue and one thread receives from it.
+     * The size is rounded up to the next power of two.
+     *
+     * @return this
+     */
+    public QueueBuilder setSingleProducerRingBuffer() {
+        if (size == -1) {
+            size = GlobalConstants.NUM_BATCHES;
+        }
+
+        queueClass = SingleProducerRingBuffer.class;
+        return this;
+    }
+
+    /**
+     * Use the lock free multi producer / single consumer ring buffer.
+     * Each writer keeps batching in its own SendQueue, and claims a slot in the ring per batch with a CAS.
+     * The size is rounded up to the next power of two.
+     *
+     * @return this
+     */
+    public QueueBuilder setMultiProducerRingBuffer() {
+        if (size == -1) {
+            size = GlobalConstants.NUM_BATCHES;
+        }
+
+        queueClass = MultiProducerRingBuffer.class;
+        return this;
+    }
+
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Sets how the queue listener waits for items once the queue is empty.
+     *
+     * @param waitStrategy wait strategy
+     * @return this
+     */
+    public QueueBuilder setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    public QueueBuilder setBlockingWait() {
+        this.waitStrategy = new BlockingWaitStrategy();
+        return this;
+    }
+
+    public QueueBuilder setBusySpinWait() {
+        this.waitStrategy = new BusySpinWaitStrategy();
+        return this;
+    }
+
+    public QueueBuilder setYieldingWait() {
+        this.waitStrategy = new YieldingWaitStrategy();
+        return this;
+    }
+
+    public QueueBuilder setParkingWait() {
+        this.waitStrategy = new ParkingWaitStrategy();
+        return this;
+    }
+
+    public int getBatchArrayPoolSize() {
+        return batchArrayPoolSize;
+    }
+
+    /**
+     * Turns on batch array recycling. Send queues reuse arrays that the receive side has drained
+     * instead of allocating a new array per flush. 0 turns recycling off.
+     *
+     * @param batchArrayPoolSize max number of free arrays kept per queue
+     * @return this
+     */
+    public QueueBuilder setBatchArrayPoolSize(int batchArrayPoolSize) {
+        this.batchArrayPoolSize = batchArrayPoolSize;
+        return this;
+    }
+
+    public QueueBuilder setRecycleBatchArrays() {
+        this.batchArrayPoolSize = 64;
+        return this;
+    }
+
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    /**
+     * Turns on adaptive batching, which also turns on batch array recycling.
+     * Send queues start with a batch of 1 and grow toward batchSize while the
+     * consumer is behind, and shrink back toward 1 once it has caught up.
+     *
+     * @param adaptiveBatching adaptive batching
+     * @return this
+     */
+    public QueueBuilder setAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+        return this;
+    }
+
+    public int getAdaptiveBatchTargetLatency() {
+        return adaptiveBatchTargetLatency;
+    }
+
+    /**
+     * Hand off latency in milliseconds above which adaptive batching grows the batch size.
+     *
+     * @param adaptiveBatchTargetLatency target latency in milliseconds
+     * @return this
+     */
+    public QueueBuilder setAdaptiveBatchTargetLatency(int adaptiveBatchTargetLatency) {
+        this.adaptiveBatchTargetLatency = adaptiveBatchTargetLatency;
+        return this;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * What send queues do with a batch when the queue is full. Defaults to BLOCK.
+     *
+     * @param overflowPolicy overflow policy
+     * @return this
+     */
+    public QueueBuilder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public QueueOverflowHandler getOverflowHandler() {
+        return overflowHandler;
+    }
+
+    /**
+     * Handler for batches rejected under FAIL_FAST. Also sets the policy to FAIL_FAST.
+     *
+     * @param overflowHandler overflow handler
+     * @return this
+     */
+    public QueueBuilder setOverflowHandler(QueueOverflowHandler overflowHandler) {
+        this.overflowHandler = overflowHandler;
+        this.overflowPolicy = OverflowPolicy.FAIL_FAST;
+        return this;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * Sets the queue depth, in batches, at which the queue is over its high watermark and the depth at which
+     * it is back to normal. Send queues report this through <code>isOverHighWatermark()</code>.
+     *
+     * @param highWatermark high watermark in batches
+     * @param lowWatermark  low watermark in batches
+     * @return this
+     */
+    public QueueBuilder setWatermarks(int highWatermark, int lowWatermark) {
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        return this;
+    }
+
+    public QueueWatermarkListener getWatermarkListener() {
+        return watermarkListener;
+    }
+
+    public QueueBuilder setWatermarkListener(QueueWatermarkListener watermarkListener) {
+        this.watermarkListener = watermarkListener;
+        return this;
+    }
+
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * Records depth, enqueue/dequeue counts, batch sizes and time in queue.
+     * The stats are listed in <code>QueueStatsRegistry</code>.
+     *
+     * @param instrumented instrumented
+     * @return this
+     */
+    public QueueBuilder setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+        return this;
+    }
+
+    public int getInstrumentationSampleEvery() {
+        return instrumentationSampleEvery;
+    }
+
+    /**
+     * How often, in batches per send queue, an instrumented queue samples time in queue. Defaults to 16.
+     *
+     * @param instrumentationSampleEvery sample every n batches
+     * @return this
+     */
+    public QueueBuilder setInstrumentationSampleEvery(int instrumentationSampleEvery) {
+        this.instrumentationSampleEvery = instrumentationSampleEvery;
+        return this;
+    }
+
+    public boolean isDedicatedListenerThread() {
+        return dedicatedListenerThread;
+    }
+
+    /**
+     * Runs the queue listener on a plain thread instead of a scheduled executor, so it starts draining right away
+     * instead of after the 50 ms initial delay.
+     *
+     * @param dedicatedListenerThread dedicated listener thread
+     * @return this
+     */
+    public QueueBuilder setDedicatedListenerThread(boolean dedicatedListenerThread) {
+        this.dedicatedListenerThread = dedicatedListenerThread;
+        return this;
+    }
+
+    public PinnedThreadGroup getListenerThreadGroup() {
+        return listenerThreadGroup;
+    }
+
+    /**
+     * Runs the queue listener on a dedicated thread from the group, which names it and gives it a cpu hint.
+     *
+     * @param listenerThreadGroup listener thread group
+     * @return this
+     */
+    public QueueBuilder setListenerThreadGroup(PinnedThreadGroup listenerThreadGroup) {
+        this.listenerThreadGroup = listenerThreadGroup;
+        return this;
+    }
+
+    public QueueEventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * Runs the queue listener on one of the group's event loop threads, shared with other queues,
+     * instead of on a thread of its own.
+     *
+     * @param eventLoopGroup event loop group
+     * @return this
+     */
+    public QueueBuilder setEventLoopGroup(QueueEventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+        return this;
+    }
+
+    /**
+     * Runs the queue listener on the shared event loop group (one loop per core).
+     *
+     * @return this
+     */
+    public QueueBuilder setSharedEventLoop() {
+        this.eventLoopGroup = QueueEventLoopGroup.sharedEventLoopGroup();
+        return this;
+    }
+
+    private QueueFlowControl buildFlowControl() {
+        if (overflowPolicy == OverflowPolicy.BLOCK && highWatermark <= 0) {
+            return null;
+        }
+        return new QueueFlowControl(getName(), overflowPolicy, overflowHandler,
+                highWatermark, lowWatermark, watermarkListener);
+    }
 
     public int getSize() {
         return size;
@@ -183,7 +516,11 @@ public class QueueBuilder implements Cloneable {
 
     public <T> Queue<T> build() {
         return new BasicQueue<>(this.getName(), this.getPollWait(), TimeUnit.MILLISECONDS, this.getBatchSize(),
-                this.queueClass, this.isCheckIfBusy(), this.getSize(), this.getCheckEvery(), this.isTryTransfer());
+                this.queueClass, this.isCheckIfBusy(), this.getSize(), this.getCheckEvery(), this.isTryTransfer(),
+                this.getWaitStrategy(), this.getBatchArrayPoolSize(),
+                this.isAdaptiveBatching(), this.getAdaptiveBatchTargetLatency(), this.buildFlowControl(),
+                this.isInstrumented(), this.getInstrumentationSampleEvery(),
+                this.isDedicatedListenerThread(), this.getListenerThreadGroup(), this.getEventLoopGroup());
     }
 
 }
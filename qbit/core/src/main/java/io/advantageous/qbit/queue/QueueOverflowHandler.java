@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Called on the sending thread when a batch is rejected under <code>OverflowPolicy.FAIL_FAST</code>.
+ * Overflow listeners added with <code>SendQueue.addOverflowListener</code> are also called for batches that
+ * <code>DROP_NEWEST</code> or <code>DROP_OLDEST</code> drop.
+ *
+ * @author rhightower
+ */
+public interface QueueOverflowHandler {
+
+    /**
+     * @param queueName name of the queue that is full
+     * @param batch     exactly the items that were rejected or dropped
+     */
+    void overflow(String queueName, Object[] batch);
+}
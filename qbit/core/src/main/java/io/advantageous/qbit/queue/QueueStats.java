@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+import io.advantageous.qbit.util.Histogram;
+
+/**
+ * Depth, throughput and latency numbers for one instrumented queue.
+ * Turn instrumentation on with <code>QueueBuilder.setInstrumented(true)</code> and look the stats up with
+ * <code>QueueStatsRegistry</code>.
+ *
+ * @author rhightower
+ */
+public interface QueueStats {
+
+    /**
+     * @return unique stat name, the queue name with a suffix if more than one queue has that name
+     */
+    String getName();
+
+    /**
+     * @return number of batches waiting in the queue
+     */
+    int getDepth();
+
+    long getEnqueuedItems();
+
+    long getEnqueuedBatches();
+
+    long getDequeuedBatches();
+
+    /**
+     * @return items handed to the queue listener
+     */
+    long getProcessedItems();
+
+    /**
+     * @return how many times the listener went idle
+     */
+    long getIdleCount();
+
+    /**
+     * @return items per batch handed to the queue
+     */
+    Histogram getBatchSizes();
+
+    /**
+     * @return sampled time a batch spent in the queue, in microseconds
+     */
+    Histogram getTimeInQueue();
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * In process registry of the instrumented queues.
+ * <p>
+ * Queue names are not unique (every service has a "Send Queue"), so the registry hands out a unique stat name
+ * by adding ".2", ".3" and so on to the queue name.
+ *
+ * @author rhightower
+ */
+public class QueueStatsRegistry {
+
+    private static final ConcurrentMap<String, QueueStats> stats = new ConcurrentHashMap<>();
+
+    private QueueStatsRegistry() {
+    }
+
+    /**
+     * Creates and registers stats under a stat name that is not taken yet.
+     *
+     * @param queueName queue name
+     * @param factory   creates the stats for the unique stat name
+     * @param <S>       stats type
+     * @return registered stats
+     */
+    public static synchronized <S extends QueueStats> S register(final String queueName,
+                                                                 final Function<String, S> factory) {
+        final String name = queueName == null ? "queue" : queueName;
+        String statName = name;
+        int index = 2;
+        while (stats.containsKey(statName)) {
+            statName = name + "." + index;
+            index++;
+        }
+        final S queueStats = factory.apply(statName);
+        stats.put(statName, queueStats);
+        return queueStats;
+    }
+
+    public static void unregister(final QueueStats queueStats) {
+        stats.remove(queueStats.getName(), queueStats);
+    }
+
+    public static QueueStats queueStats(final String name) {
+        return stats.get(name);
+    }
+
+    public static List<QueueStats> allQueueStats() {
+        return new ArrayList<>(stats.values());
+    }
+}
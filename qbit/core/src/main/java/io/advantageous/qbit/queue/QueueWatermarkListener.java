@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Notified when the queue depth crosses the high watermark, and again when it falls back to the low watermark.
+ * Depth is counted in batches. The high watermark is reported on a sending thread and the low watermark on the
+ * receiving thread, so keep these quick.
+ *
+ * @author rhightower
+ */
+public interface QueueWatermarkListener {
+
+    default void highWatermark(String queueName, int depth) {
+    }
+
+    default void lowWatermark(String queueName, int depth) {
+    }
+}
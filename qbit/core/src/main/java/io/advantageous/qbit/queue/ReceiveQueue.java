@@ -72,4 +72,13 @@ public interface ReceiveQueue<T> extends Input {
      * @return batch of values
      */
     Iterable<T> readBatch();
+
+    /**
+     * Wait strategies that poll use this to stop waiting when the queue was woken up without an item.
+     *
+     * @return true once after a wakeup, see <code>Queue.wakeup</code>
+     */
+    default boolean wokenUp() {
+        return false;
+    }
 }
@@ -45,6 +45,47 @@ public interface SendQueue<T> extends Output {
 
     void flushSends();
 
+    /**
+     * Like <code>send</code> but reports what happened to the item if the queue is full.
+     * The status is BUFFERED until the local batch is handed off. It is only ever about the batch that holds
+     * the item; if an earlier batch is dropped its items go to the overflow listeners.
+     *
+     * @param item item
+     * @return status
+     */
+    default SendStatus trySend(T item) {
+        send(item);
+        return SendStatus.BUFFERED;
+    }
+
+    /**
+     * Like <code>sendAndFlush</code> but reports whether the batch made it into the queue.
+     *
+     * @param item item
+     * @return SENT, DROPPED or REJECTED
+     */
+    default SendStatus trySendAndFlush(T item) {
+        sendAndFlush(item);
+        return SendStatus.SENT;
+    }
+
+    /**
+     * @return true if the queue depth went over its high watermark and has not yet come back down to the low one
+     */
+    default boolean isOverHighWatermark() {
+        return false;
+    }
+
+    /**
+     * Adds a listener that is told about every batch of the queue that is dropped or rejected, including
+     * batches from other send queues that <code>DROP_OLDEST</code> takes out. Use it to answer the callers of
+     * items that will never run. Does nothing for queues that never drop.
+     *
+     * @param overflowListener listener, called on the thread that sent the batch that overflowed
+     */
+    default void addOverflowListener(QueueOverflowHandler overflowListener) {
+    }
+
     default void start(){}
     default void stop(){}
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Result of <code>SendQueue.trySend</code> and <code>SendQueue.trySendAndFlush</code>.
+ *
+ * @author rhightower
+ */
+public enum SendStatus {
+
+    /**
+     * The item was added to the local batch. Nothing was handed to the queue yet.
+     */
+    BUFFERED,
+
+    /**
+     * The batch holding the item was handed to the queue.
+     */
+    SENT,
+
+    /**
+     * The queue was full and the batch was dropped (<code>OverflowPolicy.DROP_NEWEST</code>).
+     */
+    DROPPED,
+
+    /**
+     * The queue was full, the batch was rejected and the overflow handler was called
+     * (<code>OverflowPolicy.FAIL_FAST</code>).
+     */
+    REJECTED;
+
+    public boolean failed() {
+        return this == DROPPED || this == REJECTED;
+    }
+}
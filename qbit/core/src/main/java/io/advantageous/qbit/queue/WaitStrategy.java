@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Decides how a ReceiveQueueManager waits for the next item once the queue is empty.
+ * <p>
+ * The manager calls this after it has drained the queue and called <code>empty()</code>.
+ * If no item shows up within the wait time (<code>QueueBuilder.pollWait</code>) the strategy returns null
+ * and the manager calls <code>idle()</code>, so listener callbacks fire the same way under every strategy.
+ * Strategies trade CPU for wake up latency: busy spin burns a core for the fastest hand-off,
+ * blocking sleeps in the queue until a producer signals it.
+ *
+ * @author rhightower
+ */
+public interface WaitStrategy {
+
+    /**
+     * Wait for the next item.
+     *
+     * @param queue         queue to wait on
+     * @param waitTimeNanos how long to wait before giving up
+     * @param <T>           type of item
+     * @return next item or null if the wait time was reached
+     */
+    <T> T waitForItem(ReceiveQueue<T> queue, long waitTimeNanos);
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base for the lock free ring buffers.
+ * <p>
+ * Sub classes provide the non blocking <code>offer</code> and <code>poll</code>.
+ * This class adds the blocking operations that <code>BasicSendQueue</code> and <code>BasicReceiveQueue</code> use
+ * without taking a lock. A consumer that has to wait publishes itself in <code>waitingConsumer</code> and parks;
+ * producers unpark it after they publish. A producer that finds the ring full backs off (spin, yield, park).
+ * <code>wakeup</code> unparks the consumer without publishing anything.
+ * <p>
+ * There is exactly one consumer thread. Iteration is weakly consistent: it walks a snapshot of the items between
+ * the consumer and producer sequences, and never removes anything.
+ *
+ * @author rhightower
+ */
+abstract class AbstractRingBuffer<T> extends AbstractQueue<T> implements BlockingQueue<T> {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    protected final int capacity;
+    protected final int mask;
+
+    protected final Sequence producerSequence = new Sequence(0);
+    protected final Sequence consumerSequence = new Sequence(0);
+
+    private volatile Thread waitingConsumer;
+
+    /**
+     * Set by <code>wakeup</code>, cleared by the consumer.
+     */
+    private volatile boolean wakeupPending;
+
+    protected AbstractRingBuffer(final int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive " + requestedCapacity);
+        }
+        this.capacity = nextPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+    }
+
+    static int nextPowerOfTwo(final int value) {
+        if (value > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity is too large " + value);
+        }
+        return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Producers call this after they publish an item.
+     * Publishing must be a volatile store so that this read can not be reordered ahead of it.
+     */
+    protected final void signalConsumer() {
+        final Thread thread = waitingConsumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Makes a consumer waiting in <code>poll(timeout)</code> return null now. Any thread may call this, nothing is
+     * written to the ring.
+     */
+    void wakeup() {
+        wakeupPending = true;
+        signalConsumer();
+    }
+
+    @Override
+    public void put(final T item) throws InterruptedException {
+        int tries = 0;
+        while (!offer(item)) {
+            tries = backOff(tries);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(final T item, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (offer(item)) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int tries = 0;
+        while (!offer(item)) {
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            tries = backOff(tries);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        T item = spinPoll();
+        if (item != null) {
+            return item;
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            while ((item = poll()) == null) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return item;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    @Override
+    public T poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        T item = spinPoll();
+        if (item != null) {
+            return item;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            while ((item = poll()) == null) {
+                if (wakeupPending) {
+                    wakeupPending = false;
+                    return null;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return item;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Spin and then yield for a bit before the consumer parks, since unparking costs the producer a system call.
+     *
+     * @return item or null
+     */
+    private T spinPoll() {
+        T item;
+        for (int tries = 0; tries < SPIN_TRIES + YIELD_TRIES; tries++) {
+            item = poll();
+            if (item != null) {
+                return item;
+            }
+            if (tries >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+        return null;
+    }
+
+    private static int backOff(final int tries) {
+        if (tries < SPIN_TRIES) {
+            return tries + 1;
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return tries + 1;
+        } else {
+            final int parks = tries - SPIN_TRIES - YIELD_TRIES;
+            LockSupport.parkNanos(Math.min(1_000L << Math.min(parks, 10), MAX_PARK_NANOS));
+            return tries + 1;
+        }
+    }
+
+    @Override
+    public int size() {
+        /* Read the consumer first so the difference can not go negative from a concurrent poll. */
+        final long head = consumerSequence.get();
+        final long tail = producerSequence.get();
+        final long size = tail - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return producerSequence.get() == consumerSequence.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int drainTo(final Collection<? super T> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super T> collection, final int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException("Can't drain a ring buffer into itself");
+        }
+        int count = 0;
+        T item;
+        while (count < maxElements && (item = poll()) != null) {
+            collection.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads the slot of a sequence without claiming it.
+     *
+     * @param sequence producer/consumer sequence of the slot
+     * @return item in the slot or null if it is empty or not published yet
+     */
+    protected abstract T itemAt(long sequence);
+
+    /**
+     * Returns a weakly consistent iterator over a snapshot of the queued items, for admin and stats code.
+     * Items polled while the snapshot is taken may or may not show up. The iterator does not support remove.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        final long head = consumerSequence.get();
+        final long tail = Math.min(producerSequence.get(), head + capacity);
+        final List<T> items = new ArrayList<>((int) Math.max(0, tail - head));
+        for (long sequence = head; sequence < tail; sequence++) {
+            final T item = itemAt(sequence);
+            /* Skip the slot if the consumer moved past it while we read, since a producer may have reused it. */
+            if (item == null || consumerSequence.get() > sequence) {
+                continue;
+            }
+            items.add(item);
+        }
+        return Collections.unmodifiableList(items).iterator();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{capacity=" + capacity + ", size=" + size() + "}";
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the batch size for send queues from what the consumer is doing.
+ * <p>
+ * Senders report every batch they hand off, the receiver reports every batch it picks up.
+ * Batches that flow control drops from the queue are reported too. The difference is the backlog in the queue.
+ * The receiver also keeps a moving average of the time from a batch's flush to its receive, using the flush time
+ * that the send queue records in the batch. If the consumer is behind (backlog, or slow hand off) send queues double their batch
+ * size, up to the configured <code>batchSize</code>. If the consumer has caught up they halve it, down to 1, so
+ * low traffic gets sent right away and bursts get big batches.
+ * <p>
+ * One sizer is shared by all send queues and the receive queue of a <code>BasicQueue</code>.
+ * Each send queue keeps its own current batch size.
+ *
+ * @author rhightower
+ */
+public class AdaptiveBatchSizer {
+
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong batchesReceived = new AtomicLong();
+    private final AtomicLong batchesDropped = new AtomicLong();
+    private final int maxBatchSize;
+    private final long targetLatencyNanos;
+
+    /**
+     * Only written by the receiving thread.
+     */
+    private volatile long receiveLatencyNanos;
+
+    public AdaptiveBatchSizer(final int maxBatchSize, final long targetLatencyNanos) {
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyNanos = targetLatencyNanos;
+    }
+
+    void sent() {
+        batchesSent.incrementAndGet();
+    }
+
+    /**
+     * Called by the receive queue for every batch it takes.
+     *
+     * @param flushNanos when the batch was flushed, 0 if the batch does not carry it (<code>sendMany</code>)
+     */
+    void received(final long flushNanos) {
+        batchesReceived.incrementAndGet();
+        if (flushNanos != 0) {
+            final long sample = System.nanoTime() - flushNanos;
+            final long latency = receiveLatencyNanos;
+            receiveLatencyNanos = latency + ((sample - latency) >> 3);
+        }
+    }
+
+    /**
+     * Called when a batch is taken out of the queue without being received, by <code>DROP_OLDEST</code>.
+     */
+    void dropped() {
+        batchesDropped.incrementAndGet();
+    }
+
+    /**
+     * Called by a send queue after a flush to pick the size of its next batch.
+     *
+     * @param currentBatchSize batch size used for the last flush
+     * @return batch size for the next flush
+     */
+    int nextBatchSize(final int currentBatchSize) {
+        /* The batch that was just sent is part of the backlog, anything more means the consumer is behind. */
+        if (getBacklog() > 1 || receiveLatencyNanos > targetLatencyNanos) {
+            return Math.min(currentBatchSize << 1, maxBatchSize);
+        }
+        return Math.max(currentBatchSize >> 1, 1);
+    }
+
+    /**
+     * @return batches sent but not yet picked up by the receiver
+     */
+    public long getBacklog() {
+        return batchesSent.get() - batchesReceived.get() - batchesDropped.get();
+    }
+
+    /**
+     * @return moving average of flush to receive time in nanoseconds
+     */
+    public long getReceiveLatencyNanos() {
+        return receiveLatencyNanos;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getTargetLatencyNanos() {
+        return targetLatencyNanos;
+    }
+}
@@ -24,7 +24,9 @@
 package io.advantageous.qbit.queue.impl;
 
 import io.advantageous.qbit.concurrent.PeriodicScheduler;
+import io.advantageous.qbit.queue.QueueOverflowHandler;
 import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.queue.SendStatus;
 
 import java.util.Collection;
 import java.util.concurrent.ScheduledFuture;
@@ -123,6 +125,38 @@ public class AutoFlushingSendQueue<T> implements SendQueue<T> {
         }
     }
 
+    @Override
+    public SendStatus trySend(T item) {
+
+        try {
+            lock.lock();
+            return sendQueue.trySend(item);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SendStatus trySendAndFlush(T item) {
+
+        try {
+            lock.lock();
+            return sendQueue.trySendAndFlush(item);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOverHighWatermark() {
+        return sendQueue.isOverHighWatermark();
+    }
+
+    @Override
+    public void addOverflowListener(QueueOverflowHandler overflowListener) {
+        sendQueue.addOverflowListener(overflowListener);
+    }
+
     @Override
     public boolean shouldBatch() {
         return sendQueue.shouldBatch();
@@ -22,6 +22,7 @@ import io.advantageous.boon.core.reflection.ClassMeta;
 import io.advantageous.boon.core.reflection.ConstructorAccess;
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.concurrent.ExecutorContext;
+import io.advantageous.qbit.concurrent.PinnedThreadGroup;
 import io.advantageous.qbit.queue.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TransferQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static io.advantageous.qbit.concurrent.DedicatedThreadBuilder.dedicatedThreadBuilder;
 import static io.advantageous.qbit.concurrent.ScheduledExecutorBuilder.scheduledExecutorBuilder;
 
 /**
@@ -55,6 +57,18 @@ public class BasicQueue<T> implements Queue<T> {
     private final boolean tryTransfer;
     private final boolean debug = GlobalConstants.DEBUG;
     private final int checkEvery;
+    private final BatchArrayPool batchArrayPool;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final QueueFlowControl flowControl;
+    private final QueueInstrumentation instrumentation;
+    private final boolean dedicatedListenerThread;
+    private final PinnedThreadGroup listenerThreadGroup;
+    private final QueueEventLoopGroup eventLoopGroup;
+    private final QueueEventLoopGroup.Wakeup eventLoopWakeup;
+    private final QueueWakeup queueWakeup;
+    private QueueEventLoopGroup.Registration<T> eventLoopRegistration;
+    private volatile long listenerStartTime;
+    private volatile long listenerStartupLatencyNanos = -1;
     private AtomicBoolean stop = new AtomicBoolean();
     private ExecutorContext executorContext;
 
@@ -65,7 +79,17 @@ public class BasicQueue<T> implements Queue<T> {
                       final Class<? extends BlockingQueue> queueClass,
                       final boolean checkIfBusy,
                       final int size,
-                      final int checkEvery, boolean tryTransfer) {
+                      final int checkEvery, boolean tryTransfer,
+                      final WaitStrategy waitStrategy,
+                      final int batchArrayPoolSize,
+                      final boolean adaptiveBatching,
+                      final long adaptiveBatchTargetLatency,
+                      final QueueFlowControl flowControl,
+                      final boolean instrumented,
+                      final int instrumentationSampleEvery,
+                      final boolean dedicatedListenerThread,
+                      final PinnedThreadGroup listenerThreadGroup,
+                      final QueueEventLoopGroup eventLoopGroup) {
 
 
         this.tryTransfer = tryTransfer;
@@ -76,8 +100,6 @@ public class BasicQueue<T> implements Queue<T> {
 
         boolean shouldCheckIfBusy;
 
-        this.receiveQueueManager = new BasicReceiveQueueManager<>();
-
 
         if (size == -1) {
             this.queue = ClassMeta.classMeta(queueClass).noArgConstructor().create();
@@ -104,6 +126,31 @@ public class BasicQueue<T> implements Queue<T> {
         }
 
         this.checkEvery = checkEvery;
+        /* Adaptive batching needs pooled arrays, their marker slot carries the flush time to the receiver. */
+        this.batchArrayPool = batchArrayPoolSize > 0 || adaptiveBatching
+                ? new BatchArrayPool(batchSize, batchArrayPoolSize > 0 ? batchArrayPoolSize : 64) : null;
+        this.adaptiveBatchSizer = adaptiveBatching
+                ? new AdaptiveBatchSizer(batchSize, timeUnit.toNanos(adaptiveBatchTargetLatency)) : null;
+
+        if (flowControl != null && flowControl.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST
+                && queue instanceof AbstractRingBuffer) {
+            throw new IllegalArgumentException("Queue " + name
+                    + " DROP_OLDEST overflow policy needs a queue that senders can take from, not a ring buffer");
+        }
+        this.flowControl = flowControl;
+        this.queueWakeup = new QueueWakeup(queue);
+        if (flowControl != null) {
+            flowControl.queueWakeup(queueWakeup);
+        }
+
+        this.instrumentation = instrumented ? QueueStatsRegistry.register(name,
+                statName -> new QueueInstrumentation(statName, queueWakeup::depth, instrumentationSampleEvery))
+                : null;
+        this.receiveQueueManager = new BasicReceiveQueueManager<>(waitStrategy, waitTime, timeUnit, instrumentation);
+        this.dedicatedListenerThread = dedicatedListenerThread || listenerThreadGroup != null;
+        this.listenerThreadGroup = listenerThreadGroup;
+        this.eventLoopGroup = eventLoopGroup;
+        this.eventLoopWakeup = eventLoopGroup != null ? new QueueEventLoopGroup.Wakeup() : null;
     }
 
 
@@ -115,7 +162,8 @@ public class BasicQueue<T> implements Queue<T> {
      */
     @Override
     public ReceiveQueue<T> receiveQueue() {
-        return new BasicReceiveQueue<>(queue, waitTime, timeUnit, batchSize);
+        return new BasicReceiveQueue<>(queue, waitTime, timeUnit, batchSize, batchArrayPool,
+                adaptiveBatchSizer, flowControl, instrumentation, queueWakeup);
     }
 
     /**
@@ -126,36 +174,139 @@ public class BasicQueue<T> implements Queue<T> {
      */
     @Override
     public SendQueue<T> sendQueue() {
-        return new BasicSendQueue<>(batchSize, this.queue, checkIfBusy, checkEvery, tryTransfer);
+        return new BasicSendQueue<>(batchSize, this.queue, checkIfBusy, checkEvery, tryTransfer, batchArrayPool,
+                adaptiveBatchSizer, flowControl, instrumentation, eventLoopWakeup);
+    }
+
+
+    /**
+     * A waiting listener gets no item and goes idle right away, see <code>QueueWakeup</code>.
+     * Listeners on an event loop are woken through the loop.
+     */
+    @Override
+    public void wakeup() {
+        queueWakeup.wakeup();
+        if (eventLoopWakeup != null) {
+            eventLoopWakeup.wakeup();
+        }
+    }
+
+
+    @Override
+    public boolean singleProducer() {
+        return queue instanceof SingleProducerRingBuffer;
+    }
+
+
+    /**
+     * Batch array free list, used to read the pool hit rate.
+     *
+     * @return pool or null if batch array recycling is off
+     */
+    public BatchArrayPool getBatchArrayPool() {
+        return batchArrayPool;
+    }
+
+
+    /**
+     * Adaptive batch sizer, used to read the backlog and hand off latency.
+     *
+     * @return sizer or null if adaptive batching is off
+     */
+    public AdaptiveBatchSizer getAdaptiveBatchSizer() {
+        return adaptiveBatchSizer;
+    }
+
+
+    /**
+     * Overflow policy and watermark state, used to read drop counts.
+     *
+     * @return flow control or null if the queue blocks when full and has no watermarks
+     */
+    public QueueFlowControl getFlowControl() {
+        return flowControl;
+    }
+
+
+    /**
+     * Depth, throughput and time in queue stats, also listed in <code>QueueStatsRegistry</code>.
+     *
+     * @return stats or null if the queue is not instrumented
+     */
+    public QueueStats getQueueStats() {
+        return instrumentation;
     }
 
 
     @Override
     public void startListener(final ReceiveQueueListener<T> listener) {
 
-        if (executorContext != null) {
+        if (executorContext != null || eventLoopRegistration != null) {
             throw new IllegalStateException("Queue.startListener::Unable to startClient up twice: " + name);
         }
 
-        this.executorContext = scheduledExecutorBuilder()
-                .setThreadName("QueueListener " + name)
-                .setInitialDelay(50)
-                .setPeriod(50).setRunnable(() -> manageQueue(listener))
-                .build();
+        listenerStartTime = System.nanoTime();
+        listenerStartupLatencyNanos = -1;
+
+        if (eventLoopGroup != null) {
+            eventLoopRegistration = eventLoopGroup.register(name, receiveQueue(), listener, batchSize,
+                    timeUnit.toNanos(waitTime), eventLoopWakeup, instrumentation);
+            listenerStartupLatencyNanos = System.nanoTime() - listenerStartTime;
+            return;
+        }
+
+        if (listenerThreadGroup != null) {
+            this.executorContext = listenerThreadGroup.newThreadContext("QueueListener " + name,
+                    () -> manageQueue(listener));
+        } else if (dedicatedListenerThread) {
+            this.executorContext = dedicatedThreadBuilder()
+                    .setThreadName("QueueListener " + name)
+                    .setRunnable(() -> manageQueue(listener))
+                    .build();
+        } else {
+            this.executorContext = scheduledExecutorBuilder()
+                    .setThreadName("QueueListener " + name)
+                    .setInitialDelay(50)
+                    .setPeriod(50).setRunnable(() -> manageQueue(listener))
+                    .build();
+        }
 
         executorContext.start();
     }
 
+    /**
+     * Time from <code>startListener</code> until the listener started draining the queue
+     * (or until it was handed to its event loop).
+     *
+     * @return startup latency in nanoseconds, -1 if the listener has not started yet
+     */
+    public long getListenerStartupLatencyNanos() {
+        return listenerStartupLatencyNanos;
+    }
+
     @Override
     public void stop() {
         stop.set(true);
         if (executorContext != null) {
             executorContext.stop();
         }
+        if (eventLoopRegistration != null) {
+            eventLoopRegistration.stop();
+        }
+        if (instrumentation != null) {
+            QueueStatsRegistry.unregister(instrumentation);
+        }
         stop = new AtomicBoolean();
     }
 
     private void manageQueue(ReceiveQueueListener<T> listener) {
+        if (listenerStartupLatencyNanos == -1) {
+            listenerStartupLatencyNanos = System.nanoTime() - listenerStartTime;
+            if (debug) {
+                logger.info("Queue " + name + " listener started in "
+                        + TimeUnit.NANOSECONDS.toMicros(listenerStartupLatencyNanos) + " micros");
+            }
+        }
         this.receiveQueueManager.manageQueue(receiveQueue(), listener, batchSize, stop);
     }
 }
@@ -39,14 +39,32 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
     private final TimeUnit timeUnit;
     private final int batchSize;
     private final BlockingQueue<Object> queue;
+    private final BatchArrayPool batchArrayPool;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final QueueFlowControl flowControl;
+    private final QueueInstrumentation instrumentation;
+    private final QueueWakeup queueWakeup;
     private Object[] lastQueue = null;
     private int lastQueueIndex;
+    private boolean lastQueuePooled;
 
     public BasicReceiveQueue(BlockingQueue<Object> queue, long waitTime, TimeUnit timeUnit, int batchSize) {
+        this(queue, waitTime, timeUnit, batchSize, null, null, null, null, null);
+    }
+
+    public BasicReceiveQueue(BlockingQueue<Object> queue, long waitTime, TimeUnit timeUnit, int batchSize,
+                             BatchArrayPool batchArrayPool, AdaptiveBatchSizer adaptiveBatchSizer,
+                             QueueFlowControl flowControl, QueueInstrumentation instrumentation,
+                             QueueWakeup queueWakeup) {
+        this.instrumentation = instrumentation;
+        this.queueWakeup = queueWakeup;
+        this.adaptiveBatchSizer = adaptiveBatchSizer;
+        this.flowControl = flowControl != null && flowControl.tracksWatermarks() ? flowControl : null;
         this.queue = queue;
         this.waitTime = waitTime;
         this.timeUnit = timeUnit;
         this.batchSize = batchSize;
+        this.batchArrayPool = batchArrayPool;
     }
 
     @Override
@@ -70,9 +88,14 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
     private T getItemFromLocalQueue() {
 
         if (lastQueue.length == 0) {
+            lastQueue = null;
             return null;
         }
 
+        if (lastQueuePooled) {
+            return getItemFromPooledQueue();
+        }
+
         T item = (T) lastQueue[lastQueueIndex];
         lastQueueIndex++;
 
@@ -85,6 +108,31 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
     }
 
 
+    /**
+     * Pooled arrays hold as many items as the sender recorded in the marker slot, any of which may be null.
+     * Slots are cleared as they are read so the array can go back to the pool.
+     */
+    private T getItemFromPooledQueue() {
+
+        final Object[] array = lastQueue;
+        final int count = BatchArrayPool.count(array);
+        T item = null;
+        if (lastQueueIndex < count) {
+            item = (T) array[lastQueueIndex];
+            array[lastQueueIndex] = null;
+            lastQueueIndex++;
+        }
+
+        if (lastQueueIndex >= count) {
+            lastQueueIndex = 0;
+            lastQueue = null;
+            lastQueuePooled = false;
+            batchArrayPool.recycle(array);
+        }
+        return item;
+    }
+
+
     @Override
     public T poll() {
 
@@ -107,6 +155,10 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
 
         try {
             Object o = queue.take();
+            while (o != null && o == queueWakeup) {
+                queueWakeup.markerRemoved();
+                o = queue.take();
+            }
             return extractItem(o);
 
         } catch (InterruptedException e) {
@@ -117,9 +169,28 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
 
     private T extractItem(Object o) {
 
+        while (o != null && o == queueWakeup) {
+            queueWakeup.markerRemoved();
+            o = queue.poll();
+        }
+
+        if (o != null) {
+            if (adaptiveBatchSizer != null) {
+                adaptiveBatchSizer.received(o instanceof Object[] && batchArrayPool != null
+                        && BatchArrayPool.isPooled((Object[]) o) ? BatchArrayPool.flushNanos((Object[]) o) : 0);
+            }
+            if (flowControl != null) {
+                flowControl.received(queue);
+            }
+            if (instrumentation != null) {
+                instrumentation.received(o);
+            }
+        }
+
         if (o instanceof Object[]) {
 
             lastQueue = (Object[]) o;
+            lastQueuePooled = batchArrayPool != null && BatchArrayPool.isPooled(lastQueue);
             //uts("batch size", lastQueue.length);
             return getItemFromLocalQueue();
         } else {
@@ -148,6 +219,11 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
         return readBatch(batchSize);
     }
 
+    @Override
+    public boolean wokenUp() {
+        return queueWakeup != null && queueWakeup.wokenUp();
+    }
+
     @Override
     public int hashCode() {
         return queue.hashCode();
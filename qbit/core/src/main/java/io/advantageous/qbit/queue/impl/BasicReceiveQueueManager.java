@@ -23,7 +23,9 @@ import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.queue.ReceiveQueue;
 import io.advantageous.qbit.queue.ReceiveQueueListener;
 import io.advantageous.qbit.queue.ReceiveQueueManager;
+import io.advantageous.qbit.queue.WaitStrategy;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -35,64 +37,105 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
 
     private final boolean debug = false || GlobalConstants.DEBUG;
+    private final WaitStrategy waitStrategy;
+    private final long waitTimeNanos;
+    private final QueueInstrumentation instrumentation;
 
+    public BasicReceiveQueueManager(final WaitStrategy waitStrategy, final long waitTime, final TimeUnit timeUnit) {
+        this(waitStrategy, waitTime, timeUnit, null);
+    }
 
-    //boolean sleepWait = false;
+    public BasicReceiveQueueManager(final WaitStrategy waitStrategy, final long waitTime, final TimeUnit timeUnit,
+                                    final QueueInstrumentation instrumentation) {
+        this.waitStrategy = waitStrategy;
+        this.waitTimeNanos = timeUnit.toNanos(waitTime);
+        this.instrumentation = instrumentation;
+    }
 
-    @Override
-    public void manageQueue(ReceiveQueue<T> inputQueue, ReceiveQueueListener<T> listener, int batchSize, AtomicBoolean stop) {
+    public BasicReceiveQueueManager() {
+        this(new BlockingWaitStrategy(), GlobalConstants.POLL_WAIT, TimeUnit.MILLISECONDS);
+    }
 
 
-        T item = inputQueue.poll(); //Initialize things.
+    /**
+     * Hands items to the listener until the queue is empty or the batch limit is hit, and then calls empty.
+     * <code>QueueEventLoopGroup</code> uses this too, so listeners see the same startBatch/receive/limit/empty
+     * sequence in every listener mode.
+     *
+     * @param item       first item, may be null
+     * @param inputQueue queue
+     * @param listener   listener
+     * @param batchSize  batch limit
+     * @return number of items processed
+     */
+    static <T> int processBatch(T item, final ReceiveQueue<T> inputQueue, final ReceiveQueueListener<T> listener,
+                                final int batchSize) {
 
         int count = 0;
-        long longCount = 0;
+        int processed = 0;
 
-        /* Continues forever or until someone calls stop. */
-        while (true) {
+        /* Collect a batch of items as long as no item is null. */
+        while (item != null) {
 
+            listener.startBatch();
 
-            /* Collect a batch of items as long as no item is null. */
-            while (item != null) {
+            count++;
 
-                listener.startBatch();
+            /* Notify listener that we have an item. */
+            listener.receive(item);
+            processed++;
 
-                count++;
 
-                /* Notify listener that we have an item. */
-                listener.receive(item);
+            /* If the batch size has hit the max then we need to break. */
+            if (count >= batchSize) {
 
+                if (GlobalConstants.DEBUG) {
+                    System.out.println("BasicReceiveQueueManager limit reached " + batchSize);
+                }
+                listener.limit();
+                break;
+            }
+            /* Grab the next item from the queue. */
+            item = inputQueue.poll();
+            count++;
 
-                /* If the batch size has hit the max then we need to break. */
-                if (count >= batchSize) {
+        }
 
-                    if (debug) {
-                        System.out.println("BasicReceiveQueueManager limit reached " + batchSize);
-                    }
-                    listener.limit();
-                    break;
-                }
-                /* Grab the next item from the queue. */
-                item = inputQueue.poll();
-                count++;
+        /* Notify listener that the queue is empty. */
+        listener.empty();
+        return processed;
+    }
 
-            }
+    //boolean sleepWait = false;
 
-            /* Notify listener that the queue is empty. */
-            listener.empty();
+    @Override
+    public void manageQueue(ReceiveQueue<T> inputQueue, ReceiveQueueListener<T> listener, int batchSize, AtomicBoolean stop) {
+
+
+        T item = inputQueue.poll(); //Initialize things.
+
+        long longCount = 0;
+
+        /* Continues forever or until someone calls stop. */
+        while (true) {
+
+
+            final int processed = processBatch(item, inputQueue, listener, batchSize);
+
+            if (instrumentation != null) {
+                instrumentation.processed(processed);
+            }
 
             if (debug) {
-                System.out.println("BasicReceiveQueueManager empty queue count was " + count + " " + Thread.currentThread().getName());
+                System.out.println("BasicReceiveQueueManager empty queue processed " + processed + " " + Thread.currentThread().getName());
                 Sys.sleep(1_000);
             }
 
-            count = 0;
-
 
 
             /* Get the next item, but wait this time since the queue was empty. */
 
-            item = inputQueue.pollWait();
+            item = waitStrategy.waitForItem(inputQueue, waitTimeNanos);
 
 
             if (item == null) {
@@ -111,6 +154,10 @@ public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
                  */
                 listener.idle();
 
+                if (instrumentation != null) {
+                    instrumentation.idle();
+                }
+
                 if (stop.get()) {
                     listener.shutdown();
                     return;
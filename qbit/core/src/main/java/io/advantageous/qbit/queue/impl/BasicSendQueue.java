@@ -18,9 +18,12 @@
 
 package io.advantageous.qbit.queue.impl;
 
+import io.advantageous.qbit.queue.QueueOverflowHandler;
 import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.queue.SendStatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -40,13 +43,20 @@ public class BasicSendQueue<T> implements SendQueue<T> {
 
     private final TransferQueue<Object> transferQueue;
 
-    private final Object[] queueLocal;
+    private final BatchArrayPool batchArrayPool;
+    private final AdaptiveBatchSizer adaptiveBatchSizer;
+    private final QueueFlowControl flowControl;
+    private final QueueInstrumentation instrumentation;
+    private final QueueEventLoopGroup.Wakeup wakeup;
+    private Object[] queueLocal;
     private final int checkBusyEvery;
     private final boolean tryTransfer;
     private final boolean checkBusy;
     private final int batchSize;
+    private int currentBatchSize;
     private int index;
     private int checkEveryCount = 0;
+    private long batchCount;
 
     public BasicSendQueue(
             final int batchSize,
@@ -54,11 +64,31 @@ public class BasicSendQueue<T> implements SendQueue<T> {
             final boolean checkBusy,
             final int checkBusyEvery,
             final boolean tryTransfer) {
+        this(batchSize, queue, checkBusy, checkBusyEvery, tryTransfer, null, null, null, null, null);
+    }
+
+    public BasicSendQueue(
+            final int batchSize,
+            final BlockingQueue<Object> queue,
+            final boolean checkBusy,
+            final int checkBusyEvery,
+            final boolean tryTransfer,
+            final BatchArrayPool batchArrayPool,
+            final AdaptiveBatchSizer adaptiveBatchSizer,
+            final QueueFlowControl flowControl,
+            final QueueInstrumentation instrumentation,
+            final QueueEventLoopGroup.Wakeup wakeup) {
 
         this.tryTransfer = tryTransfer;
         this.batchSize = batchSize;
+        this.adaptiveBatchSizer = adaptiveBatchSizer;
+        this.flowControl = flowControl;
+        this.instrumentation = instrumentation;
+        this.wakeup = wakeup;
+        this.currentBatchSize = adaptiveBatchSizer == null ? batchSize : 1;
         this.queue = queue;
-        queueLocal = new Object[batchSize];
+        this.batchArrayPool = batchArrayPool;
+        queueLocal = batchArrayPool == null ? new Object[batchSize] : batchArrayPool.take();
         if (queue instanceof TransferQueue && checkBusy) {
             transferQueue = ((TransferQueue) queue);
             this.checkBusy = true;
@@ -102,6 +132,10 @@ public class BasicSendQueue<T> implements SendQueue<T> {
 
         }
 
+        if (adaptiveBatchSizer != null) {
+            return currentBatchSize > 1;
+        }
+
         return true;//might be other ways to determine this like flow control, not implemented yet.
 
     }
@@ -120,41 +154,81 @@ public class BasicSendQueue<T> implements SendQueue<T> {
         flushSends();
     }
 
+    /**
+     * Flushes like <code>send</code> (full batch or waiting consumer), but after the item is added, so the status
+     * is about the batch that holds the item. Items of a pending batch that fails here go to the overflow listeners.
+     */
+    @Override
+    public SendStatus trySend(final T item) {
+        if (index >= currentBatchSize) {
+            sendLocalQueue();
+        }
+        queueLocal[index] = item;
+        index++;
+        return flushIfOverBatch();
+    }
+
+    @Override
+    public SendStatus trySendAndFlush(final T item) {
+        if (index >= currentBatchSize) {
+            sendLocalQueue();
+        }
+        queueLocal[index] = item;
+        index++;
+        return sendLocalQueue();
+    }
+
+    @Override
+    public void addOverflowListener(final QueueOverflowHandler overflowListener) {
+        if (flowControl != null) {
+            flowControl.addOverflowListener(overflowListener);
+        }
+    }
+
+    @Override
+    public boolean isOverHighWatermark() {
+        return flowControl != null && flowControl.isOverHighWatermark();
+    }
+
     @SafeVarargs
     @Override
     public final void sendMany(T... items) {
         flushSends();
-        sendArray(items);
+        sendArray(items, items.length);
     }
 
     @Override
     public void sendBatch(Iterable<T> items) {
         flushSends();
         final Object[] array = objectArray(items);
-        sendArray(array);
+        sendArray(array, array.length);
     }
 
     @Override
     public void sendBatch(Collection<T> items) {
         flushSends();
         final Object[] array = objectArray(items);
-        sendArray(array);
+        sendArray(array, array.length);
 
     }
 
-    private void flushIfOverBatch() {
+    /**
+     * @return status of the flush, BUFFERED if the batch was not flushed
+     */
+    private SendStatus flushIfOverBatch() {
 
-        if (index >= batchSize) {
-            sendLocalQueue();
+        if (index >= currentBatchSize) {
+            return sendLocalQueue();
         } else if (checkBusy) {
             checkEveryCount++;
             if (checkEveryCount > this.checkBusyEvery) {
                 checkEveryCount = 0;
                 if (transferQueue.hasWaitingConsumer()) {
-                    sendLocalQueue();
+                    return sendLocalQueue();
                 }
             }
         }
+        return SendStatus.BUFFERED;
     }
 
     @Override
@@ -164,16 +238,38 @@ public class BasicSendQueue<T> implements SendQueue<T> {
         }
     }
 
-    private void sendLocalQueue() {
+    private SendStatus sendLocalQueue() {
+
+        if (batchArrayPool != null) {
+            /* Hand off the pooled array itself, the receiver recycles it once it is drained. */
+            final int length = index;
+            BatchArrayPool.setCount(queueLocal, length);
+            if (adaptiveBatchSizer != null) {
+                BatchArrayPool.setFlushNanos(queueLocal, System.nanoTime());
+            }
+            final Object[] batch = queueLocal;
+            queueLocal = batchArrayPool.take();
+            index = 0;
+            final SendStatus status = sendArray(batch, length);
+            if (status.failed()) {
+                /* Never handed off so nobody else has it. */
+                Arrays.fill(batch, 0, length, null);
+                batchArrayPool.recycle(batch);
+            }
+            return status;
+        }
 
         final Object[] copy = fastObjectArraySlice(queueLocal, 0, index);
-        sendArray(copy);
         index = 0;
+        return sendArray(copy, copy.length);
     }
 
-    private void sendArray(
-            final Object[] array) {
+    private SendStatus sendArray(
+            final Object[] array, final int items) {
 
+        if (instrumentation != null) {
+            instrumentation.beforeSend(array, batchCount++);
+        }
 
         if (checkBusy && tryTransfer) {
             if (!transferQueue.tryTransfer(array)) {
@@ -181,13 +277,42 @@ public class BasicSendQueue<T> implements SendQueue<T> {
             }
         } else if (checkBusy) {
             transferQueue.offer(array);
-        } else  {
+        } else if (flowControl != null) {
+            final SendStatus status = flowControl.send(queue, array, adaptiveBatchSizer);
+            if (status.failed()) {
+                if (instrumentation != null) {
+                    instrumentation.notSent(array);
+                }
+                return status;
+            }
+        } else {
             try {
                 queue.put(array);
             } catch (InterruptedException e) {
                 throw new IllegalStateException("Unable to send", e);
             }
         }
+
+        if (wakeup != null) {
+            wakeup.wakeup();
+        }
+
+        if (instrumentation != null) {
+            instrumentation.sent(items);
+        }
+
+        if (adaptiveBatchSizer != null) {
+            adaptiveBatchSizer.sent();
+            currentBatchSize = adaptiveBatchSizer.nextBatchSize(currentBatchSize);
+        }
+        return SendStatus.SENT;
+    }
+
+    /**
+     * @return size the current batch is flushed at, only differs from the batch size with adaptive batching
+     */
+    public int getCurrentBatchSize() {
+        return currentBatchSize;
     }
 
     @Override
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per queue free list of batch arrays.
+ * <p>
+ * When batch array recycling is turned on, <code>BasicSendQueue</code> fills a pooled array and sends that array
+ * instead of copying its local buffer into a new <code>Object[]</code> on every flush.
+ * <code>BasicReceiveQueue</code> nulls out each slot as it reads it and hands the drained array back here.
+ * In steady state no arrays are allocated on the hand off path.
+ * <p>
+ * Pooled arrays are one slot longer than the batch size. The last slot holds a private marker so the receive side
+ * can tell a pooled array from an array passed to <code>sendMany</code> or <code>sendBatch</code>, which belong to
+ * the caller and are never recycled. The marker records how many items the sender put in the array, so a null
+ * item sent by the producer is delivered like any other item.
+ * <p>
+ * The free list is a fixed set of slots that are claimed and filled with CAS, so it is safe for many senders
+ * and receivers and does not allocate.
+ *
+ * @author rhightower
+ */
+public class BatchArrayPool {
+
+    /**
+     * Last slot of every pooled array. It stays with its array for the array's whole life.
+     */
+    private static final class BatchMarker {
+        private int count;
+        private long flushNanos;
+    }
+
+    private final AtomicReferenceArray<Object[]> slots;
+    private final int poolSize;
+    private final int batchSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder recycled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public BatchArrayPool(final int batchSize, final int poolSize) {
+        this.batchSize = batchSize;
+        this.poolSize = poolSize;
+        this.slots = new AtomicReferenceArray<>(poolSize);
+    }
+
+    static boolean isPooled(final Object[] array) {
+        return array.length > 0 && array[array.length - 1] instanceof BatchMarker;
+    }
+
+    /**
+     * Records how many items were put in a pooled array, called by the sender before it hands the array off.
+     *
+     * @param array pooled array
+     * @param count number of items
+     */
+    static void setCount(final Object[] array, final int count) {
+        ((BatchMarker) array[array.length - 1]).count = count;
+    }
+
+    /**
+     * @param array pooled array
+     * @return number of items the sender put in the array
+     */
+    static int count(final Object[] array) {
+        return ((BatchMarker) array[array.length - 1]).count;
+    }
+
+    /**
+     * Records when the sender flushed a pooled array, for adaptive batching.
+     *
+     * @param array      pooled array
+     * @param flushNanos <code>System.nanoTime()</code> of the flush
+     */
+    static void setFlushNanos(final Object[] array, final long flushNanos) {
+        ((BatchMarker) array[array.length - 1]).flushNanos = flushNanos;
+    }
+
+    /**
+     * @param array pooled array
+     * @return <code>System.nanoTime()</code> of the flush, 0 if it was not recorded
+     */
+    static long flushNanos(final Object[] array) {
+        return ((BatchMarker) array[array.length - 1]).flushNanos;
+    }
+
+    /**
+     * Gets an empty array from the free list or allocates one.
+     *
+     * @return array with room for batch size items
+     */
+    Object[] take() {
+        for (int index = 0; index < poolSize; index++) {
+            if (slots.get(index) != null) {
+                final Object[] array = slots.getAndSet(index, null);
+                if (array != null) {
+                    hits.increment();
+                    return array;
+                }
+            }
+        }
+        misses.increment();
+        final Object[] array = new Object[batchSize + 1];
+        array[batchSize] = new BatchMarker();
+        return array;
+    }
+
+    /**
+     * Gives a drained array back. The caller must have nulled out every item.
+     *
+     * @param array drained array
+     */
+    void recycle(final Object[] array) {
+        for (int index = 0; index < poolSize; index++) {
+            if (slots.get(index) == null && slots.compareAndSet(index, null, array)) {
+                recycled.increment();
+                return;
+            }
+        }
+        dropped.increment();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return number of times a sender got a recycled array
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of times a sender had to allocate a new array
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of drained arrays that went back into the free list
+     */
+    public long getRecycled() {
+        return recycled.sum();
+    }
+
+    /**
+     * @return number of drained arrays that were dropped because the free list was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return hits divided by all takes, 0 if there were no takes yet
+     */
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchArrayPool{" +
+                "batchSize=" + batchSize +
+                ", poolSize=" + poolSize +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", recycled=" + getRecycled() +
+                ", dropped=" + getDropped() +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+
+/**
+ * Waits in the underlying queue with <code>pollWait</code>. This is the default and was the only strategy
+ * before wait strategies were pluggable. Cheapest on CPU, slowest to wake up.
+ *
+ * @author rhightower
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    @Override
+    public <T> T waitForItem(final ReceiveQueue<T> queue, final long waitTimeNanos) {
+        return queue.pollWait();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+
+/**
+ * Polls in a tight loop until an item shows up or the wait time is reached.
+ * Gives the lowest latency but keeps one core at 100% for every queue that uses it.
+ * Only use it for latency critical queues on machines with spare cores.
+ *
+ * @author rhightower
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    /**
+     * Only read the clock every so many polls since nanoTime is not free.
+     */
+    private static final int CHECK_CLOCK_EVERY = 128;
+
+    @Override
+    public <T> T waitForItem(final ReceiveQueue<T> queue, final long waitTimeNanos) {
+
+        final long deadline = System.nanoTime() + waitTimeNanos;
+        int count = 0;
+        T item;
+
+        while ((item = queue.poll()) == null) {
+            if (queue.wokenUp()) {
+                return null;
+            }
+            count++;
+            if (count % CHECK_CLOCK_EVERY == 0) {
+                if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+            }
+        }
+        return item;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.GlobalConstants;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free multi producer / single consumer ring buffer.
+ * <p>
+ * Every writer thread has its own <code>BasicSendQueue</code> which batches locally, so a slot in this ring is
+ * a whole <code>Object[]</code> batch from one writer. Writers claim a slot with a CAS on the producer sequence
+ * and then publish the batch into the slot. The consumer drains slots in order without taking a lock; a claimed
+ * slot that is not yet published shows up as null and the consumer waits for it.
+ * <p>
+ * Select with <code>QueueBuilder.setMultiProducerRingBuffer()</code>.
+ *
+ * @author rhightower
+ */
+public class MultiProducerRingBuffer<T> extends AbstractRingBuffer<T> {
+
+    private final AtomicReferenceArray<Object> buffer;
+
+    public MultiProducerRingBuffer(final int capacity) {
+        super(capacity);
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public MultiProducerRingBuffer() {
+        this(GlobalConstants.NUM_BATCHES);
+    }
+
+    @Override
+    public boolean offer(final T item) {
+        if (item == null) {
+            throw new NullPointerException("Ring buffer does not accept null items");
+        }
+
+        long tail;
+        do {
+            tail = producerSequence.get();
+            if (tail - consumerSequence.get() >= capacity) {
+                return false;
+            }
+        } while (!producerSequence.compareAndSet(tail, tail + 1));
+
+        /* Volatile store, it publishes the item and orders the read in signalConsumer. */
+        buffer.set((int) tail & mask, item);
+        signalConsumer();
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        final long head = consumerSequence.get();
+        final int index = (int) head & mask;
+
+        Object item = buffer.get(index);
+
+        if (item == null) {
+            if (head == producerSequence.get()) {
+                return null;
+            }
+            /* A producer claimed the slot but has not stored the item yet. It may have been descheduled. */
+            while ((item = buffer.get(index)) == null) {
+                Thread.yield();
+            }
+        }
+
+        buffer.lazySet(index, null);
+        consumerSequence.setOrdered(head + 1);
+        return (T) item;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return (T) buffer.get((int) consumerSequence.get() & mask);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T itemAt(final long sequence) {
+        return (T) buffer.get((int) sequence & mask);
+    }
+}
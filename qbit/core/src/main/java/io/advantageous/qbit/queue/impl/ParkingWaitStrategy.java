@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks for progressively longer periods (doubling from
+ * <code>minParkNanos</code> up to <code>maxParkNanos</code>) until an item shows up or the wait time is reached.
+ * A good fit for bulk queues that can take a little latency but should not hold a core.
+ *
+ * @author rhightower
+ */
+public class ParkingWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+    private final int yieldTries;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    public ParkingWaitStrategy(final int spinTries,
+                               final int yieldTries,
+                               final long minParkNanos,
+                               final long maxParkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    public ParkingWaitStrategy() {
+        this(100, 100, 1_000, 1_000_000);
+    }
+
+    @Override
+    public <T> T waitForItem(final ReceiveQueue<T> queue, final long waitTimeNanos) {
+
+        final long deadline = System.nanoTime() + waitTimeNanos;
+        int count = 0;
+        long parkNanos = minParkNanos;
+        T item;
+
+        while ((item = queue.poll()) == null) {
+            if (queue.wokenUp()) {
+                return null;
+            }
+            count++;
+            if (count <= spinTries) {
+                continue;
+            }
+
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            if (count <= spinTries + yieldTries) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+            }
+        }
+        return item;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the listeners of many queues on a fixed number of event loop threads instead of one thread per queue.
+ * <p>
+ * Every queue is pinned to one loop when its listener starts, so a listener (and the service behind it) is only
+ * ever called from one thread, same as with a dedicated thread. A loop goes round its queues taking at most a batch
+ * from each, so one busy queue can not starve the others, and parks when all of them are empty. Send queues wake
+ * the loop up after they hand off a batch. A queue that stays empty for its poll wait gets <code>idle</code>.
+ * <p>
+ * Listeners must not block: a blocked listener stalls every queue on its loop. That includes sending to a full
+ * bounded queue that is drained by the same loop.
+ * <p>
+ * Use with <code>QueueBuilder.setEventLoopGroup</code>, or <code>ServiceBuilder.setEventLoopGroup</code> for service
+ * queues.
+ *
+ * @author rhightower
+ */
+public class QueueEventLoopGroup {
+
+    private static volatile QueueEventLoopGroup shared;
+
+    private final Logger logger = LoggerFactory.getLogger(QueueEventLoopGroup.class);
+    private final String name;
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    public QueueEventLoopGroup(final String name, final int threads, final boolean daemon) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Event loop group " + name + " needs at least one thread " + threads);
+        }
+        this.name = name;
+        this.loops = new EventLoop[threads];
+        for (int index = 0; index < threads; index++) {
+            loops[index] = new EventLoop(name + "-" + index);
+            loops[index].thread.setDaemon(daemon);
+            loops[index].thread.start();
+        }
+    }
+
+    /**
+     * One loop per core.
+     *
+     * @param name name used for the threads
+     */
+    public QueueEventLoopGroup(final String name) {
+        this(name, Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Group shared by everything that asks for the shared event loop (one daemon loop per core).
+     *
+     * @return shared group
+     */
+    public static QueueEventLoopGroup sharedEventLoopGroup() {
+        QueueEventLoopGroup group = shared;
+        if (group == null) {
+            synchronized (QueueEventLoopGroup.class) {
+                group = shared;
+                if (group == null) {
+                    group = new QueueEventLoopGroup("QBit EventLoop", Runtime.getRuntime().availableProcessors(), true);
+                    shared = group;
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Wakeup hook for the send queues of a queue whose listener runs on a loop.
+     * Created with the queue and bound to a loop when the listener starts.
+     */
+    static final class Wakeup {
+
+        private volatile EventLoop loop;
+
+        void wakeup() {
+            final EventLoop eventLoop = loop;
+            if (eventLoop != null) {
+                eventLoop.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Pins a queue listener to the least busy loop.
+     *
+     * @return registration, stop it to take the queue off the loop (the listener gets <code>shutdown</code>)
+     */
+    <T> Registration<T> register(final String queueName,
+                              final ReceiveQueue<T> receiveQueue,
+                              final ReceiveQueueListener<T> listener,
+                              final int batchSize,
+                              final long idleNanos,
+                              final Wakeup wakeup,
+                              final QueueInstrumentation instrumentation) {
+
+        final EventLoop loop = pickLoop();
+        final Registration<T> registration = new Registration<>(queueName, loop, receiveQueue, listener, batchSize,
+                idleNanos, instrumentation);
+        if (wakeup != null) {
+            wakeup.loop = loop;
+        }
+        loop.registered.incrementAndGet();
+        loop.changes.add(registration);
+        loop.wakeup();
+        return registration;
+    }
+
+    private EventLoop pickLoop() {
+        /* Round robin start so ties spread out. */
+        final int start = Math.floorMod(nextLoop.getAndIncrement(), loops.length);
+        EventLoop best = loops[start];
+        for (int offset = 1; offset < loops.length; offset++) {
+            final EventLoop loop = loops[(start + offset) % loops.length];
+            if (loop.registered.get() < best.registered.get()) {
+                best = loop;
+            }
+        }
+        return best;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreadCount() {
+        return loops.length;
+    }
+
+    /**
+     * @return queues registered over all loops
+     */
+    public int getRegisteredCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            count += loop.registered.get();
+        }
+        return count;
+    }
+
+    /**
+     * Stops the loop threads. Queues still registered do not get <code>shutdown</code>.
+     */
+    public void shutdown() {
+        for (EventLoop loop : loops) {
+            loop.running = false;
+            LockSupport.unpark(loop.thread);
+        }
+    }
+
+    /**
+     * A queue listener pinned to a loop. Only the loop thread touches the receive queue and the listener.
+     */
+    final class Registration<T> {
+
+        private final String queueName;
+        private final EventLoop loop;
+        private final ReceiveQueue<T> receiveQueue;
+        private final ReceiveQueueListener<T> listener;
+        private final int batchSize;
+        private final long idleNanos;
+        private final QueueInstrumentation instrumentation;
+        private long idleDeadline;
+        private boolean added;
+        private boolean removed;
+        private volatile boolean stopped;
+
+        private Registration(final String queueName,
+                             final EventLoop loop,
+                             final ReceiveQueue<T> receiveQueue,
+                             final ReceiveQueueListener<T> listener,
+                             final int batchSize,
+                             final long idleNanos,
+                             final QueueInstrumentation instrumentation) {
+            this.queueName = queueName;
+            this.loop = loop;
+            this.receiveQueue = receiveQueue;
+            this.listener = listener;
+            this.batchSize = batchSize;
+            this.idleNanos = idleNanos;
+            this.instrumentation = instrumentation;
+            this.idleDeadline = System.nanoTime() + idleNanos;
+        }
+
+        /**
+         * Takes at most a batch from the queue.
+         *
+         * @return true if there were items
+         */
+        private boolean process(final long now) {
+
+            T item = receiveQueue.poll();
+
+            if (item == null) {
+                if (now - idleDeadline >= 0 || receiveQueue.wokenUp()) {
+                    idleDeadline = now + idleNanos;
+                    listener.idle();
+                    if (instrumentation != null) {
+                        instrumentation.idle();
+                    }
+                }
+                return false;
+            }
+
+            /* Same listener sequence as a queue with its own thread. */
+            final int count = BasicReceiveQueueManager.processBatch(item, receiveQueue, listener, batchSize);
+            if (instrumentation != null) {
+                instrumentation.processed(count);
+            }
+            idleDeadline = now + idleNanos;
+            return true;
+        }
+
+        void stop() {
+            stopped = true;
+            loop.changes.add(this);
+            loop.wakeup();
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+
+        private static final int SPIN_TRIES = 100;
+
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Registration<?>> changes = new ConcurrentLinkedQueue<>();
+        private final List<Registration<?>> active = new ArrayList<>();
+        private final AtomicInteger registered = new AtomicInteger();
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+        private volatile boolean signalled;
+
+        private EventLoop(final String threadName) {
+            this.thread = new Thread(this, threadName);
+        }
+
+        /**
+         * Producers call this after they publish. Sets the flag first and then checks if the loop is parked, the loop
+         * sets sleeping and then checks the flag, so one of the two always sees the other.
+         */
+        void wakeup() {
+            if (!signalled) {
+                signalled = true;
+            }
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+
+            int emptyTries = 0;
+
+            while (running) {
+
+                signalled = false;
+                applyChanges();
+
+                final long now = System.nanoTime();
+                long parkNanos = TimeUnit.MILLISECONDS.toNanos(100);
+                boolean worked = false;
+
+                for (int index = 0; index < active.size(); index++) {
+                    final Registration<?> registration = active.get(index);
+                    try {
+                        worked |= registration.process(now);
+                    } catch (Exception ex) {
+                        logger.error("Problem running queue listener " + registration.queueName
+                                + " on " + thread.getName(), ex);
+                    }
+                    parkNanos = Math.min(parkNanos, Math.max(0, registration.idleDeadline - now));
+                }
+
+                if (worked) {
+                    emptyTries = 0;
+                    continue;
+                }
+
+                /* Spin a bit before parking since unparking costs the producer a system call. */
+                if (emptyTries < SPIN_TRIES) {
+                    emptyTries++;
+                    Thread.yield();
+                    continue;
+                }
+
+                sleeping = true;
+                if (!signalled && parkNanos > 0) {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                sleeping = false;
+            }
+        }
+
+        private void applyChanges() {
+            Registration<?> registration = changes.poll();
+            while (registration != null) {
+                /* A registration is queued once when added and once when stopped, it may be stopped by either. */
+                if (registration.stopped) {
+                    if (!registration.removed) {
+                        registration.removed = true;
+                        registered.decrementAndGet();
+                        if (registration.added) {
+                            active.remove(registration);
+                        }
+                        shutdown(registration);
+                    }
+                } else if (!registration.added) {
+                    registration.added = true;
+                    active.add(registration);
+                }
+                registration = changes.poll();
+            }
+        }
+
+        private void shutdown(final Registration<?> registration) {
+            try {
+                registration.listener.shutdown();
+            } catch (Exception ex) {
+                logger.error("Problem shutting down queue listener " + registration.queueName, ex);
+            }
+        }
+    }
+}
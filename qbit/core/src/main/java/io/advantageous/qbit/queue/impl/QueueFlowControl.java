@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.OverflowPolicy;
+import io.advantageous.qbit.queue.QueueOverflowHandler;
+import io.advantageous.qbit.queue.QueueWatermarkListener;
+import io.advantageous.qbit.queue.SendStatus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Back pressure for one <code>BasicQueue</code>: applies the overflow policy when a send queue hands off a batch,
+ * and tracks the high/low watermarks. Shared by all of the queue's send queues and its receive queue.
+ * <p>
+ * <code>BasicQueue</code> only creates one of these if the policy is not <code>BLOCK</code> or watermarks are set,
+ * so the default hand off path is unchanged.
+ *
+ * @author rhightower
+ */
+public class QueueFlowControl {
+
+    private final String name;
+    private final OverflowPolicy overflowPolicy;
+    private final QueueOverflowHandler overflowHandler;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final QueueWatermarkListener watermarkListener;
+    private final AtomicBoolean overHighWatermark = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final List<QueueOverflowHandler> overflowListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Set by <code>BasicQueue</code> before it hands out send or receive queues.
+     */
+    private QueueWakeup queueWakeup;
+
+    public QueueFlowControl(final String name,
+                            final OverflowPolicy overflowPolicy,
+                            final QueueOverflowHandler overflowHandler,
+                            final int highWatermark,
+                            final int lowWatermark,
+                            final QueueWatermarkListener watermarkListener) {
+        this.name = name;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowHandler = overflowHandler;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.watermarkListener = watermarkListener == null ? new QueueWatermarkListener() {
+        } : watermarkListener;
+
+        if (overflowPolicy == OverflowPolicy.FAIL_FAST && overflowHandler == null) {
+            throw new IllegalArgumentException("Queue " + name + " FAIL_FAST overflow policy needs an overflow handler");
+        }
+        if (highWatermark > 0 && lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("Queue " + name + " low watermark " + lowWatermark
+                    + " must be below high watermark " + highWatermark);
+        }
+    }
+
+    /**
+     * Hands a batch to the queue following the overflow policy.
+     *
+     * @param queue              queue
+     * @param batch              batch
+     * @param adaptiveBatchSizer told about batches that DROP_OLDEST takes out, may be null
+     * @return SENT, DROPPED or REJECTED
+     */
+    SendStatus send(final BlockingQueue<Object> queue, final Object[] batch,
+                    final AdaptiveBatchSizer adaptiveBatchSizer) {
+
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                if (!queue.offer(batch)) {
+                    dropped.increment();
+                    notifyOverflowListeners(items(batch));
+                    return SendStatus.DROPPED;
+                }
+                break;
+
+            case DROP_OLDEST:
+                while (!queue.offer(batch)) {
+                    final Object oldest = queue.poll();
+                    if (oldest != null && oldest == queueWakeup) {
+                        /* Not a batch, and the listener has a full queue to work through so it needs no waking. */
+                        queueWakeup.markerRemoved();
+                    } else if (oldest != null) {
+                        dropped.increment();
+                        if (adaptiveBatchSizer != null) {
+                            adaptiveBatchSizer.dropped();
+                        }
+                        notifyOverflowListeners(items(oldest));
+                    }
+                }
+                break;
+
+            case FAIL_FAST:
+                if (!queue.offer(batch)) {
+                    rejected.increment();
+                    final Object[] items = items(batch);
+                    overflowHandler.overflow(name, items);
+                    notifyOverflowListeners(items);
+                    return SendStatus.REJECTED;
+                }
+                break;
+
+            default:
+                try {
+                    queue.put(batch);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("Unable to send", e);
+                }
+        }
+
+        if (highWatermark > 0 && !overHighWatermark.get()) {
+            final int depth = depth(queue);
+            if (depth >= highWatermark && overHighWatermark.compareAndSet(false, true)) {
+                watermarkListener.highWatermark(name, depth);
+            }
+        }
+        return SendStatus.SENT;
+    }
+
+    /**
+     * @param batch batch array, pooled array or single item taken from the queue
+     * @return just the items, pooled arrays are copied since they go back to the pool
+     */
+    private static Object[] items(final Object batch) {
+        if (!(batch instanceof Object[])) {
+            return new Object[]{batch};
+        }
+        final Object[] array = (Object[]) batch;
+        return BatchArrayPool.isPooled(array) ? Arrays.copyOf(array, BatchArrayPool.count(array)) : array;
+    }
+
+    private void notifyOverflowListeners(final Object[] items) {
+        for (QueueOverflowHandler overflowListener : overflowListeners) {
+            overflowListener.overflow(name, items);
+        }
+    }
+
+    /**
+     * @return items in the queue, not counting the wakeup marker
+     */
+    private int depth(final BlockingQueue<Object> queue) {
+        return queueWakeup == null ? queue.size() : queueWakeup.depth();
+    }
+
+    void queueWakeup(final QueueWakeup queueWakeup) {
+        this.queueWakeup = queueWakeup;
+    }
+
+    void addOverflowListener(final QueueOverflowHandler overflowListener) {
+        overflowListeners.add(overflowListener);
+    }
+
+    /**
+     * Called by the receive queue after it takes a batch.
+     *
+     * @param queue queue
+     */
+    void received(final BlockingQueue<Object> queue) {
+        if (overHighWatermark.get()) {
+            final int depth = depth(queue);
+            if (depth <= lowWatermark && overHighWatermark.compareAndSet(true, false)) {
+                watermarkListener.lowWatermark(name, depth);
+            }
+        }
+    }
+
+    boolean tracksWatermarks() {
+        return highWatermark > 0;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public boolean isOverHighWatermark() {
+        return overHighWatermark.get();
+    }
+
+    /**
+     * @return number of batches dropped by DROP_NEWEST or DROP_OLDEST
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of batches rejected by FAIL_FAST
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.QueueStats;
+import io.advantageous.qbit.util.Histogram;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Stats for one <code>BasicQueue</code>, fed by its send queues, its receive queue and the receive queue manager.
+ * <p>
+ * Counters are striped (<code>LongAdder</code>) so send queues on many threads do not fight over a cache line.
+ * Time in queue is sampled: every <code>sampleEvery</code> batches a send queue stamps the batch it is about to hand
+ * off, and the receiver records the time when it takes that same batch. Only one batch is stamped at a time so the
+ * receiver pays one volatile read per batch.
+ *
+ * @author rhightower
+ */
+public class QueueInstrumentation implements QueueStats {
+
+    private static final long STALE_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final IntSupplier depth;
+    private final int sampleEvery;
+    private final LongAdder enqueuedItems = new LongAdder();
+    private final LongAdder enqueuedBatches = new LongAdder();
+    private final LongAdder dequeuedBatches = new LongAdder();
+    private final LongAdder processedItems = new LongAdder();
+    private final LongAdder idleCount = new LongAdder();
+    private final Histogram batchSizes = new Histogram();
+    private final Histogram timeInQueue = new Histogram();
+    private final AtomicReference<BatchSample> sample = new AtomicReference<>();
+
+    public QueueInstrumentation(final String name, final BlockingQueue<Object> queue, final int sampleEvery) {
+        this(name, queue::size, sampleEvery);
+    }
+
+    /**
+     * @param depth items in the queue, <code>BasicQueue</code> leaves out its wakeup marker
+     */
+    QueueInstrumentation(final String name, final IntSupplier depth, final int sampleEvery) {
+        this.name = name;
+        this.depth = depth;
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    /**
+     * Called by a send queue before it hands off a batch.
+     *
+     * @param batch      batch
+     * @param batchCount batches this send queue has sent so far
+     */
+    void beforeSend(final Object[] batch, final long batchCount) {
+        if (batchCount % sampleEvery != 0) {
+            return;
+        }
+        final BatchSample current = sample.get();
+        final long now = System.nanoTime();
+        if (current == null || now - current.nanos > STALE_SAMPLE_NANOS) {
+            /* A stale sample was dropped or sent by a queue that overflowed, so take it over. */
+            sample.compareAndSet(current, new BatchSample(batch, now));
+        }
+    }
+
+    /**
+     * Called by a send queue after the batch is in the queue.
+     *
+     * @param items number of items in the batch
+     */
+    void sent(final int items) {
+        enqueuedItems.add(items);
+        enqueuedBatches.increment();
+        batchSizes.record(items);
+    }
+
+    /**
+     * Called by a send queue if the batch was dropped or rejected.
+     *
+     * @param batch batch
+     */
+    void notSent(final Object[] batch) {
+        final BatchSample current = sample.get();
+        if (current != null && current.batch == batch) {
+            sample.compareAndSet(current, null);
+        }
+    }
+
+    /**
+     * Called by the receive queue when it takes a batch (or single item) off the queue.
+     *
+     * @param batch batch
+     */
+    void received(final Object batch) {
+        dequeuedBatches.increment();
+        final BatchSample current = sample.get();
+        if (current != null && current.batch == batch) {
+            timeInQueue.record((System.nanoTime() - current.nanos) / 1_000);
+            sample.compareAndSet(current, null);
+        }
+    }
+
+    /**
+     * Called by the receive queue manager after it handed items to the listener.
+     *
+     * @param items items
+     */
+    void processed(final int items) {
+        if (items > 0) {
+            processedItems.add(items);
+        }
+    }
+
+    void idle() {
+        idleCount.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth.getAsInt();
+    }
+
+    @Override
+    public long getEnqueuedItems() {
+        return enqueuedItems.sum();
+    }
+
+    @Override
+    public long getEnqueuedBatches() {
+        return enqueuedBatches.sum();
+    }
+
+    @Override
+    public long getDequeuedBatches() {
+        return dequeuedBatches.sum();
+    }
+
+    @Override
+    public long getProcessedItems() {
+        return processedItems.sum();
+    }
+
+    @Override
+    public long getIdleCount() {
+        return idleCount.sum();
+    }
+
+    @Override
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    @Override
+    public Histogram getTimeInQueue() {
+        return timeInQueue;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueInstrumentation{" +
+                "name='" + name + '\'' +
+                ", depth=" + getDepth() +
+                ", enqueuedItems=" + getEnqueuedItems() +
+                ", enqueuedBatches=" + getEnqueuedBatches() +
+                ", dequeuedBatches=" + getDequeuedBatches() +
+                ", processedItems=" + getProcessedItems() +
+                ", batchSizes=" + batchSizes +
+                ", timeInQueueMicros=" + timeInQueue +
+                '}';
+    }
+
+    private static final class BatchSample {
+        private final Object batch;
+        private final long nanos;
+
+        private BatchSample(final Object batch, final long nanos) {
+            this.batch = batch;
+            this.nanos = nanos;
+        }
+    }
+}
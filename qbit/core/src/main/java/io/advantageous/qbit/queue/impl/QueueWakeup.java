@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wakes the listener of a <code>BasicQueue</code> that waits for items, see <code>Queue.wakeup</code>.
+ * Any thread may wake it. The waker sets a flag that the receive queue hands to the wait strategies.
+ * <p>
+ * A ring buffer parks its consumer, so the waker unparks it and writes nothing to the ring, which may only have
+ * one producer. A thread blocked in any other <code>BlockingQueue</code> only returns for an item. Those queues
+ * all take many producers, so they get this object as a marker, at most one at a time. The receive queue skips it,
+ * <code>DROP_OLDEST</code> discards it, and depth and watermarks do not count it.
+ *
+ * @author rhightower
+ */
+final class QueueWakeup {
+
+    private final BlockingQueue<Object> queue;
+    private final AtomicBoolean markerQueued = new AtomicBoolean();
+    private volatile boolean woken;
+
+    QueueWakeup(final BlockingQueue<Object> queue) {
+        this.queue = queue;
+    }
+
+    void wakeup() {
+        woken = true;
+        if (queue instanceof AbstractRingBuffer) {
+            ((AbstractRingBuffer) queue).wakeup();
+        } else if (markerQueued.compareAndSet(false, true) && !queue.offer(this)) {
+            /* If the queue is full the listener has plenty to do and does not need waking. */
+            markerQueued.set(false);
+        }
+    }
+
+    /**
+     * Only called by the listener thread.
+     *
+     * @return true once after a wakeup
+     */
+    boolean wokenUp() {
+        if (woken) {
+            woken = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The marker was taken out of the queue, by the receive queue or by <code>DROP_OLDEST</code>.
+     */
+    void markerRemoved() {
+        markerQueued.set(false);
+    }
+
+    /**
+     * @return items in the queue, not counting the marker
+     */
+    int depth() {
+        final int size = queue.size();
+        return markerQueued.get() ? Math.max(0, size - 1) : size;
+    }
+}
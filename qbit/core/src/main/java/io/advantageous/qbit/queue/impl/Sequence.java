@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Padded sequence counter used by the ring buffers.
+ * The value is surrounded by seven longs on each side so that the producer and consumer
+ * counters never share a cache line. The padding lives in super/sub classes because the JVM
+ * is free to reorder fields within a single class.
+ *
+ * @author rhightower
+ */
+class Sequence extends SequenceRightPadding {
+
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    Sequence(final long initialValue) {
+        this.value = initialValue;
+    }
+
+    long get() {
+        return value;
+    }
+
+    /**
+     * Ordered store (store/store barrier only). Cheap, used when no other thread is parked on this value.
+     *
+     * @param newValue new value
+     */
+    void setOrdered(final long newValue) {
+        VALUE_UPDATER.lazySet(this, newValue);
+    }
+
+    /**
+     * Full volatile store, used when the next instruction reads a flag another thread wrote.
+     *
+     * @param newValue new value
+     */
+    void setVolatile(final long newValue) {
+        this.value = newValue;
+    }
+
+    boolean compareAndSet(final long expected, final long newValue) {
+        return VALUE_UPDATER.compareAndSet(this, expected, newValue);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
+
+@SuppressWarnings("unused")
+class SequenceLeftPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequenceLeftPadding {
+    protected volatile long value;
+}
+
+@SuppressWarnings("unused")
+class SequenceRightPadding extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.GlobalConstants;
+
+/**
+ * Lock free single producer / single consumer ring buffer.
+ * <p>
+ * Used by <code>BasicQueue</code> in place of an <code>ArrayBlockingQueue</code> when the queue has exactly one
+ * writer thread and one reader thread (see <code>QueueBuilder.setSingleProducerRingBuffer()</code>).
+ * Since <code>BasicSendQueue</code> already batches, every slot holds a whole batch (<code>Object[]</code>).
+ * <p>
+ * Only one thread may offer and only one thread may poll. Use <code>MultiProducerRingBuffer</code>
+ * if more than one <code>SendQueue</code> writes to the queue.
+ *
+ * @author rhightower
+ */
+public class SingleProducerRingBuffer<T> extends AbstractRingBuffer<T> {
+
+    private final Object[] buffer;
+
+    /**
+     * Only touched by the producer thread.
+     */
+    private long cachedConsumerSequence;
+
+    /**
+     * Only touched by the consumer thread.
+     */
+    private long cachedProducerSequence;
+
+    public SingleProducerRingBuffer(final int capacity) {
+        super(capacity);
+        this.buffer = new Object[this.capacity];
+    }
+
+    public SingleProducerRingBuffer() {
+        this(GlobalConstants.NUM_BATCHES);
+    }
+
+    @Override
+    public boolean offer(final T item) {
+        if (item == null) {
+            throw new NullPointerException("Ring buffer does not accept null items");
+        }
+
+        final long tail = producerSequence.get();
+
+        if (tail - cachedConsumerSequence >= capacity) {
+            cachedConsumerSequence = consumerSequence.get();
+            if (tail - cachedConsumerSequence >= capacity) {
+                return false;
+            }
+        }
+
+        buffer[(int) tail & mask] = item;
+        producerSequence.setVolatile(tail + 1);
+        signalConsumer();
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        final long head = consumerSequence.get();
+
+        if (head >= cachedProducerSequence) {
+            cachedProducerSequence = producerSequence.get();
+            if (head >= cachedProducerSequence) {
+                return null;
+            }
+        }
+
+        final int index = (int) head & mask;
+        final T item = (T) buffer[index];
+        buffer[index] = null;
+        consumerSequence.setOrdered(head + 1);
+        return item;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        final long head = consumerSequence.get();
+        if (head >= producerSequence.get()) {
+            return null;
+        }
+        return (T) buffer[(int) head & mask];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T itemAt(final long sequence) {
+        return (T) buffer[(int) sequence & mask];
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.SendQueue;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Multi producer / single consumer staging area in front of a send queue that only its owner thread may use.
+ * <p>
+ * Any thread can send to it without a lock (async callbacks, method call executor threads, etc.).
+ * Nothing goes out until the owner calls <code>drainTo</code>, which moves the staged items into the real
+ * send queue so they go out in batches like the rest of its sends.
+ * <code>sendAndFlush</code> and <code>flushSends</code> do not flush, since flushing is up to the owner.
+ * The optional wakeup runs after a send, at most once per drain, so a waiting owner drains right away.
+ *
+ * @author rhightower
+ */
+public class StagingSendQueue<T> implements SendQueue<T> {
+
+    private final ConcurrentLinkedQueue<T> staged = new ConcurrentLinkedQueue<>();
+    private final Runnable wakeup;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    public StagingSendQueue() {
+        this(null);
+    }
+
+    /**
+     * @param wakeup wakes the owner up, may be null
+     */
+    public StagingSendQueue(final Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+
+    private void staged() {
+        if (wakeup != null && wakeupPending.compareAndSet(false, true)) {
+            wakeup.run();
+        }
+    }
+
+    @Override
+    public void send(final T item) {
+        staged.offer(item);
+        staged();
+    }
+
+    @Override
+    public void sendAndFlush(final T item) {
+        staged.offer(item);
+        staged();
+    }
+
+    @SafeVarargs
+    @Override
+    public final void sendMany(final T... items) {
+        for (T item : items) {
+            staged.offer(item);
+        }
+        staged();
+    }
+
+    @Override
+    public void sendBatch(final Collection<T> items) {
+        staged.addAll(items);
+        staged();
+    }
+
+    @Override
+    public void sendBatch(final Iterable<T> items) {
+        for (T item : items) {
+            staged.offer(item);
+        }
+        staged();
+    }
+
+    @Override
+    public boolean shouldBatch() {
+        return false;
+    }
+
+    @Override
+    public void flushSends() {
+    }
+
+    public boolean isEmpty() {
+        return staged.isEmpty();
+    }
+
+    /**
+     * Moves the staged items to the send queue. Only the owner of the send queue may call this.
+     *
+     * @param sendQueue send queue of the owner
+     * @return number of items moved
+     */
+    public int drainTo(final SendQueue<T> sendQueue) {
+        /* Cleared first, so an item staged during the drain wakes the owner again. */
+        wakeupPending.set(false);
+        int count = 0;
+        T item;
+        while ((item = staged.poll()) != null) {
+            sendQueue.send(item);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+
+/**
+ * Spins for a number of polls, then yields the thread between polls until an item shows up
+ * or the wait time is reached. Low latency, and other threads still get to run when cores are scarce.
+ *
+ * @author rhightower
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+
+    public YieldingWaitStrategy(final int spinTries) {
+        this.spinTries = spinTries;
+    }
+
+    public YieldingWaitStrategy() {
+        this(100);
+    }
+
+    @Override
+    public <T> T waitForItem(final ReceiveQueue<T> queue, final long waitTimeNanos) {
+
+        final long deadline = System.nanoTime() + waitTimeNanos;
+        int count = 0;
+        T item;
+
+        while ((item = queue.poll()) == null) {
+            if (queue.wokenUp()) {
+                return null;
+            }
+            if (count < spinTries) {
+                count++;
+                continue;
+            }
+            Thread.yield();
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+        }
+        return item;
+    }
+}
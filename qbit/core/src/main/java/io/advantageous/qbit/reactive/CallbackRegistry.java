@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.reactive;
+
+import io.advantageous.qbit.GlobalConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Holds the callbacks of outstanding method calls until their response comes back or they time out.
+ * <p>
+ * Callbacks are keyed on the message id (a primitive <code>long</code>) and the return address, so a
+ * lookup does not allocate a key object. Different clients can use the same message id, the return address
+ * tells them apart.
+ * <p>
+ * Every entry also sits in a hashed wheel timer slot picked from its deadline, which is the call timestamp plus
+ * the timeout. <code>expire(now)</code> only visits the slots for the ticks that went by since the last
+ * call, and it calls <code>Callback.onError</code> with a <code>TimeoutException</code> for the entries that
+ * are past their deadline. Completed entries are taken out of the table and the wheel right away, so the
+ * registry does not grow when responses get lost.
+ * <p>
+ * Calls are serialized on the registry. The writer (the thread that sends calls) and the reader (the thread
+ * that handles responses) are usually the only two threads that touch it.
+ *
+ * @author rhightower
+ */
+public class CallbackRegistry {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final int wheelMask;
+
+    /**
+     * Hash table, chained on <code>Entry.next</code>.
+     */
+    private Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Wheel slots, doubly linked on <code>Entry.wheelPrevious</code> and <code>Entry.wheelNext</code>.
+     */
+    private final Entry[] wheel;
+    private long lastTick = -1;
+
+    /**
+     * @param timeoutMillis how long a callback waits for its response
+     * @param tickMillis    resolution of the wheel
+     * @param wheelSize     number of wheel slots, rounded up to a power of two
+     */
+    public CallbackRegistry(final long timeoutMillis, final long tickMillis, final int wheelSize) {
+        if (timeoutMillis <= 0 || tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("timeout, tick and wheel size must be positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+        final int slots = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Entry[slots];
+        this.wheelMask = slots - 1;
+    }
+
+    public CallbackRegistry(final long timeoutMillis) {
+        this(timeoutMillis, 100, 512);
+    }
+
+    public CallbackRegistry() {
+        this(GlobalConstants.CALLBACK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Registers a callback.
+     *
+     * @param returnAddress return address of the call
+     * @param messageId     message id of the call
+     * @param timestamp     timestamp of the call, the deadline is counted from it
+     * @param callback      callback
+     */
+    public synchronized void register(final String returnAddress, final long messageId,
+                                      final long timestamp, final Callback<Object> callback) {
+
+        final Entry entry = new Entry(returnAddress, messageId, timestamp + timeoutMillis, callback);
+
+        if (size >= table.length - (table.length >> 2)) {
+            resize();
+        }
+
+        final int index = index(messageId, table.length);
+        entry.next = table[index];
+        table[index] = entry;
+        size++;
+
+        /* First tick at or after the deadline, or the next tick to visit if that one already went by. */
+        final long deadlineTick = Math.max((entry.deadline + tickMillis - 1) / tickMillis, lastTick + 1);
+        final int slot = (int) deadlineTick & wheelMask;
+        entry.wheelNext = wheel[slot];
+        if (wheel[slot] != null) {
+            wheel[slot].wheelPrevious = entry;
+        }
+        wheel[slot] = entry;
+        entry.slot = slot;
+    }
+
+    /**
+     * Removes the callback of a call that completed.
+     *
+     * @param returnAddress return address of the response
+     * @param messageId     message id of the response
+     * @return callback or null if there was none, or it already timed out
+     */
+    public synchronized Callback<Object> remove(final String returnAddress, final long messageId) {
+        final int index = index(messageId, table.length);
+
+        Entry previous = null;
+        for (Entry entry = table[index]; entry != null; previous = entry, entry = entry.next) {
+            if (entry.messageId == messageId && Objects.equals(entry.returnAddress, returnAddress)) {
+                if (previous == null) {
+                    table[index] = entry.next;
+                } else {
+                    previous.next = entry.next;
+                }
+                size--;
+                unlinkFromWheel(entry);
+                return entry.callback;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Times out the callbacks that are past their deadline.
+     * Cheap to call often, it returns right away if no tick went by.
+     *
+     * @param now current time in milliseconds
+     * @return number of callbacks that timed out
+     */
+    public int expire(final long now) {
+
+        final List<Entry> expired = expiredEntries(now);
+
+        if (expired == null) {
+            return 0;
+        }
+
+        /* Outside of the lock, the callbacks can call back into the registry. */
+        for (Entry entry : expired) {
+            entry.callback.onError(new TimeoutException("Call timed out, return address " + entry.returnAddress
+                    + " message id " + entry.messageId));
+        }
+        return expired.size();
+    }
+
+    private synchronized List<Entry> expiredEntries(final long now) {
+        final long tick = now / tickMillis;
+
+        if (lastTick == -1) {
+            lastTick = tick - 1;
+        }
+
+        if (tick <= lastTick || size == 0) {
+            lastTick = Math.max(lastTick, tick);
+            return null;
+        }
+
+        /* After a long pause every slot is visited once. */
+        final long ticks = Math.min(tick - lastTick, wheel.length);
+
+        List<Entry> expired = null;
+
+        for (long current = tick - ticks + 1; current <= tick; current++) {
+            Entry entry = wheel[(int) current & wheelMask];
+            while (entry != null) {
+                final Entry next = entry.wheelNext;
+                if (entry.deadline <= now) {
+                    removeFromTable(entry);
+                    unlinkFromWheel(entry);
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(entry);
+                }
+                entry = next;
+            }
+        }
+
+        lastTick = tick;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void removeFromTable(final Entry target) {
+        final int index = index(target.messageId, table.length);
+        Entry previous = null;
+        for (Entry entry = table[index]; entry != null; previous = entry, entry = entry.next) {
+            if (entry == target) {
+                if (previous == null) {
+                    table[index] = entry.next;
+                } else {
+                    previous.next = entry.next;
+                }
+                size--;
+                return;
+            }
+        }
+    }
+
+    private void unlinkFromWheel(final Entry entry) {
+        if (entry.wheelPrevious != null) {
+            entry.wheelPrevious.wheelNext = entry.wheelNext;
+        } else {
+            wheel[entry.slot] = entry.wheelNext;
+        }
+        if (entry.wheelNext != null) {
+            entry.wheelNext.wheelPrevious = entry.wheelPrevious;
+        }
+        entry.wheelNext = null;
+        entry.wheelPrevious = null;
+    }
+
+    private void resize() {
+        final Entry[] oldTable = table;
+        final Entry[] newTable = new Entry[oldTable.length << 1];
+
+        for (Entry entry : oldTable) {
+            while (entry != null) {
+                final Entry next = entry.next;
+                final int index = index(entry.messageId, newTable.length);
+                entry.next = newTable[index];
+                newTable[index] = entry;
+                entry = next;
+            }
+        }
+        table = newTable;
+    }
+
+    private static int index(final long messageId, final int length) {
+        final long hash = messageId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (length - 1);
+    }
+
+    private static final class Entry {
+        private final String returnAddress;
+        private final long messageId;
+        private final long deadline;
+        private final Callback<Object> callback;
+
+        private Entry next;
+        private Entry wheelNext;
+        private Entry wheelPrevious;
+        private int slot;
+
+        private Entry(final String returnAddress, final long messageId, final long deadline,
+                      final Callback<Object> callback) {
+            this.returnAddress = returnAddress;
+            this.messageId = messageId;
+            this.deadline = deadline;
+            this.callback = callback;
+        }
+    }
+}
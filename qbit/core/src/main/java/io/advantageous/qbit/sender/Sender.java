@@ -32,5 +32,24 @@ import io.advantageous.qbit.service.Stoppable;
 public interface Sender<T> extends Stoppable{
 
     void send(String returnAddress, T buffer);
+
+    /**
+     * @return true if this sender wants binary encoded messages passed to sendBytes
+     */
+    default boolean binary() {
+        return false;
+    }
+
+    default void sendBytes(String returnAddress, byte[] buffer) {
+        throw new UnsupportedOperationException("Sender does not support binary messages");
+    }
+
+    /**
+     * @return true if this sender wants text groups encoded as compressed groups
+     */
+    default boolean compressGroups() {
+        return false;
+    }
+
     //add a close here
 }
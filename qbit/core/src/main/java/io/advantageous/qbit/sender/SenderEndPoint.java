@@ -88,7 +88,7 @@ public class SenderEndPoint implements EndPoint {
         if (methodCalls.size() > 0) {
             String returnAddress = methodCalls.get(0).returnAddress();
             List<Message<Object>> methods = (List<Message<Object>>) (Object) methodCalls;
-            sender.send(returnAddress, encoder.encodeAsString(methods));
+            send(returnAddress, methods);
         }
     }
 
@@ -136,7 +136,7 @@ public class SenderEndPoint implements EndPoint {
 
             if (count > requestBatchSize) {
 
-                sender.send(returnAddress, encoder.encodeAsString(methods));
+                send(returnAddress, methods);
                 methods.clear();
                 count = 0;
             }
@@ -152,12 +152,20 @@ public class SenderEndPoint implements EndPoint {
 
 
         if (methods.size() > 0) {
-            sender.send(returnAddress, encoder.encodeAsString(methods));
+            send(returnAddress, methods);
         }
 
 
     }
 
+    private void send(final String returnAddress, final List<Message<Object>> methods) {
+        if (sender.binary()) {
+            sender.sendBytes(returnAddress, encoder.encodeAsBytes(methods));
+        } else {
+            sender.send(returnAddress, encoder.encodeAsString(methods));
+        }
+    }
+
     public void stop() {
         try {
             flush();
@@ -33,6 +33,9 @@ public class Protocol {
     public static final String OBJECT_NAME_KEY = "objectName";
     public static final String ADDRESS_KEY = "addressOfService";
     public static final String RETURN_ADDRESS_KEY = "addressOfReturn";
+    /* Header with the ms a method call has left until its deadline when it was encoded, relative so that the
+    clocks of the two sides do not have to agree. */
+    public static final String REMAINING_MILLIS_KEY = "qbitRemainingMillis";
     public static final int PROTOCOL_MARKER = 0x1c;
     public static final int PROTOCOL_MESSAGE_SEPARATOR = 0x1f;
     public static final int PROTOCOL_SEPARATOR = 0x1d;
@@ -46,6 +49,13 @@ public class Protocol {
     public static final int PROTOCOL_MESSAGE_TYPE_GROUP = 'g';
     public static final int PROTOCOL_MESSAGE_TYPE_RESPONSE = 'r';
     public static final int PROTOCOL_MESSAGE_TYPE_EVENT = 'e';
+    /* Group whose addresses, names and header/param keys are sent once and referenced by index afterwards. */
+    public static final int PROTOCOL_MESSAGE_TYPE_COMPRESSED_GROUP = 'c';
+    /* Starts a reference to a string already sent in a compressed group, followed by its index in decimal. */
+    public static final int PROTOCOL_DICTIONARY_REF = 0x1b;
+    /* Binary protocol frame, sent as a WebSocket binary frame. Never starts a text protocol message. */
+    public static final int PROTOCOL_MESSAGE_TYPE_BINARY = 'b';
+    public static final int PROTOCOL_BINARY_VERSION = 1;
 
     public static final int MESSAGE_ID_POS = 1;
     public static final int ADDRESS_POS = 2;
@@ -61,4 +71,13 @@ public class Protocol {
     public static final int RESPONSE_RETURN = 10;
 
 
+    /**
+     * @param bytes message
+     * @return true if the message is a binary protocol frame
+     */
+    public static boolean isBinaryProtocol(final byte[] bytes) {
+        return bytes != null && bytes.length > 2 && bytes[PROTOCOL_MARKER_POSITION] == PROTOCOL_MARKER
+                && bytes[VERSION_MARKER_POSITION] == PROTOCOL_MESSAGE_TYPE_BINARY;
+    }
+
 }
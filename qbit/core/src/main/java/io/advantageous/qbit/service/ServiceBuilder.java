@@ -18,13 +18,18 @@
 
 package io.advantageous.qbit.service;
 
+import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.RequestLane;
+import io.advantageous.qbit.concurrent.BlockingCallExecutors;
+import io.advantageous.qbit.concurrent.SerialExecutor;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.Queue;
 import io.advantageous.qbit.queue.QueueBuilder;
 import io.advantageous.qbit.queue.ReceiveQueueListener;
+import io.advantageous.qbit.queue.impl.QueueEventLoopGroup;
 import io.advantageous.qbit.service.impl.NoOpAfterMethodCall;
 import io.advantageous.qbit.service.impl.NoOpInputMethodCallQueueListener;
 import io.advantageous.qbit.service.impl.ServiceConstants;
@@ -35,6 +40,10 @@ import io.advantageous.qbit.transforms.Transformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 /**
  * Created by rhightower on 1/28/15.
  */
@@ -57,9 +66,15 @@ public class ServiceBuilder {
     private QueueBuilder responseQueueBuilder = new QueueBuilder();
     private boolean asyncResponse = true;
     private boolean invokeDynamic = true;
+    private boolean generatedInvoker;
     private String rootAddress;
     private String serviceAddress;
     private Object serviceObject;
+    private QueueEventLoopGroup eventLoopGroup;
+    private Executor methodCallExecutor;
+    private boolean orderedMethodCalls = true;
+    private final Map<String, RequestLane> requestLanes = new LinkedHashMap<>();
+    private int bulkLaneEvery;
 
     private QBitSystemManager qBitSystemManager;
 
@@ -230,6 +245,23 @@ public class ServiceBuilder {
         return this;
     }
 
+    public boolean isGeneratedInvoker() {
+        return generatedInvoker;
+    }
+
+    /**
+     * Generates a method handle based invoker for the service object when the service queue is built,
+     * instead of dispatching every call reflectively.
+     * Calls whose arguments need coercion still go through reflection (see <code>invokeDynamic</code>).
+     *
+     * @param generatedInvoker generate the invoker
+     * @return this, fluent
+     */
+    public ServiceBuilder setGeneratedInvoker(boolean generatedInvoker) {
+        this.generatedInvoker = generatedInvoker;
+        return this;
+    }
+
     public boolean isHandleCallbacks() {
         return handleCallbacks;
     }
@@ -240,6 +272,114 @@ public class ServiceBuilder {
     }
 
 
+    public QueueEventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * Runs the service on one of the group's event loop threads, shared with other services, instead of a thread
+     * of its own. The service is still only called from one thread. Service methods must not block.
+     *
+     * @param eventLoopGroup event loop group
+     * @return this
+     */
+    public ServiceBuilder setEventLoopGroup(QueueEventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+        return this;
+    }
+
+    /**
+     * Runs the service on the shared event loop group (one loop per core).
+     *
+     * @return this
+     */
+    public ServiceBuilder setSharedEventLoop() {
+        return setEventLoopGroup(QueueEventLoopGroup.sharedEventLoopGroup());
+    }
+
+    public Executor getMethodCallExecutor() {
+        return methodCallExecutor;
+    }
+
+    /**
+     * Runs the service methods on this executor instead of the service queue thread, for services that call
+     * blocking APIs. Responses still go back through the service's response queue.
+     * Calls run one at a time in order unless <code>setOrderedMethodCalls(false)</code>.
+     *
+     * @param methodCallExecutor method call executor
+     * @return this
+     */
+    public ServiceBuilder setMethodCallExecutor(Executor methodCallExecutor) {
+        this.methodCallExecutor = methodCallExecutor;
+        return this;
+    }
+
+    /**
+     * Runs each service method call on a virtual thread (or a cached daemon thread if this JVM does not have
+     * virtual threads). See <code>BlockingCallExecutors</code>.
+     *
+     * @return this
+     */
+    public ServiceBuilder setVirtualThreadMethodCalls() {
+        return setMethodCallExecutor(BlockingCallExecutors.virtualThreadExecutor());
+    }
+
+    public boolean isOrderedMethodCalls() {
+        return orderedMethodCalls;
+    }
+
+    /**
+     * With a method call executor, true (the default) runs the calls to this service one at a time in the order
+     * they arrived. False runs them concurrently, so the service has to be thread safe, and is rejected at build
+     * time for services with event listeners, queue callbacks, <code>@BatchOf</code> or <code>@Cacheable</code> methods.
+     *
+     * @param orderedMethodCalls ordered method calls
+     * @return this
+     */
+    public ServiceBuilder setOrderedMethodCalls(boolean orderedMethodCalls) {
+        this.orderedMethodCalls = orderedMethodCalls;
+        return this;
+    }
+
+    public Map<String, RequestLane> getRequestLanes() {
+        return requestLanes;
+    }
+
+    /**
+     * Puts the calls to a service method in a request lane, like the <code>@Lane</code> annotation does.
+     * Use HIGH for health checks and other control calls that must get through while the service is saturated.
+     *
+     * @param methodName method name
+     * @param lane       lane
+     * @return this
+     */
+    public ServiceBuilder addRequestLane(String methodName, RequestLane lane) {
+        this.requestLanes.put(methodName, lane);
+        return this;
+    }
+
+    public int getBulkLaneEvery() {
+        return bulkLaneEvery;
+    }
+
+    /**
+     * @param bulkLaneEvery NORMAL calls the service runs for each BULK call while NORMAL calls wait, 8 by default
+     * @return this
+     */
+    public ServiceBuilder setBulkLaneEvery(int bulkLaneEvery) {
+        this.bulkLaneEvery = bulkLaneEvery;
+        return this;
+    }
+
+    private QueueBuilder buildRequestQueueBuilder() {
+        if (eventLoopGroup == null) {
+            return this.getRequestQueueBuilder();
+        }
+        final QueueBuilder queueBuilder = this.getRequestQueueBuilder() == null
+                ? new QueueBuilder() : BeanUtils.copy(this.getRequestQueueBuilder());
+        return queueBuilder.setEventLoopGroup(eventLoopGroup);
+    }
+
     public ServiceQueue build(final Object serviceObject) {
         this.serviceObject = serviceObject;
         return build();
@@ -250,17 +390,27 @@ public class ServiceBuilder {
 
 
 
-        ServiceQueue serviceQueue = new ServiceQueueImpl(this.getRootAddress(),
+        ServiceQueueImpl serviceQueue = new ServiceQueueImpl(this.getRootAddress(),
                 this.getServiceAddress(),
                 this.getServiceObject(),
-                this.getRequestQueueBuilder(),
+                this.buildRequestQueueBuilder(),
                 this.getResponseQueueBuilder(),
-                QBit.factory().createServiceMethodHandler(this.isInvokeDynamic()),
+                QBit.factory().createServiceMethodHandler(this.isInvokeDynamic(), this.isGeneratedInvoker()),
                 this.getResponseQueue(),
                 this.isAsyncResponse(),
                 this.isHandleCallbacks(),
                 this.getSystemManager());
 
+        requestLanes.forEach(serviceQueue::requestLane);
+        if (bulkLaneEvery > 0) {
+            serviceQueue.bulkLaneEvery(bulkLaneEvery);
+        }
+
+        if (methodCallExecutor != null) {
+            serviceQueue.methodCallExecutor(orderedMethodCalls
+                    ? new SerialExecutor(methodCallExecutor) : methodCallExecutor);
+        }
+
         if (serviceQueue != null && qBitSystemManager != null) {
             qBitSystemManager.registerService(serviceQueue);
         }
@@ -18,12 +18,14 @@
 
 package io.advantageous.qbit.service;
 
+import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.QBit;
 import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.Queue;
 import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.impl.QueueEventLoopGroup;
 import io.advantageous.qbit.service.impl.ServiceConstants;
 import io.advantageous.qbit.system.QBitSystemManager;
 import io.advantageous.qbit.transforms.Transformer;
@@ -52,6 +54,7 @@ public class ServiceBundleBuilder {
     private String address = "/services";
     private boolean eachServiceInItsOwnThread = true;
     private QBitSystemManager qBitSystemManager;
+    private QueueEventLoopGroup eventLoopGroup;
 
     private Queue<Response<Object>> responseQueue;
 
@@ -223,13 +226,45 @@ public class ServiceBundleBuilder {
         return this;
     }
 
+    public QueueEventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * Runs the bundle's call queue and the services added to the bundle on the group's event loop threads
+     * instead of a thread each. Each service is still only called from one thread. Service methods must not block.
+     *
+     * @param eventLoopGroup event loop group
+     * @return this
+     */
+    public ServiceBundleBuilder setEventLoopGroup(QueueEventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+        return this;
+    }
+
+    /**
+     * Runs the bundle on the shared event loop group (one loop per core).
+     *
+     * @return this
+     */
+    public ServiceBundleBuilder setSharedEventLoop() {
+        return setEventLoopGroup(QueueEventLoopGroup.sharedEventLoopGroup());
+    }
+
+    private QueueBuilder buildRequestQueueBuilder() {
+        if (eventLoopGroup == null) {
+            return getRequestQueueBuilder();
+        }
+        return BeanUtils.copy(getRequestQueueBuilder()).setEventLoopGroup(eventLoopGroup);
+    }
+
     public ServiceBundle build() {
 
 
 
 
         final ServiceBundle serviceBundle = QBit.factory().createServiceBundle(this.getAddress(),
-                getRequestQueueBuilder(),
+                buildRequestQueueBuilder(),
                 getResponseQueueBuilder(),
                 getWebResponseQueueBuilder(),
                 QBit.factory(),
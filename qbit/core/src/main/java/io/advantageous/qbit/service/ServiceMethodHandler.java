@@ -54,4 +54,12 @@ public interface ServiceMethodHandler extends ReceiveQueueListener<MethodCall<Ob
     void handleEvent(Event<Object> event);
 
     void queueStartBatch();
+
+    /**
+     * @return true if the service has state that events or queue notifications touch, for example event
+     * listeners or queue callbacks, so method calls can not run on another thread next to the queue thread
+     */
+    default boolean hasQueueThreadState() {
+        return false;
+    }
 }
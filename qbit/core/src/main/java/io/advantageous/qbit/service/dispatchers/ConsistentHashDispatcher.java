@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.dispatchers;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shards method calls over the workers with a consistent hash ring.
+ * <p>
+ * Every worker owns <code>virtualNodes</code> points on the ring. The shard key of a call is mixed with the
+ * murmur3 finalizer (so poor <code>hashCode()</code> implementations still spread out) and the call goes to the
+ * worker that owns the first point at or after the hash. Workers can be added and removed while calls are flowing,
+ * and only the keys on the points of that worker move, about 1/N of the keys.
+ * <p>
+ * The ring is rebuilt on a change and swapped in, so <code>accept</code> never takes a lock. The send queue of a
+ * removed worker is only touched by the dispatching thread, which flushes and stops it on its next
+ * <code>accept</code> or <code>flush</code>, so plain (not thread safe) send queues work too.
+ * <code>shards()</code> reports the calls each worker got and its share of the ring, so hot shards show up.
+ *
+ * @author rhightower
+ */
+public class ConsistentHashDispatcher extends ServiceWorkers {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final ShardKey shardKey;
+    private final int virtualNodes;
+    private final int flushInterval;
+    private final TimeUnit timeUnit;
+
+    private final Object ringLock = new Object();
+    private volatile Ring ring = new Ring(Collections.emptyList(), 0);
+    private final ConcurrentLinkedQueue<Shard> retired = new ConcurrentLinkedQueue<>();
+    private int nextWorkerId;
+
+    public ConsistentHashDispatcher(final ShardKey shardKey) {
+        this(50, TimeUnit.MILLISECONDS, shardKey, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashDispatcher(final int flushInterval, final TimeUnit timeUnit,
+                                    final ShardKey shardKey, final int virtualNodes) {
+        super(flushInterval, timeUnit);
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.shardKey = shardKey;
+        this.virtualNodes = virtualNodes;
+        this.flushInterval = flushInterval;
+        this.timeUnit = timeUnit;
+    }
+
+    @Override
+    public ServiceWorkers start() {
+        super.start();
+
+        synchronized (ringLock) {
+            final List<Shard> shards = new ArrayList<>(ring.shards);
+            for (int index = 0; index < serviceQueues.size(); index++) {
+                shards.add(new Shard(nextWorkerId++, serviceQueues.get(index), sendQueues.get(index)));
+            }
+            ring = new Ring(shards, virtualNodes);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a worker after the dispatcher started. It gets its share of the keys from the other workers.
+     *
+     * @param serviceQueue worker, started here unless the dispatcher does not start services
+     * @return this
+     */
+    public ConsistentHashDispatcher addWorker(final ServiceQueue serviceQueue) {
+        if (startServices) {
+            serviceQueue.start();
+        }
+
+        final SendQueue<MethodCall<Object>> sendQueue;
+        if (flushInterval > 0) {
+            sendQueue = serviceQueue.requestsWithAutoFlush(flushInterval, timeUnit);
+            sendQueue.start();
+        } else {
+            sendQueue = serviceQueue.requests();
+        }
+
+        synchronized (ringLock) {
+            final List<Shard> shards = new ArrayList<>(ring.shards);
+            shards.add(new Shard(nextWorkerId++, serviceQueue, sendQueue));
+            ring = new Ring(shards, virtualNodes);
+        }
+        return this;
+    }
+
+    /**
+     * Removes a worker. Its keys go to the workers that own the next points on the ring.
+     * Calls already sent to it are flushed by the dispatching thread on its next <code>accept</code> or
+     * <code>flush</code>, stopping the worker is up to the caller.
+     *
+     * @param serviceQueue worker
+     * @return true if it was a worker of this dispatcher
+     */
+    public boolean removeWorker(final ServiceQueue serviceQueue) {
+        Shard removed = null;
+
+        synchronized (ringLock) {
+            final List<Shard> shards = new ArrayList<>(ring.shards);
+            for (Shard shard : shards) {
+                if (shard.serviceQueue == serviceQueue) {
+                    removed = shard;
+                    break;
+                }
+            }
+            if (removed == null) {
+                return false;
+            }
+            shards.remove(removed);
+            ring = new Ring(shards, virtualNodes);
+        }
+
+        /* The dispatching thread may be sending to it right now, so it retires the send queue itself. */
+        retired.add(removed);
+        return true;
+    }
+
+    /**
+     * Flushes and stops the send queues of removed workers. Only called on the dispatching thread, and a shard is
+     * only retired after it left the ring, so nothing sends to it afterwards.
+     */
+    private void retireShards() {
+        Shard shard = retired.poll();
+        while (shard != null) {
+            shard.sendQueue.flushSends();
+            shard.sendQueue.stop();
+            shard = retired.poll();
+        }
+    }
+
+    @Override
+    public void accept(final MethodCall<Object> methodCall) {
+        if (!retired.isEmpty()) {
+            retireShards();
+        }
+        final Shard shard = ring.shard(hash(shardKey.shardKey(methodCall.name(), methodCall.args())));
+
+        if (shard == null) {
+            throw new IllegalStateException("No workers to send the method call " + methodCall.name() + " to");
+        }
+        shard.calls.incrementAndGet();
+        shard.sendQueue.send(methodCall);
+    }
+
+    @Override
+    public void flush() {
+        retireShards();
+        final List<Shard> shards = ring.shards;
+        for (Shard shard : shards) {
+            shard.sendQueue.flushSends();
+        }
+        for (Shard shard : shards) {
+            shard.serviceQueue.flush();
+        }
+    }
+
+    @Override
+    public void stop() {
+        retireShards();
+        final List<Shard> shards = ring.shards;
+        for (Shard shard : shards) {
+            shard.sendQueue.stop();
+        }
+        for (Shard shard : shards) {
+            shard.serviceQueue.stop();
+        }
+    }
+
+    /**
+     * @param key shard key
+     * @return worker the key maps to right now, or null if there are no workers
+     */
+    public Shard shardOf(final Object key) {
+        return ring.shard(hash(key));
+    }
+
+    /**
+     * @return current workers with their load
+     */
+    public List<Shard> shards() {
+        return ring.shards;
+    }
+
+    /**
+     * Murmur3 64 bit finalizer over the hash code of the key.
+     *
+     * @param key shard key
+     * @return mixed hash
+     */
+    public static long hash(final Object key) {
+        return mix(key == null ? 0 : key.hashCode());
+    }
+
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public static class Shard {
+
+        private final int workerId;
+        private final ServiceQueue serviceQueue;
+        private final SendQueue<MethodCall<Object>> sendQueue;
+        private final AtomicLong calls = new AtomicLong();
+        private volatile double ringShare;
+
+        Shard(final int workerId, final ServiceQueue serviceQueue, final SendQueue<MethodCall<Object>> sendQueue) {
+            this.workerId = workerId;
+            this.serviceQueue = serviceQueue;
+            this.sendQueue = sendQueue;
+        }
+
+        public ServiceQueue serviceQueue() {
+            return serviceQueue;
+        }
+
+        /**
+         * @return number of method calls sent to this worker
+         */
+        public long calls() {
+            return calls.get();
+        }
+
+        /**
+         * @return fraction of the hash ring this worker owns, 1 / number of workers when it is even
+         */
+        public double ringShare() {
+            return ringShare;
+        }
+
+        @Override
+        public String toString() {
+            return "Shard{" +
+                    "worker=" + serviceQueue.name() +
+                    ", calls=" + calls.get() +
+                    ", ringShare=" + ringShare +
+                    '}';
+        }
+    }
+
+    /**
+     * Sorted ring points and the worker that owns each one. Not modified once built.
+     */
+    private static final class Ring {
+
+        private final List<Shard> shards;
+        private final long[] points;
+        private final Shard[] owners;
+
+        private Ring(final List<Shard> shards, final int virtualNodes) {
+            this.shards = Collections.unmodifiableList(shards);
+
+            final int size = shards.size() * virtualNodes;
+            final int[] pointOwners = new int[size];
+            final long[] unsortedPoints = new long[size];
+
+            int index = 0;
+            for (int shardIndex = 0; shardIndex < shards.size(); shardIndex++) {
+                final Shard shard = shards.get(shardIndex);
+                for (int node = 0; node < virtualNodes; node++) {
+                    unsortedPoints[index] = mix(((long) shard.workerId << 32) | node);
+                    index++;
+                }
+            }
+
+            /* Sort the points, carrying the owner along. */
+            final Integer[] order = new Integer[size];
+            for (int position = 0; position < size; position++) {
+                order[position] = position;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(unsortedPoints[a], unsortedPoints[b]));
+
+            points = new long[size];
+            owners = new Shard[size];
+            for (int position = 0; position < size; position++) {
+                points[position] = unsortedPoints[order[position]];
+                owners[position] = shards.get(order[position] / virtualNodes);
+                pointOwners[position] = order[position] / virtualNodes;
+            }
+
+            computeShares(pointOwners);
+        }
+
+        private void computeShares(final int[] pointOwners) {
+            if (points.length == 0) {
+                return;
+            }
+            final double[] shares = new double[shards.size()];
+            for (int position = 0; position < points.length; position++) {
+                /* A point owns the arc from the previous point up to itself. */
+                final long previous = position == 0 ? points[points.length - 1] : points[position - 1];
+                final double arc = (double) (points[position] - previous);
+                shares[pointOwners[position]] += (arc < 0 ? arc + 0x1p64 : arc) / 0x1p64;
+            }
+            if (points.length == 1 || shards.size() == 1) {
+                shares[0] = 1.0;
+            }
+            for (int index = 0; index < shares.length; index++) {
+                shards.get(index).ringShare = shares[index];
+            }
+        }
+
+        private Shard shard(final long hash) {
+            if (points.length == 0) {
+                return null;
+            }
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+                if (index == points.length) {
+                    index = 0;
+                }
+            }
+            return owners[index];
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.dispatchers;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.service.impl.BaseServiceQueueImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends each method call to the worker with the fewest outstanding calls.
+ * <p>
+ * A worker only has <code>maxInFlight</code> calls in its request queue at a time. The rest wait in a deque that
+ * the dispatcher owns, and the worker thread pulls the next one when it starts a call or runs out of work (it
+ * listens to the request queue of the worker for that). A slow call only holds up the calls that are already in
+ * the request queue of its worker, the dispatcher sends new calls to the other workers.
+ * <p>
+ * With work stealing on, a worker that has room and nothing of its own takes the newest waiting call from the
+ * busiest worker. Only turn it on for stateless services, since a call can run on any worker.
+ * <p>
+ * Only calls the dispatcher sent count against <code>maxInFlight</code>, calls that reach a worker some other way
+ * do not free up room. Calls still waiting in the dispatcher on <code>stop</code> are handed to their worker.
+ * <p>
+ * <code>accept</code> must be called from one thread, like the other dispatchers. The workers must be
+ * <code>BaseServiceQueueImpl</code>s, which is what <code>ServiceBuilder</code> builds. Both the thread that calls
+ * <code>accept</code> and the worker thread send to the request queue of a worker, so the request queue can not be
+ * a single producer ring buffer (<code>QueueBuilder.setSingleProducerRingBuffer</code>), <code>start</code>
+ * rejects it.
+ *
+ * @author rhightower
+ */
+public class LeastLoadedServiceDispatcher extends ServiceWorkers {
+
+    private final int maxInFlight;
+    private final boolean workStealing;
+
+    private List<Worker> workers = Collections.emptyList();
+
+    public LeastLoadedServiceDispatcher() {
+        this(1, false);
+    }
+
+    /**
+     * @param maxInFlight  calls a worker may have in its request queue
+     * @param workStealing let idle workers take waiting calls from busy ones, for stateless services only
+     */
+    public LeastLoadedServiceDispatcher(final int maxInFlight, final boolean workStealing) {
+        super(true);
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        this.workStealing = workStealing;
+    }
+
+    @Override
+    public ServiceWorkers start() {
+
+        final List<Worker> workers = new ArrayList<>(serviceQueues.size());
+
+        for (ServiceQueue serviceQueue : serviceQueues) {
+            if (!(serviceQueue instanceof BaseServiceQueueImpl)) {
+                throw new IllegalStateException("LeastLoadedServiceDispatcher needs workers built by ServiceBuilder");
+            }
+            final BaseServiceQueueImpl baseServiceQueue = (BaseServiceQueueImpl) serviceQueue;
+            if (baseServiceQueue.hasSingleProducerRequestQueue()) {
+                throw new IllegalStateException("LeastLoadedServiceDispatcher workers can not use a single producer "
+                        + "request queue, the dispatcher and the worker thread both send to it");
+            }
+            final Worker worker = new Worker(serviceQueue, maxInFlight);
+            baseServiceQueue.inputQueueListener(new WorkerListener(worker, baseServiceQueue.inputQueueListener()));
+            workers.add(worker);
+        }
+        this.workers = Collections.unmodifiableList(workers);
+        serviceQueues = Collections.unmodifiableList(serviceQueues);
+
+        if (startServices) {
+            for (ServiceQueue serviceQueue : serviceQueues) {
+                serviceQueue.start();
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void accept(final MethodCall<Object> methodCall) {
+
+        final List<Worker> workers = this.workers;
+        if (workers.isEmpty()) {
+            throw new IllegalStateException("No workers to send the method call " + methodCall.name() + " to");
+        }
+
+        Worker leastLoaded = workers.get(0);
+        int leastLoad = leastLoaded.load();
+        for (int index = 1; index < workers.size() && leastLoad > 0; index++) {
+            final Worker worker = workers.get(index);
+            final int load = worker.load();
+            if (load < leastLoad) {
+                leastLoaded = worker;
+                leastLoad = load;
+            }
+        }
+
+        if (leastLoaded.pending.isEmpty() && leastLoaded.reserve()) {
+            leastLoaded.send(leastLoaded.dispatcherSendQueue, methodCall);
+            return;
+        }
+
+        leastLoaded.pending.offerLast(methodCall);
+        leastLoaded.waiting.incrementAndGet();
+
+        /* The worker may have started its last call between the check and the offer, and found nothing. */
+        if (leastLoaded.reserve()) {
+            final MethodCall<Object> next = leastLoaded.poll();
+            if (next != null) {
+                leastLoaded.send(leastLoaded.dispatcherSendQueue, next);
+            } else {
+                leastLoaded.release();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (Worker worker : workers) {
+            worker.serviceQueue.flush();
+        }
+    }
+
+    /**
+     * Hands the calls that still wait in the dispatcher to the request queue of their worker, and then stops the
+     * worker. They get the same chance to run as the calls that were already sent to it.
+     */
+    @Override
+    public void stop() {
+        for (Worker worker : workers) {
+            final SendQueue<MethodCall<Object>> sendQueue = worker.serviceQueue.requests();
+            for (MethodCall<Object> methodCall = worker.poll(); methodCall != null; methodCall = worker.poll()) {
+                sendQueue.send(methodCall);
+            }
+            sendQueue.flushSends();
+            worker.serviceQueue.stop();
+        }
+    }
+
+    /**
+     * @return calls that wait in the dispatcher or in the request queue of each worker, plus one if the worker
+     * is running a call, in worker order
+     */
+    public int[] outstandingCalls() {
+        final int[] outstanding = new int[workers.size()];
+        for (int index = 0; index < outstanding.length; index++) {
+            outstanding[index] = workers.get(index).load();
+        }
+        return outstanding;
+    }
+
+    /**
+     * @return calls each worker ran that it took from another worker, in worker order
+     */
+    public long[] stolenCalls() {
+        final long[] stolen = new long[workers.size()];
+        for (int index = 0; index < stolen.length; index++) {
+            stolen[index] = workers.get(index).stolen.get();
+        }
+        return stolen;
+    }
+
+    /**
+     * Runs on the worker thread. Sends the worker its next calls while it has room.
+     */
+    private void feed(final Worker worker) {
+        while (worker.reserve()) {
+            MethodCall<Object> next = worker.poll();
+            if (next == null && workStealing) {
+                next = steal(worker);
+            }
+            if (next == null) {
+                worker.release();
+                return;
+            }
+            worker.send(worker.workerSendQueue, next);
+        }
+    }
+
+    private MethodCall<Object> steal(final Worker thief) {
+        Worker busiest = null;
+        int mostWaiting = 0;
+        for (Worker worker : workers) {
+            final int waiting = worker.waiting.get();
+            if (worker != thief && waiting > mostWaiting) {
+                busiest = worker;
+                mostWaiting = waiting;
+            }
+        }
+        if (busiest == null) {
+            return null;
+        }
+        final MethodCall<Object> stolen = busiest.pending.pollLast();
+        if (stolen != null) {
+            busiest.waiting.decrementAndGet();
+            thief.stolen.incrementAndGet();
+        }
+        return stolen;
+    }
+
+    private static final class Worker {
+
+        private final ServiceQueue serviceQueue;
+
+        /**
+         * Used by the thread that calls accept.
+         */
+        private final SendQueue<MethodCall<Object>> dispatcherSendQueue;
+
+        /**
+         * Used by the worker thread.
+         */
+        private final SendQueue<MethodCall<Object>> workerSendQueue;
+
+        private final ConcurrentLinkedDeque<MethodCall<Object>> pending = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Calls the dispatcher sent that the worker has not taken yet, by identity.
+         */
+        private final Set<MethodCall<Object>> sent = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong stolen = new AtomicLong();
+        private final int maxInFlight;
+
+        private Worker(final ServiceQueue serviceQueue, final int maxInFlight) {
+            this.serviceQueue = serviceQueue;
+            this.maxInFlight = maxInFlight;
+            this.dispatcherSendQueue = serviceQueue.requests();
+            this.workerSendQueue = serviceQueue.requests();
+        }
+
+        /**
+         * Set from the time the worker takes a call until its request queue is empty.
+         */
+        private volatile boolean busy;
+
+        private int load() {
+            return waiting.get() + inFlight.get() + (busy ? 1 : 0);
+        }
+
+        private boolean reserve() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= maxInFlight) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Sends a call that a slot was reserved for.
+         */
+        private void send(final SendQueue<MethodCall<Object>> sendQueue, final MethodCall<Object> methodCall) {
+            sent.add(methodCall);
+            sendQueue.sendAndFlush(methodCall);
+        }
+
+        /**
+         * A call the worker took off its request queue. Calls that did not come from the dispatcher are not counted.
+         */
+        private void started(final MethodCall<Object> methodCall) {
+            if (sent.remove(methodCall)) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private MethodCall<Object> poll() {
+            final MethodCall<Object> methodCall = pending.pollFirst();
+            if (methodCall != null) {
+                waiting.decrementAndGet();
+            }
+            return methodCall;
+        }
+    }
+
+    private final class WorkerListener implements ReceiveQueueListener<MethodCall<Object>> {
+
+        private final Worker worker;
+        private final ReceiveQueueListener<MethodCall<Object>> inputQueueListener;
+
+        private WorkerListener(final Worker worker,
+                               final ReceiveQueueListener<MethodCall<Object>> inputQueueListener) {
+            this.worker = worker;
+            this.inputQueueListener = inputQueueListener;
+        }
+
+        @Override
+        public void receive(final MethodCall<Object> methodCall) {
+            worker.started(methodCall);
+            worker.busy = true;
+            inputQueueListener.receive(methodCall);
+            feed(worker);
+        }
+
+        @Override
+        public void empty() {
+            worker.busy = false;
+            inputQueueListener.empty();
+            feed(worker);
+        }
+
+        @Override
+        public void limit() {
+            inputQueueListener.limit();
+        }
+
+        @Override
+        public void shutdown() {
+            inputQueueListener.shutdown();
+        }
+
+        @Override
+        public void idle() {
+            worker.busy = false;
+            inputQueueListener.idle();
+            feed(worker);
+        }
+
+        @Override
+        public void startBatch() {
+            inputQueueListener.startBatch();
+        }
+    }
+}
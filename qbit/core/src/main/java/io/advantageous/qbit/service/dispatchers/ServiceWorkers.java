@@ -93,52 +93,89 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
 
     public static ShardedMethodDispatcher shardOnFirstArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[0].hashCode() % numWorkers;
-            return shardKey;
+            return shard(methodArgs[0], numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnSecondArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[1].hashCode() % numWorkers;
-            return shardKey;
+            return shard(methodArgs[1], numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnThirdArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[2].hashCode() % numWorkers;
-            return shardKey;
+            return shard(methodArgs[2], numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnFourthArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[3].hashCode() % numWorkers;
-            return shardKey;
+            return shard(methodArgs[3], numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnFifthArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[4].hashCode() % numWorkers;
-            return shardKey;
+            return shard(methodArgs[4], numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnBeanPath(final String beanPath) {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  BeanUtils.idx(methodArgs, beanPath).hashCode() % numWorkers;
-            return shardKey;
+            return shard(BeanUtils.idx(methodArgs, beanPath), numWorkers);
         });
     }
 
 
+    public static LeastLoadedServiceDispatcher leastLoadedWorkers() {
+        return new LeastLoadedServiceDispatcher();
+    }
+
+    /**
+     * Least loaded workers that take waiting calls from each other. Only for stateless services.
+     *
+     * @return dispatcher
+     */
+    public static LeastLoadedServiceDispatcher workStealingWorkers() {
+        return new LeastLoadedServiceDispatcher(1, true);
+    }
+
+    public static ConsistentHashDispatcher consistentHashWorkers(final ShardKey shardKey) {
+        return new ConsistentHashDispatcher(shardKey);
+    }
+
+    public static ConsistentHashDispatcher consistentHashWorkers(int flushInterval, TimeUnit timeUnit,
+                                                                 final ShardKey shardKey, int virtualNodes) {
+        return new ConsistentHashDispatcher(flushInterval, timeUnit, shardKey, virtualNodes);
+    }
+
+    public static ConsistentHashDispatcher consistentHashOnFirstArgumentWorkers() {
+        return new ConsistentHashDispatcher((methodName, methodArgs) -> methodArgs[0]);
+    }
+
+    public static ConsistentHashDispatcher consistentHashOnBeanPath(final String beanPath) {
+        return new ConsistentHashDispatcher((methodName, methodArgs) -> BeanUtils.idx(methodArgs, beanPath));
+    }
+
+    /**
+     * Mixes the hash code of the key before taking the remainder, so poor hash codes still spread over the
+     * workers and negative hash codes (<code>Integer.MIN_VALUE</code> included) give a valid worker index.
+     *
+     * @param key        shard key
+     * @param numWorkers number of workers
+     * @return worker index
+     */
+    public static int shard(final Object key, final int numWorkers) {
+        return (int) Long.remainderUnsigned(ConsistentHashDispatcher.hash(key), numWorkers);
+    }
+
+
 
 
 
@@ -52,9 +52,11 @@ public class ShardedMethodDispatcher extends ServiceWorkers {
     public void accept(final MethodCall<Object> methodCall) {
 
         final Object[] args = methodCall.args();
-        final int shard = shardRule.shard(methodCall.name(), args, serviceQueues.size());
+        final int numWorkers = serviceQueues.size();
+        final int shard = shardRule.shard(methodCall.name(), args, numWorkers);
 
-        final int index = shard >=0 ? shard : shard * -1;
+        /* Rules that take the remainder of a negative hash code return a negative shard. */
+        final int index = shard >= 0 && shard < numWorkers ? shard : Math.floorMod(shard, numWorkers);
 
         final SendQueue<MethodCall<Object>> methodCallSendQueue = sendQueues.get(index) ;
 
@@ -1,8 +1,10 @@
 package io.advantageous.qbit.service.health;
 
 
+import io.advantageous.qbit.annotation.Lane;
 import io.advantageous.qbit.annotation.QueueCallback;
 import io.advantageous.qbit.annotation.QueueCallbackType;
+import io.advantageous.qbit.annotation.RequestLane;
 import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -129,6 +131,7 @@ public class HealthServiceImpl implements HealthService {
     }
 
     @Override
+    @Lane(RequestLane.HIGH)
     public boolean ok() {
         logger.info("HealthService::ok()");
 
@@ -48,11 +48,15 @@ package io.advantageous.qbit.service.impl;
 import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.GlobalConstants;
+import io.advantageous.qbit.annotation.RequestLane;
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.ProxyMethodTable;
+import io.advantageous.qbit.concurrent.SerialExecutor;
 import io.advantageous.qbit.concurrent.PeriodicScheduler;
 import io.advantageous.qbit.events.EventManager;
 import io.advantageous.qbit.message.*;
 import io.advantageous.qbit.queue.*;
+import io.advantageous.qbit.queue.impl.StagingSendQueue;
 import io.advantageous.qbit.service.*;
 import io.advantageous.qbit.system.QBitSystemManager;
 import io.advantageous.qbit.transforms.NoOpResponseTransformer;
@@ -66,9 +70,13 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static io.advantageous.qbit.QBit.factory;
@@ -85,6 +93,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     protected final Object service;
     protected final Queue<Response<Object>> responseQueue;
     protected final Queue<MethodCall<Object>> requestQueue;
+    private final RequestLaneQueue requestLaneQueue;
     protected final Queue<Event<Object>> eventQueue;
 
     private AtomicBoolean started = new AtomicBoolean(false);
@@ -97,6 +106,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     protected volatile long lastResponseFlushTime = Timer.timer().now();
     protected ServiceMethodHandler serviceMethodHandler;
     protected SendQueue<Response<Object>> responseSendQueue;
+    protected final StagingSendQueue<Response<Object>> callbackResponses = new StagingSendQueue<>(this::wakeup);
     private BeforeMethodCall beforeMethodCall = ServiceConstants.NO_OP_BEFORE_METHOD_CALL;
     private BeforeMethodCall beforeMethodCallAfterTransform = ServiceConstants.NO_OP_BEFORE_METHOD_CALL;
     private AfterMethodCall afterMethodCall = new NoOpAfterMethodCall();
@@ -105,6 +115,17 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     private Transformer<Request, Object> requestObjectTransformer = ServiceConstants.NO_OP_ARG_TRANSFORM;
     private Transformer<Response<Object>, Response> responseObjectTransformer = new NoOpResponseTransformer();
     private CallbackManager callbackManager;
+    private Executor methodCallExecutor;
+    /**
+     * Set when method calls run on a <code>SerialExecutor</code> and the handler keeps state that the queue thread
+     * touches too, events and handler notifications then run on it as well.
+     */
+    private Executor serviceStateExecutor;
+    private final AtomicBoolean startBatchPending = new AtomicBoolean();
+    private final AtomicBoolean emptyPending = new AtomicBoolean();
+    private final AtomicBoolean limitPending = new AtomicBoolean();
+    private final AtomicBoolean idlePending = new AtomicBoolean();
+    private final AtomicLong expiredCalls = new AtomicLong();
 
     private final Factory factory;
 
@@ -145,10 +166,21 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         this.responseSendQueue = this.responseQueue.sendQueue();
         this.service = service;
         this.serviceMethodHandler = serviceMethodHandler;
-        this.serviceMethodHandler.init(service, rootAddress, serviceAddress, responseSendQueue);
+        /* Callbacks may be called from other threads, so their responses are staged and the service thread
+        drains them in batches. */
+        this.serviceMethodHandler.init(service, rootAddress, serviceAddress, callbackResponses);
         this.eventQueue = this.requestQueueBuilder.setName("Event Queue" + serviceMethodHandler.address()).build();
         this.handleCallbacks = handleCallbacks;
-        this.requestQueue = initRequestQueue(serviceMethodHandler, async);
+        if (async) {
+            this.requestLaneQueue = new RequestLaneQueue(initRequestQueue(serviceMethodHandler, true),
+                    this.requestQueueBuilder, serviceMethodHandler.address());
+            RequestLaneQueue.annotatedLanes(service).forEach(requestLaneQueue::lane);
+            requestLaneQueue.afterHighCalls(this::flushResponses);
+            this.requestQueue = requestLaneQueue;
+        } else {
+            this.requestLaneQueue = null;
+            this.requestQueue = initRequestQueue(serviceMethodHandler, false);
+        }
         this.systemManager = systemManager;
 
         this.factory = factory();
@@ -259,6 +291,13 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         return requestQueue;
     }
 
+    /**
+     * @return true if only one thread may send method calls to this service
+     */
+    public boolean hasSingleProducerRequestQueue() {
+        return requestQueue.singleProducer();
+    }
+
     public ServiceQueue startCallBackHandler() {
         if (!handleCallbacks) {
             callbackManager = new CallbackManager();
@@ -279,6 +318,112 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         return this;
     }
 
+    /**
+     * Listens to the method calls as the service queue thread takes them off the request queue, and to the
+     * empty, limit and idle notifications of that queue. Must be set before the service is started.
+     *
+     * @param inputQueueListener listener
+     * @return this
+     */
+    public BaseServiceQueueImpl inputQueueListener(ReceiveQueueListener<MethodCall<Object>> inputQueueListener) {
+        this.inputQueueListener = inputQueueListener;
+        return this;
+    }
+
+    public ReceiveQueueListener<MethodCall<Object>> inputQueueListener() {
+        return inputQueueListener;
+    }
+
+    /**
+     * Puts the calls to a method in a request lane, overrides the <code>@Lane</code> annotation of the method.
+     * HIGH calls run before any other waiting call. Only applies to async services, must be set before the service
+     * is started and before any proxy or send queue is created.
+     *
+     * @param methodName method name
+     * @param lane       lane
+     * @return this
+     */
+    public BaseServiceQueueImpl requestLane(final String methodName, final RequestLane lane) {
+        if (requestLaneQueue != null) {
+            requestLaneQueue.lane(methodName, lane);
+        }
+        return this;
+    }
+
+    /**
+     * Sets how many NORMAL calls the service runs for each BULK call while it has NORMAL calls waiting.
+     *
+     * @param bulkEvery normal calls per bulk call, 8 by default
+     * @return this
+     */
+    public BaseServiceQueueImpl bulkLaneEvery(final int bulkEvery) {
+        if (requestLaneQueue != null) {
+            requestLaneQueue.bulkEvery(bulkEvery);
+        }
+        return this;
+    }
+
+    /**
+     * @return the lanes set by annotation or by <code>requestLane</code>, other methods are NORMAL
+     */
+    public Map<String, RequestLane> requestLanes() {
+        return requestLaneQueue == null ? Collections.emptyMap() : requestLaneQueue.lanes();
+    }
+
+    /**
+     * @return method calls that were dropped without running because they waited past their deadline
+     */
+    public long expiredCallCount() {
+        return expiredCalls.get();
+    }
+
+    /**
+     * Runs the service method calls on this executor instead of the service queue thread, for services that
+     * block. Before method call handling and callback registration still run on the queue thread.
+     * Must be set before the service is started.
+     * <p>
+     * If the service has event listeners, queue callbacks or other state the queue thread uses
+     * (see <code>ServiceMethodHandler.hasQueueThreadState</code>), the executor has to be a
+     * <code>SerialExecutor</code>, and events and queue notifications go through it too so the service
+     * only ever sees one thread at a time.
+     *
+     * @param methodCallExecutor executor, wrap it in a <code>SerialExecutor</code> to keep call order
+     * @return this
+     */
+    public BaseServiceQueueImpl methodCallExecutor(Executor methodCallExecutor) {
+        if (methodCallExecutor != null && serviceMethodHandler.hasQueueThreadState()) {
+            if (!(methodCallExecutor instanceof SerialExecutor)) {
+                throw new IllegalArgumentException("Service " + serviceMethodHandler.name()
+                        + " has event listeners, queue callbacks or batch/cache state,"
+                        + " its method calls can only run on an ordered (SerialExecutor) method call executor");
+            }
+            this.serviceStateExecutor = methodCallExecutor;
+        } else {
+            this.serviceStateExecutor = null;
+        }
+        this.methodCallExecutor = methodCallExecutor;
+        return this;
+    }
+
+    /**
+     * Runs a handler notification on the service state executor if there is one, otherwise right here on the
+     * queue thread. A notification that is already waiting on the executor is not queued again.
+     *
+     * @param pending      pending flag for this kind of notification
+     * @param notification notification
+     */
+    private void notifyHandler(final AtomicBoolean pending, final Runnable notification) {
+        final Executor executor = serviceStateExecutor;
+        if (executor == null) {
+            notification.run();
+        } else if (pending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pending.set(false);
+                notification.run();
+            });
+        }
+    }
+
     /**
      * This method is where all of the action is.
      *
@@ -300,6 +445,32 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             if (debug) logger.debug("ServiceImpl::doHandleMethodCall() before handling stopped processing");
             return;
         }
+        if (methodCallExecutor != null) {
+            final MethodCall<Object> call = methodCall;
+            methodCallExecutor.execute(() -> invokeMethodCall(call, serviceMethodHandler, true));
+            return;
+        }
+        invokeMethodCall(methodCall, serviceMethodHandler, false);
+    }
+
+    /**
+     * Calls the service and sends the response.
+     *
+     * @param methodCall           methodCall
+     * @param serviceMethodHandler handler
+     * @param flush                flush the response right away, used off the queue thread since the queue
+     *                             thread only flushes responses every 50 ms
+     */
+    private void invokeMethodCall(final MethodCall<Object> methodCall,
+                                  final ServiceMethodHandler serviceMethodHandler,
+                                  final boolean flush) {
+        if (methodCall.deadline() != 0L && methodCall.isExpired(Timer.timer().now())) {
+            expiredCalls.incrementAndGet();
+            if (debug) {
+                logger.debug("ServiceImpl::invokeMethodCall() dropped call past its deadline " + methodCall);
+            }
+            return;
+        }
         Response<Object> response = serviceMethodHandler.receiveMethodCall(methodCall);
         if (debug) {
             logger.debug("ServiceImpl::receive() \nRESPONSE\n" + response + "\nFROM CALL\n" + methodCall + " name " + methodCall.name() + "\n\n");
@@ -316,7 +487,11 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             }
             responseLock.lock();
             try {
-                responseSendQueue.send(response);
+                if (flush) {
+                    responseSendQueue.sendAndFlush(response);
+                } else {
+                    responseSendQueue.send(response);
+                }
             } finally {
                 responseLock.unlock();
             }
@@ -367,27 +542,37 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             public void empty() {
                 handle();
                 inputQueueListener.empty();
-                serviceMethodHandler.empty();
+                notifyHandler(emptyPending, () -> {
+                    serviceMethodHandler.empty();
+                    drainCallbackResponses();
+                });
             }
 
             @Override
             public void startBatch() {
                 inputQueueListener.startBatch();
-                serviceMethodHandler.queueStartBatch();
+                notifyHandler(startBatchPending, serviceMethodHandler::queueStartBatch);
             }
 
             @Override
             public void limit() {
                 handle();
                 inputQueueListener.limit();
-                serviceMethodHandler.limit();
+                notifyHandler(limitPending, () -> {
+                    serviceMethodHandler.limit();
+                    drainCallbackResponses();
+                });
             }
 
             @Override
             public void shutdown() {
                 handle();
                 inputQueueListener.shutdown();
-                serviceMethodHandler.shutdown();
+                if (serviceStateExecutor == null) {
+                    serviceMethodHandler.shutdown();
+                } else {
+                    serviceStateExecutor.execute(serviceMethodHandler::shutdown);
+                }
             }
 
             @Override
@@ -396,11 +581,15 @@ public class BaseServiceQueueImpl implements ServiceQueue {
                 if (inputQueueListener != null) {
                     inputQueueListener.idle();
                 }
-                serviceMethodHandler.idle();
+                notifyHandler(idlePending, () -> {
+                    serviceMethodHandler.idle();
+                    drainCallbackResponses();
+                });
             }
 
             /** Such a small method with so much responsibility. */
             public void handle() {
+                drainCallbackResponses();
                 manageResponseQueue();
                 /* Handles the CallBacks if you have configured the service
                 to handle its own callbacks.
@@ -413,11 +602,17 @@ public class BaseServiceQueueImpl implements ServiceQueue {
                         callbackManager.handleResponse(response);
                         response = responseReceiveQueue.poll();
                     }
+                    callbackManager.expireCallbacks();
                 }
                 /* Handles the event processing. */
                 Event<Object> event = eventReceiveQueue.poll();
                 while (event != null) {
-                    serviceMethodHandler.handleEvent(event);
+                    if (serviceStateExecutor == null) {
+                        serviceMethodHandler.handleEvent(event);
+                    } else {
+                        final Event<Object> serviceEvent = event;
+                        serviceStateExecutor.execute(() -> serviceMethodHandler.handleEvent(serviceEvent));
+                    }
                     event = eventReceiveQueue.poll();
                 }
                 flushEventManagerCalls();
@@ -434,6 +629,48 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         }
     }
 
+    /**
+     * Wakes the service thread so it drains the callback responses now, not when its request queue next
+     * goes empty, hits its limit or goes idle.
+     */
+    private void wakeup() {
+        final Queue<MethodCall<Object>> requestQueue = this.requestQueue;
+        if (requestQueue != null) {
+            requestQueue.wakeup();
+        }
+    }
+
+    /**
+     * Moves the responses of async callbacks (and of batched calls) to the response queue and flushes them as
+     * one batch. Called by the service thread when its request queue is empty, hits its batch limit, or is idle.
+     */
+    private void drainCallbackResponses() {
+        if (callbackResponses.isEmpty()) {
+            return;
+        }
+        responseLock.lock();
+        try {
+            callbackResponses.drainTo(responseSendQueue);
+            responseSendQueue.flushSends();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
+    /**
+     * Sends the responses of the calls so far right away.
+     */
+    private void flushResponses() {
+        lastResponseFlushTime = Timer.timer().now();
+        drainCallbackResponses();
+        responseLock.lock();
+        try {
+            responseSendQueue.flushSends();
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
     private void manageResponseQueue() {
         long now = Timer.timer().now();
         if (now - lastResponseFlushTime > 50) {
@@ -517,6 +754,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     @Override
     public void flush() {
         lastResponseFlushTime = 0;
+        drainCallbackResponses();
         manageResponseQueue();
     }
 
@@ -558,6 +796,8 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         if (!started.get()) {
             logger.warn("ServiceQueue::create(...), A proxy is being asked for a service that is not started ", name());
         }
+        final ProxyMethodTable proxyMethods = new ProxyMethodTable("", serviceInterface, ClientProxy.class);
+
         InvocationHandler invocationHandler = new InvocationHandler() {
 
             private long messageId = 0;
@@ -567,18 +807,19 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             @Override
             public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
 
-                if (method.getName().equals("toString")) {
-                    return "PROXY OBJECT" + address();
-                }
-                if (method.getName().equals("clientProxyFlush")) {
-                    methodCallSendQueue.flushSends();
-                    return null;
+                final ProxyMethodTable.ProxyMethod proxyMethod = proxyMethods.method(method);
+
+                switch (proxyMethod.kind()) {
+                    case TO_STRING:
+                        return "PROXY OBJECT" + address();
+                    case CLIENT_PROXY_FLUSH:
+                        methodCallSendQueue.flushSends();
+                        return null;
+                    case STOP:
+                        methodCallSendQueue.stop();
+                        return null;
                 }
 
-                if (method.getName().equals("stop")) {
-                    methodCallSendQueue.stop();
-                    return null;
-                }
                 messageId++;
                 times--;
                 if (times == 0) {
@@ -587,7 +828,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
                 } else {
                     timestamp++;
                 }
-                final MethodCallLocal call = new MethodCallLocal(method.getName(), uuid, timestamp, messageId, args);
+                final MethodCallLocal call = new MethodCallLocal(proxyMethod.name(), uuid, timestamp, messageId, args);
                 methodCallSendQueue.send(call);
                 return null;
             }
@@ -21,13 +21,18 @@ package io.advantageous.qbit.service.impl;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.Queue;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
 import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.reactive.CallbackRegistry;
+import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+/**
+ * Matches responses with the callbacks of the calls that sent them.
+ * Callbacks are removed when their response comes in, and time out with <code>Callback.onError</code>
+ * if it does not (see <code>CallbackRegistry</code>).
+ */
 public class CallbackManager {
 
 
@@ -35,7 +40,15 @@ public class CallbackManager {
     /**
      * Maps incoming calls with outgoing handlers (returns, async returns really).
      */
-    private final Map<HandlerKey, Callback<Object>> handlers = new ConcurrentHashMap<>();
+    private final CallbackRegistry handlers;
+
+    public CallbackManager() {
+        this(new CallbackRegistry());
+    }
+
+    public CallbackManager(final CallbackRegistry handlers) {
+        this.handlers = handlers;
+    }
 
     /**
      * Register a callbackWithTimeout handler
@@ -45,29 +58,36 @@ public class CallbackManager {
      */
     private void registerHandlerCallbackForClient(final MethodCall<Object> methodCall,
                                                   final Callback<Object> handler) {
-        handlers.put(new HandlerKey(methodCall.returnAddress(), methodCall.id()), handler);
+        final long timestamp = methodCall.timestamp() == 0L ? Timer.timer().now() : methodCall.timestamp();
+        handlers.register(methodCall.returnAddress(), methodCall.id(), timestamp, handler);
     }
 
 
     public void registerCallbacks(MethodCall<Object> methodCall) {
         Object args = methodCall.body();
 
-        /** Look for callbackWithTimeout handler in the args */
+        Callback<Object> handler = null;
+
+        /** Look for callbackWithTimeout handler in the args, the last one wins. */
         if (args instanceof Iterable) {
             final Iterable list = (Iterable) args;
             for (Object arg : list) {
                 if (arg instanceof Callback) {
-                    registerHandlerCallbackForClient(methodCall, (Callback) arg);
+                    handler = (Callback<Object>) arg;
                 }
             }
         } else if (args instanceof Object[]) {
             final Object[] array = (Object[]) args;
             for (Object arg : array) {
                 if (arg instanceof Callback) {
-                    registerHandlerCallbackForClient(methodCall, ((Callback) arg));
+                    handler = (Callback<Object>) arg;
                 }
             }
         }
+
+        if (handler != null) {
+            registerHandlerCallbackForClient(methodCall, handler);
+        }
     }
 
 
@@ -77,11 +97,40 @@ public class CallbackManager {
      */
     public void startReturnHandlerProcessor(final Queue<Response<Object>> responseQueue) {
 
-        responseQueue.startListener(response -> handleResponse(response));
+        responseQueue.startListener(new ReceiveQueueListener<Response<Object>>() {
+            @Override
+            public void receive(Response<Object> response) {
+                handleResponse(response);
+            }
+
+            @Override
+            public void empty() {
+                expireCallbacks();
+            }
+
+            @Override
+            public void idle() {
+                expireCallbacks();
+            }
+        });
+    }
+
+    /**
+     * Times out callbacks whose response did not come back in time.
+     * Cheap, call it when the queue is empty or idle.
+     *
+     * @return number of callbacks that timed out
+     */
+    public int expireCallbacks() {
+        return handlers.expire(Timer.timer().now());
+    }
+
+    public int outstandingCallbacks() {
+        return handlers.size();
     }
 
     public void handleResponse(Response<Object> response) {
-        final Callback<Object> handler = handlers.get(new HandlerKey(response.returnAddress(), response.id()));
+        final Callback<Object> handler = handlers.remove(response.returnAddress(), response.id());
 
         if (handler==null) {
             return;
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.reflection.AnnotationData;
+import io.advantageous.boon.core.reflection.BeanUtils;
+import io.advantageous.boon.core.reflection.ClassMeta;
+import io.advantageous.boon.core.reflection.MethodAccess;
+import io.advantageous.qbit.annotation.RequestLane;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.queue.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request queue of a service split into lanes.
+ * <p>
+ * NORMAL calls go to the request queue the service thread listens to. HIGH and BULK calls go to two more queues
+ * that the service thread polls from its listener: before every call it runs all waiting HIGH calls, after every
+ * <code>bulkEvery</code> NORMAL calls it runs one BULK call, and when the request queue is empty or idle it runs
+ * up to a batch of BULK calls. A HIGH call waits for at most the call that is running, or for the poll wait of the
+ * request queue if the service has nothing to do, and its response is flushed right away.
+ * <p>
+ * The lane queues are only created if some method is not in the NORMAL lane. Lanes must be set before the service
+ * starts and before any send queue is created.
+ *
+ * @author rhightower
+ */
+class RequestLaneQueue implements Queue<MethodCall<Object>> {
+
+    static final int DEFAULT_BULK_EVERY = 8;
+
+    private final Queue<MethodCall<Object>> requestQueue;
+    private final QueueBuilder queueBuilder;
+    private final String name;
+    private final Map<String, RequestLane> lanes = new HashMap<>();
+    private int bulkEvery = DEFAULT_BULK_EVERY;
+    private Runnable afterHighCalls = () -> {
+    };
+
+    private Queue<MethodCall<Object>> highQueue;
+    private Queue<MethodCall<Object>> bulkQueue;
+
+    RequestLaneQueue(final Queue<MethodCall<Object>> requestQueue, final QueueBuilder queueBuilder,
+                     final String name) {
+        this.requestQueue = requestQueue;
+        this.queueBuilder = BeanUtils.copy(queueBuilder);
+        this.name = name;
+    }
+
+    /**
+     * @return the lanes of the methods of the service that have a <code>@Lane</code> annotation
+     */
+    static Map<String, RequestLane> annotatedLanes(final Object service) {
+        if (service == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, RequestLane> lanes = new HashMap<>();
+        final ClassMeta<?> classMeta = ClassMeta.classMeta(service.getClass());
+        for (MethodAccess methodAccess : classMeta.methods()) {
+            final AnnotationData lane = methodAccess.annotation("Lane");
+            if (lane != null && lane.getValues().get("value") != null) {
+                lanes.put(methodAccess.name(), RequestLane.valueOf(lane.getValues().get("value").toString()));
+            }
+        }
+        return lanes;
+    }
+
+    void lane(final String methodName, final RequestLane lane) {
+        lanes.put(methodName, lane);
+    }
+
+    void bulkEvery(final int bulkEvery) {
+        if (bulkEvery <= 0) {
+            throw new IllegalArgumentException("bulkEvery must be positive");
+        }
+        this.bulkEvery = bulkEvery;
+    }
+
+    /**
+     * @param afterHighCalls runs on the service thread after it ran HIGH calls, to flush their responses
+     */
+    void afterHighCalls(final Runnable afterHighCalls) {
+        this.afterHighCalls = afterHighCalls;
+    }
+
+    Map<String, RequestLane> lanes() {
+        return Collections.unmodifiableMap(lanes);
+    }
+
+    private boolean hasLanes() {
+        for (RequestLane lane : lanes.values()) {
+            if (lane != RequestLane.NORMAL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void initLaneQueues() {
+        if (highQueue == null) {
+            highQueue = BeanUtils.copy(queueBuilder).setName("High Lane Queue " + name).build();
+            bulkQueue = BeanUtils.copy(queueBuilder).setName("Bulk Lane Queue " + name).build();
+        }
+    }
+
+    @Override
+    public ReceiveQueue<MethodCall<Object>> receiveQueue() {
+        return requestQueue.receiveQueue();
+    }
+
+    @Override
+    public SendQueue<MethodCall<Object>> sendQueue() {
+        if (!hasLanes()) {
+            return requestQueue.sendQueue();
+        }
+        initLaneQueues();
+        return new LaneSendQueue(new HashMap<>(lanes), highQueue.sendQueue(), requestQueue.sendQueue(),
+                bulkQueue.sendQueue());
+    }
+
+    @Override
+    public void startListener(final ReceiveQueueListener<MethodCall<Object>> listener) {
+        if (!hasLanes()) {
+            requestQueue.startListener(listener);
+            return;
+        }
+        initLaneQueues();
+        requestQueue.startListener(new LaneListener(listener, highQueue.receiveQueue(), bulkQueue.receiveQueue(),
+                bulkEvery, queueBuilder.getBatchSize(), afterHighCalls));
+    }
+
+    @Override
+    public void wakeup() {
+        requestQueue.wakeup();
+    }
+
+    /**
+     * The lane queues are built from the same queue builder.
+     */
+    @Override
+    public boolean singleProducer() {
+        return requestQueue.singleProducer();
+    }
+
+    @Override
+    public void stop() {
+        requestQueue.stop();
+        if (highQueue != null) {
+            highQueue.stop();
+            bulkQueue.stop();
+        }
+    }
+
+    /**
+     * Sends each call to the queue of its lane. Flushing flushes the HIGH lane first.
+     */
+    private static final class LaneSendQueue implements SendQueue<MethodCall<Object>> {
+
+        private final Map<String, RequestLane> lanes;
+        private final SendQueue<MethodCall<Object>> high;
+        private final SendQueue<MethodCall<Object>> normal;
+        private final SendQueue<MethodCall<Object>> bulk;
+
+        private LaneSendQueue(final Map<String, RequestLane> lanes,
+                              final SendQueue<MethodCall<Object>> high,
+                              final SendQueue<MethodCall<Object>> normal,
+                              final SendQueue<MethodCall<Object>> bulk) {
+            this.lanes = lanes;
+            this.high = high;
+            this.normal = normal;
+            this.bulk = bulk;
+        }
+
+        private SendQueue<MethodCall<Object>> sendQueue(final MethodCall<Object> methodCall) {
+            final RequestLane lane = lanes.get(methodCall.name());
+            if (lane == null) {
+                return normal;
+            }
+            switch (lane) {
+                case HIGH:
+                    return high;
+                case BULK:
+                    return bulk;
+                default:
+                    return normal;
+            }
+        }
+
+        @Override
+        public void send(final MethodCall<Object> item) {
+            sendQueue(item).send(item);
+        }
+
+        @Override
+        public void sendAndFlush(final MethodCall<Object> item) {
+            sendQueue(item).send(item);
+            flushSends();
+        }
+
+        @Override
+        public void sendMany(final MethodCall<Object>... items) {
+            for (MethodCall<Object> item : items) {
+                send(item);
+            }
+        }
+
+        @Override
+        public void sendBatch(final Collection<MethodCall<Object>> items) {
+            for (MethodCall<Object> item : items) {
+                send(item);
+            }
+        }
+
+        @Override
+        public void sendBatch(final Iterable<MethodCall<Object>> items) {
+            for (MethodCall<Object> item : items) {
+                send(item);
+            }
+        }
+
+        @Override
+        public SendStatus trySend(final MethodCall<Object> item) {
+            return sendQueue(item).trySend(item);
+        }
+
+        @Override
+        public SendStatus trySendAndFlush(final MethodCall<Object> item) {
+            final SendQueue<MethodCall<Object>> sendQueue = sendQueue(item);
+            final SendStatus status = sendQueue.trySendAndFlush(item);
+            flushSends();
+            return status;
+        }
+
+        @Override
+        public boolean isOverHighWatermark() {
+            return normal.isOverHighWatermark();
+        }
+
+        @Override
+        public void addOverflowListener(final QueueOverflowHandler overflowListener) {
+            high.addOverflowListener(overflowListener);
+            normal.addOverflowListener(overflowListener);
+            bulk.addOverflowListener(overflowListener);
+        }
+
+        @Override
+        public boolean shouldBatch() {
+            return normal.shouldBatch();
+        }
+
+        @Override
+        public void flushSends() {
+            high.flushSends();
+            normal.flushSends();
+            bulk.flushSends();
+        }
+
+        @Override
+        public void start() {
+            high.start();
+            normal.start();
+            bulk.start();
+        }
+
+        @Override
+        public void stop() {
+            high.stop();
+            normal.stop();
+            bulk.stop();
+        }
+    }
+
+    /**
+     * Runs the HIGH and BULK calls on the service thread in between the NORMAL calls.
+     */
+    private static final class LaneListener implements ReceiveQueueListener<MethodCall<Object>> {
+
+        private final ReceiveQueueListener<MethodCall<Object>> listener;
+        private final ReceiveQueue<MethodCall<Object>> high;
+        private final ReceiveQueue<MethodCall<Object>> bulk;
+        private final int bulkEvery;
+        private final int batchSize;
+        private final Runnable afterHighCalls;
+        private int normalCalls;
+
+        private LaneListener(final ReceiveQueueListener<MethodCall<Object>> listener,
+                             final ReceiveQueue<MethodCall<Object>> high,
+                             final ReceiveQueue<MethodCall<Object>> bulk,
+                             final int bulkEvery, final int batchSize,
+                             final Runnable afterHighCalls) {
+            this.listener = listener;
+            this.high = high;
+            this.bulk = bulk;
+            this.bulkEvery = bulkEvery;
+            this.batchSize = batchSize;
+            this.afterHighCalls = afterHighCalls;
+        }
+
+        private void receiveHigh() {
+            MethodCall<Object> methodCall = high.poll();
+            if (methodCall == null) {
+                return;
+            }
+            while (methodCall != null) {
+                listener.receive(methodCall);
+                methodCall = high.poll();
+            }
+            /* Otherwise the responses wait until the service runs out of calls or hits its batch limit. */
+            afterHighCalls.run();
+        }
+
+        private void receiveBulk(final int max) {
+            for (int count = 0; count < max; count++) {
+                final MethodCall<Object> methodCall = bulk.poll();
+                if (methodCall == null) {
+                    return;
+                }
+                listener.receive(methodCall);
+                receiveHigh();
+            }
+        }
+
+        @Override
+        public void startBatch() {
+            listener.startBatch();
+            receiveHigh();
+        }
+
+        @Override
+        public void receive(final MethodCall<Object> methodCall) {
+            /* High calls never wait behind more than the normal call that is running. */
+            receiveHigh();
+            listener.receive(methodCall);
+            normalCalls++;
+            if (normalCalls >= bulkEvery) {
+                normalCalls = 0;
+                receiveBulk(1);
+            }
+        }
+
+        @Override
+        public void empty() {
+            receiveHigh();
+            receiveBulk(batchSize);
+            listener.empty();
+        }
+
+        @Override
+        public void limit() {
+            receiveHigh();
+            listener.limit();
+        }
+
+        @Override
+        public void shutdown() {
+            listener.shutdown();
+        }
+
+        @Override
+        public void idle() {
+            receiveHigh();
+            receiveBulk(batchSize);
+            listener.idle();
+        }
+    }
+}
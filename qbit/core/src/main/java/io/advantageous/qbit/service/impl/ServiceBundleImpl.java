@@ -42,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 
@@ -60,6 +61,10 @@ public class ServiceBundleImpl implements ServiceBundle {
     private final boolean invokeDynamic;
     private final QBitSystemManager systemManager;
     private final CallbackManager callbackManager = new CallbackManager();
+    /**
+     * Method calls dropped because they waited past their deadline.
+     */
+    private final AtomicLong expiredCalls = new AtomicLong();
     /**
      * Keep track of servicesToStop to forwardEvent queue mappings.
      *///SendQueue<MethodCall<Object>>
@@ -189,6 +194,15 @@ public class ServiceBundleImpl implements ServiceBundle {
                     "\n", methodCall);
         }
 
+        if (methodCall.deadline() != 0L && methodCall.isExpired(Timer.timer().now())) {
+            expiredCalls.incrementAndGet();
+            if (debug) {
+                logger.debug(ServiceBundleImpl.class.getName() + "::doCall() dropped call past its deadline "
+                        + methodCall);
+            }
+            return;
+        }
+
         try {
             callbackManager.registerCallbacks(methodCall);
             boolean[] continueFlag = new boolean[1];
@@ -211,6 +225,13 @@ public class ServiceBundleImpl implements ServiceBundle {
         }
     }
 
+    /**
+     * @return method calls the bundle dropped without dispatching because they waited past their deadline
+     */
+    public long expiredCallCount() {
+        return expiredCalls.get();
+    }
+
     /**
      * Base URI for all of the servicesToStop in this bundle.
      *
@@ -613,13 +634,13 @@ public class ServiceBundleImpl implements ServiceBundle {
             @Override
             public void empty() {
                 webResponseSendQueue.flushSends();
-
+                callbackManager.expireCallbacks();
             }
 
             @Override
             public void limit() {
                 webResponseSendQueue.flushSends();
-
+                callbackManager.expireCallbacks();
             }
 
             @Override
@@ -630,7 +651,7 @@ public class ServiceBundleImpl implements ServiceBundle {
             @Override
             public void idle() {
                 webResponseSendQueue.flushSends();
-
+                callbackManager.expireCallbacks();
             }
 
             @Override
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.spi;
+
+/**
+ * Encodes and decodes the bodies (method call arguments and response values) carried by the binary protocol.
+ * The binary protocol frames the bodies, the codec only sees one value at a time.
+ *
+ * @author rhightower
+ */
+public interface BodyCodec {
+
+    byte[] encode(Object value);
+
+    Object decode(byte[] buffer, int offset, int length);
+}
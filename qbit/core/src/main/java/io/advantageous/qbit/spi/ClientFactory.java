@@ -31,4 +31,16 @@ import io.advantageous.qbit.http.client.HttpClient;
 public interface ClientFactory {
 
     Client create(String uri, HttpClient httpClient, int requestBatchSize);
+
+    default Client create(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol) {
+        if (binaryProtocol) {
+            throw new UnsupportedOperationException();
+        }
+        return create(uri, httpClient, requestBatchSize);
+    }
+
+    default Client create(String uri, HttpClient httpClient, int requestBatchSize, boolean binaryProtocol,
+                          boolean compressGroups) {
+        return create(uri, httpClient, requestBatchSize, binaryProtocol);
+    }
 }
@@ -21,7 +21,10 @@ package io.advantageous.qbit.spi;
 import io.advantageous.qbit.message.Message;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.network.BufferPool;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
 /**
@@ -37,4 +40,35 @@ public interface ProtocolEncoder {
 
     String encodeAsString(Collection<Message<Object>> messages);
 
+    /**
+     * Encodes the messages for a binary transport, like a WebSocket binary frame.
+     * Text encoders send their text as UTF-8.
+     *
+     * @param messages messages
+     * @return encoded messages
+     */
+    default byte[] encodeAsBytes(Collection<Message<Object>> messages) {
+        return encodeAsString(messages).getBytes(StandardCharsets.UTF_8);
+    }
+
+    default byte[] encodeAsBytes(Response<Object> response) {
+        return encodeAsString(response).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the messages into a buffer from the pool, text as UTF-8, flipped and ready to send.
+     * Whoever sends the buffer gives it back to the pool.
+     *
+     * @param messages   messages
+     * @param bufferPool pool to take the buffer from
+     * @return encoded messages
+     */
+    default ByteBuffer encodeToBuffer(Collection<Message<Object>> messages, BufferPool bufferPool) {
+        final byte[] bytes = encodeAsBytes(messages);
+        final ByteBuffer buffer = bufferPool.acquire(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
 }
@@ -24,6 +24,7 @@ import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.util.MultiMap;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This parses the wire format to get method calls.  Could also be called a decoder.
@@ -47,5 +48,24 @@ public interface ProtocolParser {
 
     List<MethodCall<Object>> parseMethodCallListUsingAddressPrefix(String addressPrefix, Object body);
 
+    /**
+     * Hands each method call to the consumer as soon as it is parsed instead of building the list of calls first,
+     * so the first calls of a big group can run while the rest is still being parsed.
+     *
+     * @param addressPrefix address prefix
+     * @param body          message
+     * @param consumer      gets each method call
+     * @return number of method calls parsed
+     */
+    default int parseMethodCallsUsingAddressPrefix(String addressPrefix, Object body,
+                                                   Consumer<MethodCall<Object>> consumer) {
+        final List<MethodCall<Object>> methodCalls = parseMethodCallListUsingAddressPrefix(addressPrefix, body);
+        if (methodCalls == null) {
+            return 0;
+        }
+        methodCalls.forEach(consumer);
+        return methodCalls.size();
+    }
+
     Response<Object> parseResponse(Object body);
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log linear histogram, in the style of HdrHistogram.
+ * <p>
+ * Values below 32 get their own bucket. Above that every power of two is split into 16 linear buckets,
+ * so a recorded value is off by at most 1/16th (about 6%). The whole range of positive longs fits in 960 buckets
+ * and recording is one array increment plus two striped adds.
+ * <p>
+ * Recording is safe from any number of threads. Reads are not a consistent snapshot, which is fine for stats.
+ * For stats over an interval, diff two <code>getBucketCounts</code> snapshots instead of resetting, so other
+ * readers still see the totals.
+ *
+ * @author rhightower
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * (SUB_BUCKET_COUNT / 2) + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_HALF_BITS;
+        return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValueInBucket(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_HALF_BITS) - 1;
+        final long subBucket = index - ((long) shift << SUB_BUCKET_HALF_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     *
+     * @param value value
+     */
+    public void record(final long value) {
+        final long v = value < 0 ? 0 : value;
+        buckets.incrementAndGet(bucketIndex(v));
+        count.increment();
+        total.add(v);
+
+        long currentMax = max.get();
+        while (v > currentMax && !max.compareAndSet(currentMax, v)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public double getMean() {
+        final long countNow = count.sum();
+        return countNow == 0 ? 0 : (double) total.sum() / countNow;
+    }
+
+    /**
+     * Value at a percentile, reported as the highest value of the bucket it falls in (never above the max).
+     *
+     * @param percentile 0 to 100
+     * @return value or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        long countNow = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            countNow += buckets.get(index);
+        }
+        if (countNow == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * countNow));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += buckets.get(index);
+            if (seen >= rank) {
+                return Math.min(highestValueInBucket(index), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return copy of the bucket counts, pass two of them to <code>getValueAtPercentile(long[], long[], double)</code>
+     */
+    public long[] getBucketCounts() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts[index] = buckets.get(index);
+        }
+        return counts;
+    }
+
+    /**
+     * Value at a percentile of just the values recorded between two snapshots, reported as the highest value
+     * of the bucket it falls in.
+     *
+     * @param counts     later bucket counts
+     * @param before     earlier bucket counts of the same histogram, or null for everything in counts
+     * @param percentile 0 to 100
+     * @return value or 0 if nothing was recorded in between
+     */
+    public static long getValueAtPercentile(final long[] counts, final long[] before, final double percentile) {
+        long countNow = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            countNow += counts[index] - (before == null ? 0 : before[index]);
+        }
+        if (countNow <= 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * countNow));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += counts[index] - (before == null ? 0 : before[index]);
+            if (seen >= rank) {
+                return highestValueInBucket(index);
+            }
+        }
+        return highestValueInBucket(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @param counts later bucket counts
+     * @param before earlier bucket counts of the same histogram, or null
+     * @return number of values recorded between the two snapshots
+     */
+    public static long getCount(final long[] counts, final long[] before) {
+        long countNow = 0;
+        for (int index = 0; index < counts.length; index++) {
+            countNow += counts[index] - (before == null ? 0 : before[index]);
+        }
+        return countNow;
+    }
+
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            buckets.set(index, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" +
+                "count=" + getCount() +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.reactive;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class CallbackRegistryTest {
+
+    boolean ok;
+
+    final List<Object> results = new ArrayList<>();
+    final List<Throwable> errors = new ArrayList<>();
+
+    final Callback<Object> callback = new Callback<Object>() {
+        @Override
+        public void accept(Object o) {
+            results.add(o);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            errors.add(error);
+        }
+    };
+
+    @Test
+    public void testRegisterAndRemove() {
+        final CallbackRegistry registry = new CallbackRegistry(1_000, 10, 64);
+
+        registry.register("client1", 1, 0, callback);
+        registry.register("client2", 1, 0, callback);
+        ok = registry.size() == 2 || die(registry.size());
+
+        ok = registry.remove("client1", 1) == callback || die();
+        ok = registry.remove("client1", 1) == null || die("removed twice");
+        ok = registry.remove("client3", 1) == null || die("wrong return address");
+        ok = registry.size() == 1 || die(registry.size());
+
+        ok = registry.remove("client2", 1) == callback || die();
+        ok = registry.size() == 0 || die(registry.size());
+    }
+
+    @Test
+    public void testGrow() {
+        final CallbackRegistry registry = new CallbackRegistry(1_000, 10, 64);
+
+        for (long id = 0; id < 10_000; id++) {
+            registry.register("client", id, 0, callback);
+        }
+        ok = registry.size() == 10_000 || die(registry.size());
+
+        for (long id = 0; id < 10_000; id++) {
+            ok = registry.remove("client", id) == callback || die(id);
+        }
+        ok = registry.size() == 0 || die(registry.size());
+        ok = registry.expire(5_000) == 0 || die("removed entries should not time out");
+    }
+
+    @Test
+    public void testExpire() {
+        final CallbackRegistry registry = new CallbackRegistry(1_000, 10, 64);
+
+        registry.expire(10_000);
+
+        registry.register("client", 1, 10_000, callback);
+        registry.register("client", 2, 10_500, callback);
+        registry.register("client", 3, 10_000, callback);
+        registry.remove("client", 3);
+
+        ok = registry.expire(10_999) == 0 || die("nothing is due yet");
+        ok = registry.expire(11_000) == 1 || die("first call is due");
+        ok = errors.size() == 1 || die(errors.size());
+        ok = errors.get(0) instanceof TimeoutException || die(errors.get(0));
+
+        /* The second call is not due until 11_500. */
+        ok = registry.expire(11_499) == 0 || die();
+        ok = registry.expire(11_505) == 1 || die("second call is due");
+        ok = registry.size() == 0 || die(registry.size());
+        ok = results.isEmpty() || die();
+    }
+
+    @Test
+    public void testExpireAfterLongPause() {
+        final CallbackRegistry registry = new CallbackRegistry(100, 10, 8);
+
+        registry.expire(0);
+        for (long id = 0; id < 100; id++) {
+            registry.register("client", id, id, callback);
+        }
+
+        ok = registry.expire(1_000_000) == 100 || die(errors.size());
+        ok = registry.size() == 0 || die(registry.size());
+    }
+
+    @Test
+    public void testRegisterPastDeadline() {
+        final CallbackRegistry registry = new CallbackRegistry(100, 10, 8);
+
+        registry.expire(5_000);
+        registry.register("client", 1, 0, callback);
+
+        ok = registry.expire(5_010) == 1 || die("late entry should go in the next slot");
+    }
+}
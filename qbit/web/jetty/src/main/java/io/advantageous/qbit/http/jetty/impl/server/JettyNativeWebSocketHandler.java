@@ -24,6 +24,9 @@ import io.advantageous.qbit.http.websocket.WebSocketSender;
 import io.advantageous.boon.primitive.Byt;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 
 import java.nio.ByteBuffer;
@@ -73,6 +76,35 @@ public class JettyNativeWebSocketHandler extends WebSocketAdapter {
                         getRemote().sendBytesByFuture(ByteBuffer.wrap(message));
                     }
 
+                    @Override
+                    public boolean acceptsBuffers(boolean text) {
+                        return !text || getRemote() instanceof WebSocketRemoteEndpoint;
+                    }
+
+                    @Override
+                    public void sendBuffer(ByteBuffer buffer, boolean text, Runnable release) {
+                        final WriteCallback callback = new WriteCallback() {
+                            @Override
+                            public void writeFailed(Throwable error) {
+                                release.run();
+                            }
+
+                            @Override
+                            public void writeSuccess() {
+                                release.run();
+                            }
+                        };
+
+                        if (text) {
+                            /* The API only sends text as a String, the frame takes the UTF-8 as is. */
+                            final TextFrame frame = new TextFrame();
+                            frame.setPayload(buffer);
+                            ((WebSocketRemoteEndpoint) getRemote()).uncheckedSendFrame(frame, callback);
+                        } else {
+                            getRemote().sendBytes(buffer, callback);
+                        }
+                    }
+
                     @Override
                     public void close() {
                         session.close();
@@ -30,6 +30,7 @@ import io.advantageous.qbit.http.websocket.WebSocketSender;
 import io.advantageous.qbit.network.NetSocket;
 import io.advantageous.qbit.util.MultiMap;
 import io.advantageous.qbit.vertx.MultiMapWrapper;
+import io.advantageous.qbit.vertx.http.server.VertxServerUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.Vertx;
@@ -278,9 +279,13 @@ public class HttpVertxClient implements HttpClient {
                     this.vertxWebSocket = vertxWebSocket;
 
                     /* Handle on Message. */
-                    vertxWebSocket.dataHandler(
-                            buffer -> webSocket.onTextMessage(buffer.toString("UTF-8"))
-                    );
+                    vertxWebSocket.dataHandler(buffer -> {
+                        if (VertxServerUtils.isBinaryProtocol(buffer)) {
+                            webSocket.onBinaryMessage(buffer.getBytes());
+                        } else {
+                            webSocket.onTextMessage(buffer.toString("UTF-8"));
+                        }
+                    });
 
                     /* Handle onClose */
                     vertxWebSocket.closeHandler(event -> webSocket.onClose());
@@ -25,6 +25,7 @@ import io.advantageous.qbit.http.request.HttpRequest;
 import io.advantageous.qbit.http.request.HttpResponseReceiver;
 import io.advantageous.qbit.http.websocket.WebSocket;
 import io.advantageous.qbit.http.websocket.WebSocketSender;
+import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.util.MultiMap;
 import io.advantageous.qbit.util.MultiMapImpl;
 import io.advantageous.qbit.util.Timer;
@@ -140,8 +141,12 @@ public class VertxServerUtils {
 
         /* Handle message. */
         vertxServerWebSocket.dataHandler(buffer -> {
-            final String message = buffer.toString("UTF-8");
-            webSocket.onTextMessage(message);
+            if (isBinaryProtocol(buffer)) {
+                webSocket.onBinaryMessage(buffer.getBytes());
+            } else {
+                final String message = buffer.toString("UTF-8");
+                webSocket.onTextMessage(message);
+            }
         });
 
         /* Handle error. */
@@ -156,6 +161,14 @@ public class VertxServerUtils {
         return webSocket;
     }
 
+    /**
+     * The data handler does not say what kind of frame it got, so binary protocol frames are found by their marker.
+     */
+    public static boolean isBinaryProtocol(final Buffer buffer) {
+        return buffer.length() > 2 && buffer.getByte(Protocol.PROTOCOL_MARKER_POSITION) == Protocol.PROTOCOL_MARKER
+                && buffer.getByte(Protocol.VERSION_MARKER_POSITION) == Protocol.PROTOCOL_MESSAGE_TYPE_BINARY;
+    }
+
     private MultiMap<String, String> paramMap(ServerWebSocket vertxServerWebSocket) {
         String query = vertxServerWebSocket.query();
         MultiMap<String, String> paramMap = MultiMap.empty();